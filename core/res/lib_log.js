@@ -28,6 +28,20 @@ var logCachedFilters = null;
 /** The ID of the log row where the user is currently adding a comment (-1 = not adding comment) */
 var logAddCommentTo = -1;
 
+/** The number of log lines loaded in one request */
+var logPageSize = 5000;
+/** Incremented on each reload, so the pages of an older reload can be dropped */
+var logReloadSeq = 0;
+/** Where to continue loading the log when it grows (-1 = the log is still being loaded) */
+var logLoadedEnd = -1;
+
+/** The interval of checking for new log lines, if the log is followed */
+var logFollowInterval = 3000;
+/** The number of log lines on the server, when last checked */
+var logFollowLines = -1;
+/** The number of bugs found in the new log lines, which are already shown */
+var logFollowBugs = 0;
+
 function logUpdateFilterGroups(cb) {
 	$.get(logid + '$listFilterGroups', function(data) {
 		$("#filter").html("");
@@ -90,11 +104,31 @@ function logUpdateFilters(cb) {
 }
 
 function logReload() {
+	// The log is loaded in pages, the server tells where the next page starts
+	var seq = ++logReloadSeq;
+	logLoadedEnd = -1;
 	$("#log-placeholder").html("... loading ...");
-	$.get(logid + '$logOnly', { filter : logSelectedFilter }, function(data) {
-		$("#log-placeholder").html(data);
-		logInstallHover($(".log-dynamic > .log-line, .log-dynamic > .log-comment"));
-		logInstallCommentHover($(".log-dynamic > div.log-comment"));
+	logLoadPage(seq, 0);
+}
+
+function logLoadPage(seq, from) {
+	$.get(logid + '$logOnly', { filter : logSelectedFilter, from : from, count : logPageSize }, function(data) {
+		if (seq != logReloadSeq) return; // A newer reload was started, drop this one
+		var page = $("<div/>").html(data).children(".log-dynamic");
+		var lines = page.children();
+		if (from == 0) {
+			$("#log-placeholder").empty().append(page);
+		} else {
+			$("#log-placeholder > .log-dynamic").append(lines);
+		}
+		logInstallHover(lines.filter(".log-line, .log-comment"));
+		logInstallCommentHover(lines.filter("div.log-comment"));
+		var next = page.attr("data-next");
+		if (next) {
+			logLoadPage(seq, next);
+		} else {
+			logLoadedEnd = parseInt(page.attr("data-end"));
+		}
 	});
 }
 
@@ -412,6 +446,32 @@ function logInstallCommentHover(node) {
 			});
 }
 
+function logFollowPoll() {
+	$.get(logid + '$followStatus', { bugs : logFollowBugs }, function(data) {
+		// Load the new lines, unless the log is being (re)loaded right now
+		if (data.lines != logFollowLines && logLoadedEnd >= 0) {
+			var from = logLoadedEnd;
+			logLoadedEnd = -1;
+			logFollowLines = data.lines;
+			logLoadPage(logReloadSeq, from);
+		}
+		var b = $("#log-follow-bugs");
+		for (var i = 0; i < data.bugs.length; i++) {
+			var bug = data.bugs[i];
+			var html = '<div class="log-follow-bug">New: ' + $("<span/>").text(bug.name).html();
+			if (bug.line !== undefined) {
+				html += ' (line ' + bug.line + ')';
+			}
+			b.append(html + '</div>');
+		}
+		if (data.bugCount !== undefined) {
+			logFollowBugs = data.bugCount;
+		}
+	}, "json").always(function() {
+		setTimeout(logFollowPoll, logFollowInterval);
+	});
+}
+
 function logMain() {
 	// Setup filters
 	logUpdateFilterGroups();
@@ -419,6 +479,10 @@ function logMain() {
 	logInitAddNewFilter();
 	$("#filter").change(logFilterGroupSelected);
 	logReload();
+	// Check for new lines if the log file is followed
+	if (logFollow) {
+		setTimeout(logFollowPoll, logFollowInterval);
+	}
 	// Setup comments
 }
 
@@ -84,7 +84,15 @@ function tvtrHide(id) {
  */
 function ltbProcessLines(func) {
     var regexp = new RegExp($("#regexp").val());
-    $(".log").children().each(function (i) {
+    ltbActions.push({ regexp : regexp, func : func });
+    ltbApply($(".log").children().not(".log-chunk").add(".log-chunk > *"), regexp, func);
+}
+
+/** The actions executed from the log toolbar, replayed on the log chunks loaded later */
+var ltbActions = [];
+
+function ltbApply(lines, regexp, func) {
+    lines.each(function (i) {
         if ($(this).text().match(regexp)) {
             func($(this));
         }
@@ -103,6 +111,158 @@ function ltbToggleLineWrap() {
     }
 }
 
+/** The logs which are loaded in chunks (see ChunkedLog.java), indexed by their id */
+var logviewLogs = {};
+
+/**
+ * Initialize a log which is loaded in chunks.
+ * Only the chunks which are scrolled into view are loaded.
+ * @param id The id of the log element
+ * @param index The index of the log: the file name and first timestamp of each chunk,
+ * and the chunk containing each anchor
+ */
+function logviewInit(id, index) {
+    var log = { index : index, chunks : $("#" + id).children(".log-chunk"), state : [], callbacks : [] };
+    logviewLogs[id] = log;
+    if (typeof IntersectionObserver !== 'undefined') {
+        var observer = new IntersectionObserver(function (entries) {
+            for (var i = 0; i < entries.length; i++) {
+                if (entries[i].isIntersecting) {
+                    logviewLoadChunk(id, log.chunks.index(entries[i].target));
+                }
+            }
+        }, { rootMargin : "1000px 0px" });
+        log.chunks.each(function () {
+            observer.observe(this);
+        });
+    } else {
+        logviewLoadChunk(id, 0);
+    }
+
+    // If a line of the log is referenced from another page, load it and scroll to it
+    var hash = window.location.hash.substring(1);
+    if (hash in index.anchors) {
+        logviewLoadChunk(id, index.anchors[hash], function () {
+            var a = $("a[name='" + hash + "']");
+            if (a.length > 0) {
+                a[0].scrollIntoView();
+            }
+        });
+    }
+}
+
+/**
+ * Load a chunk of the log, if not loaded yet.
+ * @param id The id of the log element
+ * @param idx The index of the chunk
+ * @param cb Optional callback executed when the chunk is loaded
+ */
+function logviewLoadChunk(id, idx, cb) {
+    var log = logviewLogs[id];
+    if (log.state[idx] == "loaded") {
+        if (cb) { cb(); }
+        return;
+    }
+    if (!log.callbacks[idx]) {
+        log.callbacks[idx] = [];
+    }
+    if (cb) {
+        log.callbacks[idx].push(cb);
+    }
+    if (log.state[idx] != "loading") {
+        log.state[idx] = "loading";
+        // The chunks are javascript files, so they can be loaded from the file system too
+        var script = document.createElement("script");
+        script.src = log.index.chunks[idx][0];
+        document.body.appendChild(script);
+    }
+}
+
+/**
+ * Called by the chunk files when they are loaded.
+ * @param id The id of the log element
+ * @param idx The index of the chunk
+ * @param data The gzip compressed html code of the lines, base64 encoded
+ */
+function logviewChunk(id, idx, data) {
+    var bin = atob(data);
+    var bytes = new Uint8Array(bin.length);
+    for (var i = 0; i < bin.length; i++) {
+        bytes[i] = bin.charCodeAt(i);
+    }
+    var stream = new Blob([bytes]).stream().pipeThrough(new DecompressionStream("gzip"));
+    new Response(stream).text().then(function (html) {
+        var log = logviewLogs[id];
+        var chunk = log.chunks.eq(idx);
+        chunk.html(html).css("height", "auto");
+        for (var i = 0; i < ltbActions.length; i++) {
+            ltbApply(chunk.children(), ltbActions[i].regexp, ltbActions[i].func);
+        }
+        log.state[idx] = "loaded";
+        var callbacks = log.callbacks[idx];
+        log.callbacks[idx] = [];
+        for (var i = 0; i < callbacks.length; i++) {
+            callbacks[i]();
+        }
+    });
+}
+
+/**
+ * Convert a time stamp ("MM-DD hh:mm:ss.SSS", the date and the milliseconds are optional)
+ * into the same format as the time stamps in the log index.
+ * @param s The time stamp to parse
+ * @param ref A time stamp used to fill in the date if missing
+ * @return The time stamp in milliseconds, or -1 if it cannot be parsed
+ */
+function logviewParseTime(s, ref) {
+    var m = /^(?:(\d+)-(\d+)\s+)?(\d+):(\d+)(?::(\d+)(?:\.(\d+))?)?/.exec($.trim(s));
+    if (!m) {
+        return -1;
+    }
+    var day = Math.floor(ref / 86400000);
+    if (m[1]) {
+        day = parseInt(m[1], 10) * 31 + parseInt(m[2], 10);
+    }
+    var ms = m[6] ? parseInt((m[6] + "00").substring(0, 3), 10) : 0;
+    var sec = m[5] ? parseInt(m[5], 10) : 0;
+    return (((day * 24 + parseInt(m[3], 10)) * 60 + parseInt(m[4], 10)) * 60 + sec) * 1000 + ms;
+}
+
+/**
+ * Jump to the first line of the log at or after the time entered in the log toolbar.
+ */
+function logviewGotoTime() {
+    for (var id in logviewLogs) {
+        var chunks = logviewLogs[id].index.chunks;
+        var ts = logviewParseTime($("#logview-time").val(), chunks[0][1]);
+        if (ts < 0) {
+            return;
+        }
+        // Find the last chunk starting before the given time
+        var lo = 0, hi = chunks.length - 1;
+        while (lo < hi) {
+            var mid = (lo + hi + 1) >> 1;
+            if (chunks[mid][1] <= ts) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        var chunk = logviewLogs[id].chunks.eq(lo);
+        logviewLoadChunk(id, lo, function () {
+            var target = chunk.children(".log-line").last();
+            chunk.children(".log-line").each(function () {
+                if (logviewParseTime($(this).text(), ts) >= ts) {
+                    target = $(this);
+                    return false;
+                }
+            });
+            target[0].scrollIntoView();
+        });
+        return;
+    }
+}
+
 function main() {
 	// First of all, if the webserver is not running, removing everything tagged with "ws"
 	if (typeof isWebServer === 'undefined' || !isWebServer) {
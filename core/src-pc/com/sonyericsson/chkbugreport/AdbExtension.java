@@ -40,6 +40,16 @@ import java.io.IOException;
     public void reset() {
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[0];
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void load(Module mod) {
     }
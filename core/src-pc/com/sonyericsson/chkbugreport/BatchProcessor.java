@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport;
+
+import com.sonyericsson.chkbugreport.util.HtmlUtil;
+import com.sonyericsson.chkbugreport.util.LineReader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Processes several bugreports in the same process.
+ *
+ * <p>The input is either a directory (every file in it is processed) or a list file (containing
+ * one file name per line). Each bugreport is processed by its own Module and Context, several of
+ * them at the same time, and a summary index is created which links to the reports.</p>
+ */
+/* package */ class BatchProcessor {
+
+    private static final String INDEX_NAME = "batch_index.html";
+
+    private Context mContext;
+    private Vector<String[]> mOptions = new Vector<String[]>();
+    private int mJobs = Runtime.getRuntime().availableProcessors();
+    private File mOutDir;
+    private File mSummaryDir;
+    private Vector<File> mInputs = new Vector<File>();
+
+    /** The outcome of processing one bugreport */
+    private static class Result {
+        File input;
+        String indexFile;
+        int bugCount;
+        long time;
+        String error;
+    }
+
+    public BatchProcessor(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Parse the command line arguments.
+     * @param args The command line arguments
+     * @param first The index of the first argument to process
+     * @return false if the arguments are not valid
+     */
+    public boolean parseArgs(String[] args, int first) {
+        String inputName = null;
+        for (int argIdx = first; argIdx < args.length; argIdx++) {
+            String arg = args[argIdx];
+            if (arg.startsWith("-")) {
+                String key = arg.substring(1);
+                String param = null;
+                int idx = key.indexOf(':');
+                if (idx > 0) {
+                    param = key.substring(idx + 1);
+                    key = key.substring(0, idx);
+                }
+                if ("-jobs".equals(key)) {
+                    mJobs = Math.max(1, Integer.parseInt(param));
+                } else if ("o".equals(key)) {
+                    mOutDir = new File(param);
+                } else if (Main.parseContextOption(mContext, key, param)) {
+                    // Applied to each bugreport's context as well
+                    mOptions.add(new String[]{key, param});
+                } else {
+                    mContext.printErr(1, "Unknown option '" + key + "'!");
+                    return false;
+                }
+            } else if (inputName == null) {
+                inputName = arg;
+            } else {
+                mContext.printErr(1, "Only one directory or list file can be specified!");
+                return false;
+            }
+        }
+        if (inputName == null) {
+            mContext.printErr(1, "No directory or list file specified!");
+            return false;
+        }
+        return collectInputs(new File(inputName));
+    }
+
+    private boolean collectInputs(File input) {
+        if (input.isDirectory()) {
+            File files[] = input.listFiles();
+            Arrays.sort(files);
+            for (File f : files) {
+                if (f.isFile() && !f.getName().startsWith(".")) {
+                    mInputs.add(f);
+                }
+            }
+            mSummaryDir = input;
+        } else if (input.isFile()) {
+            File parent = input.getAbsoluteFile().getParentFile();
+            try {
+                LineReader lr = new LineReader(new FileInputStream(input));
+                String line;
+                while (null != (line = lr.readLine())) {
+                    line = line.trim();
+                    if (line.length() == 0 || line.startsWith("#")) {
+                        continue;
+                    }
+                    File f = new File(line);
+                    if (!f.isAbsolute()) {
+                        f = new File(parent, line);
+                    }
+                    mInputs.add(f);
+                }
+                lr.close();
+            } catch (IOException e) {
+                mContext.printErr(1, "Error reading list file " + input + ": " + e);
+                return false;
+            }
+            mSummaryDir = parent;
+        } else {
+            mContext.printErr(1, "Cannot find directory or list file: " + input);
+            return false;
+        }
+        if (mOutDir != null) {
+            mSummaryDir = mOutDir;
+        }
+        return true;
+    }
+
+    /**
+     * Process all the bugreports and create the summary index.
+     */
+    public void run() {
+        int cnt = mInputs.size();
+        mContext.printOut(1, "Processing " + cnt + " bugreport(s) using " + mJobs + " job(s)...");
+
+        // Make sure the reports don't overwrite each other when using a common output folder
+        Vector<String> outNames = new Vector<String>();
+        HashSet<String> usedNames = new HashSet<String>();
+        for (File f : mInputs) {
+            String name = null;
+            if (mOutDir != null) {
+                name = f.getName();
+                for (int i = 2; usedNames.contains(name); i++) {
+                    name = i + "_" + f.getName();
+                }
+                usedNames.add(name);
+                name = new File(mOutDir, name).getPath();
+            }
+            outNames.add(name);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(mJobs);
+        Vector<Future<Result>> futures = new Vector<Future<Result>>();
+        for (int i = 0; i < cnt; i++) {
+            final File input = mInputs.get(i);
+            final String outName = outNames.get(i);
+            futures.add(pool.submit(new Callable<Result>() {
+                @Override
+                public Result call() {
+                    return process(input, outName);
+                }
+            }));
+        }
+        pool.shutdown();
+
+        Vector<Result> results = new Vector<Result>();
+        int failed = 0;
+        for (int i = 0; i < cnt; i++) {
+            Result res;
+            try {
+                res = futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                res = new Result();
+                res.input = mInputs.get(i);
+                res.error = String.valueOf(e.getCause());
+            }
+            if (res.error != null) {
+                failed++;
+                mContext.printErr(1, "[" + (i + 1) + "/" + cnt + "] " + res.input + ": FAILED: " + res.error);
+            } else {
+                mContext.printOut(1, "[" + (i + 1) + "/" + cnt + "] " + res.input + ": " + res.bugCount + " bug(s)");
+            }
+            results.add(res);
+        }
+
+        saveSummary(results);
+        mContext.printOut(1, "Done, " + (cnt - failed) + " succeeded, " + failed + " failed");
+    }
+
+    private Result process(File input, String outName) {
+        Result res = new Result();
+        res.input = input;
+        long start = System.currentTimeMillis();
+        Context ctx = new Context();
+        for (String opt[] : mOptions) {
+            Main.parseContextOption(ctx, opt[0], opt[1]);
+        }
+        BugReportModule mod = null;
+        try {
+            mod = new BugReportModule(ctx);
+            if (outName != null) {
+                mod.setFileName(outName);
+            }
+            mod.addFile(input.getPath(), null, false);
+            if (mod.isEmpty()) {
+                res.error = "Nothing to process";
+            } else {
+                mod.generate();
+                res.indexFile = mod.getIndexHtmlFileName();
+                res.bugCount = mod.getBugCount();
+            }
+        } catch (Throwable t) {
+            // Don't let one broken bugreport stop the whole batch
+            res.error = String.valueOf(t);
+        } finally {
+            if (mod != null) {
+                mod.close();
+            }
+            ctx.closeLogOutput();
+        }
+        res.time = System.currentTimeMillis() - start;
+        return res;
+    }
+
+    private void saveSummary(Vector<Result> results) {
+        File f = new File(mSummaryDir, INDEX_NAME);
+        try {
+            mSummaryDir.mkdirs();
+            PrintStream out = new PrintStream(f, "UTF-8");
+            HtmlUtil.writeHTMLHeaderLite(out, "ChkBugReport batch summary");
+            out.println("<body>");
+            out.println("<h1>ChkBugReport batch summary</h1>");
+            out.println("<table border=\"1\">");
+            out.println("<tr><th>Input</th><th>Status</th><th>Bugs</th><th>Time (sec)</th></tr>");
+            for (Result res : results) {
+                String name = HtmlUtil.escape(res.input.getPath());
+                out.print("<tr><td>");
+                if (res.indexFile != null) {
+                    String link = relativePath(mSummaryDir, new File(res.indexFile));
+                    out.print("<a href=\"" + HtmlUtil.escape(link) + "\">" + name + "</a>");
+                } else {
+                    out.print(name);
+                }
+                out.print("</td><td>" + (res.error == null ? "OK" : HtmlUtil.escape(res.error)));
+                out.print("</td><td>" + (res.error == null ? Integer.toString(res.bugCount) : "-"));
+                out.println("</td><td>" + String.format("%.1f", res.time / 1000.0f) + "</td></tr>");
+            }
+            out.println("</table>");
+            HtmlUtil.writeHTMLFooter(out);
+            out.close();
+            mContext.printOut(1, "Summary saved to " + f);
+        } catch (IOException e) {
+            mContext.printErr(1, "Error saving summary " + f + ": " + e);
+        }
+    }
+
+    private static String relativePath(File dir, File file) {
+        try {
+            return dir.getCanonicalFile().toPath().relativize(file.getCanonicalFile().toPath()).toString().replace(File.separatorChar, '/');
+        } catch (IOException e) {
+            return file.toURI().toString();
+        }
+    }
+
+}
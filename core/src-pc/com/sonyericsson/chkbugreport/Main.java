@@ -19,6 +19,8 @@
  */
 package com.sonyericsson.chkbugreport;
 
+import com.sonyericsson.chkbugreport.plugins.logs.LogFollower;
+import com.sonyericsson.chkbugreport.plugins.logs.LogPlugin;
 import com.sonyericsson.chkbugreport.settings.BoolSetting;
 import com.sonyericsson.chkbugreport.settings.Settings;
 import com.sonyericsson.chkbugreport.traceview.TraceModule;
@@ -43,13 +45,16 @@ import javax.swing.UIManager;
 public class Main implements OutputListener {
 
     private static final int DEFAULT_LIMIT = 1 * Util.MB;
+    private static final int DEFAULT_FOLLOW_INTERVAL = 5;
 
     private Module mMod;
     private Settings mSettings = new Settings();
     private BoolSetting mShowGui = new BoolSetting(false, mSettings, "showGui", "Launch the GUI automatically when no file name was specified.");
     private BoolSetting mOpenBrowser = new BoolSetting(false, mSettings, "openBrowser", "Launch the browser when output is generated.");
     private boolean mUseServer = false;
+    private boolean mLazyRendering = false;
     private int mServerPort = 0;
+    private int mFollowInterval = 0;
     private Context mContext = new Context();
     private Gui mGui;
 
@@ -125,7 +130,15 @@ public class Main implements OutputListener {
         }
 
         // Peek tha first argument, and select the module
-        if (args[0].equals("-t")) {
+        if (args[0].equals("-batch")) {
+            BatchProcessor batch = new BatchProcessor(mContext);
+            if (!batch.parseArgs(args, 1)) {
+                usage();
+                System.exit(1);
+            }
+            batch.run();
+            return;
+        } else if (args[0].equals("-t")) {
             first = 1;
             mMod = new TraceModule(mContext);
         } else if (args[0].equals("-b")) {
@@ -177,30 +190,22 @@ public class Main implements OutputListener {
                         mMod.addFile(param, Section.META_PARSE_MONKEY, false);
                     } else if ("o".equals(key)) {
                         mMod.setFileName(param);
-                    } else if ("-silent".equals(key)) {
-                        mContext.setSilent(true);
-                    } else if ("-no-limit".equals(key)) {
-                        mContext.setLimit(Integer.MAX_VALUE);
-                    } else if ("-limit".equals(key)) {
-                        int limit = DEFAULT_LIMIT;
-                        if (param != null) {
-                            limit = Integer.parseInt(param) * Util.MB;
-                        }
-                        mContext.setLimit(limit);
-                    } else if ("-time-window".equals(key)) {
-                        mContext.parseTimeWindow(param);
-                    } else if ("-gmt".equals(key)) {
-                        mContext.parseGmtOffset(param);
                     } else if ("-browser".equals(key)) {
                         mOpenBrowser.set(true);
                     } else if ("-server".equals(key)) {
                         mUseServer = true;
+                    } else if ("-lazy".equals(key)) {
+                        mLazyRendering = true;
                     } else if ("-port".equals(key)) {
                         mServerPort = Integer.parseInt(param);
+                    } else if ("-follow".equals(key)) {
+                        mFollowInterval = 1000 * ((param == null) ? DEFAULT_FOLLOW_INTERVAL : Integer.parseInt(param));
                     } else if ("-gui".equals(key)) {
                         mShowGui.set(true);
                     } else if ("-profile".equals(key)) {
                         mProfile = true;
+                    } else if (parseContextOption(mContext, key, param)) {
+                        // Handled
                     } else {
                         onPrint(1, TYPE_ERR, "Unknown option '" + key + "'!");
                         usage();
@@ -219,6 +224,9 @@ public class Main implements OutputListener {
             return;
         }
 
+        // The pages can be rendered on demand only if they are served by the internal web server
+        mContext.setLazyRendering(mUseServer && mLazyRendering);
+
         if (mProfile) {
             System.gc();
             System.gc();
@@ -249,12 +257,80 @@ public class Main implements OutputListener {
             ChkBugReportWebServer server = new ChkBugReportWebServer(mMod);
             server.setPort(mServerPort);
             server.start(mOpenBrowser.get());
+            if (mFollowInterval > 0) {
+                startFollowers();
+            }
         } else {
+            // The report is saved, the input is not needed anymore
+            if (mMod instanceof BugReportModule) {
+                ((BugReportModule) mMod).close();
+            }
             // Launch browser if needed
             openBrowserIfNeeded();
         }
     }
 
+    /**
+     * Starts following the system and main log files (if they were loaded from a file),
+     * so lines appended to them are shown in the web server as well.
+     */
+    private void startFollowers() {
+        if (!(mMod instanceof BugReportModule)) {
+            return;
+        }
+        BugReportModule br = (BugReportModule) mMod;
+        for (String name : new String[] { "SystemLogPlugin", "MainLogPlugin" }) {
+            Plugin p = mMod.getPlugin(name);
+            if (p instanceof LogPlugin && LogFollower.canFollow((LogPlugin) p)) {
+                new LogFollower(br, (LogPlugin) p, mFollowInterval).start();
+            }
+        }
+    }
+
+    /**
+     * Parse an option which affects only the Context.
+     * @param ctx The Context to configure
+     * @param key The name of the option (without the leading '-')
+     * @param param The parameter of the option (the part after ':'), or null
+     * @return true if the option was handled
+     */
+    /* package */ static boolean parseContextOption(Context ctx, String key, String param) {
+        if ("-silent".equals(key)) {
+            ctx.setSilent(true);
+        } else if ("-no-limit".equals(key)) {
+            ctx.setLimit(Integer.MAX_VALUE);
+        } else if ("-limit".equals(key)) {
+            int limit = DEFAULT_LIMIT;
+            if (param != null) {
+                limit = Integer.parseInt(param) * Util.MB;
+            }
+            ctx.setLimit(limit);
+        } else if ("-time-window".equals(key)) {
+            ctx.parseTimeWindow(param);
+        } else if ("-gmt".equals(key)) {
+            ctx.parseGmtOffset(param);
+        } else if ("-event-tags".equals(key)) {
+            ctx.setEventTagsFile(param);
+        } else if ("-mmap".equals(key)) {
+            ctx.setMappedInput(true);
+        } else if ("-charset".equals(key)) {
+            ctx.parseCharset(param);
+        } else if ("-cache".equals(key)) {
+            ctx.setParseCacheEnabled(true);
+        } else if ("-log-chunks".equals(key)) {
+            ctx.parseLogChunkLimit(param);
+        } else if ("-threads".equals(key)) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            if (param != null) {
+                threads = Integer.parseInt(param);
+            }
+            ctx.setThreadCount(threads);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
     /* package */ void openBrowserIfNeeded() {
         String indexFile = mMod.getIndexHtmlFileName();
         if (mOpenBrowser.get() && indexFile != null) {
@@ -302,6 +378,8 @@ public class Main implements OutputListener {
         System.err.println("  or");
         System.err.println("Usage: chkbugreport -t traceviewfile");
         System.err.println("  or");
+        System.err.println("Usage: chkbugreport -batch [options] directory|listfile");
+        System.err.println("  or");
         System.err.println("Usage: chkbugreport [sections] dummybugreportfile");
         System.err.println("Where dummybugreportfile does not exists, but will be used to generate");
         System.err.println("a folder name and sections must contain at least one of the following:");
@@ -319,8 +397,12 @@ public class Main implements OutputListener {
         System.err.println("  -sn:file    - Use file as \"vm traces just now\" section");
         System.err.println("  -sd:dir     - Load files from directory as partial bugreports");
         System.err.println("  -uh:file    - Load usage-history.xml file");
+        System.err.println("The log files (-el, -ml, -sl) can be binary logs (\"logcat -B\"), and they can be");
+        System.err.println("compressed with gzip, xz, zstd or bzip2 (the same applies to autodetected files).");
         System.err.println("Extra options:");
         System.err.println("  --browser   - Launch the browser when done");
+        System.err.println("  --event-tags:file - Use the event-log-tags file of the device (/system/etc/event-log-tags)");
+        System.err.println("                to resolve the tag names in binary event logs");
         System.err.println("  --gmt:offs  - Set the GMT offset (needed to map UTC times to log times)");
         System.err.println("  --gui       - Launch the Graphical User Interface if no file name is provided");
         System.err.println("  --silent    - Supress all output except fatal errors");
@@ -332,8 +414,28 @@ public class Main implements OutputListener {
         System.err.println("  --no-limit  - Don't limit the input file size (default)");
         System.err.println("  -o:file     - Specify name to be used as output directory");
         System.err.println("  --server    - Starts the internal web server to serve the files");
+        System.err.println("  --lazy      - Render the html pages only when requested from the internal");
+        System.err.println("                web server (used together with --server)");
         System.err.println("  --port:port - Specifies which port the internal web server should listen on");
+        System.err.println("  --follow[:sec] - Keep reading the log files given with -sl/-ml as they grow,");
+        System.err.println("                checking them every sec seconds (default: 5, used together with --server)");
         System.err.println("  --profile   - Measure the time and memory used");
+        System.err.println("  --mmap      - Memory map the bugreport instead of loading it in memory");
+        System.err.println("                (compressed input is extracted to a temporary file)");
+        System.err.println("  --charset:name - Use the given charset to decode the input (default: UTF-8)");
+        System.err.println("  --cache     - Cache the parsed input, to speed up processing the same file again");
+        System.err.println("  --log-chunks:n - Save logs longer than n lines in compressed chunks, which are");
+        System.err.println("                loaded only when viewed (default: 50000, 0 disables it)");
+        System.err.println("  --threads:n - Load the plugins in parallel using n threads");
+        System.err.println("                (by default the number of available processors)");
+        System.err.println("Batch options:");
+        System.err.println("  --jobs:n    - Process n bugreports at the same time");
+        System.err.println("                (by default the number of available processors)");
+        System.err.println("  -o:dir      - Create the reports and the summary in the given directory");
+        System.err.println("                (by default next to the input files)");
+        System.err.println("  The extra options above affecting the processing (--silent, --limit,");
+        System.err.println("  --no-limit, --gmt, --time-window, --mmap, --charset, --cache, --log-chunks,");
+        System.err.println("  --threads, --event-tags) apply to every bugreport. The listfile contains one file name per line.");
     }
 
     @Override
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A simple load test for the built-in web server.
+ *
+ * <p>Several clients send the same GET request as fast as they can for a given time, and the
+ * number of requests per second is printed. For example, to measure the dynamic log view
+ * (LogWebApp.logOnly) of a report served with --server:</p>
+ *
+ * <pre>
+ * java -cp chkbugreport.jar com.sonyericsson.chkbugreport.util.HttpLoadTest \
+ *     --clients:16 --time:10 'http://localhost:8080/mainlog$logOnly'
+ * </pre>
+ *
+ * <p>Options: --clients:n (parallel connections), --time:sec (duration), --pipeline:n (send
+ * n requests before reading the responses), --gzip (accept compressed responses) and
+ * --no-keep-alive (open a new connection for each request).</p>
+ */
+public class HttpLoadTest {
+
+    private String mHost;
+    private int mPort;
+    private String mPath;
+    private int mClients = 8;
+    private int mSeconds = 10;
+    private int mPipeline = 1;
+    private boolean mGzip = false;
+    private boolean mKeepAlive = true;
+
+    private AtomicLong mRequests = new AtomicLong();
+    private AtomicLong mBytes = new AtomicLong();
+    private AtomicLong mErrors = new AtomicLong();
+
+    public static void main(String[] args) {
+        HttpLoadTest test = new HttpLoadTest();
+        if (!test.parseArgs(args)) {
+            System.err.println("Usage: HttpLoadTest [--clients:n] [--time:sec] [--pipeline:n] [--gzip] [--no-keep-alive] url");
+            System.exit(1);
+        }
+        test.run();
+    }
+
+    private boolean parseArgs(String[] args) {
+        String url = null;
+        for (String arg : args) {
+            if (arg.startsWith("--clients:")) {
+                mClients = Integer.parseInt(arg.substring(10));
+            } else if (arg.startsWith("--time:")) {
+                mSeconds = Integer.parseInt(arg.substring(7));
+            } else if (arg.startsWith("--pipeline:")) {
+                mPipeline = Math.max(1, Integer.parseInt(arg.substring(11)));
+            } else if (arg.equals("--gzip")) {
+                mGzip = true;
+            } else if (arg.equals("--no-keep-alive")) {
+                mKeepAlive = false;
+            } else if (arg.startsWith("-")) {
+                return false;
+            } else {
+                url = arg;
+            }
+        }
+        if (url == null) {
+            return false;
+        }
+        // Note: '$' is not escaped on purpose, that's how the web server expects it
+        int idx = url.indexOf('/', url.indexOf("//") + 2);
+        URI uri = URI.create(idx < 0 ? url : url.substring(0, idx));
+        mHost = uri.getHost();
+        mPort = uri.getPort() < 0 ? 80 : uri.getPort();
+        mPath = idx < 0 ? "/" : url.substring(idx);
+        return true;
+    }
+
+    private void run() {
+        final long end = System.currentTimeMillis() + mSeconds * 1000L;
+        Vector<Thread> threads = new Vector<Thread>();
+        for (int i = 0; i < mClients; i++) {
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    runClient(end);
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+        long start = System.currentTimeMillis();
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        float secs = (System.currentTimeMillis() - start) / 1000.0f;
+        System.out.println(String.format("%d requests in %.1f seconds: %.1f requests/sec, %.1f MB/sec, %d errors",
+                mRequests.get(), secs, mRequests.get() / secs, mBytes.get() / secs / Util.MB, mErrors.get()));
+    }
+
+    private void runClient(long end) {
+        byte request[] = createRequest();
+        while (System.currentTimeMillis() < end) {
+            try {
+                Socket sock = new Socket(mHost, mPort);
+                sock.setTcpNoDelay(true);
+                try {
+                    InputStream is = new BufferedInputStream(sock.getInputStream());
+                    OutputStream os = sock.getOutputStream();
+                    do {
+                        for (int i = 0; i < mPipeline; i++) {
+                            os.write(request);
+                        }
+                        os.flush();
+                        for (int i = 0; i < mPipeline; i++) {
+                            if (!readResponse(is)) {
+                                throw new IOException("Connection closed");
+                            }
+                            mRequests.incrementAndGet();
+                        }
+                    } while (mKeepAlive && System.currentTimeMillis() < end);
+                } finally {
+                    sock.close();
+                }
+            } catch (IOException e) {
+                mErrors.incrementAndGet();
+            }
+        }
+    }
+
+    private byte[] createRequest() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("GET ").append(mPath).append(" HTTP/1.1\r\n");
+        sb.append("Host: ").append(mHost).append(':').append(mPort).append("\r\n");
+        if (mGzip) {
+            sb.append("Accept-Encoding: gzip\r\n");
+        }
+        sb.append("Connection: ").append(mKeepAlive ? "keep-alive" : "close").append("\r\n");
+        sb.append("\r\n");
+        return sb.toString().getBytes();
+    }
+
+    /**
+     * Reads one response. Returns false if the connection was closed.
+     */
+    private boolean readResponse(InputStream is) throws IOException {
+        String status = readLine(is);
+        if (status == null) {
+            return false;
+        }
+        if (!status.startsWith("HTTP/1.1 200")) {
+            mErrors.incrementAndGet();
+        }
+        int len = -1;
+        String line;
+        while (null != (line = readLine(is)) && line.length() > 0) {
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                len = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        if (len < 0) {
+            // Read till the end of the stream
+            while (is.read() >= 0) {
+                mBytes.incrementAndGet();
+            }
+            return true;
+        }
+        byte buff[] = new byte[len];
+        int pos = 0;
+        while (pos < len) {
+            int read = is.read(buff, pos, len - pos);
+            if (read < 0) {
+                return false;
+            }
+            pos += read;
+        }
+        mBytes.addAndGet(len);
+        return true;
+    }
+
+    private String readLine(InputStream is) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int c = is.read();
+            if (c < 0) {
+                return sb.length() == 0 ? null : sb.toString();
+            }
+            if (c == '\n') {
+                return sb.toString();
+            }
+            if (c != '\r') {
+                sb.append((char) c);
+            }
+        }
+    }
+
+}
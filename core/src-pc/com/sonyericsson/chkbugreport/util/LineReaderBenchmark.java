@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Compares the LineReader with the previous implementation, which read the input byte by byte
+ * (through a BufferedInputStream) and built each line in a StringBuilder. Both read the same
+ * synthetic "logcat -v threadtime" log, from a file and from a byte buffer.
+ *
+ * <pre>
+ * java -cp chkbugreport.jar com.sonyericsson.chkbugreport.util.LineReaderBenchmark [lines]
+ * </pre>
+ */
+public class LineReaderBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    private static final String TAGS[] = {
+        "ActivityManager", "dalvikvm", "WindowManager", "PowerManagerService", "AudioFlinger",
+    };
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        File file = File.createTempFile("linereader", ".txt");
+        file.deleteOnExit();
+        byte data[] = createLog(file, count);
+        System.out.println("Log lines: " + count + ", size: " + (data.length / Util.KB) + " KB");
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long t0 = System.nanoTime();
+            int oldFile = readAll(new OldLineReader(new FileInputStream(file)));
+            long t1 = System.nanoTime();
+            int newFile = readAll(new LineReader(new FileInputStream(file)));
+            long t2 = System.nanoTime();
+            int oldBuff = readAll(new OldLineReader(data, 0, data.length));
+            long t3 = System.nanoTime();
+            int newBuff = readAll(new LineReader(data, 0, data.length));
+            long t4 = System.nanoTime();
+            if (oldFile != count || newFile != count || oldBuff != count || newBuff != count) {
+                throw new RuntimeException("Unexpected line count");
+            }
+            System.out.println(String.format(
+                    "Round %d: file: old %7.1f ms, new %7.1f ms; buffer: old %7.1f ms, new %7.1f ms",
+                    round, (t1 - t0) / 1000000.0, (t2 - t1) / 1000000.0,
+                    (t3 - t2) / 1000000.0, (t4 - t3) / 1000000.0));
+        }
+    }
+
+    private static int readAll(LineReader lr) {
+        int cnt = 0;
+        while (lr.readLine() != null) {
+            cnt++;
+        }
+        lr.close();
+        return cnt;
+    }
+
+    private static int readAll(OldLineReader lr) {
+        int cnt = 0;
+        while (lr.readLine() != null) {
+            cnt++;
+        }
+        lr.close();
+        return cnt;
+    }
+
+    private static byte[] createLog(File file, int count) throws IOException {
+        Random rnd = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(file));
+        long ts = 0;
+        for (int i = 0; i < count; i++) {
+            ts += rnd.nextInt(50);
+            int pid = 100 + rnd.nextInt(900);
+            sb.setLength(0);
+            sb.append(String.format("01-%02d %02d:%02d:%02d.%03d %5d %5d %5d %c %s: ",
+                    1 + (int) (ts / 86400000L), (ts / 3600000L) % 24, (ts / 60000L) % 60,
+                    (ts / 1000L) % 60, ts % 1000, 1000, pid, pid + rnd.nextInt(20),
+                    "VDIWE".charAt(rnd.nextInt(5)), TAGS[rnd.nextInt(TAGS.length)]));
+            int words = 3 + rnd.nextInt(15);
+            for (int w = 0; w < words; w++) {
+                sb.append("word").append(rnd.nextInt(1000)).append(' ');
+            }
+            sb.append('\n');
+            os.write(sb.toString().getBytes("UTF-8"));
+        }
+        os.close();
+
+        byte data[] = new byte[(int) file.length()];
+        InputStream is = new FileInputStream(file);
+        int pos = 0;
+        while (pos < data.length) {
+            pos += is.read(data, pos, data.length - pos);
+        }
+        is.close();
+        return data;
+    }
+
+    /**
+     * The previous implementation of the LineReader, reading the input byte by byte.
+     */
+    private static class OldLineReader {
+
+        private static final int STATE_IDLE = 0;
+        private static final int STATE_0D0D = 1;
+        private static final int STATE_0A   = 2;
+        private static final int STATE_EOF  = 3;
+
+        private int mState = STATE_IDLE;
+        private boolean mFirstLine = true;
+        private InputStream mIs;
+        private byte[] mBuff;
+        private int mOffs;
+        private int mLen;
+        private StringBuilder mSB = new StringBuilder();
+
+        public OldLineReader(InputStream is) {
+            mIs = new BufferedInputStream(is);
+        }
+
+        public OldLineReader(byte[] buff, int offs, int len) {
+            mBuff = buff;
+            mOffs = offs;
+            mLen = len;
+        }
+
+        public String readLine() {
+            mSB.setLength(0);
+            boolean firstWarning = false;
+            try {
+                while (true) {
+                    int b = read();
+                    if (b < 0) {
+                        if (mSB.length() == 0) return null;
+                        mState = STATE_EOF;
+                        break; // EOF
+                    }
+                    if (b == 0xd) {
+                        if (firstWarning) {
+                            mState = STATE_0D0D;
+                            break;
+                        }
+                        firstWarning = true;
+                        continue; // Skip ugly windows line ending
+                    }
+                    if (b == 0xa) {
+                        if (mSB.length() == 0 && mState == STATE_0D0D) {
+                            // Workaround for "0x0d 0x0d 0x0a" line endings
+                            continue;
+                        }
+                        mState = STATE_0A;
+                        break; // EOL
+                    }
+                    mSB.append((char)b);
+                }
+            } catch (IOException e) {
+                // Ignore exception
+                e.printStackTrace();
+                return null;
+            }
+            if (mFirstLine && mSB.length() > 3) {
+                if (mSB.charAt(0) == 239 && mSB.charAt(1) == 187 && mSB.charAt(2) == 191) {
+                    // Workaround for UTF8 marker
+                    mSB.delete(0, 3);
+                }
+            }
+            mFirstLine = false;
+            return mSB.toString();
+        }
+
+        private int read() throws IOException {
+            if (mIs != null) {
+                return mIs.read();
+            }
+            if (mLen <= 0) {
+                return -1; // eof
+            }
+            mLen--;
+            return mBuff[mOffs++];
+        }
+
+        public void close() {
+            if (mIs != null) {
+                try {
+                    mIs.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+    }
+
+}
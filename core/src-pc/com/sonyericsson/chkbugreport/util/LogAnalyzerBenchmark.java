@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.util;
+
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Context;
+import com.sonyericsson.chkbugreport.Section;
+import com.sonyericsson.chkbugreport.plugins.logs.LogAnalyzers;
+import com.sonyericsson.chkbugreport.plugins.logs.LogColumns;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLine;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLines;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Random;
+
+/**
+ * Compares the speed of finding the log analyzers of each line by checking every analyzer
+ * one by one (the same way as a chain of tag/level/prefix checks) and through the dispatch
+ * table of LogAnalyzers. The analyzers are the same as the ones of the system log.
+ * The number of executed analyzers is verified to be the same.
+ *
+ * <pre>
+ * java -cp chkbugreport.jar com.sonyericsson.chkbugreport.util.LogAnalyzerBenchmark [logcat file]
+ * </pre>
+ *
+ * If no file is specified (it should be a "logcat -v threadtime" output), a synthetic log is used.
+ */
+public class LogAnalyzerBenchmark {
+
+    private static final int ROUNDS = 10;
+
+    /** The keys (tag, level, message prefix) of the system log analyzers */
+    private static final String KEYS[][] = {
+        { null, "F", null },
+        { "ConnectivityService", "D", null },
+        { "ActivityManager", "I", "Start proc " },
+        { "ActivityManager", "I", "Displayed " },
+        { "ActivityManager", "I", null },
+        { "ActivityManager", "I", "Config changed: " },
+        { "AndroidRuntime", "D", "Calling main entry " },
+        { "ActivityManager", "E", "ANR in " },
+        { "ActivityManager", "E", "Displayed " },
+        { "ActivityManager", "E", "Start proc " },
+        { "ActivityManager", "E", "Load: " },
+        { "ActivityManager", "E", "act=" },
+        { "DEBUG", "I", "*** *** *** *** *** *** *** *** *** *** *** *** *** *** *** ***" },
+        { null, null, "hprof: dumping heap strings to " },
+        { null, null, "FATAL EXCEPTION:" },
+        { null, null, "*** FATAL EXCEPTION IN SYSTEM PROCESS:" },
+        { "StrictMode", "E", null },
+        { "dalvikvm", null, "GC_" },
+        { "WindowManager", "I", "Setting rotation to " },
+        { null, "E", "\tat " },
+    };
+
+    private BugReportModule mMod = new BugReportModule(new Context());
+    private int mCalls;
+
+    public static void main(String[] args) throws IOException {
+        LogAnalyzerBenchmark b = new LogAnalyzerBenchmark();
+        LogLines lines = args.length > 0 ? b.readLog(args[0]) : b.createLog(200000);
+        b.run(lines);
+    }
+
+    private void run(LogLines lines) {
+        LogColumns cols = lines.getColumns();
+        int cnt = cols.size();
+        System.out.println("Log lines: " + cnt);
+
+        LogAnalyzers.Analyzer counter = new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                mCalls++;
+            }
+        };
+        LogAnalyzers analyzers = new LogAnalyzers();
+        int tags[] = new int[KEYS.length];
+        char levels[] = new char[KEYS.length];
+        for (int k = 0; k < KEYS.length; k++) {
+            String key[] = KEYS[k];
+            levels[k] = key[1] == null ? LogAnalyzers.ANY_LEVEL : key[1].charAt(0);
+            tags[k] = key[0] == null ? -2 : cols.findTag(key[0]);
+            analyzers.add(key[0], levels[k], key[2], counter);
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            // One by one: check the tag id, the level and the prefix of every analyzer
+            mCalls = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < cnt; i++) {
+                if (!cols.isOk(i)) continue;
+                int tag = cols.getTagId(i);
+                char level = cols.getLevel(i);
+                for (int k = 0; k < KEYS.length; k++) {
+                    if (tags[k] != -2 && tags[k] != tag) continue;
+                    if (levels[k] != LogAnalyzers.ANY_LEVEL && levels[k] != level) continue;
+                    if (KEYS[k][2] != null && !cols.msgStartsWith(i, KEYS[k][2])) continue;
+                    counter.analyze(null, i, mMod, null);
+                }
+            }
+            long oneByOne = System.nanoTime() - start;
+            int expected = mCalls;
+
+            // Dispatch table
+            mCalls = 0;
+            start = System.nanoTime();
+            analyzers.prepare(cols);
+            for (int i = 0; i < cnt; i++) {
+                if (cols.isOk(i)) {
+                    analyzers.analyze(null, i, mMod, null);
+                }
+            }
+            long table = System.nanoTime() - start;
+
+            if (expected != mCalls) {
+                throw new RuntimeException("Result mismatch: " + expected + " != " + mCalls);
+            }
+            System.out.println(String.format("Round %2d: one by one %6.1f ms, dispatch table %6.1f ms (%d calls)",
+                    round, oneByOne / 1000000.0, table / 1000000.0, mCalls));
+        }
+    }
+
+    private LogLines readLog(String fileName) throws IOException {
+        LogLines ret = new LogLines();
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), "UTF-8"));
+        try {
+            int fmt = LogLine.FMT_UNKNOWN;
+            LogLine prev = null;
+            String line;
+            while (null != (line = br.readLine())) {
+                LogLine sl = new LogLine(mMod, line, fmt, prev);
+                if (sl.ok) {
+                    fmt = sl.fmt;
+                    prev = sl;
+                }
+                ret.add(sl);
+            }
+        } finally {
+            br.close();
+        }
+        return ret;
+    }
+
+    private LogLines createLog(int count) {
+        String tags[] = { "ActivityManager", "WindowManager", "dalvikvm", "PowerManagerService",
+                "AndroidRuntime", "StrictMode", "ConnectivityService", "wpa_supplicant", "SurfaceFlinger" };
+        String msgs[] = { "Start proc com.foo for activity", "Displayed com.foo/.Main: +320ms",
+                "GC_CONCURRENT freed 1024K", "\tat com.foo.Bar.run(Bar.java:12)", "Setting rotation to 1",
+                "some random message", "another message from the service" };
+        Random rnd = new Random(42);
+        LogLines ret = new LogLines();
+        for (int i = 0; i < count; i++) {
+            String line = String.format("01-08 15:%02d:%02d.%03d %5d %5d %5d %c %s: %s",
+                    (i / 60000) % 60, (i / 1000) % 60, i % 1000, 1000, 100 + i % 300, 200 + i % 700,
+                    "VDIWEF".charAt(rnd.nextInt(6)), tags[rnd.nextInt(tags.length)],
+                    msgs[rnd.nextInt(msgs.length)]);
+            ret.add(new LogLine(mMod, line, LogLine.FMT_BRAT, null));
+        }
+        return ret;
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.util;
+
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Context;
+import com.sonyericsson.chkbugreport.Section;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLine;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLineParser;
+
+import java.util.Random;
+
+/**
+ * Measures the parsing of a synthetic "logcat -v threadtime" log section with different
+ * thread counts (see LogLineParser), and how much of it is spent reading the lines from
+ * the section.
+ *
+ * <pre>
+ * java -cp chkbugreport.jar com.sonyericsson.chkbugreport.util.LogLineParserBenchmark [lines] [threads...]
+ * </pre>
+ */
+public class LogLineParserBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int threads[];
+        if (args.length > 1) {
+            threads = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                threads[i - 1] = Integer.parseInt(args[i]);
+            }
+        } else {
+            int cpus = Runtime.getRuntime().availableProcessors();
+            threads = (cpus > 1) ? new int[] { 1, cpus } : new int[] { 1 };
+        }
+
+        Context ctx = new Context();
+        BugReportModule br = new BugReportModule(ctx);
+        Section sec = createLog(br, count);
+        System.out.println("Log lines: " + count + ", cpus: " + Runtime.getRuntime().availableProcessors());
+        for (int round = 0; round < ROUNDS; round++) {
+            // Only reading the lines
+            long start = System.nanoTime();
+            int len = 0;
+            for (int i = 0; i < count; i++) {
+                len += sec.getLine(i).length();
+            }
+            long read = System.nanoTime() - start;
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Round %d: getLine %6.1f ms", round, read / 1000000.0));
+
+            for (int t : threads) {
+                ctx.setThreadCount(t);
+                start = System.nanoTime();
+                LogLine lines[] = LogLineParser.parse(br, sec, 0, count, LogLine.FMT_BRAT);
+                long parse = System.nanoTime() - start;
+                if (lines.length != count || len == 0) {
+                    throw new RuntimeException("Unexpected result");
+                }
+                sb.append(String.format(", parse (%d threads) %7.1f ms", t, parse / 1000000.0));
+            }
+            System.out.println(sb);
+        }
+    }
+
+    private static Section createLog(BugReportModule br, int count) {
+        String tags[] = { "ActivityManager", "WindowManager", "dalvikvm", "PowerManagerService",
+                "AndroidRuntime", "StrictMode", "ConnectivityService", "wpa_supplicant", "SurfaceFlinger" };
+        String msgs[] = { "Start proc com.foo for activity", "Displayed com.foo/.Main: +320ms",
+                "GC_CONCURRENT freed 1024K", "\tat com.foo.Bar.run(Bar.java:12)", "Setting rotation to 1",
+                "some random message", "another message from the service" };
+        Random rnd = new Random(42);
+        Section ret = new Section(br, Section.SYSTEM_LOG);
+        for (int i = 0; i < count; i++) {
+            ret.addLine(String.format("01-08 15:%02d:%02d.%03d %5d %5d %c %s: %s",
+                    (i / 60000) % 60, (i / 1000) % 60, i % 1000, 100 + i % 300, 200 + i % 700,
+                    "VDIWEF".charAt(rnd.nextInt(6)), tags[rnd.nextInt(tags.length)],
+                    msgs[rnd.nextInt(msgs.length)]));
+        }
+        return ret;
+    }
+
+}
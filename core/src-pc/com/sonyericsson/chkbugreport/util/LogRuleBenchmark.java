@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.util;
+
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Context;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLine;
+import com.sonyericsson.chkbugreport.plugins.logs.LogMatcher;
+import com.sonyericsson.chkbugreport.plugins.logs.LogRuleSet;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.Vector;
+
+/**
+ * Compares the speed of evaluating log hook rules one by one (one pass over the log for each
+ * LogMatcher) and all at once (LogRuleSet), using a synthetic log and synthetic rule sets of
+ * 10, 100 and 1000 rules. The results of the two methods are verified to be the same.
+ *
+ * <pre>
+ * java -cp chkbugreport.jar com.sonyericsson.chkbugreport.util.LogRuleBenchmark [lines]
+ * </pre>
+ */
+public class LogRuleBenchmark {
+
+    private static final int TAGS = 300;
+    private static final int WORDS = 2000;
+
+    private BugReportModule mMod = new BugReportModule(new Context());
+    private Random mRandom = new Random(42);
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        new LogRuleBenchmark().run(lines);
+    }
+
+    private void run(int count) {
+        Vector<LogLine> lines = createLog(count);
+        System.out.println("Log lines: " + lines.size());
+        for (int rules : new int[] { 10, 100, 1000 }) {
+            Vector<LogMatcher> matchers = createRules(rules);
+
+            long start = System.nanoTime();
+            BitSet expected[] = new BitSet[matchers.size()];
+            for (int r = 0; r < matchers.size(); r++) {
+                LogMatcher lm = matchers.get(r);
+                expected[r] = new BitSet();
+                for (int i = 0; i < lines.size(); i++) {
+                    if (lm.matches(lines.get(i))) {
+                        expected[r].set(i);
+                    }
+                }
+            }
+            long oneByOne = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            BitSet actual[] = new LogRuleSet(matchers).matchAll(lines);
+            long singlePass = System.nanoTime() - start;
+
+            int matches = 0;
+            for (int r = 0; r < matchers.size(); r++) {
+                if (!expected[r].equals(actual[r])) {
+                    throw new RuntimeException("Result mismatch for rule " + r);
+                }
+                matches += actual[r].cardinality();
+            }
+            System.out.println(String.format("%5d rules: one by one %6d ms, single pass %6d ms (%d matches)",
+                    rules, oneByOne / 1000000, singlePass / 1000000, matches));
+        }
+    }
+
+    private String tag(int i) {
+        return "Tag" + i + (i % 3 == 0 ? "Service" : "Manager");
+    }
+
+    private String word(int i) {
+        return "w" + Integer.toString(i * 7919, 36);
+    }
+
+    private Vector<LogLine> createLog(int count) {
+        Vector<LogLine> ret = new Vector<LogLine>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder msg = new StringBuilder();
+            int words = 3 + mRandom.nextInt(10);
+            for (int w = 0; w < words; w++) {
+                // Skewed distribution, some words are much more common than others
+                int idx = (int) (WORDS * Math.pow(mRandom.nextDouble(), 3));
+                msg.append(word(idx)).append(' ');
+            }
+            msg.append(mRandom.nextInt(100000));
+            String line = String.format("01-08 15:%02d:%02d.%03d %5d %5d %5d %c %s: %s",
+                    (i / 60000) % 60, (i / 1000) % 60, i % 1000, 1000, 100 + i % 300, 200 + i % 700,
+                    "VDIWEF".charAt(mRandom.nextInt(6)), tag(mRandom.nextInt(TAGS)), msg);
+            ret.add(new LogLine(mMod, line, LogLine.FMT_BRAT, null));
+        }
+        return ret;
+    }
+
+    private Vector<LogMatcher> createRules(int count) {
+        Vector<LogMatcher> ret = new Vector<LogMatcher>();
+        for (int i = 0; i < count; i++) {
+            XMLNode node = new XMLNode("filter");
+            String word = word(mRandom.nextInt(WORDS));
+            switch (i % 10) {
+                case 0: case 1: case 2: case 3:
+                    node.addAttr("matchMsg", word + " " + word(mRandom.nextInt(WORDS)));
+                    break;
+                case 4: case 5:
+                    node.addAttr("matchTag", "^" + tag(mRandom.nextInt(TAGS)) + "$");
+                    break;
+                case 6: case 7:
+                    node.addAttr("matchTag", "^" + tag(mRandom.nextInt(TAGS)) + "$");
+                    node.addAttr("matchMsg", word);
+                    break;
+                case 8:
+                    node.addAttr("matchLine", " E " + tag(mRandom.nextInt(TAGS)) + ": .*" + word + " \\d+$");
+                    break;
+                default:
+                    node.addAttr("matchMsg", "^" + word + ".* 1\\d{4}$");
+                    break;
+            }
+            ret.add(new LogMatcher(mMod, node));
+        }
+        return ret;
+    }
+
+}
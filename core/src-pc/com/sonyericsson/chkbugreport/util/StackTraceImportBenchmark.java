@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.util;
+
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Context;
+import com.sonyericsson.chkbugreport.Section;
+import com.sonyericsson.chkbugreport.plugins.stacktrace.DBImporter;
+import com.sonyericsson.chkbugreport.plugins.stacktrace.Processes;
+import com.sonyericsson.chkbugreport.plugins.stacktrace.StackTracePlugin;
+import com.sonyericsson.chkbugreport.plugins.stacktrace.StackTraceScanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+
+/**
+ * Measures the import of the stack traces into the SQLite database, with a synthetic
+ * stack trace of about 100k frames. The import is done once with all the rows sent and
+ * committed in one go, and once in batches, then a few queries are run on the frames
+ * (looking them up by method and by thread, so the indexes are used).
+ * The sqlite jdbc driver must be in the classpath.
+ *
+ * <pre>
+ * java -cp chkbugreport.jar:sqlite-jdbc.jar com.sonyericsson.chkbugreport.util.StackTraceImportBenchmark [batch size]
+ * </pre>
+ */
+public class StackTraceImportBenchmark {
+
+    private static final int PROCESSES = 200;
+    private static final int THREADS = 25;
+    private static final int FRAMES = 20;
+
+    private static final String QUERIES[] = {
+        // The processes having threads in a given method
+        "select count(distinct t.id) as nr_threads,p.name,p.pid,p.group_id" +
+        "  from stacktrace_items i" +
+        "  inner join stacktrace_threads t on t.id = i.thread_id" +
+        "  inner join stacktrace_processes p on p.id = t.process_id" +
+        "  where i.method = 'com.foo.Class3.method2'" +
+        "  group by p.id, p.group_id" +
+        "  order by nr_threads desc",
+        // The stacks of the threads of a process
+        "select t.name,i.idx,i.method,i.file,i.line" +
+        "  from stacktrace_threads t" +
+        "  inner join stacktrace_items i on i.thread_id = t.id" +
+        "  where t.process_id = " + PROCESSES / 2 +
+        "  order by t.id, i.idx",
+    };
+
+    public static void main(String[] args) throws Exception {
+        int batchSize = args.length > 0 ? Integer.parseInt(args[0]) : DBImporter.DEF_BATCH_SIZE;
+        Class.forName("org.sqlite.JDBC");
+        StackTraceImportBenchmark b = new StackTraceImportBenchmark();
+        HashMap<Integer, Processes> processes = b.createTraces();
+        b.run("Single batch", processes, Integer.MAX_VALUE);
+        b.run("Batches of " + batchSize, processes, batchSize);
+    }
+
+    private HashMap<Integer, Processes> createTraces() {
+        StringBuilder data = new StringBuilder();
+        for (int pid = 1; pid <= PROCESSES; pid++) {
+            data.append("----- pid ").append(pid).append(" at 2020-01-16 14:18:55 -----\n");
+            data.append("Cmd line: com.foo.app").append(pid).append("\n\n");
+            for (int tid = 1; tid <= THREADS; tid++) {
+                data.append("\"Thread-").append(tid).append("\" prio=5 tid=").append(tid).append(" Native\n");
+                data.append("  | sysTid=").append(pid * 100 + tid).append("\n");
+                for (int f = 0; f < FRAMES; f++) {
+                    data.append("  at com.foo.Class").append(f).append(".method").append((tid + f) % 7)
+                        .append("(Class").append(f).append(".java:").append(f * 10 + tid).append(")\n");
+                }
+                data.append("\n");
+            }
+            data.append("----- end ").append(pid).append(" -----\n");
+        }
+
+        BugReportModule br = new BugReportModule(new Context());
+        Section sec = new Section(br, Section.VM_TRACES_JUST_NOW);
+        for (String line : data.toString().split("\n")) {
+            sec.addLine(line);
+        }
+        HashMap<Integer, Processes> ret = new HashMap<Integer, Processes>();
+        ret.put(StackTracePlugin.ID_NOW, new StackTraceScanner(null).scan(br, StackTracePlugin.ID_NOW, sec, "test"));
+        System.out.println("Frames: " + PROCESSES * THREADS * FRAMES);
+        return ret;
+    }
+
+    private void run(String name, HashMap<Integer, Processes> processes, int batchSize) throws SQLException, IOException {
+        File f = File.createTempFile("stacktrace", ".db");
+        Connection conn = DriverManager.getConnection("jdbc:sqlite:" + f.getAbsolutePath());
+        try {
+            conn.setAutoCommit(false);
+            Runtime rt = Runtime.getRuntime();
+            System.gc();
+            long mem = rt.totalMemory() - rt.freeMemory();
+            long start = System.nanoTime();
+            new DBImporter(null, batchSize).importIntoDB(conn, processes);
+            long time = System.nanoTime() - start;
+            long used = rt.totalMemory() - rt.freeMemory() - mem;
+
+            start = System.nanoTime();
+            Statement stat = conn.createStatement();
+            int rows = 0;
+            for (String sql : QUERIES) {
+                ResultSet rs = stat.executeQuery(sql);
+                while (rs.next()) {
+                    rows++;
+                }
+                rs.close();
+            }
+            stat.close();
+            long query = System.nanoTime() - start;
+
+            System.out.println(String.format("%s: import %7.1f ms (heap growth %d KB), queries %6.1f ms (%d rows)",
+                    name, time / 1000000.0, used / 1024, query / 1000000.0, rows));
+        } finally {
+            conn.close();
+            f.delete();
+        }
+    }
+
+}
@@ -43,6 +43,10 @@ import com.sonyericsson.chkbugreport.plugins.battery.WakelocksFromLogPlugin;
 import com.sonyericsson.chkbugreport.plugins.battery.WakelocksPlugin;
 import com.sonyericsson.chkbugreport.plugins.charteditor.ChartEditorPlugin;
 import com.sonyericsson.chkbugreport.plugins.ftrace.FTracePlugin;
+import com.sonyericsson.chkbugreport.plugins.logs.BinaryLogReader;
+import com.sonyericsson.chkbugreport.plugins.logs.BinaryLogSection;
+import com.sonyericsson.chkbugreport.plugins.logs.EventLogTags;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLine;
 import com.sonyericsson.chkbugreport.plugins.logs.MainLogPlugin;
 import com.sonyericsson.chkbugreport.plugins.logs.SystemLogPlugin;
 import com.sonyericsson.chkbugreport.plugins.logs.event.EventLogPlugin;
@@ -51,7 +55,10 @@ import com.sonyericsson.chkbugreport.plugins.stacktrace.StackTracePlugin;
 import com.sonyericsson.chkbugreport.ps.PSRecord;
 import com.sonyericsson.chkbugreport.ps.PSRecords;
 import com.sonyericsson.chkbugreport.ps.PSScanner;
+import com.sonyericsson.chkbugreport.util.CompressedInput;
 import com.sonyericsson.chkbugreport.util.LineReader;
+import com.sonyericsson.chkbugreport.util.MappedFile;
+import com.sonyericsson.chkbugreport.util.MappedLineReader;
 import com.sonyericsson.chkbugreport.util.Util;
 
 import java.io.BufferedInputStream;
@@ -60,13 +67,13 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Vector;
-import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -82,8 +89,16 @@ public class BugReportModule extends Module {
 
     private static final String FILENAME_SPLIT = ".zip:bugreport";
 
+    /**
+     * The data id of the Android version (see {@link #getAndroidVersionSdk()}), which is set
+     * by the SysPropsPlugin while loading. Plugins which depend on the version while loading
+     * must list it in {@link Plugin#getConsumedData()}.
+     */
+    public static final String DATA_ANDROID_VERSION = "!ANDROID_VERSION";
+
     private Vector<ProcessRecord> mProcessRecords = new Vector<ProcessRecord>();
     private HashMap<Integer, ProcessRecord> mProcessRecordMap = new HashMap<Integer, ProcessRecord>();
+    private Vector<MappedFile> mMappedFiles = new Vector<MappedFile>();
     private Chapter mChProcesses;
     private PSRecords mPSRecords;
 
@@ -101,6 +116,13 @@ public class BugReportModule extends Module {
 
     private ThreadsDependencyGraph threadsDependencyGraph;
 
+    // Records the sections while the input is loaded, if the parse cache is enabled
+    private ParseCache mParseCache;
+
+    // The tag names of the binary event logs, loaded when the first binary log is read
+    private EventLogTags mEventLogTags;
+    private boolean mEventLogTagsLoaded;
+
     /**
      * Create an instance in order to process a bugreport.
      * @param context Contains various configs
@@ -160,14 +182,52 @@ public class BugReportModule extends Module {
         return mTimestamp;
     }
 
+    /* package */ void setTimestamp(Calendar ts) {
+        mTimestamp = ts;
+    }
+
+    @Override
+    public void addHeaderLine(String line) {
+        if (mParseCache != null) {
+            mParseCache.onHeaderLine(line);
+        }
+        super.addHeaderLine(line);
+    }
+
     private boolean load(InputStream is) throws IOException {
         return load(is, false, null);
     }
 
     private boolean load(InputStream is, boolean partial, String secName) throws IOException {
+        return load(new LineReader(is, getContext().getCharset()), partial, secName);
+    }
+
+    /**
+     * Load the bugreport from a memory mapped file.
+     * The sections will store only the location of the lines, and decode them on demand.
+     * @param file The mapped bugreport file
+     */
+    private boolean loadMapped(MappedFile file) throws IOException {
+        printOut(2, String.format("Using memory mapped input (%d bytes)", file.size()));
+        mMappedFiles.add(file);
+        return load(new MappedLineReader(file), false, null);
+    }
+
+    /**
+     * Release the memory mapped input files, and delete the temporary files created for them.
+     * The sections read from mapped files cannot be accessed after this, so this should be
+     * called only when the report is generated and the module is not needed anymore.
+     */
+    public void close() {
+        for (MappedFile file : mMappedFiles) {
+            file.close();
+        }
+        mMappedFiles.clear();
+    }
+
+    private boolean load(LineReader br, boolean partial, String secName) throws IOException {
         long t0 = System.currentTimeMillis();
         printOut(1, "Loading input...");
-        LineReader br = new LineReader(is);
         String buff;
         Section curSection = null;
         mTimestamp = null;
@@ -237,12 +297,14 @@ public class BugReportModule extends Module {
             }
 
             // Workaround for buggy wallpaper service dump
+            boolean wholeLine = true;
             int idx = buff.indexOf(SECTION_DIVIDER);
             if (idx > 0) {
                 if (curSection != null) {
                     curSection.addLine(buff.substring(0, idx));
                 }
                 buff = buff.substring(idx);
+                wholeLine = false;
             }
 
             if (buff.equals(SECTION_DIVIDER)) {
@@ -274,7 +336,11 @@ public class BugReportModule extends Module {
                 addSection(curSection);
             }
             if (curSection != null) {
-                curSection.addLine(buff);
+                if (wholeLine) {
+                    addLine(curSection, br, buff);
+                } else {
+                    curSection.addLine(buff);
+                }
             } else {
                 addHeaderLine(buff);
                 mBugReportHeader.add(buff);
@@ -291,6 +357,19 @@ public class BugReportModule extends Module {
         return true;
     }
 
+    /**
+     * Add the line last read by the reader to the section.
+     * If the reader works on a mapped file, only the location of the line is stored.
+     */
+    private void addLine(Section section, LineReader br, String line) {
+        if (br instanceof MappedLineReader) {
+            MappedLineReader mbr = (MappedLineReader) br;
+            section.addLine(mbr.getFile(), mbr.getLineStart(), mbr.getLineEnd());
+        } else {
+            section.addLine(line);
+        }
+    }
+
     /**
      * Load a partial bugreport, for example the output of dumpsys
      * @param fileName The file name of the partial bugreport
@@ -332,11 +411,11 @@ public class BugReportModule extends Module {
                     if (buff.length() == 0) {
                         state = 2; // stack trace
                     } else {
-                        secLog.addLine(buff);
+                        addLine(secLog, br, buff);
                     }
                     break;
                 case 2: /* stack trace */
-                    secStack.addLine(buff);
+                    addLine(secStack, br, buff);
                     break;
             }
         } while (null != (buff = br.readLine()));
@@ -371,13 +450,13 @@ public class BugReportModule extends Module {
      *   so if no other important info is added, the process record won't be saved.
      * @return The process record or null if not found (and not created)
      */
-    public ProcessRecord getProcessRecord(int pid, boolean createIfNeeded, boolean export) {
+    public synchronized ProcessRecord getProcessRecord(int pid, boolean createIfNeeded, boolean export) {
         if (pid <= 0) {
             return null;
         }
         ProcessRecord ret = mProcessRecordMap.get(pid);
         if (ret == null && createIfNeeded) {
-            ret = new ProcessRecord(getContext(), "", pid);
+            ret = new ProcessRecord(this, "", pid);
             mProcessRecordMap.put(pid, ret);
             mProcessRecords.add(ret);
         }
@@ -490,7 +569,7 @@ public class BugReportModule extends Module {
         char state = 'm';
         try {
             FileInputStream fis = new FileInputStream(fileName);
-            LineReader lr = new LineReader(fis);
+            LineReader lr = new LineReader(fis, getContext().getCharset());
 
             String line = null;
             Bug bug = null;
@@ -561,6 +640,9 @@ public class BugReportModule extends Module {
 
     @Override
     public boolean addFile(String fileName, String type, boolean limitSize) {
+        if (isLogType(type) && addLogFile(fileName, type)) {
+            return true;
+        }
         if (super.addFile(fileName, type, limitSize)) {
             return true;
         } else {
@@ -592,7 +674,29 @@ public class BugReportModule extends Module {
         if (!f.exists()) {
             printErr(1, "File " + fileName + " does not exists!");
         }
+        if (!getContext().isParseCacheEnabled() || !f.isFile()) {
+            return autodetectFile(fileName, f);
+        }
 
+        // Use the result of a previous run if possible
+        ParseCache cache = new ParseCache(this, fileName, f);
+        if (cache.restore()) {
+            return true;
+        }
+        boolean ok = false;
+        mParseCache = cache;
+        try {
+            cache.startRecording();
+            boolean ret = autodetectFile(fileName, f);
+            ok = true;
+            return ret;
+        } finally {
+            mParseCache = null;
+            cache.stopRecording(ok);
+        }
+    }
+
+    private boolean autodetectFile(String fileName, File f) {
         // Try to open it as zip
         try {
             ZipFile zip = new ZipFile(fileName);
@@ -607,7 +711,7 @@ public class BugReportModule extends Module {
                         System.out.println("Trying to parse zip entry: " + entry.getName() + " ...");
                     }
 
-                    autodetectFile(fileName + ":" + entry.getName(), zip.getInputStream(entry));
+                    autodetectFile(fileName + ":" + entry.getName(), null, zip.getInputStream(entry));
                 }
             }
             // We managed to process as zip file, so do not handle as non-zip file
@@ -619,27 +723,32 @@ public class BugReportModule extends Module {
         // Failed to process as zip file, so try processing as normal file
         try {
             FileInputStream is = new FileInputStream(f);
-            autodetectFile(fileName, is);
+            autodetectFile(fileName, f, is);
             return true;
         } catch (FileNotFoundException e) {
             throw new IllegalParameterException("Cannot open file: " + fileName);
         }
     }
 
-    private void autodetectFile(String fileName, InputStream origIs) {
+    private void autodetectFile(String fileName, File file, InputStream origIs) {
         final int buffSize = 0x1000;
         InputStream is = new BufferedInputStream(origIs, buffSize);
         boolean isZip = fileName.contains(FILENAME_SPLIT);
-        // Try to open it as gzip
+        // Check if it's compressed (gzip, xz, ...)
         try {
             is.mark(buffSize);
-            is = new BufferedInputStream(new GZIPInputStream(is), buffSize);
+            InputStream decompressed = CompressedInput.wrap(is);
+            if (decompressed != is) {
+                is = new BufferedInputStream(decompressed, buffSize);
+                file = null; // The file content cannot be used directly
+            }
         } catch (IOException e) {
             // Failed, so let's just work with the raw file
+            printErr(1, "Cannot decompress file '" + fileName + "', reading it as it is: " + e.getMessage());
             try {
                 is.reset();
             } catch (IOException e1) {
-                e1.printStackTrace(); // FIXME: this is a bit ugly
+                throw new IllegalParameterException("Cannot read file: " + fileName);
             }
         }
 
@@ -660,6 +769,11 @@ public class BugReportModule extends Module {
             e.printStackTrace();
         }
 
+        if (BinaryLogReader.isBinaryLog(buff, 0, buffLen)) {
+            loadBinaryLog(fileName, is, null);
+            return;
+        }
+
         GuessedValue<String> type = new GuessedValue<String>(null);
         autodetect(buff, 0, buffLen, type);
         if (type.get() == null) {
@@ -670,7 +784,14 @@ public class BugReportModule extends Module {
         if (type.get().equals(TYPE_BUGREPORT)) {
             try {
                 String outputFileName = isZip ? fileName.substring(0, fileName.indexOf(FILENAME_SPLIT)): fileName;
-                load(is);
+                if (getContext().isMappedInput()) {
+                    Charset charset = getContext().getCharset();
+                    MappedFile mapped = (file != null) ? MappedFile.map(file, charset) : MappedFile.spillAndMap(is, charset);
+                    is.close();
+                    loadMapped(mapped);
+                } else {
+                    load(is);
+                }
                 setSource(new SourceFile(fileName, TYPE_BUGREPORT));
                 setFileName(outputFileName, 100);
             } catch (IOException e) {
@@ -681,6 +802,140 @@ public class BugReportModule extends Module {
         }
     }
 
+    private static boolean isLogType(String type) {
+        return Section.SYSTEM_LOG.equals(type) || Section.MAIN_LOG.equals(type)
+                || Section.EVENT_LOG.equals(type);
+    }
+
+    /**
+     * Loads a log file given explicitly (for example with -sl), if it's compressed or a binary
+     * log. Returns false if it's a plain text file, which is loaded the normal way (that way
+     * it can be followed if it's still growing).
+     */
+    private boolean addLogFile(String fileName, String type) {
+        InputStream is = null;
+        try {
+            is = new BufferedInputStream(new FileInputStream(fileName), 0x1000);
+            InputStream decompressed = CompressedInput.wrap(is);
+            boolean compressed = decompressed != is;
+            if (compressed) {
+                is = new BufferedInputStream(decompressed, 0x1000);
+            }
+            byte buff[] = new byte[0x100];
+            is.mark(buff.length);
+            int buffLen = 0;
+            while (buffLen < buff.length) {
+                int read = is.read(buff, buffLen, buff.length - buffLen);
+                if (read <= 0) {
+                    break;
+                }
+                buffLen += read;
+            }
+            is.reset();
+            if (BinaryLogReader.isBinaryLog(buff, 0, buffLen)) {
+                loadBinaryLog(fileName, is, type);
+                return true;
+            }
+            if (compressed) {
+                // The size limit cannot be applied to compressed files, read all of it
+                addSection(type, fileName, is, false);
+                is = null; // Closed when reading the section
+                return true;
+            }
+        } catch (IOException e) {
+            // Let the normal loading report the problem
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) { /* NOP */ }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Loads a binary log (written by "logcat -B"). The records of each log buffer are added to
+     * the same section as in a bugreport (the text logs to the system log, the binary ones to
+     * the event log), unless the section of the text logs is specified.
+     * @param fileName The name of the file
+     * @param is The binary log data
+     * @param textSection The section of the text log records, or null
+     */
+    private void loadBinaryLog(String fileName, InputStream is, String textSection) {
+        Vector<BinaryLogSection> sections = new Vector<BinaryLogSection>();
+        HashMap<String, BinaryLogSection> map = new HashMap<String, BinaryLogSection>();
+        Vector<LogLine> lines = new Vector<LogLine>();
+        BinaryLogReader reader = new BinaryLogReader(this, is);
+        String error = null;
+        try {
+            while (reader.read(lines)) {
+                String name = BinaryLogReader.getSectionName(reader.getLogId());
+                if (textSection != null && !name.equals(Section.EVENT_LOG)) {
+                    name = textSection;
+                }
+                BinaryLogSection sec = map.get(name);
+                if (sec == null) {
+                    sec = new BinaryLogSection(this, name);
+                    map.put(name, sec);
+                    sections.add(sec);
+                }
+                for (LogLine sl : lines) {
+                    sec.addLogLine(sl);
+                }
+                lines.clear();
+            }
+        } catch (IOException e) {
+            error = e.getMessage();
+            printErr(1, "Error reading binary log '" + fileName + "' (the rest is ignored): " + error);
+        } finally {
+            try {
+                is.close();
+            } catch (IOException e) { /* NOP */ }
+        }
+
+        int unresolved = reader.getUnresolvedCount();
+        if (unresolved > 0) {
+            String msg = unresolved + " event log lines in '" + fileName + "' have numeric tags, "
+                    + "so the event log analysis is incomplete";
+            if (getContext().getEventTagsFile() == null) {
+                msg += " (use --event-tags to resolve the tag names)";
+            }
+            printErr(2, msg);
+            addHeaderLine("<span style=\"color: #f00;\">Warning: " + msg + "</span>");
+        }
+
+        for (BinaryLogSection sec : sections) {
+            addSection(sec);
+            String headerLine = sec.getName() + ": " + fileName + " (binary log)";
+            if (error != null) {
+                headerLine += "<span style=\"color: #f00;\"> (READ FAILED!)</span>";
+            }
+            addHeaderLine(headerLine);
+            addSource(new SourceFile(fileName, sec.getName()));
+        }
+    }
+
+    /**
+     * Returns the event log tag names read from the file set with
+     * {@link Context#setEventTagsFile(String)}, or null if it's not set or cannot be read.
+     */
+    public EventLogTags getEventLogTags() {
+        if (!mEventLogTagsLoaded) {
+            mEventLogTagsLoaded = true;
+            String fileName = getContext().getEventTagsFile();
+            if (fileName != null) {
+                try {
+                    mEventLogTags = new EventLogTags(new FileInputStream(fileName));
+                    addHeaderLine("Event log tags: " + fileName);
+                } catch (IOException e) {
+                    printErr(1, "Error reading event log tags '" + fileName + "': " + e);
+                }
+            }
+        }
+        return mEventLogTags;
+    }
+
     @Override
     protected void autodetect(byte[] buff, int offs, int len, GuessedValue<String> type) {
         super.autodetect(buff, offs, len, type);
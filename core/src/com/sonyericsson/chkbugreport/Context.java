@@ -18,9 +18,12 @@
  */
 package com.sonyericsson.chkbugreport;
 
+import com.sonyericsson.chkbugreport.util.LineReader;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.charset.Charset;
 import java.util.Vector;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -47,6 +50,20 @@ public final class Context {
     private boolean mSilent = false;
     // Next chapter id to be allocated
     private int mNextChapterId = 1;
+    // Number of threads used to load the plugins
+    private int mThreadCount = 1;
+    // Use memory mapped input instead of loading the whole bugreport in the heap
+    private boolean mMappedInput = false;
+    // Render the html pages only when requested from the web server
+    private boolean mLazyRendering = false;
+    // Cache the sections split from the input files between runs
+    private boolean mParseCacheEnabled = false;
+    // The charset used to decode the input
+    private Charset mCharset = LineReader.DEFAULT_CHARSET;
+    // Logs longer than this are saved in compressed chunks, loaded when viewed
+    private int mLogChunkLimit = 50000;
+    // The event-log-tags file used to resolve the tags of the binary event logs
+    private String mEventTagsFile = null;
 
     /**
      * Returns the url to ChkBugReport's homepage
@@ -130,6 +147,123 @@ public final class Context {
         mSilent = silent;
     }
 
+    /**
+     * Returns the number of worker threads used to load the plugins.
+     * @return the number of worker threads (1 means everything is executed on the main thread)
+     */
+    public int getThreadCount() {
+        return mThreadCount;
+    }
+
+    /**
+     * Set the number of worker threads used to load the plugins
+     * @param count The number of worker threads (1 means no parallel execution)
+     */
+    public void setThreadCount(int count) {
+        mThreadCount = Math.max(1, count);
+    }
+
+    /**
+     * Returns true if the bugreport should be memory mapped instead of loaded into the heap.
+     * In this case the sections store only the location of the lines, and the lines are
+     * decoded only when they are accessed.
+     * @return true if memory mapped input should be used
+     */
+    public boolean isMappedInput() {
+        return mMappedInput;
+    }
+
+    /**
+     * Enable or disable memory mapped input
+     * @param mapped True if memory mapped input should be used
+     */
+    public void setMappedInput(boolean mapped) {
+        mMappedInput = mapped;
+    }
+
+    /**
+     * Returns true if the html pages are rendered only when requested from the web server
+     * @return true if the html pages are rendered only when requested from the web server
+     */
+    public boolean isLazyRendering() {
+        return mLazyRendering;
+    }
+
+    /**
+     * Enable or disable rendering the html pages on demand.
+     * This should be used only in server mode, since the pages won't be saved.
+     * @param lazy True if the html pages should be rendered on demand
+     */
+    public void setLazyRendering(boolean lazy) {
+        mLazyRendering = lazy;
+    }
+
+    /**
+     * Returns the number of log lines above which the log is saved in compressed chunks
+     * @return the number of log lines above which the log is saved in compressed chunks
+     */
+    public int getLogChunkLimit() {
+        return mLogChunkLimit;
+    }
+
+    /**
+     * Sets the number of log lines above which the log is saved in compressed chunks,
+     * which are loaded by the browser only when they are viewed.
+     * @param limit The number of lines, or 0 to always save the log as a single page
+     */
+    public void setLogChunkLimit(int limit) {
+        mLogChunkLimit = limit;
+    }
+
+    /**
+     * Returns the name of the event-log-tags file, or null if it's not set
+     * @return the name of the event-log-tags file, or null
+     */
+    public String getEventTagsFile() {
+        return mEventTagsFile;
+    }
+
+    /**
+     * Sets the event-log-tags file (/system/etc/event-log-tags from the device), used to
+     * resolve the numeric tags of the binary event logs to their names.
+     * @param fileName The name of the file, or null
+     */
+    public void setEventTagsFile(String fileName) {
+        mEventTagsFile = fileName;
+    }
+
+    /**
+     * Returns true if the sections split from the input should be cached between runs
+     * @return true if the sections split from the input should be cached between runs
+     */
+    public boolean isParseCacheEnabled() {
+        return mParseCacheEnabled;
+    }
+
+    /**
+     * Enable or disable caching the sections split from the input between runs
+     * @param enabled True if the parse cache should be used
+     */
+    public void setParseCacheEnabled(boolean enabled) {
+        mParseCacheEnabled = enabled;
+    }
+
+    /**
+     * Returns the charset used to decode the input files
+     * @return the charset used to decode the input files
+     */
+    public Charset getCharset() {
+        return mCharset;
+    }
+
+    /**
+     * Set the charset used to decode the input files (UTF-8 by default)
+     * @param charset The new charset
+     */
+    public void setCharset(Charset charset) {
+        mCharset = charset;
+    }
+
     /* package */ void parseTimeWindow(String timeWindow) {
         try {
             Matcher m = Pattern.compile("(.*)\\.\\.(.*)").matcher(timeWindow);
@@ -156,7 +290,30 @@ public final class Context {
         }
     }
 
-    public void printOut(int level, String s) {
+    /* package */ void parseCharset(String param) {
+        try {
+            mCharset = Charset.forName(param);
+        } catch (IllegalArgumentException e) {
+            // Thrown for missing, malformed and unsupported charset names
+            System.err.println("Error parsing charset: `" + param + "': " + e);
+            System.exit(1);
+        }
+    }
+
+    /* package */ void parseLogChunkLimit(String param) {
+        try {
+            int limit = Integer.parseInt(param);
+            if (limit < 0) {
+                throw new NumberFormatException("negative line count");
+            }
+            mLogChunkLimit = limit;
+        } catch (NumberFormatException e) {
+            System.err.println("Error parsing log chunk limit: `" + param + "': " + e);
+            System.exit(1);
+        }
+    }
+
+    public synchronized void printOut(int level, String s) {
         String line = " <" + level + "> " + s;
         if (mOut == null) {
             mLogCache.add(line);
@@ -168,7 +325,7 @@ public final class Context {
         }
     }
 
-    public void printErr(int level, String s) {
+    public synchronized void printErr(int level, String s) {
         String line = "!<" + level + "> " + s;
         if (mOut == null) {
             mLogCache.add(line);
@@ -196,11 +353,22 @@ public final class Context {
         }
     }
 
+    /**
+     * Close the log file opened by {@link #setLogOutput(String)}.
+     * Further messages are cached in memory again.
+     */
+    /* package */ synchronized void closeLogOutput() {
+        if (mOut != null) {
+            mOut.close();
+            mOut = null;
+        }
+    }
+
     /* package */ void setOutputListener(OutputListener listener) {
         mOutListener = listener;
     }
 
-    public int allocChapterId() {
+    public synchronized int allocChapterId() {
         return mNextChapterId++;
     }
 
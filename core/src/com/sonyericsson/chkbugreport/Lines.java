@@ -19,19 +19,59 @@
  */
 package com.sonyericsson.chkbugreport;
 
+import com.sonyericsson.chkbugreport.util.MappedFile;
+
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.util.Vector;
+import java.nio.charset.Charset;
 
 /**
  * A named collection of text lines.
+ *
+ * <p>To avoid creating one String object per line, the text of the lines is packed in a few big
+ * byte arrays (the arena), and only the location and length of each line is stored. Lines which
+ * contain only characters up to 0xff are stored using one byte per character, other lines are
+ * stored using two bytes per character. Alternatively the lines can be stored in a memory mapped
+ * file, in which case only their location in the file is stored, and the text is decoded only
+ * when the line is accessed. Modifying such lines moves them into the arena.</p>
+ *
+ * <p>{@link #getLine(int)} creates a new String each time. Code which only needs to look at the
+ * text (and doesn't keep it) can use {@link #getLineView(int)} instead, like DumpTree. The log
+ * parsers keep substrings of the lines in the LogLine objects, so they use getLine().</p>
+ *
+ * <p>The lines can be read from several threads without locking (for example by the plugins
+ * loading in parallel, or by the log parser workers), even while lines are appended: the text
+ * is never moved once it's stored, and the line count is published after the rest of the line,
+ * so a reader sees either the old or the new line count, but never a half added line. Other
+ * modifications (inserting, removing or clearing lines, or modifying a section stored in a
+ * mapped file) must not be done while other threads are reading the lines.</p>
  */
 public class Lines {
 
+    private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+
+    private static final int MIN_CHUNK_SIZE = 0x400;
+    private static final int MAX_CHUNK_SIZE = 0x100000;
+
     private String mName;
 
-    private Vector<String> mLines = new Vector<String>();
+    // The location of the lines. In the arena the high 32 bits are the chunk index and the low
+    // 32 bits are the offset in the chunk. In a mapped file it's the offset in the file.
+    // The arrays are replaced (not modified) when they grow, so the readers always see
+    // the lines published by mCount, whichever array they get.
+    private volatile long mStart[];
+    // The length of the lines. In the arena negative value means two bytes per character.
+    private volatile int mLen[];
+    // Written after everything else when a line is added, this publishes the line to the readers
+    private volatile int mCount;
+
+    // The chunks are never reallocated, only new chunks are added
+    private volatile byte mChunks[][];
+    private int mChunkCount;
+    private int mChunkUsed;
+
+    private volatile MappedFile mMapped;
 
     public Lines(String name) {
         mName = name;
@@ -45,28 +85,222 @@ public class Lines {
         mName = name;
     }
 
-    public void clear() {
-        mLines.clear();
+    public synchronized void clear() {
+        mCount = 0;
+        mStart = null;
+        mLen = null;
+        mChunks = null;
+        mChunkCount = 0;
+        mChunkUsed = 0;
+        mMapped = null;
     }
 
-    public void addLine(String line) {
-        mLines.add(line);
+    public synchronized void addLine(String line) {
+        addLine(line, mCount);
     }
 
-    public void addLine(String line, int idx) {
-        mLines.add(idx, line);
+    /**
+     * Add a line which is stored in a memory mapped file.
+     * Only the location of the line is stored, the text is decoded when it's accessed.
+     * @param file The mapped file containing the line
+     * @param start The offset of the first byte of the line
+     * @param end The offset after the last byte of the line
+     */
+    public synchronized void addLine(MappedFile file, long start, long end) {
+        int cnt = mCount;
+        if (mMapped != file && (mMapped != null || cnt > 0)) {
+            // Cannot mix different storages, so store it in the arena
+            addLine(file.getString(start, end));
+            return;
+        }
+        mMapped = file;
+        ensureCapacity(cnt + 1);
+        mStart[cnt] = start;
+        mLen[cnt] = (int)(end - start);
+        mCount = cnt + 1;
     }
 
-    public void removeLine(int idx) {
-        mLines.remove(idx);
+    public synchronized void addLine(String line, int idx) {
+        int cnt = mCount;
+        if (idx < 0 || idx > cnt) {
+            throw new ArrayIndexOutOfBoundsException(idx);
+        }
+        unmap();
+        if (idx == cnt) {
+            ensureCapacity(cnt + 1);
+            store(mStart, mLen, idx, line);
+        } else {
+            long start[] = new long[Math.max(cnt + 1, mStart.length)];
+            int len[] = new int[start.length];
+            System.arraycopy(mStart, 0, start, 0, idx);
+            System.arraycopy(mLen, 0, len, 0, idx);
+            System.arraycopy(mStart, idx, start, idx + 1, cnt - idx);
+            System.arraycopy(mLen, idx, len, idx + 1, cnt - idx);
+            store(start, len, idx, line);
+            mStart = start;
+            mLen = len;
+        }
+        mCount = cnt + 1;
+    }
+
+    public synchronized void removeLine(int idx) {
+        int cnt = mCount;
+        if (idx < 0 || idx >= cnt) {
+            throw new ArrayIndexOutOfBoundsException(idx);
+        }
+        unmap();
+        // Note: the text stays in the arena, it's released only when the whole object is released
+        long start[] = new long[mStart.length];
+        int len[] = new int[start.length];
+        System.arraycopy(mStart, 0, start, 0, idx);
+        System.arraycopy(mLen, 0, len, 0, idx);
+        System.arraycopy(mStart, idx + 1, start, idx, cnt - idx - 1);
+        System.arraycopy(mLen, idx + 1, len, idx, cnt - idx - 1);
+        mStart = start;
+        mLen = len;
+        mCount = cnt - 1;
     }
 
     public int getLineCount() {
-        return mLines.size();
+        return mCount;
     }
 
     public String getLine(int idx) {
-        return mLines.get(idx);
+        if (idx < 0 || idx >= mCount) {
+            throw new ArrayIndexOutOfBoundsException(idx);
+        }
+        long start = mStart[idx];
+        int len = mLen[idx];
+        MappedFile mapped = mMapped;
+        if (mapped != null) {
+            return mapped.getString(start, start + len);
+        }
+        byte chunk[] = mChunks[(int)(start >>> 32)];
+        int offs = (int)start;
+        if (len >= 0) {
+            return new String(chunk, offs, len, LATIN1);
+        }
+        len = ~len;
+        char buff[] = new char[len];
+        for (int i = 0; i < len; i++) {
+            buff[i] = getWideChar(chunk, offs, i);
+        }
+        return new String(buff);
+    }
+
+    /**
+     * Returns a read-only view of the line, which doesn't copy the text.
+     * The view stays valid (and keeps the same content) even if the lines are modified later.
+     * @param idx The index of the line
+     * @return The text of the line
+     */
+    public CharSequence getLineView(int idx) {
+        if (idx < 0 || idx >= mCount) {
+            throw new ArrayIndexOutOfBoundsException(idx);
+        }
+        if (mMapped != null) {
+            // The bytes must be decoded, so there is no benefit of using a view
+            return getLine(idx);
+        }
+        long start = mStart[idx];
+        return new LineView(mChunks[(int)(start >>> 32)], (int)start, mLen[idx]);
+    }
+
+    private static char getWideChar(byte chunk[], int offs, int idx) {
+        int p = offs + 2 * idx;
+        return (char)(((chunk[p] & 0xff) << 8) | (chunk[p + 1] & 0xff));
+    }
+
+    private void ensureCapacity(int cnt) {
+        if (mStart == null) {
+            mLen = new int[Math.max(cnt, 16)];
+            mStart = new long[mLen.length];
+        } else if (cnt > mStart.length) {
+            int newSize = Math.max(cnt, mStart.length * 2);
+            long newStart[] = new long[newSize];
+            int newLen[] = new int[newSize];
+            System.arraycopy(mStart, 0, newStart, 0, mCount);
+            System.arraycopy(mLen, 0, newLen, 0, mCount);
+            mLen = newLen;
+            mStart = newStart;
+        }
+    }
+
+    private void store(long start[], int len[], int idx, String line) {
+        int cnt = line.length();
+        boolean wide = false;
+        for (int i = 0; i < cnt; i++) {
+            if (line.charAt(i) > 0xff) {
+                wide = true;
+                break;
+            }
+        }
+        int size = wide ? 2 * cnt : cnt;
+        int chunkIdx = allocChunkSpace(size);
+        byte chunk[] = mChunks[chunkIdx];
+        int offs = mChunkUsed;
+        if (wide) {
+            for (int i = 0; i < cnt; i++) {
+                char c = line.charAt(i);
+                chunk[offs + 2 * i] = (byte)(c >> 8);
+                chunk[offs + 2 * i + 1] = (byte)c;
+            }
+        } else {
+            for (int i = 0; i < cnt; i++) {
+                chunk[offs + i] = (byte)line.charAt(i); // safe since all chars are below 0x100
+            }
+        }
+        mChunkUsed += size;
+        start[idx] = ((long)chunkIdx << 32) | offs;
+        len[idx] = wide ? ~cnt : cnt;
+    }
+
+    /**
+     * Makes sure the last chunk has at least the given amount of free space, and returns the
+     * index of the last chunk. The space starts at mChunkUsed.
+     */
+    private int allocChunkSpace(int size) {
+        byte chunks[][] = mChunks;
+        if (chunks == null) {
+            chunks = new byte[4][];
+        }
+        if (mChunkCount > 0) {
+            int last = mChunkCount - 1;
+            if (mChunkUsed + size <= chunks[last].length) {
+                return last;
+            }
+        }
+        // Start a new chunk (the existing ones are not grown, since they might be read
+        // at the same time), each one twice as big as the previous one
+        if (mChunkCount == chunks.length) {
+            byte newChunks[][] = new byte[mChunkCount * 2][];
+            System.arraycopy(chunks, 0, newChunks, 0, mChunkCount);
+            chunks = newChunks;
+        }
+        int newSize = (mChunkCount == 0) ? MIN_CHUNK_SIZE
+                : Math.min(2 * chunks[mChunkCount - 1].length, MAX_CHUNK_SIZE);
+        chunks[mChunkCount] = new byte[Math.max(newSize, size)];
+        mChunks = chunks;
+        mChunkUsed = 0;
+        return mChunkCount++;
+    }
+
+    /**
+     * Move the lines stored in the mapped file to the arena, so they can be modified.
+     */
+    private void unmap() {
+        if (mMapped != null) {
+            MappedFile file = mMapped;
+            long start[] = mStart;
+            int len[] = mLen;
+            int cnt = mCount;
+            clear();
+            ensureCapacity(cnt);
+            for (int i = 0; i < cnt; i++) {
+                store(mStart, mLen, i, file.getString(start[i], start[i] + len[i]));
+            }
+            mCount = cnt;
+        }
     }
 
     public void addLines(Lines lines) {
@@ -91,9 +325,68 @@ public class Lines {
     }
 
     public void writeTo(PrintStream ps) {
-        for (String line : mLines) {
-            ps.println(line);
+        int cnt = getLineCount();
+        for (int i = 0; i < cnt; i++) {
+            ps.println(getLine(i));
         }
     }
 
+    /**
+     * A line (or part of a line) stored in the arena.
+     */
+    private static class LineView implements CharSequence {
+
+        private byte mChunk[];
+        private int mOffs;
+        // Same encoding as in Lines.mLen
+        private int mLen;
+
+        public LineView(byte chunk[], int offs, int len) {
+            mChunk = chunk;
+            mOffs = offs;
+            mLen = len;
+        }
+
+        @Override
+        public int length() {
+            return mLen >= 0 ? mLen : ~mLen;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length()) {
+                throw new StringIndexOutOfBoundsException(index);
+            }
+            if (mLen >= 0) {
+                return (char)(mChunk[mOffs + index] & 0xff);
+            }
+            return getWideChar(mChunk, mOffs, index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length() || start > end) {
+                throw new StringIndexOutOfBoundsException("start " + start + ", end " + end);
+            }
+            if (mLen >= 0) {
+                return new LineView(mChunk, mOffs + start, end - start);
+            }
+            return new LineView(mChunk, mOffs + 2 * start, ~(end - start));
+        }
+
+        @Override
+        public String toString() {
+            int len = length();
+            if (mLen >= 0) {
+                return new String(mChunk, mOffs, len, LATIN1);
+            }
+            char buff[] = new char[len];
+            for (int i = 0; i < len; i++) {
+                buff[i] = getWideChar(mChunk, mOffs, i);
+            }
+            return new String(buff);
+        }
+
+    }
+
 }
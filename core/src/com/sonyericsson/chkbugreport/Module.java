@@ -53,7 +53,10 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
 
@@ -178,7 +181,11 @@ public abstract class Module implements ChapterParent {
     private boolean mSaveFileFailed = false;
     private SaveFile mSaveFile;
     private int mNextSectionId = 1;
-    private HashSet<Plugin> mCrashedPlugins;
+    private Set<Plugin> mCrashedPlugins = Collections.synchronizedSet(new HashSet<Plugin>());
+    /** Collects the output of the plugin being loaded on the current worker thread */
+    private ThreadLocal<DeferredOutput> mDeferredOutput = new ThreadLocal<DeferredOutput>();
+    /** Guards the report against the changes made after it was generated */
+    private ReadWriteLock mUpdateLock = new ReentrantReadWriteLock();
 
     private SourceFile mSource;
     private Vector<SourceFile> mSources = new Vector<BugReportModule.SourceFile>();
@@ -292,6 +299,16 @@ public abstract class Module implements ChapterParent {
         mPlugins.add(plugin);
     }
 
+    /**
+     * Returns true if the plugin crashed in one of the phases already executed.
+     * Crashed plugins are skipped in the later phases.
+     * @param p The plugin
+     * @return true if the plugin crashed
+     */
+    public boolean isPluginCrashed(Plugin p) {
+        return mCrashedPlugins.contains(p);
+    }
+
     /**
      * Locate a plugin with the given name.
      * Plugins are identified by their class names (without package name).
@@ -323,6 +340,11 @@ public abstract class Module implements ChapterParent {
      * @param line A short one line message to show in the header
      */
     public void addHeaderLine(String line) {
+        DeferredOutput out = mDeferredOutput.get();
+        if (out != null) {
+            out.mHeaderLines.add(line);
+            return;
+        }
         mHeader.addLine(line);
     }
 
@@ -384,11 +406,33 @@ public abstract class Module implements ChapterParent {
         return mDoc.getOutDir();
     }
 
+    /**
+     * Render a page of the report in memory, when lazy rendering is used.
+     * @param fileName The name of the page (relative to the data folder)
+     * @return The html content of the page, or null if there is no such page
+     * @throws IOException in case of rendering error
+     * @see Context#isLazyRendering()
+     */
+    public byte[] renderPage(String fileName) throws IOException {
+        return mDoc.renderPage(fileName);
+    }
+
+    /**
+     * Returns the lock guarding the report against the changes made after it was generated
+     * (for example when the lines of a followed log are appended, see LogFollower).
+     * The changes are made while holding the write lock, while the pages are rendered and the
+     * web apps are executed while holding the read lock, so these can still run in parallel.
+     * @return The lock of the report
+     */
+    public ReadWriteLock getUpdateLock() {
+        return mUpdateLock;
+    }
+
     /* package */ String getIndexHtmlFileName() {
         return mDoc.getIndexHtmlFileName();
     }
 
-    /* package */ int allocSectionId() {
+    /* package */ synchronized int allocSectionId() {
         return mNextSectionId++;
     }
 
@@ -414,6 +458,11 @@ public abstract class Module implements ChapterParent {
 
     @Override
     public void addChapter(Chapter ch) {
+        DeferredOutput out = mDeferredOutput.get();
+        if (out != null) {
+            out.mChapters.add(ch);
+            return;
+        }
         mDoc.addChapter(ch);
     }
 
@@ -460,6 +509,11 @@ public abstract class Module implements ChapterParent {
      * @param extFile The Chapter instance storing the content of the extra file.
      */
     public void addExtraFile(Chapter extFile) {
+        DeferredOutput out = mDeferredOutput.get();
+        if (out != null) {
+            out.mExtraFiles.add(extFile);
+            return;
+        }
         mDoc.addExtraFile(extFile);
     }
 
@@ -477,7 +531,7 @@ public abstract class Module implements ChapterParent {
      * or when the kernel log is extracted from the system log.
      * @param section The section content
      */
-    public void addSection(Section section) {
+    public synchronized void addSection(Section section) {
         mSections.add(section);
         mSectionMap.put(section.getShortName(), section);
     }
@@ -487,7 +541,7 @@ public abstract class Module implements ChapterParent {
      * @param name The name of the section
      * @return The Section from the bugreport or null if not found
      */
-    public Section findSection(String name) {
+    public synchronized Section findSection(String name) {
         return mSectionMap.get(name);
     }
 
@@ -495,21 +549,26 @@ public abstract class Module implements ChapterParent {
      * Returns a list of all Sections
      * @return a list of all Sections
      */
-    public Iterable<Section> getSections() {
-        return mSections;
+    public synchronized Iterable<Section> getSections() {
+        // Return a copy, since plugins running in parallel might add new sections
+        return new Vector<Section>(mSections);
     }
 
-    /* package */ int getSectionCount() {
+    /* package */ synchronized int getSectionCount() {
         return mSections.size();
     }
 
+    /* package */ synchronized Section getSection(int idx) {
+        return mSections.get(idx);
+    }
+
     /**
      * Stores extra information.
      * This could be used to share processed data or extra (non text) input with other plugins.
      * @param infoId The id (key) of the information
      * @param obj The information object
      */
-    public void addInfo(String infoId, Object obj) {
+    public synchronized void addInfo(String infoId, Object obj) {
         mInfos.put(infoId, obj);
     }
 
@@ -518,7 +577,7 @@ public abstract class Module implements ChapterParent {
      * @param infoId The id (key) of the information
      * @return The information object
      */
-    public Object getInfo(String infoId) {
+    public synchronized Object getInfo(String infoId) {
         return mInfos.get(infoId);
     }
 
@@ -620,7 +679,7 @@ public abstract class Module implements ChapterParent {
     }
 
     private void runPlugins() {
-        mCrashedPlugins = new HashSet<Plugin>();
+        mCrashedPlugins.clear();
 
         // First, sort the plugins based on prio
         Collections.sort(mPlugins, new Comparator<Plugin>() {
@@ -655,18 +714,20 @@ public abstract class Module implements ChapterParent {
         }
         // Then plugin should process the input data first
         printOut(1, "Plugins are loading data...");
+        Vector<Plugin> toLoad = new Vector<Plugin>();
         for (Plugin p : mPlugins) {
             if (!mCrashedPlugins.contains(p)) {
-                printOut(2, "Running (load) plugin: " + p.getClass().getName() + "...");
-                try {
-                    p.load(this);
-                } catch (Throwable e) {
-                    e.printStackTrace();
-                    addHeaderLine("Plugin crashed while loading data: " + p.getClass().getName());
-                    mCrashedPlugins.add(p);
-                }
+                toLoad.add(p);
             }
         }
+        int threads = mContext.getThreadCount();
+        if (threads <= 1) {
+            for (Plugin p : toLoad) {
+                loadPlugin(p);
+            }
+        } else {
+            new PluginScheduler(this, threads).run(toLoad);
+        }
         // Finally, each plugin should save the generated data
         printOut(1, "Plugins are generating output...");
         for (Plugin p : mPlugins) {
@@ -682,6 +743,62 @@ public abstract class Module implements ChapterParent {
         }
     }
 
+    private void loadPlugin(Plugin p) {
+        printOut(2, "Running (load) plugin: " + p.getClass().getName() + "...");
+        try {
+            p.load(this);
+        } catch (Throwable e) {
+            e.printStackTrace();
+            addHeaderLine("Plugin crashed while loading data: " + p.getClass().getName());
+            mCrashedPlugins.add(p);
+        }
+    }
+
+    /**
+     * Load the plugin on the current (worker) thread.
+     * The chapters, bugs, header lines and process record changes made by the plugin are not
+     * added to the report, but collected and returned, so they can be added later with
+     * {@link #flushDeferredOutput(DeferredOutput)} in a deterministic order.
+     * @param p The plugin to load
+     * @return The collected output
+     */
+    /* package */ DeferredOutput loadPluginDeferred(Plugin p) {
+        DeferredOutput out = new DeferredOutput();
+        mDeferredOutput.set(out);
+        try {
+            loadPlugin(p);
+        } finally {
+            mDeferredOutput.remove();
+        }
+        return out;
+    }
+
+    /* package */ void flushDeferredOutput(DeferredOutput out) {
+        for (String line : out.mHeaderLines) {
+            addHeaderLine(line);
+        }
+        for (Chapter ch : out.mChapters) {
+            addChapter(ch);
+        }
+        for (Chapter ch : out.mExtraFiles) {
+            addExtraFile(ch);
+        }
+        for (Bug bug : out.mBugs) {
+            addBug(bug);
+        }
+        for (ProcessRecord.Update update : out.mProcessRecordUpdates) {
+            update.apply();
+        }
+    }
+
+    /**
+     * Returns the collector of the plugin being loaded on the current worker thread.
+     * @return The collected output, or null if the output should be added directly
+     */
+    /* package */ DeferredOutput getDeferredOutput() {
+        return mDeferredOutput.get();
+    }
+
     private void copyRes(String resources[]) throws IOException {
         for (String res : resources) {
             copyRes(PlatformUtil.ASSETS_ROOT + res, "data/" + res);
@@ -736,6 +853,11 @@ public abstract class Module implements ChapterParent {
      * @param bug The detected Bug instance
      */
     public void addBug(Bug bug) {
+        DeferredOutput out = mDeferredOutput.get();
+        if (out != null) {
+            out.mBugs.add(bug);
+            return;
+        }
         mBugs.add(bug);
     }
 
@@ -831,11 +953,12 @@ public abstract class Module implements ChapterParent {
     private int readFile(Section sl, String fileName, InputStream is, int limit) {
         int ret = READ_ALL;
         try {
+            FileInputStream fis = null;
             if (is == null) {
                 // Check file size (only if not reading from stream)
                 File f = new File(fileName);
                 long size = f.length();
-                is = new FileInputStream(f);
+                is = fis = new FileInputStream(f);
                 if (size > limit) {
                     // Need to seek to "end - limit"
                     Util.skip(is, size - limit);
@@ -845,12 +968,16 @@ public abstract class Module implements ChapterParent {
                 }
             }
 
-            LineReader br = new LineReader(is);
+            LineReader br = new LineReader(is, mContext.getCharset());
 
             String line = null;
             while (null != (line = br.readLine())) {
                 sl.addLine(line);
             }
+            if (fis != null) {
+                // Remember where the file ended, in case it's still growing
+                sl.setSource(fileName, fis.getChannel().position());
+            }
             br.close();
             is.close();
             return ret;
@@ -912,4 +1039,16 @@ public abstract class Module implements ChapterParent {
         }
     }
 
+    /**
+     * The output created by a plugin while it was loaded on a worker thread.
+     * @see PluginScheduler
+     */
+    /* package */ static class DeferredOutput {
+        Vector<String> mHeaderLines = new Vector<String>();
+        Vector<Chapter> mChapters = new Vector<Chapter>();
+        Vector<Chapter> mExtraFiles = new Vector<Chapter>();
+        Vector<Bug> mBugs = new Vector<Bug>();
+        Vector<ProcessRecord.Update> mProcessRecordUpdates = new Vector<ProcessRecord.Update>();
+    }
+
 }
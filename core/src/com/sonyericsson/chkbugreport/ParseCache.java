@@ -0,0 +1,425 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport;
+
+import com.sonyericsson.chkbugreport.BugReportModule.SourceFile;
+import com.sonyericsson.chkbugreport.util.Util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Vector;
+
+/**
+ * Stores the sections split from an input file on the disk, so the next time the same file is
+ * processed, the sections can be loaded without parsing the input again.
+ *
+ * <p>The cache entries are stored in the "cache" folder inside {@link Util#PRIVATE_DIR_NAME},
+ * in the user's home folder. The entries are identified by a hash of the whole content of the
+ * input file, the version of the application and the charset used to decode the input, so an
+ * edited file is never mistaken for the original one, even if its size or modification time
+ * didn't change. Hashing the file is much faster than parsing it. Only the last
+ * {@link #MAX_ENTRIES} entries are kept.</p>
+ *
+ * <p>Note that only the result of splitting the input is cached, the plugins still parse the
+ * sections, since their result depends on the external plugins and the command line options.
+ * For the same reason, the input is not cached if it creates special sections which carry parsed
+ * data as well (like the sections read from binary logs).</p>
+ */
+/* package */ class ParseCache {
+
+    private static final int MAGIC = 0x43425243; // "CBRC"
+    private static final int FORMAT_VERSION = 2;
+    private static final int MAX_ENTRIES = 8;
+    private static final int HASH_BUFFER_SIZE = 0x100000;
+    private static final String EXT = ".cache";
+    // Used instead of the input file name, so the entry can be used even if the file is moved
+    private static final String FILE_NAME_MARKER = "\u0000input\u0000";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private BugReportModule mMod;
+    private String mFileName;
+    private File mFile;
+    private File mCacheFile;
+
+    // The state of the module when the recording was started
+    private int mSectionStart;
+    private int mSourceStart;
+    private int mBugReportHeaderStart;
+    private Vector<String> mHeaderLines;
+
+    public ParseCache(BugReportModule mod, String fileName, File file) {
+        mMod = mod;
+        mFileName = fileName;
+        mFile = file;
+    }
+
+    /**
+     * Load the cached sections of the input file into the module, if available.
+     * @return true if the sections were loaded
+     */
+    public boolean restore() {
+        File cacheFile = getCacheFile();
+        if (cacheFile == null || !cacheFile.isFile()) {
+            return false;
+        }
+        long t0 = System.currentTimeMillis();
+        try {
+            DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile), 0x10000));
+            try {
+                Entry entry = new Entry();
+                entry.read(dis);
+                entry.apply();
+            } finally {
+                dis.close();
+            }
+        } catch (IOException e) {
+            mMod.printErr(3, "Failed to load cached sections from " + cacheFile + ": " + e);
+            return false;
+        }
+        cacheFile.setLastModified(System.currentTimeMillis());
+        long t1 = System.currentTimeMillis();
+        mMod.printOut(1, String.format("Loaded cached sections in %.2f seconds.", (t1 - t0) / 1000.0f));
+        return true;
+    }
+
+    /**
+     * Start collecting the data which is added to the module while the input file is loaded.
+     */
+    public void startRecording() {
+        mSectionStart = mMod.getSectionCount();
+        mSourceStart = mMod.getSourceCount();
+        mBugReportHeaderStart = mMod.getBugReportHeader().size();
+        mHeaderLines = new Vector<String>();
+    }
+
+    /**
+     * Called by the module when a header line is added.
+     * @param line The new header line
+     */
+    public void onHeaderLine(String line) {
+        if (mHeaderLines != null) {
+            mHeaderLines.add(line);
+        }
+    }
+
+    /**
+     * Stop collecting the data.
+     * @param save If true, the collected data is saved in the cache
+     */
+    public void stopRecording(boolean save) {
+        if (mHeaderLines == null) {
+            return;
+        }
+        if (save) {
+            save();
+        }
+        mHeaderLines = null;
+    }
+
+    private void save() {
+        File cacheFile = getCacheFile();
+        if (cacheFile == null) {
+            return;
+        }
+        Entry entry = new Entry();
+        if (!entry.collect()) {
+            mMod.printOut(3, "The sections of " + mFileName + " cannot be cached");
+            return;
+        }
+        File dir = cacheFile.getParentFile();
+        File tmp = null;
+        try {
+            dir.mkdirs();
+            tmp = File.createTempFile("entry", ".tmp", dir);
+            DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 0x10000));
+            try {
+                entry.write(dos);
+            } finally {
+                dos.close();
+            }
+            if (!tmp.renameTo(cacheFile)) {
+                cacheFile.delete();
+                if (!tmp.renameTo(cacheFile)) {
+                    throw new IOException("cannot rename " + tmp);
+                }
+            }
+            tmp = null;
+        } catch (IOException e) {
+            mMod.printErr(3, "Failed to save sections to cache " + cacheFile + ": " + e);
+        } finally {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+        prune(dir);
+    }
+
+    private void prune(File dir) {
+        File files[] = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Vector<File> entries = new Vector<File>();
+        for (File f : files) {
+            if (f.getName().endsWith(EXT)) {
+                entries.add(f);
+            }
+        }
+        if (entries.size() <= MAX_ENTRIES) {
+            return;
+        }
+        File sorted[] = entries.toArray(new File[entries.size()]);
+        Arrays.sort(sorted, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                long diff = o2.lastModified() - o1.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        for (int i = MAX_ENTRIES; i < sorted.length; i++) {
+            sorted[i].delete();
+        }
+    }
+
+    private File getCacheFile() {
+        if (mCacheFile == null) {
+            String key = computeKey();
+            if (key != null) {
+                File homeDir = new File(System.getProperty("user.home"));
+                File dir = new File(new File(homeDir, Util.PRIVATE_DIR_NAME), "cache");
+                mCacheFile = new File(dir, key + EXT);
+            }
+        }
+        return mCacheFile;
+    }
+
+    private String computeKey() {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            md.update((Module.VERSION_CODE + "/" + FORMAT_VERSION + "/" + mMod.getContext().getCharset().name()
+                    + "/").getBytes(UTF8));
+            FileInputStream fis = new FileInputStream(mFile);
+            try {
+                byte buff[] = new byte[HASH_BUFFER_SIZE];
+                int read;
+                while ((read = fis.read(buff)) > 0) {
+                    md.update(buff, 0, read);
+                }
+            } finally {
+                fis.close();
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : md.digest()) {
+                sb.append(String.format("%02x", b & 0xff));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        } catch (IOException e) {
+            mMod.printErr(3, "Failed to compute the cache key of " + mFile + ": " + e);
+            return null;
+        }
+    }
+
+    private String unbind(String s) {
+        return s == null ? null : s.replace(mFileName, FILE_NAME_MARKER);
+    }
+
+    private String bind(String s) {
+        return s == null ? null : s.replace(FILE_NAME_MARKER, mFileName);
+    }
+
+    private static void writeString(DataOutputStream dos, String s) throws IOException {
+        byte buff[] = s.getBytes(UTF8);
+        dos.writeInt(buff.length);
+        dos.write(buff);
+    }
+
+    private static String readString(DataInputStream dis) throws IOException {
+        int len = dis.readInt();
+        byte buff[] = new byte[len];
+        dis.readFully(buff);
+        return new String(buff, UTF8);
+    }
+
+    /**
+     * The content of one cache entry.
+     */
+    private class Entry {
+
+        private Vector<String> mHeader = new Vector<String>();
+        private Vector<String> mBugReportHeader = new Vector<String>();
+        private Vector<SourceFile> mSources = new Vector<SourceFile>();
+        private SourceFile mSource;
+        private String mOutputName;
+        private Calendar mTimestamp;
+        private Vector<Section> mSections = new Vector<Section>();
+
+        /**
+         * Collect the data added to the module since the recording started.
+         * @return false if the data cannot be cached
+         */
+        public boolean collect() {
+            mHeader.addAll(mHeaderLines);
+            Vector<String> brHeader = mMod.getBugReportHeader();
+            mBugReportHeader.addAll(brHeader.subList(mBugReportHeaderStart, brHeader.size()));
+            for (int i = mSourceStart; i < mMod.getSourceCount(); i++) {
+                mSources.add(mMod.getSource(i));
+            }
+            mSource = mMod.getSource();
+            if (mSource != null) {
+                mOutputName = mMod.getFileName();
+            }
+            mTimestamp = mMod.getTimestamp();
+            for (int i = mSectionStart; i < mMod.getSectionCount(); i++) {
+                Section sec = mMod.getSection(i);
+                if (sec.getClass() != Section.class) {
+                    // Only the lines would be saved, the rest would be lost
+                    return false;
+                }
+                mSections.add(sec);
+            }
+            return true;
+        }
+
+        public void write(DataOutputStream dos) throws IOException {
+            dos.writeInt(MAGIC);
+            dos.writeInt(FORMAT_VERSION);
+            writeString(dos, Module.VERSION_CODE);
+            writeStrings(dos, mHeader, true);
+            writeStrings(dos, mBugReportHeader, false);
+            dos.writeInt(mSources.size());
+            for (SourceFile src : mSources) {
+                writeString(dos, unbind(src.mName));
+                writeString(dos, src.mType);
+            }
+            dos.writeBoolean(mSource != null);
+            if (mSource != null) {
+                writeString(dos, unbind(mSource.mName));
+                writeString(dos, mSource.mType);
+                writeString(dos, unbind(mOutputName));
+            }
+            dos.writeBoolean(mTimestamp != null);
+            if (mTimestamp != null) {
+                dos.writeLong(mTimestamp.getTimeInMillis());
+            }
+            dos.writeInt(mSections.size());
+            for (Section sec : mSections) {
+                writeString(dos, sec.getName());
+                dos.writeBoolean(sec.getSourceFile() != null);
+                if (sec.getSourceFile() != null) {
+                    writeString(dos, unbind(sec.getSourceFile()));
+                    dos.writeLong(sec.getSourceLength());
+                }
+                int cnt = sec.getLineCount();
+                dos.writeInt(cnt);
+                for (int i = 0; i < cnt; i++) {
+                    writeString(dos, sec.getLine(i));
+                }
+            }
+        }
+
+        private void writeStrings(DataOutputStream dos, Vector<String> list, boolean unbind) throws IOException {
+            dos.writeInt(list.size());
+            for (String s : list) {
+                writeString(dos, unbind ? unbind(s) : s);
+            }
+        }
+
+        public void read(DataInputStream dis) throws IOException {
+            if (dis.readInt() != MAGIC || dis.readInt() != FORMAT_VERSION) {
+                throw new IOException("invalid cache file");
+            }
+            if (!Module.VERSION_CODE.equals(readString(dis))) {
+                throw new IOException("cache created by a different version");
+            }
+            readStrings(dis, mHeader, true);
+            readStrings(dis, mBugReportHeader, false);
+            int cnt = dis.readInt();
+            for (int i = 0; i < cnt; i++) {
+                String name = bind(readString(dis));
+                mSources.add(new SourceFile(name, readString(dis)));
+            }
+            if (dis.readBoolean()) {
+                String name = bind(readString(dis));
+                mSource = new SourceFile(name, readString(dis));
+                mOutputName = bind(readString(dis));
+            }
+            if (dis.readBoolean()) {
+                mTimestamp = Calendar.getInstance();
+                mTimestamp.setTimeInMillis(dis.readLong());
+            }
+            cnt = dis.readInt();
+            for (int i = 0; i < cnt; i++) {
+                Section sec = new Section(mMod, readString(dis));
+                if (dis.readBoolean()) {
+                    String source = bind(readString(dis));
+                    sec.setSource(source, dis.readLong());
+                }
+                int lineCnt = dis.readInt();
+                for (int j = 0; j < lineCnt; j++) {
+                    sec.addLine(readString(dis));
+                }
+                mSections.add(sec);
+            }
+        }
+
+        private void readStrings(DataInputStream dis, Vector<String> list, boolean bind) throws IOException {
+            int cnt = dis.readInt();
+            for (int i = 0; i < cnt; i++) {
+                String s = readString(dis);
+                list.add(bind ? bind(s) : s);
+            }
+        }
+
+        public void apply() {
+            for (Section sec : mSections) {
+                mMod.addSection(sec);
+            }
+            for (String line : mHeader) {
+                mMod.addHeaderLine(line);
+            }
+            mMod.getBugReportHeader().addAll(mBugReportHeader);
+            for (SourceFile src : mSources) {
+                mMod.addSource(src);
+            }
+            if (mSource != null) {
+                mMod.setSource(mSource);
+                mMod.setFileName(mOutputName, 100);
+            }
+            if (mTimestamp != null) {
+                mMod.setTimestamp(mTimestamp);
+            }
+        }
+
+    }
+
+}
@@ -31,6 +31,36 @@ public abstract class Plugin {
      */
     public abstract int getPrio();
 
+    /**
+     * Return the list of data this plugin reads while loading.
+     * The items are either section names or info ids (see {@link Module#addInfo(String, Object)}).
+     * When the plugins are loaded in parallel, this plugin will be started only after all
+     * the plugins running before it (see {@link #getPrio()}) producing any of these items have
+     * finished, and the plugins running after it producing any of these items will be started
+     * only after this one has finished, so it sees the same data as when loading sequentially.
+     * The default implementation returns null, which means the dependencies are unknown:
+     * such a plugin is loaded only after all the plugins with lower priority have finished,
+     * and before any of the plugins with higher priority are started.
+     * @return The list of consumed section names and info ids, or null if unknown
+     * @see #getProducedData()
+     */
+    public String[] getConsumedData() {
+        return null;
+    }
+
+    /**
+     * Return the list of data this plugin creates while loading.
+     * The items are either section names or info ids (see {@link Module#addInfo(String, Object)}).
+     * The process records don't need to be listed: the changes made to them while loading are
+     * applied in the priority order of the plugins (see {@link ProcessRecord}).
+     * This is used only if {@link #getConsumedData()} does not return null.
+     * @return The list of produced section names and info ids
+     * @see #getConsumedData()
+     */
+    public String[] getProducedData() {
+        return null;
+    }
+
     /**
      * The plugin must reset it's state, i.e. it must forget everything from a previous run.
      */
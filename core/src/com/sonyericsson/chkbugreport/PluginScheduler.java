@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport;
+
+import com.sonyericsson.chkbugreport.Module.DeferredOutput;
+
+import java.util.HashSet;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executes the load phase of the plugins on a pool of worker threads.
+ *
+ * <p>The plugins are organized in a dependency graph, based on the data they consume and produce
+ * (see {@link Plugin#getConsumedData()} and {@link Plugin#getProducedData()}). A plugin is
+ * started as soon as all the plugins it depends on have finished. Plugins which don't declare
+ * their dependencies act as barriers: they wait for every plugin with lower priority, and every
+ * plugin with higher priority waits for them.</p>
+ *
+ * <p>The chapters, bugs, header lines and process record changes created by the plugins are
+ * collected while loading, and added to the report in the priority order of the plugins
+ * (see {@link Module#loadPluginDeferred(Plugin)}), and the chapter ids are
+ * allocated only when the report is prepared, so the generated report does not depend on the
+ * order in which the threads were scheduled.</p>
+ */
+public class PluginScheduler {
+
+    private Module mMod;
+    private int mThreads;
+
+    private Vector<Plugin> mPlugins;
+    private Vector<Vector<Integer>> mSuccessors = new Vector<Vector<Integer>>();
+    private int mPending[];
+    private DeferredOutput mOutputs[];
+
+    private ExecutorService mPool;
+    private CountDownLatch mDone;
+
+    public PluginScheduler(Module mod, int threads) {
+        mMod = mod;
+        mThreads = threads;
+    }
+
+    /**
+     * Load the given plugins.
+     * @param plugins The plugins to load, sorted by priority
+     */
+    public void run(Vector<Plugin> plugins) {
+        mPlugins = plugins;
+        int cnt = plugins.size();
+        buildGraph();
+
+        mOutputs = new DeferredOutput[cnt];
+        mDone = new CountDownLatch(cnt);
+        mPool = Executors.newFixedThreadPool(mThreads);
+        try {
+            synchronized (this) {
+                for (int i = 0; i < cnt; i++) {
+                    if (mPending[i] == 0) {
+                        submit(i);
+                    }
+                }
+            }
+            mDone.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            mPool.shutdown();
+        }
+
+        // Now add the collected output to the report, in the original order
+        for (int i = 0; i < cnt; i++) {
+            if (mOutputs[i] != null) {
+                mMod.flushDeferredOutput(mOutputs[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the plugins which are started only after the given one has finished.
+     * The dependency graph is built by {@link #run(Vector)}.
+     * @param idx The index of the plugin in the list passed to {@link #run(Vector)}
+     * @return The indices of the depending plugins
+     */
+    public Vector<Integer> getSuccessors(int idx) {
+        return mSuccessors.get(idx);
+    }
+
+    private void submit(final int idx) {
+        mPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                mOutputs[idx] = mMod.loadPluginDeferred(mPlugins.get(idx));
+                onFinished(idx);
+            }
+        });
+    }
+
+    private synchronized void onFinished(int idx) {
+        for (int next : mSuccessors.get(idx)) {
+            if (--mPending[next] == 0) {
+                submit(next);
+            }
+        }
+        mDone.countDown();
+    }
+
+    private void buildGraph() {
+        int cnt = mPlugins.size();
+        Vector<HashSet<Integer>> preds = new Vector<HashSet<Integer>>();
+        for (int i = 0; i < cnt; i++) {
+            preds.add(new HashSet<Integer>());
+            mSuccessors.add(new Vector<Integer>());
+        }
+
+        for (int j = 0; j < cnt; j++) {
+            Plugin pj = mPlugins.get(j);
+            String consJ[] = pj.getConsumedData();
+            String prodJ[] = pj.getProducedData();
+            for (int i = 0; i < j; i++) {
+                Plugin pi = mPlugins.get(i);
+                String consI[] = pi.getConsumedData();
+                String prodI[] = pi.getProducedData();
+                if (consI == null || consJ == null) {
+                    // Unknown dependencies, keep the priority order
+                    preds.get(j).add(i);
+                    continue;
+                }
+                if (intersects(consJ, prodI) || intersects(prodJ, prodI) || intersects(consI, prodJ)) {
+                    // j reads what i wrote, they write the same output (so the last one wins),
+                    // or i must read the data before j modifies it: keep the priority order
+                    preds.get(j).add(i);
+                }
+            }
+        }
+
+        // Count the incoming edges. Every edge points to a plugin later in the list,
+        // so there can be no cycles.
+        mPending = new int[cnt];
+        for (int i = 0; i < cnt; i++) {
+            for (int pred : preds.get(i)) {
+                mSuccessors.get(pred).add(i);
+            }
+            mPending[i] = preds.get(i).size();
+        }
+    }
+
+    private static boolean intersects(String a[], String b[]) {
+        if (a == null || b == null) {
+            return false;
+        }
+        for (String sa : a) {
+            for (String sb : b) {
+                if (sa.equals(sb)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+}
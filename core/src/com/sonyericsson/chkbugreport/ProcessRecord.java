@@ -19,14 +19,25 @@
  */
 package com.sonyericsson.chkbugreport;
 
+import com.sonyericsson.chkbugreport.Module.DeferredOutput;
 import com.sonyericsson.chkbugreport.doc.Chapter;
+import com.sonyericsson.chkbugreport.doc.DocNode;
 
+/**
+ * Collects the information about one process.
+ *
+ * <p>The process records are shared by the plugins. When a plugin is loaded on a worker thread
+ * (see {@link PluginScheduler}), the nodes it adds and the names it suggests are not applied
+ * immediately, but collected and applied after loading, in the priority order of the plugins,
+ * so the result is the same as when the plugins are loaded one after the other.</p>
+ */
 public class ProcessRecord extends Chapter {
 
+    private Module mMod;
     private int mPid;
     private int mNamePrio;
     private String mProcName;
-    private boolean mExport = false;
+    private volatile boolean mExport = false;
 
     public ProcessRecord(Context ctx, String name, int pid) {
         super(ctx, name);
@@ -34,6 +45,11 @@ public class ProcessRecord extends Chapter {
         setProcName(name);
     }
 
+    public ProcessRecord(Module mod, String name, int pid) {
+        this(mod.getContext(), name, pid);
+        mMod = mod;
+    }
+
     private void setProcName(String name) {
         mProcName = name;
         setName(mProcName + " (" + mPid + ")");
@@ -47,7 +63,22 @@ public class ProcessRecord extends Chapter {
         return mExport;
     }
 
-    public void suggestName(String name, int prio) {
+    @Override
+    public DocNode add(DocNode child) {
+        DeferredOutput out = getDeferredOutput();
+        if (out != null) {
+            out.mProcessRecordUpdates.add(new Update(this, child, null, 0));
+            return this;
+        }
+        return super.add(child);
+    }
+
+    public synchronized void suggestName(String name, int prio) {
+        DeferredOutput out = getDeferredOutput();
+        if (out != null) {
+            out.mProcessRecordUpdates.add(new Update(this, null, name, prio));
+            return;
+        }
         if (prio > mNamePrio) {
             setProcName(name);
             mNamePrio = prio;
@@ -66,4 +97,35 @@ public class ProcessRecord extends Chapter {
         return mExport;
     }
 
+    private DeferredOutput getDeferredOutput() {
+        return (mMod == null) ? null : mMod.getDeferredOutput();
+    }
+
+    /**
+     * A change of a process record made by a plugin loaded on a worker thread.
+     */
+    /* package */ static class Update {
+
+        private ProcessRecord mPr;
+        private DocNode mChild;
+        private String mName;
+        private int mPrio;
+
+        public Update(ProcessRecord pr, DocNode child, String name, int prio) {
+            mPr = pr;
+            mChild = child;
+            mName = name;
+            mPrio = prio;
+        }
+
+        public void apply() {
+            if (mChild != null) {
+                mPr.add(mChild);
+            } else {
+                mPr.suggestName(mName, mPrio);
+            }
+        }
+
+    }
+
 }
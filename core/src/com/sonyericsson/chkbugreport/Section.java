@@ -78,9 +78,13 @@ public class Section extends Lines {
     private int mId;
     private String mFileName;
     private String mShortName;
+    private String mSourceFile;
+    private long mSourceLength;
+    private Module mModule;
 
     public Section(Module module, String sectionName) {
         super(sectionName);
+        mModule = module;
 
         // Clean up the name to be able to use as file name
         int p = sectionName.indexOf('(');
@@ -108,8 +112,32 @@ public class Section extends Lines {
         return mShortName;
     }
 
+    /**
+     * Stores which file the section was read from, and how many bytes were read
+     * (so the lines appended later to the file can be found).
+     */
+    public void setSource(String fileName, long length) {
+        mSourceFile = fileName;
+        mSourceLength = length;
+    }
+
+    /**
+     * Returns the name of the file the section was read from, or null if it was not read
+     * directly from a file (for example it was extracted from a bugreport).
+     */
+    public String getSourceFile() {
+        return mSourceFile;
+    }
+
+    /**
+     * Returns the number of bytes read from the source file.
+     */
+    public long getSourceLength() {
+        return mSourceLength;
+    }
+
     public InputStream createInputStream() {
-        return new SectionInputStream(this);
+        return new SectionInputStream(this, mModule.getContext().getCharset());
     }
 
     public static boolean isSection(String type) {
@@ -21,38 +21,65 @@ package com.sonyericsson.chkbugreport;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 
+/**
+ * Streams the lines of a section, encoded with the same charset they were decoded with,
+ * so the original bytes are restored (for example for the XML parsers).
+ */
 /* package */ class SectionInputStream extends InputStream {
 
     private Section mSection;
+    private Charset mCharset;
     private int mLineIdx;
-    private String mBuff;
-    private int mCharIdx;
+    private byte mBuff[];
+    private int mByteIdx;
 
-    public SectionInputStream(Section s) {
+    public SectionInputStream(Section s, Charset charset) {
         mSection = s;
+        mCharset = charset;
     }
 
-    @Override
-    public int read() throws IOException {
-        if (mSection == null) return -1;
-
-        // Check if we need to fill the buffer
-        while (mBuff == null || mCharIdx == mBuff.length()) {
-            mCharIdx = 0;
-            if (mLineIdx < mSection.getLineCount()) {
-                mBuff = mSection.getLine(mLineIdx++);
-                if (mLineIdx > 1) {
-                    return '\n';
-                }
-            } else {
+    /**
+     * Makes sure there are unread bytes in the buffer.
+     * @return false at the end of the section
+     */
+    private boolean fill() {
+        while (mBuff == null || mByteIdx == mBuff.length) {
+            if (mSection == null || mLineIdx >= mSection.getLineCount()) {
                 mBuff = null;
-                return -1; // EOF
+                return false;
+            }
+            String line = mSection.getLine(mLineIdx++);
+            if (mLineIdx > 1) {
+                line = "\n" + line;
             }
+            mBuff = line.getBytes(mCharset);
+            mByteIdx = 0;
         }
+        return true;
+    }
 
-        // We now have something in the buffer
-        return mBuff.charAt(mCharIdx++);
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1; // EOF
+        }
+        return mBuff[mByteIdx++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1; // EOF
+        }
+        int cnt = Math.min(len, mBuff.length - mByteIdx);
+        System.arraycopy(mBuff, mByteIdx, b, off, cnt);
+        mByteIdx += cnt;
+        return cnt;
     }
 
 }
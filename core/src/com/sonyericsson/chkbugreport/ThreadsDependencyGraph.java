@@ -26,10 +26,12 @@ import java.util.*;
 public class ThreadsDependencyGraph {
     private final Digraph digraph;
     private final Map<String, Integer> threadsNodeIds;
+    private final List<String> threadNames;
 
     public ThreadsDependencyGraph(int size) {
         digraph = new Digraph(size);
         threadsNodeIds = new HashMap<String, Integer>();
+        threadNames = new ArrayList<String>();
     }
 
     /**
@@ -39,6 +41,7 @@ public class ThreadsDependencyGraph {
     public void addThread(String threadName) {
         if (!threadsNodeIds.containsKey(threadName)) {
             threadsNodeIds.put(threadName, threadsNodeIds.size());
+            threadNames.add(threadName);
         }
     }
 
@@ -90,12 +93,7 @@ public class ThreadsDependencyGraph {
 
         if (directedCycle.hasCycle()) {
             for (Integer node : cycle) {
-                for (String key : threadsNodeIds.keySet()) {
-                    if (threadsNodeIds.get(key).equals(node)) {
-                        list.add(key);
-                        break;
-                    }
-                }
+                list.add(threadNames.get(node));
             }
         }
         return list;
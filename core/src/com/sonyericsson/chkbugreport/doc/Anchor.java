@@ -46,6 +46,14 @@ public class Anchor extends DocNode {
 
     }
 
+    /**
+     * Returns the name of the anchor as it appears in the html file.
+     * This is valid only after the anchor is prepared.
+     */
+    public String getFullName() {
+        return mPrefix + mName;
+    }
+
     @Override
     public void prepare(Renderer r) {
         mFileName = r.getFileName();
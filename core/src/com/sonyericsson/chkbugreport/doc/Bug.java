@@ -47,6 +47,7 @@ public class Bug extends DocNode {
     public static final int PRIO_ANR_SYSTEM_LOG = 101;
     public static final int PRIO_ANR_MONKEY = 100;
     public static final int PRIO_DEADLOCK = 95;
+    public static final int PRIO_STUCK_THREADS = 93;
     public static final int PRIO_FATAL_LOG = 92;
     public static final int PRIO_MAIN_VIOLATION = 90;
     public static final int PRIO_KPI = 75;
@@ -72,7 +73,7 @@ public class Bug extends DocNode {
     public static final String ATTR_PID             = "pid";
     public static final String ATTR_REASON          = "reason";
 
-    private static BugComparator mComparator;
+    private static final BugComparator sComparator = new BugComparator();
 
     private String mName;
     private int mPrio;
@@ -115,10 +116,7 @@ public class Bug extends DocNode {
     }
 
     public static Comparator<? super Bug> getComparator() {
-        if (mComparator == null) {
-            mComparator = new BugComparator();
-        }
-        return mComparator;
+        return sComparator;
     }
 
     static class BugComparator implements Comparator<Bug> {
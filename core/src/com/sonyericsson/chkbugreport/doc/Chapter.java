@@ -47,7 +47,11 @@ public class Chapter extends DocNode implements ChapterParent {
     private Renderer mRenderer;
     /** The anchor of this chapter, so other parts of the output report can link to this chapter */
     private Anchor mAnchor;
-    /** Sequenctially generated unique ID of this chapter (in order to generate unique file names) */
+    /**
+     * Sequenctially generated unique ID of this chapter (in order to generate unique file names).
+     * It's allocated when the chapter is prepared, so it follows the order of the chapters in the
+     * document, not the order in which they were created.
+     */
     private int mId;
     /** The pre-content part of the chapter, containing the header, popup button, other buttons, etc */
     private DocNode mInit;
@@ -77,7 +81,6 @@ public class Chapter extends DocNode implements ChapterParent {
         mPopout.setTarget("_blank");
         mInit.add(new Block().addStyle("btn-pop-out").add(mPopout));
         mInit.add(mHeader = new Header(mName));
-        mId = ctx.allocChapterId();
     }
 
     public void addCustomHeaderView(DocNode customView) {
@@ -183,6 +186,9 @@ public class Chapter extends DocNode implements ChapterParent {
 
     @Override
     public void prepare(Renderer r) {
+        if (mId == 0 && mName != null) {
+            mId = mContext.allocChapterId();
+        }
         // Generate sub-toc
         mRenderer = r.addLevel(this);
         if (mRenderer.isStandalone() && getChapterCount() > 0) {
@@ -234,12 +240,20 @@ public class Chapter extends DocNode implements ChapterParent {
 
         // This will render the subchapters
         for (Chapter child : mSubChapters) {
+            if (child.isSeparatePage()) {
+                // It's rendered by itself, see Doc.end() and Doc.renderPage()
+                continue;
+            }
             child.render(mRenderer);
         }
 
         mRenderer.end();
     }
 
+    private boolean isSeparatePage() {
+        return (mRenderer instanceof FileRenderer) && ((FileRenderer)mRenderer).isSeparatePage();
+    }
+
     public String getFullName() {
         Chapter parent = (getParent() instanceof Chapter) ? (Chapter)getParent() : null;
         if (parent != null) {
@@ -26,6 +26,11 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class Doc extends Chapter {
 
@@ -37,6 +42,9 @@ public class Doc extends Chapter {
 
     private Vector<Chapter> mExtraFiles = new Vector<Chapter>();
 
+    /** The root renderer, if the pages are rendered on demand */
+    private FileRenderer mLazyRenderer;
+
     public Doc(Context context) {
         super(context);
     }
@@ -142,7 +150,15 @@ public class Doc extends Chapter {
         // Cleanup: remove empty chapters
         cleanup();
 
-        Renderer r = new FileRenderer(this);
+        boolean lazy = getContext().isLazyRendering();
+        int threads = getContext().getThreadCount();
+        int mode = FileRenderer.MODE_NESTED;
+        if (lazy) {
+            mode = FileRenderer.MODE_LAZY;
+        } else if (threads > 1) {
+            mode = FileRenderer.MODE_SEPARATE;
+        }
+        FileRenderer r = new FileRenderer(this, mode);
         Chapter toc = generateTOC();
 
         toc.prepare(r);
@@ -151,10 +167,17 @@ public class Doc extends Chapter {
             ext.prepare(r);
         }
 
-        toc.render(r);
-        render(r);
-        for (Chapter ext : mExtraFiles) {
-            ext.render(r);
+        if (lazy) {
+            // The pages will be rendered when requested, see renderPage()
+            mLazyRenderer = r;
+        } else if (mode == FileRenderer.MODE_SEPARATE) {
+            renderPages(r, threads);
+        } else {
+            toc.render(r);
+            render(r);
+            for (Chapter ext : mExtraFiles) {
+                ext.render(r);
+            }
         }
 
         // In the still opened index html we just create the frameset
@@ -162,6 +185,47 @@ public class Doc extends Chapter {
         writeFrames(toc);
     }
 
+    /**
+     * Render all the standalone pages in parallel.
+     * The pages don't depend on each other (the file names and anchors are already
+     * assigned in the prepare phase), so the result is the same as when rendering them
+     * one after the other.
+     */
+    private void renderPages(FileRenderer r, int threads) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Vector<Future<Void>> futures = new Vector<Future<Void>>();
+        for (final FileRenderer page : r.getPages()) {
+            futures.add(pool.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    page.getChapter().render(page.getParent());
+                    return null;
+                }
+            }));
+        }
+        pool.shutdown();
+        try {
+            for (Future<Void> f : futures) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering pages");
+        } catch (ExecutionException e) {
+            pool.shutdownNow();
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
     private void writeFrames(Chapter toc) throws FileNotFoundException {
         PrintStream ps = new PrintStream(mIndexHtml);
         HtmlUtil.writeHTMLHeaderLite(ps, getFileName());
@@ -175,6 +239,26 @@ public class Doc extends Chapter {
         ps.close();
     }
 
+    /**
+     * Render a page of the report in memory.
+     * This works only when lazy rendering is enabled (see {@link Context#isLazyRendering()}),
+     * in which case the pages are not saved by {@link #end()}.
+     * @param fileName The name of the page (relative to the data folder)
+     * @return The html content of the page, or null if there is no such page
+     * @throws IOException in case of rendering error
+     */
+    public synchronized byte[] renderPage(String fileName) throws IOException {
+        if (mLazyRenderer == null) {
+            return null;
+        }
+        FileRenderer page = mLazyRenderer.findPage(fileName);
+        if (page == null) {
+            return null;
+        }
+        page.getChapter().render(page.getParent());
+        return page.takeData();
+    }
+
     public void addExtraFile(Chapter extFile) {
         mExtraFiles.add(extFile);
     }
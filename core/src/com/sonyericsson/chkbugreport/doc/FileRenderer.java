@@ -20,8 +20,11 @@ package com.sonyericsson.chkbugreport.doc;
 
 import com.sonyericsson.chkbugreport.util.HtmlUtil;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Vector;
 
 
 public class FileRenderer implements Renderer {
@@ -35,14 +38,43 @@ public class FileRenderer implements Renderer {
     private FileRenderer mParent;
     private GlobalState mState;
     private Chapter mChapter;
+    private ByteArrayOutputStream mData;
+
+    /** Each page is rendered as part of its parent page */
+    public static final int MODE_NESTED = 0;
+    /** Each standalone page is rendered by itself, possibly in parallel with the others */
+    public static final int MODE_SEPARATE = 1;
+    /** The standalone pages are rendered separately in memory, when requested */
+    public static final int MODE_LAZY = 2;
 
     class GlobalState {
         private int mNextFile = 1;
+        private int mMode;
+        private LinkedHashMap<String, FileRenderer> mPages = new LinkedHashMap<String, FileRenderer>();
+
+        synchronized String allocFileName(FileRenderer r) {
+            String fileName = String.format("f%05d.html", mNextFile++);
+            mPages.put(fileName, r);
+            return fileName;
+        }
+
+        synchronized FileRenderer findPage(String fileName) {
+            return mPages.get(fileName);
+        }
+
+        synchronized Vector<FileRenderer> getPages() {
+            return new Vector<FileRenderer>(mPages.values());
+        }
     }
 
     public FileRenderer(Doc doc) {
+        this(doc, MODE_NESTED);
+    }
+
+    public FileRenderer(Doc doc, int mode) {
         mDoc = doc;
         mState = new GlobalState();
+        mState.mMode = mode;
     }
 
     private FileRenderer(FileRenderer r, Chapter ch) {
@@ -52,7 +84,7 @@ public class FileRenderer implements Renderer {
         mState = r.mState;
         mChapter = ch;
         if (mLevel <= SPLIT_LEVELS || ch.shouldBeStandalone()) {
-            mFileName = String.format("f%05d.html", mState.mNextFile++);
+            mFileName = mState.allocFileName(this);
         }
     }
 
@@ -70,6 +102,10 @@ public class FileRenderer implements Renderer {
     public void begin() throws FileNotFoundException {
         if (mFileName == null) {
             mOut = mParent.mOut;
+        } else if (mState.mMode == MODE_LAZY) {
+            mData = new ByteArrayOutputStream();
+            mOut = new PrintStream(mData);
+            HtmlUtil.writeHTMLHeader(mOut, mFileName, "");
         } else {
             mOut = new PrintStream(mDoc.getBaseDir() + mFileName);
             HtmlUtil.writeHTMLHeader(mOut, mFileName, "");
@@ -124,4 +160,34 @@ public class FileRenderer implements Renderer {
         return mChapter;
     }
 
+    /**
+     * Returns true if this is a standalone page which is not rendered as part of its parent page.
+     */
+    /* package */ boolean isSeparatePage() {
+        return mState.mMode != MODE_NESTED && mFileName != null;
+    }
+
+    /**
+     * Find the renderer of the standalone page with the given file name.
+     */
+    /* package */ FileRenderer findPage(String fileName) {
+        return mState.findPage(fileName);
+    }
+
+    /**
+     * Returns the renderers of all the standalone pages, in the order of their file names.
+     */
+    /* package */ Vector<FileRenderer> getPages() {
+        return mState.getPages();
+    }
+
+    /**
+     * Returns the content of the page rendered in lazy mode, and releases the buffer.
+     */
+    /* package */ byte[] takeData() {
+        byte ret[] = mData.toByteArray();
+        mData = null;
+        return ret;
+    }
+
 }
@@ -61,6 +61,16 @@ public class AlarmManagerPlugin extends Plugin {
         mNextAlarmAnchor = 0;
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[] { Section.DUMP_OF_SERVICE_ALARM };
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void load(Module br) {
         // Load data
@@ -44,6 +44,16 @@ public class CpuFreqPlugin extends Plugin {
         mLoaded = false;
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[] { Section.KERNEL_CPUFREQ };
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void load(Module mod) {
         Section sec = mod.findSection(Section.KERNEL_CPUFREQ);
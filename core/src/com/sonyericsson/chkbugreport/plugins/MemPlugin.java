@@ -250,6 +250,16 @@ public class MemPlugin extends Plugin {
         mSlabU = 0;
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[] { Section.DUMP_OF_SERVICE_MEMINFO, Section.LIBRANK };
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void load(Module mod) {
         loadServMeminfoSec(mod);
@@ -41,6 +41,16 @@ public class PSTreePlugin extends Plugin {
         // NOP
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[0];
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void load(Module br) {
         // NOP
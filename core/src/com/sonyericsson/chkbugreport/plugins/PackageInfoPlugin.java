@@ -199,6 +199,16 @@ public class PackageInfoPlugin extends Plugin {
         mPermissions.clear();
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[] { Section.PACKAGE_SETTINGS };
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void load(Module br) {
         // Load packages.xml
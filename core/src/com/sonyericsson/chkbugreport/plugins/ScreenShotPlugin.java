@@ -42,6 +42,16 @@ public class ScreenShotPlugin extends Plugin {
 
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[0];
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void load(Module br) {
         // NOP
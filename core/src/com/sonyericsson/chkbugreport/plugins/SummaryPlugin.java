@@ -54,6 +54,16 @@ public class SummaryPlugin extends Plugin {
         // NOP
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[0];
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void load(Module br) {
         // NOP: do all the work in generate, when all other plugins have finished
@@ -104,6 +104,16 @@ public class SurfaceFlingerPlugin extends Plugin {
         mUnknownAttrs.clear();
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[] { Section.DUMP_OF_SERVICE_SURFACEFLINGER, BugReportModule.DATA_ANDROID_VERSION };
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void load(Module rep) {
         BugReportModule br = (BugReportModule)rep;
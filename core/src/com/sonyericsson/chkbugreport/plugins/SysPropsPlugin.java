@@ -82,6 +82,16 @@ public class SysPropsPlugin extends Plugin {
         // NOP
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[] { Section.SYSTEM_PROPERTIES, Section.UPTIME };
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[] { BugReportModule.DATA_ANDROID_VERSION };
+    }
+
     @Override
     public void load(Module rep) {
         BugReportModule br = (BugReportModule)rep;
@@ -53,6 +53,16 @@ public class UsageHistoryPlugin extends Plugin {
         mData = null;
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[] { Section.USAGE_HISTORY };
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void load(Module br) {
         Section s = br.findSection(Section.USAGE_HISTORY);
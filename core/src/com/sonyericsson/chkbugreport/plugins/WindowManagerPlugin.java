@@ -69,6 +69,19 @@ public class WindowManagerPlugin extends Plugin {
         mWindowManagerState = null;
     }
 
+    @Override
+    public String[] getConsumedData() {
+        String ret[] = new String[EXTRA_SECTIONS.length + 1];
+        ret[0] = Section.DUMP_OF_SERVICE_WINDOW;
+        System.arraycopy(EXTRA_SECTIONS, 0, ret, 1, EXTRA_SECTIONS.length);
+        return ret;
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void load(Module br) {
         // Load data
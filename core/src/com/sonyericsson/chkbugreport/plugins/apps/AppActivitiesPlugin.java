@@ -48,6 +48,16 @@ public class AppActivitiesPlugin extends Plugin {
         mLoaded = false;
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[] { Section.APP_ACTIVITIES };
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void load(Module mod) {
         Section sec = mod.findSection(Section.APP_ACTIVITIES);
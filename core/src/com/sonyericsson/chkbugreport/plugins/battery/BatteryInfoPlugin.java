@@ -133,6 +133,16 @@ public class BatteryInfoPlugin extends Plugin {
         mHooks.add(mod, hook);
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[0];
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void load(Module mod) {
         // NOP
@@ -62,6 +62,16 @@ public class KernelWakeSourcesPlugin extends Plugin {
         mLocks.clear();
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[] { Section.KERNEL_WAKE_SOURCES };
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void load(Module br) {
         Section section = br.findSection(Section.KERNEL_WAKE_SOURCES);
@@ -57,6 +57,16 @@ public class WakelocksFromLogPlugin extends Plugin {
         mEvents.clear();
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[] { SystemLogPlugin.INFO_ID_SYSTEMLOG };
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void load(Module br) {
         LogLines logs = (LogLines) br.getInfo(SystemLogPlugin.INFO_ID_SYSTEMLOG);
@@ -64,6 +64,16 @@ public class WakelocksPlugin extends Plugin {
         mLocks.clear();
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[] { Section.KERNEL_WAKELOCKS };
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void load(Module br) {
         Section section = br.findSection(Section.KERNEL_WAKELOCKS);
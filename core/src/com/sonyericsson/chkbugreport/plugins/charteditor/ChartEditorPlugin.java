@@ -52,6 +52,16 @@ public class ChartEditorPlugin extends Plugin {
         // NOP
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[0];
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void load(Module mod) {
         // NOP
@@ -26,12 +26,15 @@ import com.sonyericsson.chkbugreport.doc.HtmlNode;
 import com.sonyericsson.chkbugreport.plugins.logs.LogLine;
 import com.sonyericsson.chkbugreport.plugins.logs.LogLines;
 import com.sonyericsson.chkbugreport.plugins.logs.LogMatcher;
+import com.sonyericsson.chkbugreport.plugins.logs.LogRuleSet;
 import com.sonyericsson.chkbugreport.plugins.logs.LogToolbar;
 import com.sonyericsson.chkbugreport.plugins.logs.MainLogPlugin;
+import com.sonyericsson.chkbugreport.plugins.logs.MergedLogIterator;
 import com.sonyericsson.chkbugreport.plugins.logs.event.EventLogPlugin;
 import com.sonyericsson.chkbugreport.util.Util;
 import com.sonyericsson.chkbugreport.util.XMLNode;
 
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Vector;
 
@@ -72,18 +75,10 @@ import java.util.Vector;
 
         // Process all logs in parallel, always using the next match with the earliest timestamp
         LogCollector result = new LogCollector(mCh);
-        while (true) {
-            LogLine nextLine = null;
-            LogState foundIn = null;
-            for (LogState ls : logs) {
-                LogLine ll = ls.findNext();
-                if (ll == null) continue;
-                if (nextLine == null || nextLine.ts > ll.ts) {
-                    nextLine = ll;
-                    foundIn = ls;
-                }
-            }
-            if (nextLine == null) break; // no more matches
+        MergedLogIterator it = new MergedLogIterator(logs);
+        while (it.hasNext()) {
+            LogLine nextLine = it.next();
+            LogState foundIn = (LogState) it.getLastSource();
 
             // Check if the matcher has some extra info (e.g. start new session)
             XMLNode xml = foundIn.getFinder().getXML();
@@ -94,7 +89,6 @@ import java.util.Vector;
             }
 
             result.add(nextLine);
-            foundIn.moveToNext();
         }
 
     }
@@ -120,7 +114,7 @@ import java.util.Vector;
     /**
      * Keeps track on which line should be the next match from a given log.
      */
-    class LogState {
+    class LogState implements MergedLogIterator.Source {
 
         public LogState(String logName) {
             this.logName = logName;
@@ -140,9 +134,15 @@ import java.util.Vector;
             }
         }
 
+        @Override
+        public LogLine peek() {
+            return findNext();
+        }
+
         /**
          * Consume the last found line, so next time findNext() will look for another one
          */
+        @Override
         public void moveToNext() {
             next = null;
         }
@@ -155,13 +155,24 @@ import java.util.Vector;
         public LogLine findNext() {
             if (next != null) return next; // already found one, and it's not cleared yet
             while (index < count) {
-                next = logs.get(index++);
-                for (LogMatcher lm : matchers) {
-                    if (lm.matches(next)) {
-                        finder = lm;
-                        return next;
+                if (candidates != null) {
+                    // Skip the lines which cannot match any of the matchers
+                    index = candidates.nextSetBit(index);
+                    if (index < 0) {
+                        index = count;
+                        break;
                     }
                 }
+                next = logs.get(index++);
+                if (session == null) {
+                    session = new LogRuleSet(matchers).newSession();
+                }
+                int rules[] = session.match(next);
+                if (rules.length > 0) {
+                    // Use the first matching one, in the order they were specified
+                    finder = matchers.get(rules[0]);
+                    return next;
+                }
                 next = null;
             }
             return null;
@@ -173,6 +184,18 @@ import java.util.Vector;
 
         public void add(LogMatcher lm) {
             matchers.add(lm);
+            if (logs == null) return;
+            // A line is a candidate if it can be matched by any of the matchers
+            if (matchers.size() == 1) {
+                candidates = lm.getCandidates(logs.getIndex());
+            } else if (candidates != null) {
+                BitSet lines = lm.getCandidates(logs.getIndex());
+                if (lines == null) {
+                    candidates = null;
+                } else {
+                    candidates.or(lines);
+                }
+            }
         }
 
         public String logName;
@@ -180,6 +203,8 @@ import java.util.Vector;
         public LogLines logs;
         public LogLine next;
         public LogMatcher finder;
+        public BitSet candidates;
+        public LogRuleSet.Session session;
         public int count;
         public int index;
     }
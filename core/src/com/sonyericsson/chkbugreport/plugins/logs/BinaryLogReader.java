@@ -0,0 +1,383 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.plugins.logs;
+
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Section;
+import com.sonyericsson.chkbugreport.util.Util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Reads the binary log format written by "logcat -B", and creates the log lines directly
+ * from the records, without formatting and parsing them as text.
+ *
+ * <p>Each record is a logger_entry header (one of its versions, the header size is stored in
+ * the record since v2) followed by the payload. For the text logs the payload is the priority,
+ * the tag and the message. For the binary logs (events, stats, security) it's the numeric tag
+ * and the encoded values, these are formatted the same way as logcat does. The tag names are
+ * looked up in the event-log-tags file given with the --event-tags option; without it (or if
+ * the tag is missing from it) the tag is shown as a number, and the event log analyzers
+ * cannot recognize the line (see {@link #getUnresolvedCount()}).</p>
+ *
+ * <p>The timestamps are stored in UTC, they are converted to the log's time using the GMT
+ * offset (see the --gmt option).</p>
+ */
+public class BinaryLogReader {
+
+    public static final int LOG_ID_MAIN = 0;
+    public static final int LOG_ID_RADIO = 1;
+    public static final int LOG_ID_EVENTS = 2;
+    public static final int LOG_ID_SYSTEM = 3;
+    public static final int LOG_ID_CRASH = 4;
+    public static final int LOG_ID_STATS = 5;
+    public static final int LOG_ID_SECURITY = 6;
+    public static final int LOG_ID_KERNEL = 7;
+
+    /** The maximum payload size accepted (the real limit is around 4K) */
+    private static final int MAX_PAYLOAD = 0x2000;
+    /** The header size of logger_entry v1, which doesn't store it */
+    private static final int V1_HEADER_SIZE = 20;
+    private static final int MAX_HEADER_SIZE = 64;
+
+    /** The level letter of each android_LogPriority */
+    private static final String LEVELS = "??VDIWEFS";
+
+    private static final int EVENT_TYPE_INT = 0;
+    private static final int EVENT_TYPE_LONG = 1;
+    private static final int EVENT_TYPE_STRING = 2;
+    private static final int EVENT_TYPE_LIST = 3;
+    private static final int EVENT_TYPE_FLOAT = 4;
+
+    private BugReportModule mMod;
+    private InputStream mIs;
+    private Charset mCharset;
+    private long mGmtOffset;
+    private EventLogTags mTags;
+    private int mUnresolved;
+    private byte mHeader[] = new byte[MAX_HEADER_SIZE];
+    private byte mPayload[] = new byte[MAX_PAYLOAD];
+
+    // The current record
+    private int mPayloadLen;
+    private int mPid;
+    private int mTid;
+    private long mSec;
+    private int mNsec;
+    private int mLogId;
+    private int mUid;
+
+    // The formatted timestamp of the last second, most of the records share it
+    private Calendar mCal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    private long mCachedSec = Long.MIN_VALUE;
+    private String mCachedTime;
+    private long mCachedTs;
+
+    public BinaryLogReader(BugReportModule br, InputStream is) {
+        mMod = br;
+        mIs = is;
+        mCharset = br.getContext().getCharset();
+        mGmtOffset = br.getContext().getGmtOffset() * Util.HOUR_MS;
+        mTags = br.getEventLogTags();
+    }
+
+    /**
+     * Returns true if the data looks like a binary log, i.e. it starts with valid
+     * logger_entry records.
+     */
+    public static boolean isBinaryLog(byte[] buff, int offs, int len) {
+        int pos = offs, end = offs + len, records = 0;
+        while (records < 3 && pos + 4 <= end) {
+            int payloadLen = getShort(buff, pos);
+            int hdrSize = getShort(buff, pos + 2);
+            if (hdrSize == 0) {
+                hdrSize = V1_HEADER_SIZE;
+            } else if (hdrSize < V1_HEADER_SIZE || hdrSize > MAX_HEADER_SIZE) {
+                return false;
+            }
+            if (payloadLen == 0 || payloadLen > MAX_PAYLOAD) {
+                return false;
+            }
+            if (pos + hdrSize > end) {
+                break;
+            }
+            int pid = getInt(buff, pos + 4);
+            int tid = getInt(buff, pos + 8);
+            int nsec = getInt(buff, pos + 16);
+            if (pid < 0 || tid < 0 || nsec < 0 || nsec >= 1000000000) {
+                return false;
+            }
+            if (pos + hdrSize < end) {
+                int prio = buff[pos + hdrSize];
+                int lid = (hdrSize >= 24) ? getInt(buff, pos + 20) : LOG_ID_MAIN;
+                if (!isBinaryPayload(lid) && (prio < 0 || prio >= LEVELS.length())) {
+                    return false;
+                }
+            }
+            pos += hdrSize + payloadLen;
+            records++;
+        }
+        return records > 0;
+    }
+
+    private static boolean isBinaryPayload(int lid) {
+        return lid == LOG_ID_EVENTS || lid == LOG_ID_STATS || lid == LOG_ID_SECURITY;
+    }
+
+    /**
+     * Returns the name of the section where the lines of the given log buffer belong
+     * (the same way as they are split in a bugreport).
+     */
+    public static String getSectionName(int lid) {
+        if (isBinaryPayload(lid)) {
+            return Section.EVENT_LOG;
+        }
+        return Section.SYSTEM_LOG;
+    }
+
+    private static int getShort(byte[] buff, int pos) {
+        return (buff[pos] & 0xff) | ((buff[pos + 1] & 0xff) << 8);
+    }
+
+    private static int getInt(byte[] buff, int pos) {
+        return (buff[pos] & 0xff) | ((buff[pos + 1] & 0xff) << 8)
+                | ((buff[pos + 2] & 0xff) << 16) | ((buff[pos + 3] & 0xff) << 24);
+    }
+
+    private static long getLong(byte[] buff, int pos) {
+        return (getInt(buff, pos) & 0xffffffffL) | ((long) getInt(buff, pos + 4) << 32);
+    }
+
+    private boolean readFully(byte[] buff, int len) throws IOException {
+        int pos = 0;
+        while (pos < len) {
+            int read = mIs.read(buff, pos, len - pos);
+            if (read < 0) {
+                return false;
+            }
+            pos += read;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the log buffer (LOG_ID_*) of the last record read.
+     */
+    public int getLogId() {
+        return mLogId;
+    }
+
+    /**
+     * Returns the number of binary records read so far whose tag could not be resolved
+     * to a name (these have numeric tags).
+     */
+    public int getUnresolvedCount() {
+        return mUnresolved;
+    }
+
+    /**
+     * Reads the next record, and appends its log lines to the list (there could be more
+     * lines, if the message contains new line characters).
+     * @return false if there are no more records (a truncated record at the end is ignored)
+     */
+    public boolean read(List<LogLine> out) throws IOException {
+        // Read the header
+        if (!readFully(mHeader, 4)) {
+            return false;
+        }
+        mPayloadLen = getShort(mHeader, 0);
+        int hdrSize = getShort(mHeader, 2);
+        if (hdrSize == 0) {
+            hdrSize = V1_HEADER_SIZE;
+        }
+        if (hdrSize < V1_HEADER_SIZE || hdrSize > MAX_HEADER_SIZE || mPayloadLen > MAX_PAYLOAD) {
+            throw new IOException("Corrupt binary log record (header size: " + hdrSize
+                    + ", payload size: " + mPayloadLen + ")");
+        }
+        if (!readFully(mHeader, hdrSize - 4)) {
+            return false;
+        }
+        mPid = getInt(mHeader, 0);
+        mTid = getInt(mHeader, 4);
+        mSec = getInt(mHeader, 8) & 0xffffffffL;
+        mNsec = getInt(mHeader, 12);
+        mLogId = LOG_ID_MAIN;
+        mUid = 0;
+        if (hdrSize >= 24) {
+            // v3 and later store the log id here, v2 stored the euid
+            int lid = getInt(mHeader, 16);
+            if (lid >= 0 && lid <= LOG_ID_KERNEL) {
+                mLogId = lid;
+            } else {
+                mUid = lid;
+            }
+        }
+        if (hdrSize >= 28) {
+            mUid = getInt(mHeader, 20);
+        }
+
+        // Read the payload
+        if (!readFully(mPayload, mPayloadLen)) {
+            return false;
+        }
+        updateTime();
+        if (isBinaryPayload(mLogId)) {
+            readEvent(out);
+        } else {
+            readText(out);
+        }
+        return true;
+    }
+
+    private void readText(List<LogLine> out) {
+        if (mPayloadLen < 1) {
+            return;
+        }
+        int prio = mPayload[0] & 0xff;
+        char level = (prio < LEVELS.length()) ? LEVELS.charAt(prio) : '?';
+        int tagEnd = 1;
+        while (tagEnd < mPayloadLen && mPayload[tagEnd] != 0) {
+            tagEnd++;
+        }
+        String tag = new String(mPayload, 1, tagEnd - 1, mCharset);
+        int msgStart = Math.min(tagEnd + 1, mPayloadLen);
+        int msgEnd = msgStart;
+        while (msgEnd < mPayloadLen && mPayload[msgEnd] != 0) {
+            msgEnd++;
+        }
+        // Like logcat, create one line for each line of the message (ignoring the trailing new lines)
+        while (msgEnd > msgStart && mPayload[msgEnd - 1] == '\n') {
+            msgEnd--;
+        }
+        int start = msgStart;
+        for (int i = msgStart; i <= msgEnd; i++) {
+            if (i == msgEnd || mPayload[i] == '\n') {
+                String msg = new String(mPayload, start, i - start, mCharset);
+                out.add(newLine(level, tag, msg));
+                start = i + 1;
+            }
+        }
+    }
+
+    private void readEvent(List<LogLine> out) {
+        if (mPayloadLen < 4) {
+            return;
+        }
+        int tagId = getInt(mPayload, 0);
+        String tag = (mTags != null) ? mTags.getName(tagId) : null;
+        if (tag == null) {
+            tag = Integer.toString(tagId);
+            mUnresolved++;
+        }
+        StringBuilder sb = new StringBuilder();
+        int pos = 4;
+        if (pos < mPayloadLen) {
+            pos = formatEventValue(sb, pos);
+        }
+        if (pos < 0) {
+            sb.append("[corrupt event]");
+        }
+        out.add(newLine('I', tag, sb.toString()));
+    }
+
+    private LogLine newLine(char level, String tag, String msg) {
+        int ms = mNsec / 1000000;
+        StringBuilder time = new StringBuilder(mCachedTime);
+        time.append('.').append((char) ('0' + ms / 100)).append((char) ('0' + ms / 10 % 10)).append((char) ('0' + ms % 10));
+        return new LogLine(mMod, time.toString(), mCachedTs + ms, mUid, mPid, mTid, level, tag, msg);
+    }
+
+    /**
+     * Formats an encoded event value, returns the position after it, or -1 if the data is corrupt.
+     */
+    private int formatEventValue(StringBuilder sb, int pos) {
+        if (pos >= mPayloadLen) {
+            return -1;
+        }
+        int type = mPayload[pos++];
+        switch (type) {
+            case EVENT_TYPE_INT:
+                if (pos + 4 > mPayloadLen) return -1;
+                sb.append(getInt(mPayload, pos));
+                return pos + 4;
+            case EVENT_TYPE_LONG:
+                if (pos + 8 > mPayloadLen) return -1;
+                sb.append(getLong(mPayload, pos));
+                return pos + 8;
+            case EVENT_TYPE_FLOAT:
+                if (pos + 4 > mPayloadLen) return -1;
+                sb.append(Float.intBitsToFloat(getInt(mPayload, pos)));
+                return pos + 4;
+            case EVENT_TYPE_STRING: {
+                if (pos + 4 > mPayloadLen) return -1;
+                int len = getInt(mPayload, pos);
+                pos += 4;
+                if (len < 0 || pos + len > mPayloadLen) return -1;
+                sb.append(new String(mPayload, pos, len, mCharset));
+                return pos + len;
+            }
+            case EVENT_TYPE_LIST: {
+                if (pos + 1 > mPayloadLen) return -1;
+                int cnt = mPayload[pos++] & 0xff;
+                sb.append('[');
+                for (int i = 0; i < cnt; i++) {
+                    if (i > 0) {
+                        sb.append(',');
+                    }
+                    pos = formatEventValue(sb, pos);
+                    if (pos < 0) return -1;
+                }
+                sb.append(']');
+                return pos;
+            }
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Formats the timestamp of the current record (without the milliseconds), and computes its
+     * value the same way as it's done when parsing the text logs.
+     */
+    private void updateTime() {
+        if (mSec == mCachedSec) {
+            return;
+        }
+        mCachedSec = mSec;
+        mCal.setTimeInMillis(mSec * 1000 + mGmtOffset);
+        int month = mCal.get(Calendar.MONTH) + 1;
+        int day = mCal.get(Calendar.DAY_OF_MONTH);
+        int hour = mCal.get(Calendar.HOUR_OF_DAY);
+        int min = mCal.get(Calendar.MINUTE);
+        int sec = mCal.get(Calendar.SECOND);
+        mCachedTime = String.format("%02d-%02d %02d:%02d:%02d", month, day, hour, min, sec);
+        long ts = month;
+        ts = ts * 31 + day;
+        ts = ts * 24 + hour;
+        ts = ts * 60 + min;
+        ts = ts * 60 + sec;
+        mCachedTs = ts * 1000;
+    }
+
+}
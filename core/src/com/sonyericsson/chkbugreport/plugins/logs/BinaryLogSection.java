@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.plugins.logs;
+
+import com.sonyericsson.chkbugreport.Module;
+import com.sonyericsson.chkbugreport.Section;
+
+import java.util.Vector;
+
+/**
+ * A log section read from a binary log. Besides the text of the lines (which is used by
+ * everything else reading the sections), it keeps the lines already parsed, so the log
+ * plugins don't need to parse them again.
+ */
+public class BinaryLogSection extends Section {
+
+    private Vector<LogLine> mParsed = new Vector<LogLine>();
+
+    public BinaryLogSection(Module module, String sectionName) {
+        super(module, sectionName);
+    }
+
+    public void addLogLine(LogLine sl) {
+        addLine(sl.line);
+        mParsed.add(sl);
+    }
+
+    /**
+     * Returns the parsed lines, one for each line of the section.
+     */
+    public LogLine[] getParsedLines() {
+        return mParsed.toArray(new LogLine[mParsed.size()]);
+    }
+
+}
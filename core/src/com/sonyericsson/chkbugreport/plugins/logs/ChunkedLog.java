@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.plugins.logs;
+
+import com.sonyericsson.chkbugreport.Module;
+import com.sonyericsson.chkbugreport.doc.Anchor;
+import com.sonyericsson.chkbugreport.doc.Chapter;
+import com.sonyericsson.chkbugreport.doc.DocNode;
+import com.sonyericsson.chkbugreport.doc.Renderer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A log which is too big to be shown as a single html block.
+ *
+ * <p>The log lines are saved in fixed size, gzip compressed chunks (as javascript files, so
+ * they can be loaded from the local file system as well), and the page contains only a small
+ * index and a placeholder for each chunk. The browser loads only the chunks which are
+ * scrolled into view (see logviewInit() in main.js).</p>
+ */
+public class ChunkedLog extends DocNode {
+
+    /** The number of log lines saved in one chunk */
+    public static final int CHUNK_LINES = 2000;
+
+    /** The estimated height of ten log lines, used to size the placeholders (in em) */
+    private static final int LINE_HEIGHT_10 = 12;
+
+    private Module mMod;
+    private String mName;
+
+    public ChunkedLog(Module mod, DocNode parent) {
+        super(parent);
+        mMod = mod;
+    }
+
+    @Override
+    public void prepare(Renderer r) {
+        super.prepare(r);
+        // The chapter id makes the name unique even if the page contains several logs
+        mName = "ch" + r.getChapter().getId() + "_log";
+    }
+
+    @Override
+    public void render(Renderer r) throws IOException {
+        int cnt = getChildCount();
+        int chunks = (cnt + CHUNK_LINES - 1) / CHUNK_LINES;
+        StringBuilder index = new StringBuilder();
+        index.append("logviewInit(\"").append(mName).append("\", {lines:").append(cnt);
+        index.append(", chunkLines:").append(CHUNK_LINES).append(", chunks:[");
+        StringBuilder anchors = new StringBuilder();
+        r.println("<div class=\"log log-chunked\" id=\"" + mName + "\">");
+        for (int i = 0; i < chunks; i++) {
+            int first = i * CHUNK_LINES;
+            int last = Math.min(cnt, first + CHUNK_LINES);
+            String fn = mName + String.format("_%05d.js", i);
+            saveChunk(r, fn, i, first, last);
+            r.println("<div class=\"log-chunk\" style=\"height: " + (LINE_HEIGHT_10 * (last - first) / 10) + "em\"></div>");
+
+            // Index the chunk by its first timestamp and by the anchors it contains
+            if (i > 0) {
+                index.append(',');
+            }
+            index.append("[\"").append(fn).append("\",").append(getTimestamp(first)).append(']');
+            for (int j = first; j < last; j++) {
+                DocNode child = getChild(j);
+                if (child instanceof LogLine) {
+                    Anchor a = ((LogLine) child).peekAnchor();
+                    if (a != null) {
+                        anchors.append(anchors.length() == 0 ? "" : ",");
+                        anchors.append('"').append(a.getFullName()).append("\":").append(i);
+                    }
+                }
+            }
+        }
+        r.println("</div>");
+        index.append("], anchors:{").append(anchors).append("}});");
+        r.println("<script type=\"text/javascript\">");
+        r.println(index.toString());
+        r.println("</script>");
+    }
+
+    private long getTimestamp(int idx) {
+        DocNode child = getChild(idx);
+        return (child instanceof LogLine) ? ((LogLine) child).ts : 0;
+    }
+
+    private void saveChunk(Renderer r, String fn, int idx, int first, int last) throws IOException {
+        // Render the lines, exactly as they would appear in the page
+        ChunkRenderer cr = new ChunkRenderer(r);
+        for (int i = first; i < last; i++) {
+            getChild(i).render(cr);
+        }
+
+        ByteArrayOutputStream gz = new ByteArrayOutputStream();
+        GZIPOutputStream gzos = new GZIPOutputStream(gz);
+        gzos.write(cr.getData());
+        gzos.close();
+
+        Writer out = new OutputStreamWriter(new FileOutputStream(mMod.getBaseDir() + fn), "UTF-8");
+        try {
+            out.write("logviewChunk(\"" + mName + "\", " + idx + ", \"");
+            out.write(Base64.getEncoder().encodeToString(gz.toByteArray()));
+            out.write("\");\n");
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Collects the html code of one chunk in memory.
+     * Everything else is delegated to the renderer of the page containing the log.
+     */
+    private static class ChunkRenderer implements Renderer {
+
+        private Renderer mPage;
+        private StringBuilder mData = new StringBuilder();
+
+        public ChunkRenderer(Renderer page) {
+            mPage = page;
+        }
+
+        public byte[] getData() throws IOException {
+            return mData.toString().getBytes("UTF-8");
+        }
+
+        @Override
+        public Renderer addLevel(Chapter ch) {
+            return mPage.addLevel(ch);
+        }
+
+        @Override
+        public int getLevel() {
+            return mPage.getLevel();
+        }
+
+        @Override
+        public void begin() throws FileNotFoundException {
+            // NOP
+        }
+
+        @Override
+        public void end() {
+            // NOP
+        }
+
+        @Override
+        public void print(String string) {
+            mData.append(string);
+        }
+
+        @Override
+        public void println(String string) {
+            mData.append(string).append('\n');
+        }
+
+        @Override
+        public void print(char c) {
+            mData.append(c);
+        }
+
+        @Override
+        public void print(long v) {
+            mData.append(v);
+        }
+
+        @Override
+        public String getFileName() {
+            return mPage.getFileName();
+        }
+
+        @Override
+        public Renderer getParent() {
+            return mPage.getParent();
+        }
+
+        @Override
+        public boolean isStandalone() {
+            return mPage.isStandalone();
+        }
+
+        @Override
+        public Chapter getChapter() {
+            return mPage.getChapter();
+        }
+
+    }
+
+}
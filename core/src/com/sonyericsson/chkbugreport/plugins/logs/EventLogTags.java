@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.plugins.logs;
+
+import com.sonyericsson.chkbugreport.util.LineReader;
+
+import java.io.InputStream;
+import java.util.HashMap;
+
+/**
+ * The names of the event log tags, read from the event-log-tags file of the device
+ * (/system/etc/event-log-tags). The binary event logs store only the numeric tags, this is
+ * needed to map them back to the names logcat would print.
+ *
+ * <p>Each line of the file contains the tag number, the tag name and optionally the
+ * description of the values, for example "30008 am_anr (User|1|5),(pid|1|5),...".
+ * Empty lines and comments (starting with '#') are ignored.</p>
+ */
+public class EventLogTags {
+
+    private HashMap<Integer, String> mNames = new HashMap<Integer, String>();
+
+    /**
+     * Reads the tags from the content of an event-log-tags file. Malformed lines are skipped.
+     * The stream is closed when done.
+     */
+    public EventLogTags(InputStream is) {
+        LineReader lr = new LineReader(is);
+        String line;
+        while (null != (line = lr.readLine())) {
+            line = line.trim();
+            if (line.length() == 0 || line.startsWith("#")) {
+                continue;
+            }
+            String fields[] = line.split("\\s+", 3);
+            if (fields.length < 2) {
+                continue;
+            }
+            try {
+                mNames.put(Integer.parseInt(fields[0]), fields[1]);
+            } catch (NumberFormatException e) {
+                // Not a tag definition (for example an "option" line), skip it
+            }
+        }
+        lr.close();
+    }
+
+    /**
+     * Returns the name of the tag, or null if it's unknown.
+     */
+    public String getName(int tag) {
+        return mNames.get(tag);
+    }
+
+    /**
+     * Returns the number of tags defined.
+     */
+    public int size() {
+        return mNames.size();
+    }
+
+}
@@ -28,6 +28,8 @@ import com.sonyericsson.chkbugreport.doc.Para;
 import com.sonyericsson.chkbugreport.util.Util;
 import com.sonyericsson.chkbugreport.util.XMLNode;
 
+import java.util.BitSet;
+import java.util.List;
 import java.util.Vector;
 
 public class Hooks {
@@ -48,29 +50,37 @@ public class Hooks {
     }
 
     public void execute(BugReportModule mod) {
-        for (XMLNode hook : mHooks) {
-            execute(mod, hook);
-        }
+        execute(mod, mLog.getLogs());
     }
 
-    private void execute(BugReportModule mod, XMLNode hook) {
-        for (XMLNode item : hook) {
-            String tag = item.getName();
-            if (tag == null) continue;
-            if (tag.equals("filter")) {
-                filterLog(mod, item);
-            } else {
-                mod.printErr(5, "Unknown log hook: " + tag);
+    /**
+     * Executes the hooks only on the given lines (for example on the lines appended to the log).
+     */
+    public void execute(BugReportModule mod, List<LogLine> logs) {
+        // Collect the filters from all the hooks, so they can be evaluated in a single pass
+        Vector<XMLNode> filters = new Vector<XMLNode>();
+        Vector<LogMatcher> matchers = new Vector<LogMatcher>();
+        for (XMLNode hook : mHooks) {
+            for (XMLNode item : hook) {
+                String tag = item.getName();
+                if (tag == null) continue;
+                if (tag.equals("filter")) {
+                    filters.add(item);
+                    matchers.add(new LogMatcher(mod, item));
+                } else {
+                    mod.printErr(5, "Unknown log hook: " + tag);
+                }
             }
         }
-    }
+        if (filters.isEmpty()) return;
+
+        BitSet matches[] = new LogRuleSet(matchers).matchAll(logs);
 
-    private void filterLog(BugReportModule mod, XMLNode filter) {
-        LogMatcher lm = new LogMatcher(mod, filter);
-        LogLines logs = mLog.getLogs();
-        for (LogLine ll : logs) {
-            if (lm.matches(ll)) {
-                executeAction(mod, filter, ll);
+        // Execute the actions in the same order as if the filters were processed one by one
+        for (int f = 0; f < filters.size(); f++) {
+            BitSet lines = matches[f];
+            for (int i = lines.nextSetBit(0); i >= 0; i = lines.nextSetBit(i + 1)) {
+                executeAction(mod, filters.get(f), logs.get(i));
             }
         }
     }
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.plugins.logs;
+
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Section;
+import com.sonyericsson.chkbugreport.util.Util;
+
+import java.util.Vector;
+import java.util.regex.Pattern;
+
+/**
+ * A dispatch table of log line analyzers.
+ *
+ * <p>Each analyzer is registered with a key: a tag (or tag pattern), a log level and a message
+ * prefix, any of which can be omitted to match everything. Before analyzing, the tags of the
+ * log are resolved once per distinct tag (using the interned tag ids of the LogColumns), so
+ * finding the analyzers of a line is a table lookup on the tag id and level, and only the
+ * message prefixes of the found analyzers need to be checked.</p>
+ *
+ * <p>The analyzers matching a line are executed in the order they were registered.
+ * The tags are compared without the surrounding whitespace.</p>
+ */
+public class LogAnalyzers {
+
+    /** Use this as level to match all the log levels */
+    public static final char ANY_LEVEL = 0;
+
+    /** The levels are looked up in a table, other levels match only ANY_LEVEL */
+    private static final int LEVELS = 128;
+
+    private static final Entry[] EMPTY = new Entry[0];
+
+    /**
+     * Processes a log line.
+     */
+    public interface Analyzer {
+        /**
+         * Analyzes the given log line.
+         * @param sl The log line
+         * @param i The index of the line in the log
+         * @param br The bugreport
+         * @param s The section the log was loaded from
+         */
+        public void analyze(LogLine sl, int i, BugReportModule br, Section s);
+    }
+
+    private static class Entry {
+        String tag;
+        Pattern tagPattern;
+        char level;
+        String msgPrefix;
+        Analyzer analyzer;
+
+        boolean isAnyTag() {
+            return tag == null && tagPattern == null;
+        }
+
+        boolean matchesTag(String name) {
+            if (tag != null) {
+                return tag.equals(name);
+            }
+            return tagPattern == null || tagPattern.matcher(name).matches();
+        }
+
+        boolean matchesLevel(int level) {
+            return this.level == ANY_LEVEL || this.level == level;
+        }
+    }
+
+    private Vector<Entry> mEntries = new Vector<Entry>();
+    private LogColumns mCols;
+    /** The analyzers of each tag id and level, or null if only the ones in mAnyTag apply */
+    private Entry[][][] mRows = new Entry[0][][];
+    /** The analyzers of the lines whose tag does not match any registered tag */
+    private Entry[][] mAnyTag;
+
+    /**
+     * Removes all the analyzers.
+     */
+    public void clear() {
+        mEntries.clear();
+        invalidate();
+    }
+
+    /**
+     * Registers an analyzer.
+     * @param tag The tag of the lines to analyze, or null to analyze all tags
+     * @param level The level of the lines to analyze, or ANY_LEVEL
+     * @param msgPrefix The message of the analyzed lines must start with this, or null
+     * @param analyzer The analyzer to execute on the matching lines
+     */
+    public void add(String tag, char level, String msgPrefix, Analyzer analyzer) {
+        Entry e = new Entry();
+        e.tag = tag;
+        e.level = level;
+        e.msgPrefix = msgPrefix;
+        e.analyzer = analyzer;
+        mEntries.add(e);
+        invalidate();
+    }
+
+    /**
+     * Registers an analyzer for all the tags matching the given pattern.
+     * @see #add(String, char, String, Analyzer)
+     */
+    public void add(Pattern tag, char level, String msgPrefix, Analyzer analyzer) {
+        Entry e = new Entry();
+        e.tagPattern = tag;
+        e.level = level;
+        e.msgPrefix = msgPrefix;
+        e.analyzer = analyzer;
+        mEntries.add(e);
+        invalidate();
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+
+    private void invalidate() {
+        mCols = null;
+        mRows = new Entry[0][][];
+        mAnyTag = null;
+    }
+
+    /**
+     * Resolves the tags of the given log, must be called before analyzing its lines
+     * (and again after new lines are added to it).
+     */
+    public void prepare(LogColumns cols) {
+        if (cols != mCols) {
+            mCols = cols;
+            mRows = new Entry[0][][];
+            mAnyTag = createRow(null);
+        }
+
+        // Resolve only the tags which were added since the last call
+        int tagCount = cols.getTagCount();
+        int oldCount = mRows.length;
+        if (tagCount == oldCount) {
+            return;
+        }
+        Entry[][][] rows = new Entry[tagCount][][];
+        System.arraycopy(mRows, 0, rows, 0, oldCount);
+        for (int t = oldCount; t < tagCount; t++) {
+            rows[t] = createRow(Util.strip(cols.getTagName(t)));
+        }
+        mRows = rows;
+    }
+
+    /**
+     * Creates the level table of the given tag (null means a tag which matches only the
+     * analyzers registered for any tag). Returns null if that table would be the same as mAnyTag.
+     */
+    private Entry[][] createRow(String tag) {
+        Vector<Entry> entries = new Vector<Entry>();
+        boolean specific = false;
+        for (Entry e : mEntries) {
+            if (e.isAnyTag()) {
+                entries.add(e);
+            } else if (tag != null && e.matchesTag(tag)) {
+                entries.add(e);
+                specific = true;
+            }
+        }
+        if (tag != null && !specific) {
+            return null;
+        }
+
+        // Index 0 (ANY_LEVEL) holds the analyzers of all the levels, used for unknown levels too
+        Entry[][] row = new Entry[LEVELS][];
+        row[ANY_LEVEL] = filter(entries, ANY_LEVEL);
+        for (Entry e : entries) {
+            if (e.level != ANY_LEVEL && e.level < LEVELS && row[e.level] == null) {
+                row[e.level] = filter(entries, e.level);
+            }
+        }
+        for (int l = 0; l < LEVELS; l++) {
+            if (row[l] == null) {
+                row[l] = row[ANY_LEVEL];
+            }
+        }
+        return row;
+    }
+
+    private static Entry[] filter(Vector<Entry> entries, int level) {
+        Vector<Entry> ret = new Vector<Entry>();
+        for (Entry e : entries) {
+            if (e.matchesLevel(level)) {
+                ret.add(e);
+            }
+        }
+        return ret.isEmpty() ? EMPTY : ret.toArray(new Entry[ret.size()]);
+    }
+
+    /**
+     * Executes the matching analyzers on the given line, which must be a parsed line of the
+     * log passed to prepare().
+     */
+    public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+        LogColumns cols = mCols;
+        int tag = cols.getTagId(i);
+        Entry[][] row = (tag >= 0 && tag < mRows.length && mRows[tag] != null) ? mRows[tag] : mAnyTag;
+        char level = cols.getLevel(i);
+        Entry[] entries = row[level < LEVELS ? level : ANY_LEVEL];
+        for (Entry e : entries) {
+            if (e.msgPrefix == null || cols.msgStartsWith(i, e.msgPrefix)) {
+                e.analyzer.analyze(sl, i, br, s);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.plugins.logs;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Vector;
+
+/**
+ * A column oriented view of the parsed log lines.
+ *
+ * <p>The most often used attributes of the lines (timestamp, pid, level and tag) are stored in
+ * primitive arrays, so code which needs to scan the whole log (analyzers, filters, statistics)
+ * can do it without touching the LogLine objects. The tags are interned, so they can be
+ * compared by their id, and the messages are checked through their offset inside the original
+ * line, without creating temporary strings.</p>
+ *
+ * <p>The log plugins add only the lines which could be parsed. Other lines can still be added
+ * (for example by tools reading a raw log file), those have the tag id -1 (see isOk()).</p>
+ *
+ * <p>Note that this view is kept in addition to the LogLine objects (which are still created
+ * for every line and referenced from here), so it makes scanning the log faster, but it
+ * doesn't reduce the memory used by the log.</p>
+ *
+ * <p>Lines can be appended while other threads are reading the table (for example when a
+ * growing log is followed): the readers see all the lines up to the size they read.</p>
+ */
+public class LogColumns {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private volatile int mSize;
+    private long mTs[];
+    private int mPid[];
+    private char mLevel[];
+    private int mTag[];
+    private int mMsgOffs[];
+    private LogLine mLines[];
+
+    private HashMap<String, Integer> mTagIds = new HashMap<String, Integer>();
+    private Vector<String> mTags = new Vector<String>();
+
+    public LogColumns() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public LogColumns(int capacity) {
+        capacity = Math.max(16, capacity);
+        mTs = new long[capacity];
+        mPid = new int[capacity];
+        mLevel = new char[capacity];
+        mTag = new int[capacity];
+        mMsgOffs = new int[capacity];
+        mLines = new LogLine[capacity];
+    }
+
+    /**
+     * Appends a line to the table. The tag of the line is replaced by the interned instance,
+     * so all the lines with the same tag share the same string.
+     * @param sl The line to append
+     * @return The index of the line in the table
+     */
+    public int add(LogLine sl) {
+        if (mSize == mTs.length) {
+            grow();
+        }
+        int idx = mSize;
+        mTs[idx] = sl.ts;
+        mPid[idx] = sl.pid;
+        mLevel[idx] = sl.level;
+        mLines[idx] = sl;
+        if (sl.ok) {
+            int tag = internTag(sl.tag);
+            mTag[idx] = tag;
+            sl.tag = mTags.get(tag);
+            // The message is always the end of the line
+            mMsgOffs[idx] = sl.line.length() - sl.msg.length();
+        } else {
+            mTag[idx] = -1;
+            mMsgOffs[idx] = sl.line.length();
+        }
+        mSize = idx + 1; // Publish the line only when all the columns are set
+        return idx;
+    }
+
+    private void grow() {
+        int cap = mTs.length * 2;
+        mTs = Arrays.copyOf(mTs, cap);
+        mPid = Arrays.copyOf(mPid, cap);
+        mLevel = Arrays.copyOf(mLevel, cap);
+        mTag = Arrays.copyOf(mTag, cap);
+        mMsgOffs = Arrays.copyOf(mMsgOffs, cap);
+        mLines = Arrays.copyOf(mLines, cap);
+    }
+
+    private synchronized int internTag(String tag) {
+        Integer id = mTagIds.get(tag);
+        if (id == null) {
+            id = mTags.size();
+            mTags.add(tag);
+            mTagIds.put(tag, id);
+        }
+        return id;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isOk(int i) {
+        return mTag[i] >= 0;
+    }
+
+    public long getTs(int i) {
+        return mTs[i];
+    }
+
+    public int getPid(int i) {
+        return mPid[i];
+    }
+
+    public char getLevel(int i) {
+        return mLevel[i];
+    }
+
+    /**
+     * Returns the id of the tag of the given line, or -1 if the line could not be parsed.
+     */
+    public int getTagId(int i) {
+        return mTag[i];
+    }
+
+    /**
+     * Returns the tag of the given line, or null if the line could not be parsed.
+     */
+    public String getTag(int i) {
+        int tag = mTag[i];
+        return tag < 0 ? null : mTags.get(tag);
+    }
+
+    /**
+     * Returns the id of the given tag, or -1 if no line has this tag.
+     * Note that the lines which could not be parsed have -1 as tag id as well, so check
+     * isOk() before comparing it to getTagId().
+     */
+    public synchronized int findTag(String tag) {
+        Integer id = mTagIds.get(tag);
+        return id == null ? -1 : id;
+    }
+
+    public int getTagCount() {
+        return mTags.size();
+    }
+
+    public String getTagName(int tagId) {
+        return mTags.get(tagId);
+    }
+
+    public String getLine(int i) {
+        return mLines[i].line;
+    }
+
+    public String getMsg(int i) {
+        return mLines[i].msg;
+    }
+
+    /**
+     * Checks if the message of the given line starts with the given prefix, without creating
+     * any temporary string.
+     */
+    public boolean msgStartsWith(int i, String prefix) {
+        return mLines[i].line.startsWith(prefix, mMsgOffs[i]);
+    }
+
+    public boolean msgEquals(int i, String s) {
+        String line = mLines[i].line;
+        int offs = mMsgOffs[i];
+        return line.length() - offs == s.length() && line.startsWith(s, offs);
+    }
+
+    public boolean msgContains(int i, String s) {
+        return mLines[i].line.indexOf(s, mMsgOffs[i]) >= 0;
+    }
+
+    /**
+     * Returns the LogLine object of the given line, which is needed to render or decorate it.
+     */
+    public LogLine getLogLine(int i) {
+        return mLines[i];
+    }
+
+}
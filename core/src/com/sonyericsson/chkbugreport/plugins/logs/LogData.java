@@ -26,4 +26,10 @@ public interface LogData {
 
     public LogLine get(int i);
 
+    public LogColumns getColumns();
+
+    public LogIndex getIndex();
+
+    public LogTimeIndex getTimeIndex();
+
 }
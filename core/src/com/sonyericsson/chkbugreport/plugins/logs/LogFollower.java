@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.plugins.logs;
+
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Section;
+import com.sonyericsson.chkbugreport.util.LineReader;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Vector;
+
+/**
+ * Follows a log file which is still growing (for example the output of
+ * "logcat -v threadtime" redirected to a file), similar to "tail -f".
+ *
+ * <p>The file is checked periodically, and the complete lines written since the last check
+ * (or since the log was loaded) are appended to the log plugin, which parses and analyzes
+ * only these lines. If the file shrinks (it was truncated or replaced), it is read again
+ * from the beginning.</p>
+ */
+public class LogFollower extends Thread {
+
+    /** The maximum amount of data processed in one step */
+    private static final int MAX_CHUNK = 16 * 1024 * 1024;
+
+    private BugReportModule mMod;
+    private LogPlugin mPlugin;
+    private String mFileName;
+    private long mOffset;
+    private int mInterval;
+    private boolean mSkipPartialLine;
+
+    /**
+     * Creates a follower for the given log plugin, which must be already loaded from a file
+     * (see canFollow()).
+     * @param br The bugreport
+     * @param plugin The plugin which loaded the log
+     * @param interval The time between two checks, in milliseconds
+     */
+    public LogFollower(BugReportModule br, LogPlugin plugin, int interval) {
+        mMod = br;
+        mPlugin = plugin;
+        mInterval = interval;
+        Section section = plugin.getSection();
+        mFileName = section.getSourceFile();
+        mOffset = section.getSourceLength();
+        // If the last line was not complete when the log was loaded, skip the rest of it
+        mSkipPartialLine = !endsWithNewLine(mOffset);
+        setName("LogFollower-" + plugin.getInfoId());
+        setDaemon(true);
+    }
+
+    /**
+     * Returns true if the log of the given plugin was loaded directly from a file,
+     * so it can be followed.
+     */
+    public static boolean canFollow(LogPlugin plugin) {
+        Section section = plugin.getSection();
+        return plugin.isLoaded() && section != null && section.getSourceFile() != null;
+    }
+
+    public String getFileName() {
+        return mFileName;
+    }
+
+    @Override
+    public void run() {
+        mMod.printOut(1, "Following log file " + mFileName + " ...");
+        mPlugin.setFollowed(true);
+        while (true) {
+            try {
+                Thread.sleep(mInterval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                int cnt = poll();
+                if (cnt > 0) {
+                    mMod.printOut(3, "Appended " + cnt + " lines from " + mFileName);
+                }
+            } catch (IOException e) {
+                mMod.printErr(3, "Error following log file " + mFileName + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Reads the complete lines written to the file since the last call and appends them
+     * to the log.
+     * @return The number of lines appended to the log
+     */
+    public int poll() throws IOException {
+        Vector<String> lines = new Vector<String>();
+        RandomAccessFile f = new RandomAccessFile(mFileName, "r");
+        try {
+            long len = f.length();
+            if (len < mOffset) {
+                // The file was truncated (or replaced), start from the beginning
+                mMod.printErr(3, "Log file " + mFileName + " was truncated, reading it from the beginning");
+                mOffset = 0;
+                mSkipPartialLine = false;
+            }
+            while (mOffset < len) {
+                int size = (int) Math.min(MAX_CHUNK, len - mOffset);
+                byte buff[] = new byte[size];
+                f.seek(mOffset);
+                f.readFully(buff);
+
+                // Process only the complete lines, the rest is read again next time
+                int end = size;
+                while (end > 0 && buff[end - 1] != '\n') {
+                    end--;
+                }
+                if (end == 0) {
+                    if (size < MAX_CHUNK) break; // Wait for the end of the line
+                    end = size; // A huge line, just split it
+                }
+                int start = 0;
+                if (mSkipPartialLine) {
+                    while (start < end && buff[start] != '\n') {
+                        start++;
+                    }
+                    start++;
+                    mSkipPartialLine = false;
+                }
+                if (start < end) {
+                    LineReader lr = new LineReader(buff, start, end - start, mMod.getContext().getCharset());
+                    String line;
+                    while (null != (line = lr.readLine())) {
+                        lines.add(line);
+                    }
+                }
+                mOffset += end;
+            }
+        } finally {
+            f.close();
+        }
+        // Note: this is called even if there are no new lines, to finish the analysis
+        return mPlugin.append(mMod, lines);
+    }
+
+    private boolean endsWithNewLine(long offset) {
+        if (offset == 0) {
+            return true;
+        }
+        try {
+            RandomAccessFile f = new RandomAccessFile(mFileName, "r");
+            try {
+                f.seek(offset - 1);
+                int b = f.read();
+                return b == '\n' || b == '\r';
+            } finally {
+                f.close();
+            }
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.plugins.logs;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.Vector;
+import java.util.regex.Pattern;
+
+/**
+ * An inverted index over the lines of a log, used to find the lines which can match a query
+ * without running the regular expressions on every line.
+ *
+ * <p>The tag, pid and level of the lines are indexed exactly (tag id and pid to the list of
+ * lines, level to a bitset). The text of the lines is indexed by trigrams: for each trigram
+ * (hashed into a fixed number of buckets) a bitset stores which blocks of lines contain it.
+ * A regular expression is reduced to the literal strings which must appear in every match,
+ * and only the blocks containing all the trigrams of those strings need to be checked.
+ * The trigram index is built on first use.</p>
+ *
+ * <p>All the methods returning candidates return a superset of the matching lines (the real
+ * matcher must still be executed on them), or null if the query cannot be narrowed down.</p>
+ */
+public class LogIndex {
+
+    private static final int TRIGRAM_BITS = 17;
+    private static final int MAX_BLOCKS = 4096;
+    private static final int MIN_BLOCK_LINES = 64;
+
+    private static final int[] EMPTY = new int[0];
+
+    private LogColumns mCols;
+    private int mSize;
+    private int mTagLines[][];
+    private HashMap<Integer, int[]> mPidLines = new HashMap<Integer, int[]>();
+    private HashMap<Character, BitSet> mLevelLines = new HashMap<Character, BitSet>();
+
+    private int mBlockLines;
+    private long mTrigrams[][];
+
+    public LogIndex(LogColumns cols) {
+        mCols = cols;
+        int cnt = mSize = cols.size();
+
+        // Count the lines first, so the posting lists can be allocated with the right size
+        int tagCounts[] = new int[cols.getTagCount()];
+        HashMap<Integer, int[]> pidCounts = new HashMap<Integer, int[]>();
+        for (int i = 0; i < cnt; i++) {
+            int tag = cols.getTagId(i);
+            if (tag >= 0) {
+                tagCounts[tag]++;
+            }
+            int pid = cols.getPid(i);
+            int pidCount[] = pidCounts.get(pid);
+            if (pidCount == null) {
+                pidCount = new int[1];
+                pidCounts.put(pid, pidCount);
+            }
+            pidCount[0]++;
+            char level = cols.getLevel(i);
+            BitSet levelLines = mLevelLines.get(level);
+            if (levelLines == null) {
+                levelLines = new BitSet(cnt);
+                mLevelLines.put(level, levelLines);
+            }
+            levelLines.set(i);
+        }
+
+        // Fill the posting lists
+        mTagLines = new int[tagCounts.length][];
+        for (int tag = 0; tag < tagCounts.length; tag++) {
+            mTagLines[tag] = new int[tagCounts[tag]];
+            tagCounts[tag] = 0;
+        }
+        for (Integer pid : pidCounts.keySet()) {
+            mPidLines.put(pid, new int[pidCounts.get(pid)[0]]);
+            pidCounts.get(pid)[0] = 0;
+        }
+        for (int i = 0; i < cnt; i++) {
+            int tag = cols.getTagId(i);
+            if (tag >= 0) {
+                mTagLines[tag][tagCounts[tag]++] = i;
+            }
+            int pid = cols.getPid(i);
+            int pidCount[] = pidCounts.get(pid);
+            mPidLines.get(pid)[pidCount[0]++] = i;
+        }
+    }
+
+    public LogColumns getColumns() {
+        return mCols;
+    }
+
+    /**
+     * Returns the number of lines in the index (the columns might have more lines if
+     * lines were appended since the index was built).
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the indices of the lines with the given tag id.
+     */
+    public int[] getLinesOfTag(int tagId) {
+        return (tagId < 0 || tagId >= mTagLines.length) ? EMPTY : mTagLines[tagId];
+    }
+
+    /**
+     * Returns the indices of the lines printed by the given process.
+     */
+    public int[] getLinesOfPid(int pid) {
+        int ret[] = mPidLines.get(pid);
+        return ret == null ? EMPTY : ret;
+    }
+
+    /**
+     * Returns the pids which have printed at least one line.
+     */
+    public Set<Integer> getPids() {
+        return mPidLines.keySet();
+    }
+
+    /**
+     * Returns the lines with the given level. The returned bitset must not be modified.
+     */
+    public BitSet getLinesOfLevel(char level) {
+        BitSet ret = mLevelLines.get(level);
+        return ret == null ? new BitSet() : ret;
+    }
+
+    /**
+     * Returns the lines whose tag matches (using find()) the given pattern. Since the tags are
+     * interned, the pattern is executed only once per distinct tag, so the result is exact.
+     */
+    public BitSet findTag(Pattern p) {
+        BitSet ret = new BitSet(mSize);
+        for (int tag = 0; tag < mTagLines.length; tag++) {
+            if (p.matcher(mCols.getTagName(tag)).find()) {
+                addLines(ret, mTagLines[tag]);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the lines printed by the given processes.
+     */
+    public BitSet findPids(Iterable<Integer> pids) {
+        BitSet ret = new BitSet(mSize);
+        for (Integer pid : pids) {
+            addLines(ret, getLinesOfPid(pid));
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the lines which might contain a match of the given pattern (either in the line,
+     * or in the message, which is part of the line), or null if every line might match.
+     */
+    public BitSet getCandidates(Pattern p) {
+        Vector<String> literals = getRequiredLiterals(p);
+        BitSet blocks = null;
+        for (String literal : literals) {
+            if (literal.length() < 3) continue;
+            long trigrams[][] = getTrigrams();
+            for (int i = 0; i + 3 <= literal.length(); i++) {
+                long words[] = trigrams[hash(literal.charAt(i), literal.charAt(i + 1), literal.charAt(i + 2))];
+                if (words == null) {
+                    // No line contains this trigram
+                    return new BitSet();
+                }
+                if (blocks == null) {
+                    blocks = BitSet.valueOf(words);
+                } else {
+                    blocks.and(BitSet.valueOf(words));
+                }
+            }
+        }
+        if (blocks == null) {
+            return null;
+        }
+        int cnt = mSize;
+        BitSet ret = new BitSet(cnt);
+        for (int b = blocks.nextSetBit(0); b >= 0; b = blocks.nextSetBit(b + 1)) {
+            ret.set(b * mBlockLines, Math.min(cnt, (b + 1) * mBlockLines));
+        }
+        return ret;
+    }
+
+    private static void addLines(BitSet ret, int lines[]) {
+        for (int i : lines) {
+            ret.set(i);
+        }
+    }
+
+    private static int hash(char c0, char c1, char c2) {
+        int h = (c0 << 16) ^ (c1 << 8) ^ c2;
+        return (h * 0x9E3779B1) >>> (32 - TRIGRAM_BITS);
+    }
+
+    private synchronized long[][] getTrigrams() {
+        if (mTrigrams == null) {
+            int cnt = mSize;
+            mBlockLines = Math.max(MIN_BLOCK_LINES, (cnt + MAX_BLOCKS - 1) / MAX_BLOCKS);
+            int blocks = (cnt + mBlockLines - 1) / mBlockLines;
+            int wordCount = (blocks + 63) >>> 6;
+            long trigrams[][] = new long[1 << TRIGRAM_BITS][];
+            for (int i = 0; i < cnt; i++) {
+                String line = mCols.getLine(i);
+                int b = i / mBlockLines;
+                long bit = 1L << b;
+                int w = b >>> 6;
+                for (int j = 0; j + 3 <= line.length(); j++) {
+                    int h = hash(line.charAt(j), line.charAt(j + 1), line.charAt(j + 2));
+                    long words[] = trigrams[h];
+                    if (words == null) {
+                        trigrams[h] = words = new long[wordCount];
+                    }
+                    words[w] |= bit;
+                }
+            }
+            mTrigrams = trigrams;
+        }
+        return mTrigrams;
+    }
+
+    /**
+     * Returns the literal strings which must appear in every match of the given pattern.
+     *
+     * <p>This is a conservative parser: only the literals outside of groups and character
+     * classes are collected, and nothing is returned if the pattern uses alternatives,
+     * case insensitive matching or some less common construct.</p>
+     */
+    /* package */ static Vector<String> getRequiredLiterals(Pattern p) {
+        Vector<String> ret = new Vector<String>();
+        int flags = p.flags();
+        String s = p.pattern();
+        if ((flags & Pattern.LITERAL) != 0) {
+            ret.add(s);
+            return ret;
+        }
+        if ((flags & (Pattern.CASE_INSENSITIVE | Pattern.COMMENTS | Pattern.CANON_EQ)) != 0) {
+            return ret;
+        }
+        StringBuilder run = new StringBuilder();
+        int depth = 0;
+        int len = s.length();
+        int i = 0;
+        while (i < len) {
+            char c = s.charAt(i++);
+            if (depth > 0) {
+                // Inside a group, just look for the end of it
+                if (c == '\\') {
+                    i++;
+                } else if (c == '[') {
+                    i = skipClass(s, i);
+                } else if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    depth--;
+                }
+                continue;
+            }
+            switch (c) {
+                case '\\':
+                    if (i >= len) return new Vector<String>();
+                    c = s.charAt(i++);
+                    if (Character.isLetterOrDigit(c)) {
+                        if ("dDsSwWbBAGZzRhHvVX".indexOf(c) >= 0) {
+                            endRun(ret, run);
+                        } else if (c == 'p' || c == 'P') {
+                            endRun(ret, run);
+                            if (i < len && s.charAt(i) == '{') {
+                                i = s.indexOf('}', i);
+                                if (i < 0) return new Vector<String>();
+                                i++;
+                            } else {
+                                i++;
+                            }
+                        } else {
+                            // Octal, hex, unicode, control characters, quoting, back references...
+                            return new Vector<String>();
+                        }
+                    } else {
+                        run.append(c);
+                    }
+                    break;
+                case '|':
+                    // Alternatives: none of the literals are mandatory
+                    return new Vector<String>();
+                case '(':
+                    if (i < len && s.charAt(i) == '?') {
+                        // Inline flags, lookarounds, etc.
+                        return new Vector<String>();
+                    }
+                    endRun(ret, run);
+                    depth++;
+                    break;
+                case '[':
+                    endRun(ret, run);
+                    i = skipClass(s, i);
+                    break;
+                case '?':
+                case '*':
+                case '{':
+                    // The previous character is optional (or repeated an unknown number of times)
+                    if (run.length() > 0) {
+                        run.setLength(run.length() - 1);
+                    }
+                    endRun(ret, run);
+                    if (c == '{') {
+                        i = s.indexOf('}', i);
+                        if (i < 0) return new Vector<String>();
+                        i++;
+                    }
+                    break;
+                case '+':
+                case '.':
+                case '^':
+                case '$':
+                case ')':
+                    endRun(ret, run);
+                    break;
+                default:
+                    run.append(c);
+                    break;
+            }
+        }
+        if (depth != 0) {
+            return new Vector<String>();
+        }
+        endRun(ret, run);
+        return ret;
+    }
+
+    private static void endRun(Vector<String> ret, StringBuilder run) {
+        if (run.length() > 0) {
+            ret.add(run.toString());
+            run.setLength(0);
+        }
+    }
+
+    /**
+     * Returns the index after the end of the character class starting before the given index.
+     */
+    private static int skipClass(String s, int i) {
+        int len = s.length();
+        int depth = 1;
+        // A closing bracket right at the beginning is part of the class
+        if (i < len && s.charAt(i) == '^') i++;
+        if (i < len && s.charAt(i) == ']') i++;
+        while (i < len && depth > 0) {
+            char c = s.charAt(i++);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+            }
+        }
+        return i;
+    }
+
+}
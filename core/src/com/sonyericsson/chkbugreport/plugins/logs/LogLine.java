@@ -28,7 +28,6 @@ import com.sonyericsson.chkbugreport.doc.SimpleText;
 import com.sonyericsson.chkbugreport.util.HtmlUtil;
 
 import java.io.IOException;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Stack;
@@ -101,6 +100,58 @@ public class LogLine extends DocNode {
         }
     }
 
+    /**
+     * Creates a log line from values which are already parsed (for example read from a binary
+     * log). The text of the line is generated in the "logcat -v threadtime" format used in the
+     * bugreports (including the uid), so it's the same as if it was parsed from there.
+     * @param br The bugreport
+     * @param time The formatted timestamp ("MM-dd HH:mm:ss.SSS")
+     * @param ts The timestamp, computed the same way as when it's parsed from the text
+     * @param uid The user id
+     * @param pid The process id
+     * @param tid The thread id
+     * @param level The log level
+     * @param tag The tag
+     * @param msg The message
+     */
+    public LogLine(BugReportModule br, String time, long ts, int uid, int pid, int tid, char level, String tag, String msg) {
+        StringBuilder sb = new StringBuilder(time.length() + tag.length() + msg.length() + 30);
+        sb.append(time).append(' ');
+        appendPadded(sb, uid, 5).append(' ');
+        int pidS = sb.length();
+        appendPadded(sb, pid, 5);
+        int pidE = sb.length();
+        sb.append(' ');
+        appendPadded(sb, tid, 5).append(' ');
+        sb.append(level).append(' ').append(tag);
+        for (int i = tag.length(); i < 8; i++) {
+            sb.append(' ');
+        }
+        sb.append(": ").append(msg);
+
+        this.line = sb.toString();
+        this.ts = ts;
+        this.realTs = ts;
+        this.level = level;
+        this.pid = pid;
+        this.tag = tag;
+        this.msg = msg;
+        if (pid > 0) {
+            while (line.charAt(pidS) == ' ') pidS++;
+            addDecorator(new PidDecorator(pidS, pidE, br, pid));
+        }
+        finishParse();
+        fmt = FMT_BRAT;
+    }
+
+    private static StringBuilder appendPadded(StringBuilder sb, int value, int width) {
+        String s = Integer.toString(value);
+        for (int i = s.length(); i < width; i++) {
+            sb.append(' ');
+        }
+        return sb.append(s);
+    }
+
     public LogLine(LogLine orig) {
         line = orig.line;
         css = orig.css;
@@ -184,6 +235,13 @@ public class LogLine extends DocNode {
         return mAnchor;
     }
 
+    /**
+     * Returns the anchor of this line, or null if no anchor was created.
+     */
+    /* package */ Anchor peekAnchor() {
+        return mAnchor;
+    }
+
     public LogLineProxy symlink() {
         return new LogLineProxy(this);
     }
@@ -193,6 +251,15 @@ public class LogLine extends DocNode {
         return new LogLine(this);
     }
 
+    /**
+     * Returns a node which renders this line the same way as a copy of it would be rendered
+     * (with the markers, but without the anchor and the decorators), optionally with an extra
+     * style, but without actually copying the line.
+     */
+    public DocNode view(String extraStyle) {
+        return new LogLineView(this, extraStyle);
+    }
+
     /**
      * Parse a log line in the standard bugreport format
      */
@@ -457,12 +524,31 @@ public class LogLine extends DocNode {
         return true;
     }
 
+    /**
+     * Creates the process records linked from the line, in case the line was parsed without
+     * a bugreport (see LogLineParser).
+     */
+    /* package */ void createProcessRecords(BugReportModule br) {
+        if (mDecors != null) {
+            for (Decorator d : mDecors) {
+                if (d instanceof PidDecorator) {
+                    ((PidDecorator) d).createProcessRecord(br);
+                }
+            }
+        }
+    }
+
     public void addDecorator(Decorator d) {
         if (d.isEmpty()) return;
         if (mDecors == null) {
             mDecors = new Vector<Decorator>();
         }
-        mDecors.add(d);
+        // Keep the list sorted, so the line can be rendered from several threads
+        int idx = mDecors.size();
+        while (idx > 0 && sDecorSorter.compare(mDecors.get(idx - 1), d) > 0) {
+            idx--;
+        }
+        mDecors.add(idx, d);
     }
 
     /**
@@ -475,15 +561,18 @@ public class LogLine extends DocNode {
         return (idx < fields.length) ? fields[idx] : null;
     }
 
+    private void renderPlain(Renderer r, String css) {
+        r.println("<div class=\"log-line " + css + "\" id=\"l" + id + "\">" + HtmlUtil.escape(line) + "</div>");
+    }
+
     protected void renderThis(Renderer r) throws IOException {
         if (mDecors == null) {
-            r.println("<div class=\"log-line " + css + "\" id=\"l" + id + "\">" + HtmlUtil.escape(line) + "</div>");
+            renderPlain(r, css);
         } else {
             // So, this is tricky, since we have to render piecewise.
             // There can be any number of decorator segments, and they can even overlap.
             // Since we are rendering html, we ignore segments which intersect others, i.e.
             // we accept only those overlapping ones, which are fully contained in the previous one
-            Collections.sort(mDecors, sDecorSorter);
             int pos = 0, nextEnd = -1;
             Stack<Decorator> open = new Stack<Decorator>();
             Iterator<Decorator> iter = mDecors.iterator();
@@ -531,6 +620,29 @@ public class LogLine extends DocNode {
         }
     }
 
+    /* package */ static class LogLineView extends DocNode {
+
+        private LogLine mLogLine;
+        private String mExtraStyle;
+
+        public LogLineView(LogLine logLine, String extraStyle) {
+            mLogLine = logLine;
+            mExtraStyle = extraStyle;
+        }
+
+        @Override
+        public void prepare(Renderer r) {
+            mLogLine.prepareChildren(r);
+        }
+
+        @Override
+        public void render(Renderer r) throws IOException {
+            mLogLine.renderChildren(r);
+            mLogLine.renderPlain(r, mExtraStyle == null ? mLogLine.css : mLogLine.css + " " + mExtraStyle);
+        }
+
+    }
+
     /* package */ static class LogLineProxy extends DocNode {
 
         private LogLine mLogLine;
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.plugins.logs;
+
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Section;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses the lines of a log section into LogLine instances, in parallel if multiple
+ * threads are enabled (see Context.getThreadCount()).
+ *
+ * <p>All the lines are parsed with the same, already known format and without a previous line.
+ * The only thing which depends on the previous line is the generated timestamp of the lines
+ * in FMT_SHORT format, this must be fixed up by the caller (see LogPlugin.load()).</p>
+ *
+ * <p>The worker threads don't touch the bugreport: the lines are parsed without it, and the
+ * process records they link to are created afterwards on the calling thread, in line order.</p>
+ */
+public final class LogLineParser {
+
+    /** The number of lines parsed by one task */
+    private static final int CHUNK_SIZE = 4096;
+
+    private LogLineParser() {
+    }
+
+    /**
+     * Parse the given range of lines.
+     * @param br The bugreport
+     * @param section The section containing the log
+     * @param from The index of the first line to parse
+     * @param to The index after the last line to parse
+     * @param fmt The format of the log lines (see LogLine.FMT_*)
+     * @return The parsed lines (including the ones which could not be parsed)
+     */
+    public static LogLine[] parse(BugReportModule br, Section section, int from, int to, int fmt) {
+        LogLine ret[] = new LogLine[Math.max(0, to - from)];
+        ParseTask task = new ParseTask(section, from, to, fmt, ret, from);
+        int threads = br.getContext().getThreadCount();
+        if (threads > 1 && ret.length > CHUNK_SIZE) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.invoke(task);
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            task.parse();
+        }
+        for (LogLine sl : ret) {
+            sl.createProcessRecords(br);
+        }
+        return ret;
+    }
+
+    @SuppressWarnings("serial")
+    private static class ParseTask extends RecursiveAction {
+
+        private Section mSection;
+        private int mFrom;
+        private int mTo;
+        private int mFmt;
+        private LogLine mOut[];
+        private int mOutOffs;
+
+        public ParseTask(Section section, int from, int to, int fmt, LogLine out[], int outOffs) {
+            mSection = section;
+            mFrom = from;
+            mTo = to;
+            mFmt = fmt;
+            mOut = out;
+            mOutOffs = outOffs;
+        }
+
+        @Override
+        protected void compute() {
+            if (mTo - mFrom <= CHUNK_SIZE) {
+                parse();
+            } else {
+                int mid = (mFrom + mTo) >>> 1;
+                invokeAll(new ParseTask(mSection, mFrom, mid, mFmt, mOut, mOutOffs),
+                        new ParseTask(mSection, mid, mTo, mFmt, mOut, mOutOffs));
+            }
+        }
+
+        void parse() {
+            for (int i = mFrom; i < mTo; i++) {
+                mOut[i - mOutOffs] = new LogLine(null, mSection.getLine(i), mFmt, null);
+            }
+        }
+
+    }
+
+}
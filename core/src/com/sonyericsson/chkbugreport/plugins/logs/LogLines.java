@@ -25,6 +25,13 @@ public class LogLines extends Vector<LogLine> {
 
     private LogLine mCachedLastItem = null;
     private int mSeq = 0;
+    private LogColumns mColumns;
+    private int mColumnsModCount;
+    /** The number of lines added with add(), used to detect if the list was only appended */
+    private int mAppendCount;
+    private int mColumnsAppendCount;
+    private LogIndex mIndex;
+    private LogTimeIndex mTimeIndex;
 
     @Override
     public synchronized boolean add(LogLine item) {
@@ -36,8 +43,60 @@ public class LogLines extends Vector<LogLine> {
         }
         item.id = (item.ts << 16) + mSeq;
         mCachedLastItem = item;
+        mAppendCount++;
         // Update ID
         return super.add(item);
     }
 
+    /**
+     * Returns the column oriented view of the lines. The view is built on first use,
+     * and rebuilt if the list was modified since then. If lines were only appended (with add())
+     * the new lines are appended to the same view instead.
+     */
+    public synchronized LogColumns getColumns() {
+        if (mColumns != null && mColumnsModCount != modCount
+                && modCount - mColumnsModCount == mAppendCount - mColumnsAppendCount) {
+            // Every modification was an add(), so the view needs only the new lines
+            int cnt = size();
+            for (int i = mColumns.size(); i < cnt; i++) {
+                mColumns.add(get(i));
+            }
+            mColumnsModCount = modCount;
+            mColumnsAppendCount = mAppendCount;
+        } else if (mColumns == null || mColumnsModCount != modCount) {
+            int cnt = size();
+            mColumns = new LogColumns(cnt);
+            for (int i = 0; i < cnt; i++) {
+                mColumns.add(get(i));
+            }
+            mColumnsModCount = modCount;
+            mColumnsAppendCount = mAppendCount;
+        }
+        return mColumns;
+    }
+
+    /**
+     * Returns the index of the lines, built on first use (and rebuilt together with the
+     * column view, see getColumns()).
+     */
+    public synchronized LogIndex getIndex() {
+        LogColumns cols = getColumns();
+        if (mIndex == null || mIndex.getColumns() != cols || mIndex.size() != cols.size()) {
+            mIndex = new LogIndex(cols);
+        }
+        return mIndex;
+    }
+
+    /**
+     * Returns the lines ordered by timestamp, built on first use (and rebuilt together with
+     * the column view, see getColumns()).
+     */
+    public synchronized LogTimeIndex getTimeIndex() {
+        LogColumns cols = getColumns();
+        if (mTimeIndex == null || mTimeIndex.getColumns() != cols || mTimeIndex.getLineCount() != cols.size()) {
+            mTimeIndex = new LogTimeIndex(cols);
+        }
+        return mTimeIndex;
+    }
+
 }
@@ -22,6 +22,8 @@ import com.sonyericsson.chkbugreport.BugReportModule;
 import com.sonyericsson.chkbugreport.ProcessRecord;
 import com.sonyericsson.chkbugreport.util.XMLNode;
 
+import java.util.BitSet;
+import java.util.Vector;
 import java.util.regex.Pattern;
 
 public class LogMatcher {
@@ -61,6 +63,18 @@ public class LogMatcher {
         return mXml;
     }
 
+    /* package */ Pattern getLinePattern() {
+        return mPLine;
+    }
+
+    /* package */ Pattern getTagPattern() {
+        return mPTag;
+    }
+
+    /* package */ Pattern getMsgPattern() {
+        return mPMsg;
+    }
+
     public boolean matches(LogLine ll) {
         // First do the matching, and only after that do the extraction
         if (mPLine != null) {
@@ -69,12 +83,12 @@ public class LogMatcher {
             }
         }
         if (mPTag != null) {
-            if (!mPTag.matcher(ll.tag).find()) {
+            if (ll.tag == null || !mPTag.matcher(ll.tag).find()) {
                 return false;
             }
         }
         if (mPMsg != null) {
-            if (!mPMsg.matcher(ll.msg).find()) {
+            if (ll.msg == null || !mPMsg.matcher(ll.msg).find()) {
                 return false;
             }
         }
@@ -90,4 +104,40 @@ public class LogMatcher {
         return true;
     }
 
+    /**
+     * Returns the lines which might match, using the index of the log, or null if
+     * all the lines need to be checked. The result must be still checked with matches().
+     */
+    public BitSet getCandidates(LogIndex index) {
+        BitSet ret = null;
+        if (mPTag != null) {
+            ret = intersect(ret, index.findTag(mPTag));
+        }
+        if (mPMsg != null) {
+            ret = intersect(ret, index.getCandidates(mPMsg));
+        }
+        if (mPLine != null) {
+            ret = intersect(ret, index.getCandidates(mPLine));
+        }
+        if (mPProc != null) {
+            Vector<Integer> pids = new Vector<Integer>();
+            for (Integer pid : index.getPids()) {
+                ProcessRecord ps = mMod.getProcessRecord(pid, false, false);
+                if (ps != null && mPProc.matcher(ps.getProcName()).find()) {
+                    pids.add(pid);
+                }
+            }
+            ret = intersect(ret, index.findPids(pids));
+        }
+        return ret;
+    }
+
+    private static BitSet intersect(BitSet a, BitSet b) {
+        if (a == null) return b;
+        if (b != null) {
+            a.and(b);
+        }
+        return a;
+    }
+
 }
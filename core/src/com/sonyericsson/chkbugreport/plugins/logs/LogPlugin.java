@@ -43,13 +43,21 @@ import com.sonyericsson.chkbugreport.doc.WebOnlyChapter;
 import com.sonyericsson.chkbugreport.plugins.SysPropsPlugin;
 import com.sonyericsson.chkbugreport.plugins.logs.webapp.LogWebApp;
 import com.sonyericsson.chkbugreport.util.LineReader;
+import com.sonyericsson.chkbugreport.util.Util;
 import com.sonyericsson.chkbugreport.util.XMLNode;
 import com.sonyericsson.chkbugreport.webserver.ChkBugReportWebServer;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Pattern;
 
 public abstract class LogPlugin extends Plugin implements LogData {
 
@@ -57,6 +65,14 @@ public abstract class LogPlugin extends Plugin implements LogData {
 
     private static final long DAY = 24 * 60 * 60 * 1000;
 
+    /** While following a log, the lines of the last few seconds are not analyzed yet */
+    private static final long FOLLOW_SETTLE_TIME = 2000;
+
+    /** The colors of the log rate charts: the total, then the top tags/processes */
+    private static final int RATE_COLORS[] = {
+        0xff808080, 0xffff4040, 0xff4040ff, 0xff40c040, 0xffc0a000, 0xffc040c0,
+    };
+
     private HashMap<Integer,ProcessLog> mLogs = new HashMap<Integer, ProcessLog>();
 
     private long mTsFirst = -1;
@@ -72,10 +88,23 @@ public abstract class LogPlugin extends Plugin implements LogData {
 
     private boolean mLoaded = false;
 
+    /** The format of the log, detected while loading it */
+    private int mFmt = LogLine.FMT_UNKNOWN;
+    /** The number of lines analyzed so far (the rest is appended but not analyzed yet) */
+    private int mAnalyzedCount;
+    /** The bugs found in the lines appended after the log was loaded */
+    private Vector<Bug> mAppendedBugs = new Vector<Bug>();
+    /** Set if new lines are appended to the log while it's shown in the web server */
+    private volatile boolean mFollowed;
+
     private Section mSection;
     private Chapter mCh;
 
     private Hooks mHooks = new Hooks(this);
+    /** The analyzers executed on each parsed line, see addAnalyzer() */
+    private LogAnalyzers mAnalyzers = new LogAnalyzers();
+    /** The log volume over time, collected while analyzing the lines */
+    private LogRates mRates = new LogRates();
 
     public LogPlugin(String which, String id, String sectionName) {
         mWhich = which;
@@ -104,6 +133,31 @@ public abstract class LogPlugin extends Plugin implements LogData {
         return mParsedLog.get(i);
     }
 
+    @Override
+    public LogColumns getColumns() {
+        return mParsedLog.getColumns();
+    }
+
+    @Override
+    public LogIndex getIndex() {
+        return mParsedLog.getIndex();
+    }
+
+    @Override
+    public LogTimeIndex getTimeIndex() {
+        return mParsedLog.getTimeIndex();
+    }
+
+    @Override
+    public String[] getConsumedData() {
+        return new String[] { mSectionName };
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[] { getInfoId() };
+    }
+
     @Override
     public void reset() {
         mTsFirst = -1;
@@ -112,10 +166,16 @@ public abstract class LogPlugin extends Plugin implements LogData {
         mParsedLog.clear();
         mLogs.clear();
         mLoaded = false;
+        mFmt = LogLine.FMT_UNKNOWN;
+        mAnalyzedCount = 0;
+        mAppendedBugs.clear();
         mSection = null;
         mCh = null;
         mConfigChanges.clear();
         mHooks.reset();
+        mAnalyzers.clear();
+        addAnalyzers();
+        mRates = new LogRates();
     }
 
     @Override
@@ -142,9 +202,24 @@ public abstract class LogPlugin extends Plugin implements LogData {
         int skippedDueToTimeWindow = 0;
         TimeWindowMarker twStart = br.getContext().getTimeWindowStart();
         TimeWindowMarker twEnd = br.getContext().getTimeWindowEnd();
+        LogLine parsed[] = null;
+        int parsedFrom = 0;
+        if (mSection instanceof BinaryLogSection) {
+            // The lines were read from a binary log, they are already parsed
+            parsed = ((BinaryLogSection) mSection).getParsedLines();
+        }
         for (int i = 0; i < cnt; i++) {
-            String line = mSection.getLine(i);
-            LogLine sl = new LogLine(br, line, fmt, prev);
+            LogLine sl;
+            if (parsed == null) {
+                // The format is not known yet, so parse the lines one by one
+                sl = new LogLine(br, mSection.getLine(i), fmt, prev);
+            } else {
+                sl = parsed[i - parsedFrom];
+                if (sl.fmt == LogLine.FMT_SHORT) {
+                    // These have no timestamp, it's generated from the previous line
+                    sl.ts = (prev == null) ? 0 : prev.ts + 10;
+                }
+            }
 
             if (sl.ok) {
                 // Check for timewidow matching
@@ -173,6 +248,13 @@ public abstract class LogPlugin extends Plugin implements LogData {
                 mParsedLog.add(sl);
                 fmt = sl.fmt;
                 prev = sl;
+
+                if (parsed == null) {
+                    // From now on all lines are parsed with the same format, so the rest
+                    // can be parsed up front (in parallel), only the fix-ups are done here
+                    parsedFrom = i + 1;
+                    parsed = LogLineParser.parse(br, mSection, parsedFrom, cnt, fmt);
+                }
             }
         }
 
@@ -186,28 +268,32 @@ public abstract class LogPlugin extends Plugin implements LogData {
             }
         }
 
+        // From now on the lines don't change, so the analysis can use the column view
+        LogColumns cols = mParsedLog.getColumns();
+
         // Fetch boundary timestamps
-        cnt = mParsedLog.size();
+        cnt = cols.size();
         if (cnt > 0) {
-            mTsFirst = mParsedLog.get(0).ts;
-            mTsLast = mParsedLog.get(cnt - 1).ts;
+            mTsFirst = cols.getTs(0);
+            mTsLast = cols.getTs(cnt - 1);
         }
 
-        // Check for timestamp order
+        // Check for timestamp order (the time index already knows if there is any problem)
         int orderErrors = 0;
         LogLines errLines = new LogLines();
-        LogLine lastLine = null;
-        for (int i = 0; i < cnt; i++) {
-            LogLine sl = mParsedLog.get(i);
-            if (sl.ok) {
-                if (lastLine != null) {
-                    if (lastLine.ts > sl.ts) {
-                        orderErrors++;
-                        errLines.add(lastLine);
-                        errLines.add(sl);
+        if (!getTimeIndex().isInOrder()) {
+            int lastLine = -1;
+            for (int i = 0; i < cnt; i++) {
+                if (cols.isOk(i)) {
+                    if (lastLine >= 0) {
+                        if (cols.getTs(lastLine) > cols.getTs(i)) {
+                            orderErrors++;
+                            errLines.add(cols.getLogLine(lastLine));
+                            errLines.add(cols.getLogLine(i));
+                        }
                     }
+                    lastLine = i;
                 }
-                lastLine = sl;
             }
         }
         if (orderErrors > 0) {
@@ -247,20 +333,139 @@ public abstract class LogPlugin extends Plugin implements LogData {
         }
 
         // Analyze the log
+        prepareAnalyze(cols);
         for (int i = 0; i < cnt; i++) {
-            LogLine sl = mParsedLog.get(i);
-            if (sl.ok) {
+            if (cols.isOk(i)) {
                 // Analyze the log line
-                analyze(sl, i, br, mSection);
+                analyze(cols.getLogLine(i), i, br, mSection);
+                mRates.add(cols, i);
             }
         }
 
+        mFmt = fmt;
+        mAnalyzedCount = cnt;
+
         onLoaded(br);
 
         // Load successful
         mLoaded = true;
     }
 
+    public boolean isLoaded() {
+        return mLoaded;
+    }
+
+    /**
+     * Returns the section the log was loaded from.
+     */
+    public Section getSection() {
+        return mSection;
+    }
+
+    /**
+     * Appends new lines to the already loaded log (used when following a log file which is
+     * still growing). The lines are parsed, the hooks are executed and the lines are analyzed,
+     * the same way as when loading the log, but only the new lines are processed.
+     *
+     * <p>The lines of the last few seconds are analyzed only when more lines arrive (or when
+     * this is called with no new lines), since crashes, ANRs, etc. span over several lines,
+     * and the rest of them might not be written yet.</p>
+     *
+     * <p>Note that the chapters generated from the log are not updated, the new lines and
+     * bugs are available through the log itself and getAppendedBugs().</p>
+     *
+     * <p>This is called on the thread following the log file, so the log and the bugreport
+     * are modified while holding the write lock of the bugreport (see Module.getUpdateLock()).</p>
+     *
+     * @param br The bugreport
+     * @param lines The new lines of the log
+     * @return The number of lines appended to the log
+     */
+    public int append(BugReportModule br, List<String> lines) {
+        Lock lock = br.getUpdateLock().writeLock();
+        lock.lock();
+        try {
+            if (!mLoaded) {
+                return 0;
+            }
+
+            // Parse the new lines (the huge time gaps are not checked, the log is kept as it is)
+            TimeWindowMarker twStart = br.getContext().getTimeWindowStart();
+            TimeWindowMarker twEnd = br.getContext().getTimeWindowEnd();
+            int oldCnt = mParsedLog.size();
+            LogLine prev = (oldCnt == 0) ? null : mParsedLog.get(oldCnt - 1);
+            Vector<LogLine> parsed = new Vector<LogLine>();
+            for (String line : lines) {
+                LogLine sl = new LogLine(br, line, mFmt, prev);
+                if (!sl.ok) continue;
+                if (!twStart.isAfterOrNoFilter(sl.ts) || !twEnd.isBeforeOrNoFilter(sl.ts)) continue;
+                parsed.add(sl);
+                mFmt = sl.fmt;
+                prev = sl;
+            }
+
+            // Execute the hooks on the new lines, and keep only the visible ones
+            mHooks.execute(br, parsed);
+            for (LogLine sl : parsed) {
+                if (!sl.isHidden()) {
+                    mParsedLog.add(sl);
+                }
+            }
+            LogColumns cols = mParsedLog.getColumns();
+            int cnt = cols.size();
+            if (cnt > 0) {
+                if (mTsFirst == -1) {
+                    mTsFirst = cols.getTs(0);
+                }
+                mTsLast = cols.getTs(cnt - 1);
+            }
+
+            // Analyze the lines, except the last few seconds if the log is still growing
+            int to = cnt;
+            if (!lines.isEmpty()) {
+                long settled = mTsLast - FOLLOW_SETTLE_TIME;
+                while (to > mAnalyzedCount && cols.getTs(to - 1) > settled) {
+                    to--;
+                }
+            }
+            if (to > mAnalyzedCount) {
+                int bugCount = br.getBugCount();
+                prepareAnalyze(cols);
+                for (int i = mAnalyzedCount; i < to; i++) {
+                    if (cols.isOk(i)) {
+                        analyze(cols.getLogLine(i), i, br, mSection);
+                        mRates.add(cols, i);
+                    }
+                }
+                mAnalyzedCount = to;
+                for (int i = bugCount; i < br.getBugCount(); i++) {
+                    mAppendedBugs.add(br.getBug(i));
+                }
+            }
+            return cnt - oldCnt;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the log as being followed (see LogFollower), so the web app checks for new lines.
+     */
+    public void setFollowed(boolean followed) {
+        mFollowed = followed;
+    }
+
+    public boolean isFollowed() {
+        return mFollowed;
+    }
+
+    /**
+     * Returns the bugs found in the lines appended to the log by append().
+     */
+    public Vector<Bug> getAppendedBugs() {
+        return mAppendedBugs;
+    }
+
     protected void postLoad(Module mod) {
         mod.addInfo(getInfoId(), getLogs());
         if (null != getChapter()) {
@@ -289,6 +494,9 @@ public abstract class LogPlugin extends Plugin implements LogData {
         // Generate the log spammer top-list
         generateSpamTopList(br, mCh);
 
+        // Generate the log rate charts
+        generateRates(br, mCh);
+
         // Generate the GC graphs
         Chapter chGC = new Chapter(br.getContext(), "GC graphs");
         if (generateGCGraphs(br, chGC) > 0) {
@@ -303,11 +511,19 @@ public abstract class LogPlugin extends Plugin implements LogData {
 
     private Chapter generateLog(BugReportModule br) {
         Chapter ch = new Chapter(br.getContext(), "Log");
-        new LogToolbar(ch);
-        DocNode log = new Block().addStyle("log");
-        ch.add(log);
-
+        LogToolbar toolbar = new LogToolbar(ch);
+        DocNode log;
         int cnt = mParsedLog.size();
+        int chunkLimit = br.getContext().getLogChunkLimit();
+        if (chunkLimit > 0 && cnt > chunkLimit) {
+            // Too big for a single page, the browser will load it in chunks
+            toolbar.addTimeSearch();
+            log = new ChunkedLog(br, ch);
+        } else {
+            log = new Block().addStyle("log");
+            ch.add(log);
+        }
+
         for (int i = 0; i < cnt; i++) {
             LogLine sl = mParsedLog.get(i);
             if (sl.ok) {
@@ -360,6 +576,154 @@ public abstract class LogPlugin extends Plugin implements LogData {
         t.end();
     }
 
+    private void generateRates(BugReportModule br, Chapter mainCh) {
+        LogRates rates = mRates;
+        if (rates.getBucketCount() < 2) {
+            return;
+        }
+        Chapter ch = new Chapter(br.getContext(), "Log rates");
+        mainCh.addChapter(ch);
+        ch.add(new Para().add("The number of log lines per minute (counted in "
+                + (rates.getBucketSize() / 1000) + " second intervals), in total and of the tags"
+                + " and processes which produced most of the log:"));
+
+        LogColumns cols = mParsedLog.getColumns();
+        Vector<LogRates.Counter> tags = rates.getTags().getTop();
+        Vector<LogRates.Counter> pids = rates.getPids().getTop();
+
+        ChartGenerator chart = new ChartGenerator("Log rate of the top tags");
+        chart.add(rates.createTotalDataSet("All lines", RATE_COLORS[0]));
+        for (int i = 0; i < Math.min(RATE_COLORS.length - 1, tags.size()); i++) {
+            LogRates.Counter c = tags.get(i);
+            chart.add(rates.createDataSet(getRateTagName(cols, c), RATE_COLORS[i + 1], c));
+        }
+        chart.setOutput("lograte_tags_" + mId + ".png");
+        DocNode node = chart.generate(br);
+        if (node != null) {
+            ch.add(node);
+        }
+
+        chart = new ChartGenerator("Log rate of the top processes");
+        chart.add(rates.createTotalDataSet("All lines", RATE_COLORS[0]));
+        for (int i = 0; i < Math.min(RATE_COLORS.length - 1, pids.size()); i++) {
+            LogRates.Counter c = pids.get(i);
+            chart.add(rates.createDataSet(getRatePidName(br, c), RATE_COLORS[i + 1], c));
+        }
+        chart.setOutput("lograte_pids_" + mId + ".png");
+        node = chart.generate(br);
+        if (node != null) {
+            ch.add(node);
+        }
+
+        // The tracked tags and processes
+        String csv = mId + "_log_rates";
+        Table t = new Table(Table.FLAG_SORT, ch);
+        t.setCSVOutput(br, csv);
+        t.setTableName(br, csv);
+        t.addColumn("Type", Table.FLAG_NONE, "type varchar");
+        t.addColumn("Tag/process", Table.FLAG_NONE, "name varchar");
+        t.addColumn("Pid", Table.FLAG_ALIGN_RIGHT, "pid int");
+        t.addColumn("Nr. of lines", Table.FLAG_ALIGN_RIGHT, "lines int");
+        t.addColumn("Max. error", "The counts of the tags and processes which are not tracked anymore might be included", Table.FLAG_ALIGN_RIGHT, "error int");
+        t.addColumn("Peak (lines/min)", Table.FLAG_ALIGN_RIGHT, "peak_rate int");
+        t.addColumn("Peak at", Table.FLAG_NONE, "peak_ts varchar");
+        t.begin();
+        for (LogRates.Counter c : tags) {
+            t.addData("tag");
+            t.addData(getRateTagName(cols, c));
+            t.addData("");
+            addRateData(t, rates, c);
+        }
+        for (LogRates.Counter c : pids) {
+            t.addData("process");
+            t.addData(new ProcessLink(br, c.getKey()));
+            t.addData(c.getKey());
+            addRateData(t, rates, c);
+        }
+        t.end();
+
+        importRatesIntoDB(br, rates, cols, tags, pids);
+    }
+
+    private void addRateData(Table t, LogRates rates, LogRates.Counter c) {
+        int peak = 0;
+        for (int i = 1; i < rates.getBucketCount(); i++) {
+            if (c.getBucket(i) > c.getBucket(peak)) {
+                peak = i;
+            }
+        }
+        t.addData(c.getCount());
+        t.addData(c.getError());
+        t.addData(rates.toRate(c.getBucket(peak)));
+        t.addData(Util.formatLogTS(rates.getBucketTs(peak)));
+    }
+
+    private String getRateTagName(LogColumns cols, LogRates.Counter c) {
+        return Util.strip(cols.getTagName(c.getKey()));
+    }
+
+    private String getRatePidName(BugReportModule br, LogRates.Counter c) {
+        ProcessRecord pr = br.getProcessRecord(c.getKey(), false, false);
+        return (pr == null) ? Integer.toString(c.getKey()) : pr.getName() + " (" + c.getKey() + ")";
+    }
+
+    /**
+     * Saves the time series of the log rates in the report database.
+     */
+    private void importRatesIntoDB(BugReportModule br, LogRates rates, LogColumns cols,
+            Vector<LogRates.Counter> tags, Vector<LogRates.Counter> pids) {
+        Connection conn = br.getSQLConnection();
+        if (conn == null) {
+            return;
+        }
+        String table = mId + "_log_rate_series";
+        try {
+            Statement stat = conn.createStatement();
+            stat.execute("CREATE TABLE " + table + " (type varchar, name varchar, pid int, ts int, lines int)");
+            stat.close();
+            PreparedStatement ins = conn.prepareStatement("INSERT INTO " + table + "(type,name,pid,ts,lines) VALUES (?,?,?,?,?)");
+            int cnt = rates.getBucketCount();
+            for (int i = 0; i < cnt; i++) {
+                addRateRow(ins, "total", null, 0, rates.getBucketTs(i), rates.getTotal(i));
+            }
+            for (LogRates.Counter c : tags) {
+                String name = getRateTagName(cols, c);
+                for (int i = 0; i < cnt; i++) {
+                    addRateRow(ins, "tag", name, 0, rates.getBucketTs(i), c.getBucket(i));
+                }
+            }
+            for (LogRates.Counter c : pids) {
+                for (int i = 0; i < cnt; i++) {
+                    addRateRow(ins, "process", null, c.getKey(), rates.getBucketTs(i), c.getBucket(i));
+                }
+            }
+            ins.executeBatch();
+            ins.close();
+            conn.commit();
+        } catch (SQLException e) {
+            br.printErr(3, TAG + "Failed to save the log rates in the database: " + e);
+        }
+    }
+
+    private static void addRateRow(PreparedStatement ins, String type, String name, int pid, long ts, int lines) throws SQLException {
+        if (lines == 0) {
+            return; // Keep only the non-empty buckets
+        }
+        ins.setString(1, type);
+        ins.setString(2, name);
+        ins.setInt(3, pid);
+        ins.setLong(4, ts);
+        ins.setInt(5, lines);
+        ins.addBatch();
+    }
+
+    /**
+     * Returns the log volume over time, collected while loading (and appending to) the log.
+     */
+    public LogRates getRates() {
+        return mRates;
+    }
+
     protected String getAnchorToLine(int i) {
         return mId + "log_" + i;
     }
@@ -380,10 +744,50 @@ public abstract class LogPlugin extends Plugin implements LogData {
         // NOP
     }
 
+    /**
+     * Registers the analyzers of this log, called when the plugin is reset.
+     * Subclasses should call the super method first, so the analyzers are executed in the
+     * same order as the classes are derived.
+     */
+    protected void addAnalyzers() {
+        addAnalyzer((String) null, 'F', null, new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                reportFatalLog(sl, i, br, s);
+            }
+        });
+    }
+
+    /**
+     * Registers an analyzer which is executed on the matching lines of this log when it's
+     * loaded. Other plugins can use this from their hook() method.
+     * @see LogAnalyzers#add(String, char, String, LogAnalyzers.Analyzer)
+     */
+    public void addAnalyzer(String tag, char level, String msgPrefix, LogAnalyzers.Analyzer analyzer) {
+        mAnalyzers.add(tag, level, msgPrefix, analyzer);
+    }
+
+    /**
+     * Registers an analyzer for the tags matching the given pattern.
+     * @see LogAnalyzers#add(Pattern, char, String, LogAnalyzers.Analyzer)
+     */
+    public void addAnalyzer(Pattern tag, char level, String msgPrefix, LogAnalyzers.Analyzer analyzer) {
+        mAnalyzers.add(tag, level, msgPrefix, analyzer);
+    }
+
+    /**
+     * Called before the lines are analyzed, so that the subclasses can look up
+     * the ids of the tags they are interested in.
+     */
+    protected void prepareAnalyze(LogColumns cols) {
+        mAnalyzers.prepare(cols);
+    }
+
+    /**
+     * Analyzes a parsed log line, by executing the registered analyzers matching it.
+     */
     protected void analyze(LogLine sl, int i, BugReportModule br, Section s) {
-        if (sl.level == 'F') {
-            reportFatalLog(sl, i, br, s);
-        }
+        mAnalyzers.analyze(sl, i, br, s);
     }
 
     protected ProcessLog getLogOf(BugReportModule br, int pid) {
@@ -419,7 +823,7 @@ public abstract class LogPlugin extends Plugin implements LogData {
         new Para(bug).add("Log around the fatal log line (+/-10 lines):");
         DocNode log = new Block(bug).addStyle("log");
         int from = Math.max(0, i - 10);
-        int to = Math.min(s.getLineCount() - 1, i + 10);
+        int to = Math.min(getParsedLineCount() - 1, i + 10);
         if (from > 0) {
             log.add("...");
         }
@@ -427,7 +831,7 @@ public abstract class LogPlugin extends Plugin implements LogData {
             LogLine sl2 = getParsedLine(idx);
             log.add(sl2.symlink());
         }
-        if (to < s.getLineCount() - 1) {
+        if (to < getParsedLineCount() - 1) {
             log.add("...");
         }
         bug.setAttr(Bug.ATTR_FIRST_LINE, i);
@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.plugins.logs;
+
+import com.sonyericsson.chkbugreport.chart.Data;
+import com.sonyericsson.chkbugreport.chart.DataSet;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Vector;
+
+/**
+ * Counts the log lines over time, in total and per tag and per process, in a single pass
+ * over the log (the lines can be added one by one, also when the log is growing).
+ *
+ * <p>The memory used is bounded: the lines are counted in at most MAX_BUCKETS time buckets
+ * (when the log gets longer, the bucket size is doubled and the neighboring buckets are
+ * merged), and only the top K tags and processes are tracked, using the Space-Saving
+ * algorithm. When a new key arrives and all the slots are used, it replaces the key with
+ * the lowest count, and inherits its count as the possible error. So the keys producing
+ * most of the log are always kept, but their counts (and the beginning of their time
+ * series) might include some lines of the replaced keys.</p>
+ */
+public class LogRates {
+
+    /** The maximum number of time buckets */
+    public static final int MAX_BUCKETS = 512;
+    /** The initial size of the time buckets */
+    public static final long MIN_BUCKET_SIZE = 1000;
+    /** The number of tracked tags and processes */
+    public static final int DEF_TOP_K = 64;
+
+    /**
+     * The counters of one tracked key (tag or process).
+     */
+    public static class Counter {
+        private int mKey;
+        private int mCount;
+        private int mError;
+        private int mBuckets[] = new int[MAX_BUCKETS];
+
+        /** Returns the tag id or the pid */
+        public int getKey() {
+            return mKey;
+        }
+
+        /** Returns the number of lines (this might be overestimated with at most getError()) */
+        public int getCount() {
+            return mCount;
+        }
+
+        /** Returns how many lines of the count might belong to other keys */
+        public int getError() {
+            return mError;
+        }
+
+        /** Returns the number of lines in the given time bucket */
+        public int getBucket(int idx) {
+            return mBuckets[idx];
+        }
+    }
+
+    /**
+     * Tracks the keys with the highest line counts (Space-Saving).
+     */
+    public static class TopK {
+        private int mK;
+        private HashMap<Integer, Counter> mCounters = new HashMap<Integer, Counter>();
+
+        public TopK(int k) {
+            mK = k;
+        }
+
+        private void add(int key, int bucket) {
+            Counter c = mCounters.get(key);
+            if (c == null) {
+                if (mCounters.size() < mK) {
+                    c = new Counter();
+                } else {
+                    // Replace the key with the lowest count
+                    for (Counter other : mCounters.values()) {
+                        if (c == null || other.mCount < c.mCount) {
+                            c = other;
+                        }
+                    }
+                    mCounters.remove(c.mKey);
+                    c.mError = c.mCount;
+                    Arrays.fill(c.mBuckets, 0);
+                }
+                c.mKey = key;
+                mCounters.put(key, c);
+            }
+            c.mCount++;
+            c.mBuckets[bucket]++;
+        }
+
+        private void merge() {
+            for (Counter c : mCounters.values()) {
+                mergeBuckets(c.mBuckets);
+            }
+        }
+
+        /**
+         * Returns the tracked keys, the ones with most lines first.
+         */
+        public Vector<Counter> getTop() {
+            Vector<Counter> ret = new Vector<Counter>(mCounters.values());
+            Collections.sort(ret, new Comparator<Counter>() {
+                @Override
+                public int compare(Counter o1, Counter o2) {
+                    return o2.mCount - o1.mCount;
+                }
+            });
+            return ret;
+        }
+    }
+
+    private long mFirstTs = -1;
+    private long mBucketSize = MIN_BUCKET_SIZE;
+    private int mBucketCount;
+    private int mTotal[] = new int[MAX_BUCKETS];
+    private int mLines;
+    private TopK mTags;
+    private TopK mPids;
+
+    public LogRates() {
+        this(DEF_TOP_K);
+    }
+
+    public LogRates(int k) {
+        mTags = new TopK(k);
+        mPids = new TopK(k);
+    }
+
+    /**
+     * Counts the given line, which must be a parsed line.
+     */
+    public void add(LogColumns cols, int i) {
+        add(cols.getTs(i), cols.getTagId(i), cols.getPid(i));
+    }
+
+    /**
+     * Counts a line with the given timestamp, tag id and pid.
+     */
+    public void add(long ts, int tagId, int pid) {
+        if (mFirstTs == -1) {
+            mFirstTs = ts - ts % MIN_BUCKET_SIZE;
+        }
+        int bucket = 0;
+        if (ts > mFirstTs) {
+            while ((ts - mFirstTs) / mBucketSize >= MAX_BUCKETS) {
+                mBucketSize *= 2;
+                mBucketCount = (mBucketCount + 1) / 2;
+                mergeBuckets(mTotal);
+                mTags.merge();
+                mPids.merge();
+            }
+            bucket = (int) ((ts - mFirstTs) / mBucketSize);
+        }
+        mBucketCount = Math.max(mBucketCount, bucket + 1);
+        mTotal[bucket]++;
+        mLines++;
+        mTags.add(tagId, bucket);
+        mPids.add(pid, bucket);
+    }
+
+    /**
+     * Merges the neighboring buckets, after the bucket size is doubled.
+     */
+    private static void mergeBuckets(int buckets[]) {
+        for (int i = 0; i < MAX_BUCKETS / 2; i++) {
+            buckets[i] = buckets[2 * i] + buckets[2 * i + 1];
+        }
+        Arrays.fill(buckets, MAX_BUCKETS / 2, MAX_BUCKETS, 0);
+    }
+
+    /** Returns the number of counted lines */
+    public int getLineCount() {
+        return mLines;
+    }
+
+    /** Returns the number of used time buckets */
+    public int getBucketCount() {
+        return mBucketCount;
+    }
+
+    /** Returns the size of the time buckets, in milliseconds */
+    public long getBucketSize() {
+        return mBucketSize;
+    }
+
+    /** Returns the timestamp where the given time bucket starts */
+    public long getBucketTs(int idx) {
+        return mFirstTs + idx * mBucketSize;
+    }
+
+    /** Returns the number of all the lines in the given time bucket */
+    public int getTotal(int idx) {
+        return mTotal[idx];
+    }
+
+    public TopK getTags() {
+        return mTags;
+    }
+
+    public TopK getPids() {
+        return mPids;
+    }
+
+    /**
+     * Converts a line count in a time bucket to lines per minute.
+     */
+    public long toRate(int count) {
+        return count * 60000L / mBucketSize;
+    }
+
+    /**
+     * Creates a chart data set from the total line counts (in lines per minute).
+     */
+    public DataSet createTotalDataSet(String name, int color) {
+        return createDataSet(name, color, mTotal);
+    }
+
+    /**
+     * Creates a chart data set from the line counts of a tracked key (in lines per minute).
+     */
+    public DataSet createDataSet(String name, int color, Counter c) {
+        return createDataSet(name, color, c.mBuckets);
+    }
+
+    private DataSet createDataSet(String name, int color, int buckets[]) {
+        DataSet ds = new DataSet(DataSet.Type.PLOT, name, color);
+        ds.setMin(0);
+        for (int i = 0; i < mBucketCount; i++) {
+            ds.addData(new Data(getBucketTs(i), toRate(buckets[i])));
+        }
+        return ds;
+    }
+
+}
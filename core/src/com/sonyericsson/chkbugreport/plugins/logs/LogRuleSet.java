@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.plugins.logs;
+
+import com.sonyericsson.chkbugreport.util.AhoCorasick;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Vector;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates a set of LogMatchers on the log lines in a single pass.
+ *
+ * <p>For each rule the longest literal string which must appear in the matched lines is
+ * extracted from the matchLine and matchMsg patterns, and all these strings are searched at
+ * once with an Aho-Corasick automaton. The matchTag patterns are evaluated only once per
+ * distinct tag. The full LogMatcher.matches() is executed only on the rules which passed
+ * these checks, so the result is the same as running every matcher on every line.</p>
+ */
+public class LogRuleSet {
+
+    private static final int[] EMPTY = new int[0];
+
+    private Vector<LogMatcher> mRules;
+    private AhoCorasick mKeywords = new AhoCorasick();
+    /** The rules using each keyword */
+    private int mKeywordRules[][];
+    /** The keyword of each rule, or -1 */
+    private int mRuleKeyword[];
+    /** The rules which have no keyword and no tag pattern, so they must always be checked */
+    private int mAlwaysRules[];
+
+    public LogRuleSet(List<LogMatcher> rules) {
+        mRules = new Vector<LogMatcher>(rules);
+        int cnt = mRules.size();
+        mRuleKeyword = new int[cnt];
+        HashMap<String, Integer> keywordIds = new HashMap<String, Integer>();
+        Vector<Vector<Integer>> keywordRules = new Vector<Vector<Integer>>();
+        Vector<Integer> always = new Vector<Integer>();
+        for (int r = 0; r < cnt; r++) {
+            LogMatcher lm = mRules.get(r);
+            String keyword = longest(null, lm.getLinePattern());
+            keyword = longest(keyword, lm.getMsgPattern());
+            if (keyword == null) {
+                mRuleKeyword[r] = -1;
+                if (lm.getTagPattern() == null) {
+                    always.add(r);
+                }
+                continue;
+            }
+            Integer id = keywordIds.get(keyword);
+            if (id == null) {
+                id = mKeywords.add(keyword);
+                keywordIds.put(keyword, id);
+                keywordRules.add(new Vector<Integer>());
+            }
+            keywordRules.get(id).add(r);
+            mRuleKeyword[r] = id;
+        }
+        mKeywordRules = new int[keywordRules.size()][];
+        for (int kw = 0; kw < mKeywordRules.length; kw++) {
+            mKeywordRules[kw] = toArray(keywordRules.get(kw));
+        }
+        mAlwaysRules = toArray(always);
+    }
+
+    private static String longest(String best, Pattern p) {
+        if (p != null) {
+            for (String s : LogIndex.getRequiredLiterals(p)) {
+                if (best == null || s.length() > best.length()) {
+                    best = s;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int[] toArray(Vector<Integer> v) {
+        int ret[] = new int[v.size()];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = v.get(i);
+        }
+        return ret;
+    }
+
+    public int size() {
+        return mRules.size();
+    }
+
+    public LogMatcher get(int rule) {
+        return mRules.get(rule);
+    }
+
+    /**
+     * Creates a new session, which can be used to evaluate the rules on the lines.
+     * A session must be used only from one thread.
+     */
+    public Session newSession() {
+        return new Session();
+    }
+
+    /**
+     * Evaluates all the rules on all the lines in a single pass.
+     * @return The matching lines for each rule
+     */
+    public BitSet[] matchAll(List<LogLine> lines) {
+        BitSet ret[] = new BitSet[mRules.size()];
+        for (int r = 0; r < ret.length; r++) {
+            ret[r] = new BitSet();
+        }
+        Session session = newSession();
+        int cnt = lines.size();
+        for (int i = 0; i < cnt; i++) {
+            for (int r : session.match(lines.get(i))) {
+                ret[r].set(i);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Holds the temporary data needed to evaluate the rules on a line.
+     */
+    public class Session implements AhoCorasick.Listener {
+
+        private int mStamp[] = new int[mRules.size()];
+        private int mStampValue = 0;
+        private int mCand[] = new int[mRules.size()];
+        private int mCandCount;
+        private BitSet mTagMatches;
+        private HashMap<String, TagRules> mTagCache = new HashMap<String, TagRules>();
+
+        /* package */ Session() {
+        }
+
+        /**
+         * Returns the rules (in increasing order) which match the given line.
+         */
+        public int[] match(LogLine ll) {
+            mStampValue++;
+            mCandCount = 0;
+            for (int r : mAlwaysRules) {
+                mCand[mCandCount++] = r;
+            }
+            TagRules tr = getTagRules(ll.tag);
+            mTagMatches = tr.matches;
+            for (int r : tr.noKeywordRules) {
+                mCand[mCandCount++] = r;
+            }
+            if (mKeywords.size() > 0) {
+                mKeywords.search(ll.line, this);
+            }
+            if (mCandCount == 0) {
+                return EMPTY;
+            }
+
+            // Run the real matchers on the candidates
+            Arrays.sort(mCand, 0, mCandCount);
+            int found = 0;
+            for (int i = 0; i < mCandCount; i++) {
+                int r = mCand[i];
+                if (mRules.get(r).matches(ll)) {
+                    mCand[found++] = r;
+                }
+            }
+            return found == 0 ? EMPTY : Arrays.copyOf(mCand, found);
+        }
+
+        @Override
+        public void onMatch(int keyword, int end) {
+            for (int r : mKeywordRules[keyword]) {
+                if (mStamp[r] != mStampValue) {
+                    mStamp[r] = mStampValue;
+                    if (mRules.get(r).getTagPattern() == null || mTagMatches.get(r)) {
+                        mCand[mCandCount++] = r;
+                    }
+                }
+            }
+        }
+
+        private TagRules getTagRules(String tag) {
+            TagRules ret = mTagCache.get(tag);
+            if (ret == null) {
+                ret = new TagRules();
+                Vector<Integer> noKeyword = new Vector<Integer>();
+                for (int r = 0; r < mRules.size(); r++) {
+                    Pattern p = mRules.get(r).getTagPattern();
+                    if (p != null && tag != null && p.matcher(tag).find()) {
+                        ret.matches.set(r);
+                        if (mRuleKeyword[r] < 0) {
+                            noKeyword.add(r);
+                        }
+                    }
+                }
+                ret.noKeywordRules = toArray(noKeyword);
+                mTagCache.put(tag, ret);
+            }
+            return ret;
+        }
+
+    }
+
+    /**
+     * The rules whose tag pattern matches a given tag.
+     */
+    private static class TagRules {
+        public BitSet matches = new BitSet();
+        public int noKeywordRules[];
+    }
+
+}
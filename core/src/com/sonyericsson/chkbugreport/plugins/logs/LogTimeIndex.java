@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.plugins.logs;
+
+import java.util.Arrays;
+
+/**
+ * Orders the lines of a log by timestamp, so the lines in a time range can be found with
+ * binary search instead of scanning the whole log.
+ *
+ * <p>Only the lines which could be parsed (and so have a real timestamp) are indexed.
+ * The log is normally already in order, in that case the index is just the list of lines.
+ * Otherwise the runs of lines which are in order are merged (the same way as a natural
+ * merge sort), so lines with the same timestamp keep their original order.</p>
+ *
+ * <p>The positions used by this class are positions in timestamp order, use getLine() to
+ * convert them to line indices.</p>
+ */
+public class LogTimeIndex {
+
+    private LogColumns mCols;
+    /** The indexed lines, in timestamp order */
+    private int mLines[];
+    /** The timestamps of the indexed lines, in the same order */
+    private long mTs[];
+    /** The number of runs in the original order */
+    private int mRuns;
+    /** The number of lines in the columns when the index was built */
+    private int mLineCount;
+
+    public LogTimeIndex(LogColumns cols) {
+        mCols = cols;
+        int cnt = mLineCount = cols.size();
+        int lines[] = new int[cnt];
+        long ts[] = new long[cnt];
+        int size = 0;
+        mRuns = 0;
+        for (int i = 0; i < cnt; i++) {
+            if (cols.isOk(i)) {
+                long t = cols.getTs(i);
+                if (size == 0 || ts[size - 1] > t) {
+                    mRuns++;
+                }
+                lines[size] = i;
+                ts[size] = t;
+                size++;
+            }
+        }
+        mLines = Arrays.copyOf(lines, size);
+        mTs = Arrays.copyOf(ts, size);
+        if (mRuns > 1) {
+            sort();
+        }
+    }
+
+    /**
+     * Merges the runs pairwise, until only one remains.
+     */
+    private void sort() {
+        int size = mLines.length;
+        int lines[] = mLines, tmpLines[] = new int[size];
+        long ts[] = mTs, tmpTs[] = new long[size];
+
+        // Find the boundaries of the runs
+        int bounds[] = new int[mRuns + 1];
+        int runs = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || ts[i - 1] > ts[i]) {
+                bounds[runs++] = i;
+            }
+        }
+        bounds[runs] = size;
+
+        while (runs > 1) {
+            int newRuns = 0;
+            for (int r = 0; r < runs; r += 2) {
+                int from = bounds[r];
+                int mid = bounds[Math.min(r + 1, runs)];
+                int to = bounds[Math.min(r + 2, runs)];
+                // Merge [from, mid) and [mid, to), taking from the first run on equal timestamps
+                int a = from, b = mid, o = from;
+                while (a < mid && b < to) {
+                    if (ts[b] < ts[a]) {
+                        tmpLines[o] = lines[b];
+                        tmpTs[o++] = ts[b++];
+                    } else {
+                        tmpLines[o] = lines[a];
+                        tmpTs[o++] = ts[a++];
+                    }
+                }
+                System.arraycopy(lines, a, tmpLines, o, mid - a);
+                System.arraycopy(ts, a, tmpTs, o, mid - a);
+                o += mid - a;
+                System.arraycopy(lines, b, tmpLines, o, to - b);
+                System.arraycopy(ts, b, tmpTs, o, to - b);
+                bounds[newRuns++] = from;
+            }
+            bounds[newRuns] = size;
+            runs = newRuns;
+            int swapLines[] = lines;
+            lines = tmpLines;
+            tmpLines = swapLines;
+            long swapTs[] = ts;
+            ts = tmpTs;
+            tmpTs = swapTs;
+        }
+        mLines = lines;
+        mTs = ts;
+    }
+
+    public LogColumns getColumns() {
+        return mCols;
+    }
+
+    /**
+     * Returns the number of lines in the columns when the index was built (including the
+     * lines which are not indexed).
+     */
+    public int getLineCount() {
+        return mLineCount;
+    }
+
+    /**
+     * Returns the number of indexed lines.
+     */
+    public int size() {
+        return mLines.length;
+    }
+
+    /**
+     * Returns true if the indexed lines were already in timestamp order in the log.
+     */
+    public boolean isInOrder() {
+        return mRuns <= 1;
+    }
+
+    /**
+     * Returns the number of runs of lines which were in timestamp order in the log
+     * (so the number of out of order lines plus one).
+     */
+    public int getRunCount() {
+        return mRuns;
+    }
+
+    /**
+     * Returns the index of the line at the given position in timestamp order.
+     */
+    public int getLine(int pos) {
+        return mLines[pos];
+    }
+
+    /**
+     * Returns the timestamp of the line at the given position in timestamp order.
+     */
+    public long getTs(int pos) {
+        return mTs[pos];
+    }
+
+    /**
+     * Returns the position (in timestamp order) of the first line whose timestamp is not
+     * less than the given one, or size() if there is no such line.
+     */
+    public int lowerBound(long ts) {
+        int lo = 0, hi = mTs.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mTs[mid] < ts) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the position (in timestamp order) of the first line whose timestamp is
+     * greater than the given one, or size() if there is no such line.
+     */
+    public int upperBound(long ts) {
+        int lo = 0, hi = mTs.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mTs[mid] <= ts) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the index of the first line (in timestamp order) at or after the given
+     * timestamp, or -1 if there is no such line.
+     */
+    public int findFirst(long ts) {
+        int pos = lowerBound(ts);
+        return pos < mLines.length ? mLines[pos] : -1;
+    }
+
+    /**
+     * Returns the indices of the lines with a timestamp between from and to (both inclusive),
+     * in timestamp order.
+     */
+    public int[] getLines(long from, long to) {
+        if (from > to) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(mLines, lowerBound(from), upperBound(to));
+    }
+
+}
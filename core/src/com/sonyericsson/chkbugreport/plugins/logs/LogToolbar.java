@@ -42,4 +42,14 @@ public class LogToolbar extends Block {
         add("Note: changes are not saved!");
     }
 
+    /**
+     * Add a field to jump to a given time in the log.
+     * Used with logs which are loaded in chunks, where the browser can't search the whole log.
+     */
+    public void addTimeSearch() {
+        add("Go to time:");
+        add(new HtmlNode("input").setId("logview-time"));
+        add(new Button("Go", "javascript:logviewGotoTime()"));
+    }
+
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.plugins.logs;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Vector;
+
+/**
+ * Iterates over the lines of several logs (for example the system, main, event and kernel
+ * log) in timestamp order.
+ *
+ * <p>Each log is accessed through a Source, which must return its lines in timestamp order.
+ * On equal timestamps the line from the source specified first is returned first.
+ * The sources are advanced lazily: the source of the last returned line is moved to its
+ * next line only when hasNext() or next() is called again, so until then it can still
+ * be queried about the returned line.</p>
+ */
+public class MergedLogIterator implements Iterator<LogLine> {
+
+    /**
+     * A stream of log lines, in timestamp order.
+     */
+    public interface Source {
+        /**
+         * Returns the current line without consuming it (calling it again returns the
+         * same line), or null if there are no more lines.
+         */
+        public LogLine peek();
+
+        /**
+         * Consumes the current line.
+         */
+        public void moveToNext();
+    }
+
+    private Vector<Source> mSources = new Vector<Source>();
+    private LogLine mHeads[];
+    private PriorityQueue<Integer> mQueue;
+    private int mLast = -1;
+    private boolean mLastConsumed = true;
+
+    /**
+     * Creates an iterator over all the lines (with a valid timestamp) of the given logs.
+     */
+    public MergedLogIterator(LogData... logs) {
+        for (LogData log : logs) {
+            if (log != null) {
+                mSources.add(new TimeIndexSource(log.getTimeIndex()));
+            }
+        }
+        init();
+    }
+
+    /**
+     * Creates an iterator merging the lines of the given sources.
+     */
+    public MergedLogIterator(List<? extends Source> sources) {
+        mSources.addAll(sources);
+        init();
+    }
+
+    private void init() {
+        int cnt = mSources.size();
+        mHeads = new LogLine[cnt];
+        mQueue = new PriorityQueue<Integer>(Math.max(1, cnt), new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                long tsA = mHeads[a].ts, tsB = mHeads[b].ts;
+                if (tsA != tsB) {
+                    return tsA < tsB ? -1 : 1;
+                }
+                return a - b;
+            }
+        });
+        for (int i = 0; i < cnt; i++) {
+            fetch(i);
+        }
+    }
+
+    private void fetch(int source) {
+        LogLine ll = mSources.get(source).peek();
+        mHeads[source] = ll;
+        if (ll != null) {
+            mQueue.add(source);
+        }
+    }
+
+    private void consumeLast() {
+        if (!mLastConsumed) {
+            mLastConsumed = true;
+            mSources.get(mLast).moveToNext();
+            fetch(mLast);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        consumeLast();
+        return !mQueue.isEmpty();
+    }
+
+    @Override
+    public LogLine next() {
+        consumeLast();
+        if (mQueue.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        mLast = mQueue.poll();
+        mLastConsumed = false;
+        return mHeads[mLast];
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the source of the line returned by the last call of next().
+     */
+    public Source getLastSource() {
+        return mLast < 0 ? null : mSources.get(mLast);
+    }
+
+    /**
+     * Returns the index of the source of the line returned by the last call of next().
+     */
+    public int getLastSourceIndex() {
+        return mLast;
+    }
+
+    /**
+     * Returns the lines of a log in timestamp order, using its time index.
+     */
+    public static class TimeIndexSource implements Source {
+
+        private LogTimeIndex mIndex;
+        private int mPos;
+
+        public TimeIndexSource(LogTimeIndex index) {
+            mIndex = index;
+        }
+
+        @Override
+        public LogLine peek() {
+            if (mPos >= mIndex.size()) {
+                return null;
+            }
+            return mIndex.getColumns().getLogLine(mIndex.getLine(mPos));
+        }
+
+        @Override
+        public void moveToNext() {
+            mPos++;
+        }
+
+    }
+
+}
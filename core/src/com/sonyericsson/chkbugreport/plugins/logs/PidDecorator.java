@@ -7,10 +7,25 @@ import com.sonyericsson.chkbugreport.doc.Renderer;
 public class PidDecorator extends Decorator {
 
     private ProcessRecord mPr;
+    private int mPid;
 
+    /**
+     * Creates the decorator linking to the process record of the given process.
+     * @param br The bugreport used to create the process record, or null if the process record
+     *   is created later by calling {@link #createProcessRecord(BugReportModule)}
+     */
     public PidDecorator(int start, int end, BugReportModule br, int pid) {
         super(start, end);
-        mPr = br.getProcessRecord(pid, true, true);
+        mPid = pid;
+        if (br != null) {
+            createProcessRecord(br);
+        }
+    }
+
+    /* package */ void createProcessRecord(BugReportModule br) {
+        if (mPr == null) {
+            mPr = br.getProcessRecord(mPid, true, true);
+        }
     }
 
     @Override
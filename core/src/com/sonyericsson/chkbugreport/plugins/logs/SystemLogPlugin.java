@@ -42,9 +42,16 @@ public class SystemLogPlugin extends LogPlugin {
     public static final String INFO_ID_SYSTEMLOG = "systemlog_log";
 
     private static final Pattern PATTERN_CONNECTIVITY_SERVICE = Pattern.compile("ConnectivityChange for (.+): (.+)/(.+)");
+    private static final String NATIVE_CRASH_HEADER = "*** *** *** *** *** *** *** *** *** *** *** *** *** *** *** ***";
 
     private ConnectivityLogs mConnectivityLogs;
 
+    private LogColumns mCols;
+    private int mTagActivityManager;
+    private int mTagAndroidRuntime;
+    private int mTagDebug;
+    private int mTagStrictMode;
+
     public SystemLogPlugin() {
         super("System", "system", Section.SYSTEM_LOG);
     }
@@ -58,6 +65,11 @@ public class SystemLogPlugin extends LogPlugin {
         return 30;
     }
 
+    @Override
+    public String[] getProducedData() {
+        return new String[] { getInfoId(), ConnectivityLogs.INFO_ID };
+    }
+
     @Override
     public void load(Module mod) {
         mConnectivityLogs = new ConnectivityLogs();
@@ -88,9 +100,9 @@ public class SystemLogPlugin extends LogPlugin {
         Chapter ch = new Chapter(br.getContext(), "Log level distribution");
         mainCh.addChapter(ch);
 
+        LogColumns cols = getColumns();
         for (int i = 0; i < totalLines; i++) {
-            LogLine sl = getParsedLine(i);
-            int idx = Math.max(0, levels.indexOf(sl.level));
+            int idx = Math.max(0, levels.indexOf(cols.getLevel(i)));
             counts[idx]++;
         }
 
@@ -109,81 +121,125 @@ public class SystemLogPlugin extends LogPlugin {
     }
 
     @Override
-    protected void analyze(LogLine sl, int i, BugReportModule br, Section s) {
-        super.analyze(sl, i, br, s);
-
-        if (sl.tag.equals("ConnectivityService") && sl.level == 'D') {
-            Matcher m = PATTERN_CONNECTIVITY_SERVICE.matcher(sl.msg);
-            if (m.matches()) {
-                mConnectivityLogs.add(new ConnectivityLog(sl.ts, m.group(1), m.group(2)));
+    protected void addAnalyzers() {
+        super.addAnalyzers();
+
+        // Most of the checks need only the tag, the level and the beginning of the message,
+        // these are resolved by the dispatch table, the messages are checked in place
+        addAnalyzer("ConnectivityService", 'D', null, new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                Matcher m = PATTERN_CONNECTIVITY_SERVICE.matcher(sl.msg);
+                if (m.matches()) {
+                    mConnectivityLogs.add(new ConnectivityLog(sl.ts, m.group(1), m.group(2)));
+                }
             }
-        }
-        if (sl.tag.equals("ActivityManager") && sl.level == 'I') {
-            if (sl.msg.startsWith("Start proc ")) {
+        });
+        addAnalyzer("ActivityManager", 'I', "Start proc ", new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
                 analyzeStartProc(sl, br);
             }
-            if (sl.msg.startsWith("Displayed ")) {
+        });
+        addAnalyzer("ActivityManager", 'I', "Displayed ", new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
                 analyzeDisplayed(sl, br);
             }
-            if (sl.msg.contains("START {act=android.intent.action.MAIN cat=[android.intent.category.HOME]")) {
-                analyzeStartHome(sl, br);
+        });
+        addAnalyzer("ActivityManager", 'I', null, new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                if (mCols.msgContains(i, "START {act=android.intent.action.MAIN cat=[android.intent.category.HOME]")) {
+                    analyzeStartHome(sl, br);
+                }
             }
-            if (sl.msg.startsWith("Config changed: ")) {
+        });
+        addAnalyzer("ActivityManager", 'I', "Config changed: ", new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
                 analyzeConfigChanged(sl, br);
             }
-        }
-
-        if (sl.tag.equals("AndroidRuntime") && sl.level == 'D') {
-            if (sl.msg.startsWith("Calling main entry ")) {
+        });
+        addAnalyzer("AndroidRuntime", 'D', "Calling main entry ", new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
                 String procName = sl.msg.substring("Calling main entry ".length());
                 ProcessRecord pr = br.getProcessRecord(sl.pid, true, false);
                 pr.suggestName(procName, 2);
             }
-        }
-
-        if (sl.tag.equals("ActivityManager") && sl.level == 'E') {
-            if (sl.msg.startsWith("ANR in ") ||
-                    sl.msg.startsWith("Displayed ") ||
-                    sl.msg.startsWith("Start proc ") ||
-                    sl.msg.startsWith("Load: ") ||
-                    sl.msg.startsWith("act=")) {
+        });
+        LogAnalyzers.Analyzer anr = new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
                 analyzeANR(sl, i, br, s);
             }
+        };
+        for (String prefix : new String[] { "ANR in ", "Displayed ", "Start proc ", "Load: ", "act=" }) {
+            addAnalyzer("ActivityManager", 'E', prefix, anr);
         }
-
-        if (sl.tag.equals("DEBUG") && sl.level == 'I') {
-            if (sl.msg.equals("*** *** *** *** *** *** *** *** *** *** *** *** *** *** *** ***")) {
-                analyzeNativeCrash(sl, i, br, s);
+        addAnalyzer("DEBUG", 'I', NATIVE_CRASH_HEADER, new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                if (mCols.msgEquals(i, NATIVE_CRASH_HEADER)) {
+                    analyzeNativeCrash(sl, i, br, s);
+                }
             }
-        }
-
-        if (sl.msg.startsWith("hprof: dumping heap strings to ")) {
-            analyzeHPROF(sl, i, br, s);
-        }
-
-        if (isFatalException(sl)) {
-            analyzeFatalException(sl, i, br, s);
-        }
-
-        if (sl.level == 'E' && sl.tag.equals("StrictMode")) {
-            analyzeStrictMode(sl, i, br, s);
-        }
-
-        if (sl.tag.equals("dalvikvm") && sl.msg.startsWith("GC_")) {
-            analyzeGC(sl, i, br, s);
-        }
-
-        if (sl.tag.equals("WindowManager") && sl.level == 'I') {
-            String key = "Setting rotation to ";
-            if (sl.msg.startsWith(key)) {
-                int rot = sl.msg.charAt(key.length()) - '0';
+        });
+        addAnalyzer((String) null, LogAnalyzers.ANY_LEVEL, "hprof: dumping heap strings to ", new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                analyzeHPROF(sl, i, br, s);
+            }
+        });
+        LogAnalyzers.Analyzer fatal = new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                analyzeFatalException(sl, i, br, s);
+            }
+        };
+        addAnalyzer((String) null, LogAnalyzers.ANY_LEVEL, "FATAL EXCEPTION:", fatal);
+        addAnalyzer((String) null, LogAnalyzers.ANY_LEVEL, "*** FATAL EXCEPTION IN SYSTEM PROCESS:", fatal);
+        addAnalyzer("StrictMode", 'E', null, new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                analyzeStrictMode(sl, i, br, s);
+            }
+        });
+        addAnalyzer("dalvikvm", LogAnalyzers.ANY_LEVEL, "GC_", new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                analyzeGC(sl, i, br, s);
+            }
+        });
+        addAnalyzer("WindowManager", 'I', "Setting rotation to ", new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                int rot = sl.msg.charAt("Setting rotation to ".length()) - '0';
                 analyzeRotation(sl, br, rot);
             }
-        }
+        });
+        addAnalyzer((String) null, 'E', "\tat ", new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                analyzeJavaException(sl, i, br, s);
+            }
+        });
+    }
 
-        if (sl.msg.startsWith("\tat ") && sl.level == 'E') {
-            analyzeJavaException(sl, i, br, s);
-        }
+    @Override
+    protected void prepareAnalyze(LogColumns cols) {
+        super.prepareAnalyze(cols);
+        mCols = cols;
+        mTagActivityManager = cols.findTag("ActivityManager");
+        mTagAndroidRuntime = cols.findTag("AndroidRuntime");
+        mTagDebug = cols.findTag("DEBUG");
+        mTagStrictMode = cols.findTag("StrictMode");
+    }
+
+    @Override
+    protected void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+        super.analyze(sl, i, br, s);
 
         // Since any name is better then no-name, suggest a name for each process based on the tag
         if (sl.pid > 0) {
@@ -192,8 +248,16 @@ public class SystemLogPlugin extends LogPlugin {
         }
     }
 
-    private boolean isFatalException(LogLine sl) {
-        return sl.msg.startsWith("FATAL EXCEPTION:") || sl.msg.startsWith("*** FATAL EXCEPTION IN SYSTEM PROCESS:");
+    /**
+     * Returns true if the given line is in the same block of lines as the analyzed one, i.e.
+     * it was parsed and has the same tag and level.
+     */
+    private boolean isSameBlock(int i, int tag, char level) {
+        return mCols.isOk(i) && mCols.getTagId(i) == tag && mCols.getLevel(i) == level;
+    }
+
+    private boolean isFatalException(int i) {
+        return mCols.msgStartsWith(i, "FATAL EXCEPTION:") || mCols.msgStartsWith(i, "*** FATAL EXCEPTION IN SYSTEM PROCESS:");
     }
 
     private void analyzeConfigChanged(LogLine sl, BugReportModule br) {
@@ -234,7 +298,7 @@ public class SystemLogPlugin extends LogPlugin {
         sl.addMarker("log-float-err", "NATIVE<br/>CRASH", null);
 
         // Fetch the next log line
-        if (i >= s.getLineCount()-2) return;
+        if (i >= getParsedLineCount()-2) return;
         i += 2;
         sl = getParsedLine(i);
 
@@ -244,12 +308,9 @@ public class SystemLogPlugin extends LogPlugin {
         DocNode log = new Block(bug).addStyle("log");
         log.add(sl.symlink());
         int end = i + 1;
-        while (end < s.getLineCount()) {
-            LogLine sl2 = getParsedLine(end);
-            if (!sl2.ok) break;
-            if (!sl2.tag.equals("DEBUG")) break;
-            if (sl2.level != 'I') break;
-            log.add(sl2.symlink());
+        while (end < getParsedLineCount()) {
+            if (!isSameBlock(end, mTagDebug, 'I')) break;
+            log.add(getParsedLine(end).symlink());
             end++;
         }
         bug.setAttr(Bug.ATTR_FIRST_LINE, i);
@@ -261,8 +322,7 @@ public class SystemLogPlugin extends LogPlugin {
     private void analyzeANR(LogLine sl, int i, BugReportModule br, Section s) {
         // Make sure we are scanning a new ANR
         if (i > 0) {
-            LogLine prev = getParsedLine(i - 1);
-            if (prev.ok && prev.tag.equals("ActivityManager") && prev.level == 'E') {
+            if (isSameBlock(i - 1, mTagActivityManager, 'E')) {
                 // Ignore this, probably already handled
                 return;
             }
@@ -282,12 +342,10 @@ public class SystemLogPlugin extends LogPlugin {
         log.add(sl.symlink());
         int end = i + 1;
         int cnt = 0;
-        while (end < s.getLineCount()) {
+        while (end < getParsedLineCount()) {
+            if (!isSameBlock(end, mTagActivityManager, 'E')) break;
             LogLine sl2 = getParsedLine(end);
-            if (!sl2.ok) break;
-            if (!sl2.tag.equals("ActivityManager")) break;
-            if (sl2.level != 'E') break;
-            if (sl2.msg.startsWith("100% TOTAL")) {
+            if (mCols.msgStartsWith(end, "100% TOTAL")) {
                 if (2 == ++cnt) {
                     log.add(sl2.symlink());
                     end++;
@@ -334,12 +392,9 @@ public class SystemLogPlugin extends LogPlugin {
         DocNode log = new Block(bug).addStyle("log");
         log.add(sl.symlink());
         int end = i + 1;
-        while (end < s.getLineCount()) {
-            LogLine sl2 = getParsedLine(end);
-            if (!sl2.ok) break;
-            if (!sl2.tag.equals("AndroidRuntime")) break;
-            if (sl2.level != 'E') break;
-            log.add(sl2.symlink());
+        while (end < getParsedLineCount()) {
+            if (!isSameBlock(end, mTagAndroidRuntime, 'E')) break;
+            log.add(getParsedLine(end).symlink());
             end++;
         }
         bug.setAttr(Bug.ATTR_FIRST_LINE, i);
@@ -357,7 +412,7 @@ public class SystemLogPlugin extends LogPlugin {
             if (Math.abs(i - prev) > 10) break; // avoid detecting too many lines
             firstLine = prev;
             sl = getParsedLine(firstLine);
-            if (sl.msg.startsWith("\tat ") || isFatalException(sl)) {
+            if (mCols.msgStartsWith(firstLine, "\tat ") || isFatalException(firstLine)) {
                 return; // avoid finding the same exception many times
             }
         }
@@ -386,19 +441,21 @@ public class SystemLogPlugin extends LogPlugin {
 
     private int findNextLine(int idx, int dir) {
         if (dir == 0) return -1; // Just to be safe, avoid infinite loop
-        LogLine pl = getParsedLine(idx);
+        LogColumns cols = mCols;
+        long ts = cols.getTs(idx);
+        int tag = cols.getTagId(idx);
+        char level = cols.getLevel(idx);
         while (true) {
             idx += dir;
-            if (idx < 0 || idx >= getParsedLineCount()) {
+            if (idx < 0 || idx >= cols.size()) {
                 // Reached the end
                 return -1;
             }
-            LogLine nl = getParsedLine(idx);
-            if (!nl.ok) continue;
-            if (Math.abs(nl.ts - pl.ts) > 500) {
+            if (!cols.isOk(idx)) continue;
+            if (Math.abs(cols.getTs(idx) - ts) > 500) {
                 return -1; // The timestamps are too far away
             }
-            if (pl.level == nl.level && pl.tag.equals(nl.tag)) {
+            if (isSameBlock(idx, tag, level)) {
                 return idx; // found a match
             }
         }
@@ -407,8 +464,7 @@ public class SystemLogPlugin extends LogPlugin {
     private void analyzeStrictMode(LogLine sl, int i, BugReportModule br, Section s) {
         // Check previous line
         if (i > 0) {
-            LogLine sl2 = getParsedLine(i - 1);
-            if (sl2.ok && sl2.level == 'E' && sl2.tag.equals("StrictMode")) {
+            if (isSameBlock(i - 1, mTagStrictMode, 'E')) {
                 // Found the middle, ignore it
                 return;
             }
@@ -429,12 +485,9 @@ public class SystemLogPlugin extends LogPlugin {
         DocNode log = new Block(bug).addStyle("log");
         log.add(sl.symlink());
         int end = i + 1;
-        while (end < s.getLineCount()) {
-            LogLine sl2 = getParsedLine(end);
-            if (!sl2.ok) break;
-            if (!sl2.tag.equals("StrictMode")) break;
-            if (sl2.level != 'E') break;
-            log.add(sl2.symlink());
+        while (end < getParsedLineCount()) {
+            if (!isSameBlock(end, mTagStrictMode, 'E')) break;
+            log.add(getParsedLine(end).symlink());
             end++;
         }
         br.addBug(bug);
@@ -33,17 +33,24 @@ import com.sonyericsson.chkbugreport.doc.ShadedValue;
 import com.sonyericsson.chkbugreport.doc.Table;
 import com.sonyericsson.chkbugreport.plugins.logs.ConfigChange;
 import com.sonyericsson.chkbugreport.plugins.logs.GCRecord;
+import com.sonyericsson.chkbugreport.plugins.logs.LogAnalyzers;
 import com.sonyericsson.chkbugreport.plugins.logs.LogLine;
 import com.sonyericsson.chkbugreport.plugins.logs.LogPlugin;
 import com.sonyericsson.chkbugreport.util.Util;
 
 import java.util.HashMap;
 import java.util.Vector;
+import java.util.regex.Pattern;
 
 public class EventLogPlugin extends LogPlugin {
 
     public static final String INFO_ID_LOG = "eventlog_log";
 
+    /** The *_sample tags, except the netstats samples which are handled separately */
+    private static final Pattern PATTERN_SAMPLE = Pattern.compile("(?!netstats_(mobile|wifi)_sample$).*_sample");
+    /** The activity manager tags */
+    private static final Pattern PATTERN_AM = Pattern.compile("am_.*");
+
     private Vector<ALTStat> mALT = new Vector<ALTStat>();
     /* db_sample stats */
     private HashMap<String, DBStat> mDBStats = new HashMap<String, DBStat>();
@@ -75,6 +82,22 @@ public class EventLogPlugin extends LogPlugin {
         return 32;
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[] { Section.EVENT_LOG, BugReportModule.DATA_ANDROID_VERSION };
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[] {
+                getInfoId(),
+                ActivityManagerTrace.INFO_ID,
+                BatteryLevels.INFO_ID,
+                NetstatSamples.INFO_ID_MOBILE,
+                NetstatSamples.INFO_ID_WIFI,
+        };
+    }
+
     @Override
     public void reset() {
         super.reset();
@@ -128,46 +151,78 @@ public class EventLogPlugin extends LogPlugin {
     }
 
     @Override
-    protected void analyze(LogLine sl, int i, BugReportModule br, Section s) {
-        super.analyze(sl, i, br, s);
-
-        String eventType = Util.strip(sl.tag);
-        if ("netstats_mobile_sample".equals(eventType)) {
-            if (sl.fields.length == 14) {
-                mNetstatMobile.add(new NetstatSample("mobile", sl.ts, sl.fields));
+    protected void addAnalyzers() {
+        super.addAnalyzers();
+
+        // The event tags are resolved once per tag by the dispatch table, the analyzers of a
+        // line are executed in the order they are registered here
+        addAnalyzer("netstats_mobile_sample", LogAnalyzers.ANY_LEVEL, null, new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                if (sl.fields.length == 14) {
+                    mNetstatMobile.add(new NetstatSample("mobile", sl.ts, sl.fields));
+                }
             }
-            return;
-        }
-        if ("netstats_wifi_sample".equals(eventType)) {
-            if (sl.fields.length == 14) {
-                mNetstatWifi.add(new NetstatSample("mobile", sl.ts, sl.fields));
+        });
+        addAnalyzer("netstats_wifi_sample", LogAnalyzers.ANY_LEVEL, null, new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                if (sl.fields.length == 14) {
+                    mNetstatWifi.add(new NetstatSample("mobile", sl.ts, sl.fields));
+                }
             }
-            return;
-        }
-        if (eventType.endsWith("_sample")) {
-            addSampleData(br, eventType, sl);
-            // Fall through: some of the sample data is handled more then once
-        }
-        if ("am_anr".equals(eventType)) {
-            analyzeCrashOrANR(sl, i, br, "anr");
-            // Fall through: am_ logs are processed again
-        }
-        if ("am_crash".equals(eventType)) {
-            analyzeCrashOrANR(sl, i, br, "crash");
-            // Fall through: am_ logs are processed again
-        }
-        if ("activity_launch_time".equals(eventType)) {
-            addActivityLaunchTimeData(sl);
-            addActivityLaunchMarker(sl);
-        } else if (eventType.startsWith("am_")) {
-            mAM.addAMData(eventType, br, sl, i);
-        } else if ("dvm_gc_info".equals(eventType)) {
-            addDvmGCInfoData(sl);
-        } else if ("configuration_changed".equals(eventType)) {
-            handleConfigChanged(sl);
-        } else if ("battery_level".equals(eventType)) {
-            mBatteryLevels.addData(sl, br);
-        }
+        });
+        // Note: some of the sample data is handled more then once
+        addAnalyzer(PATTERN_SAMPLE, LogAnalyzers.ANY_LEVEL, null, new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                addSampleData(br, Util.strip(sl.tag), sl);
+            }
+        });
+        // Note: am_ logs are processed again
+        addAnalyzer("am_anr", LogAnalyzers.ANY_LEVEL, null, new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                analyzeCrashOrANR(sl, i, br, "anr");
+            }
+        });
+        addAnalyzer("am_crash", LogAnalyzers.ANY_LEVEL, null, new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                analyzeCrashOrANR(sl, i, br, "crash");
+            }
+        });
+        addAnalyzer("activity_launch_time", LogAnalyzers.ANY_LEVEL, null, new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                addActivityLaunchTimeData(sl);
+                addActivityLaunchMarker(sl);
+            }
+        });
+        addAnalyzer(PATTERN_AM, LogAnalyzers.ANY_LEVEL, null, new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                mAM.addAMData(Util.strip(sl.tag), br, sl, i);
+            }
+        });
+        addAnalyzer("dvm_gc_info", LogAnalyzers.ANY_LEVEL, null, new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                addDvmGCInfoData(sl);
+            }
+        });
+        addAnalyzer("configuration_changed", LogAnalyzers.ANY_LEVEL, null, new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                handleConfigChanged(sl);
+            }
+        });
+        addAnalyzer("battery_level", LogAnalyzers.ANY_LEVEL, null, new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                mBatteryLevels.addData(sl, br);
+            }
+        });
     }
 
     private void addActivityLaunchMarker(LogLine sl) {
@@ -27,9 +27,13 @@ import com.sonyericsson.chkbugreport.doc.DocNode;
 import com.sonyericsson.chkbugreport.doc.Hint;
 import com.sonyericsson.chkbugreport.doc.Link;
 import com.sonyericsson.chkbugreport.doc.WebOnlyChapter;
+import com.sonyericsson.chkbugreport.plugins.logs.LogColumns;
 import com.sonyericsson.chkbugreport.plugins.logs.LogData;
+import com.sonyericsson.chkbugreport.plugins.logs.LogIndex;
 import com.sonyericsson.chkbugreport.plugins.logs.LogLine;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLineParser;
 import com.sonyericsson.chkbugreport.plugins.logs.LogLines;
+import com.sonyericsson.chkbugreport.plugins.logs.LogTimeIndex;
 import com.sonyericsson.chkbugreport.plugins.logs.LogToolbar;
 import com.sonyericsson.chkbugreport.plugins.logs.PidDecorator;
 import com.sonyericsson.chkbugreport.plugins.logs.kernel.iptables.IPTableLogAnalyzer;
@@ -62,9 +66,10 @@ public class KernelLogData implements LogData {
 
         if (section != null) {
             // Load and parse the lines
-            int cnt = section.getLineCount();
-            for (int i = 0; i < cnt; i++) {
-                addLine(mod, section.getLine(i), -1);
+            LogLine lines[] = LogLineParser.parse(mod, section, 0, section.getLineCount(), LogLine.FMT_KERNEL);
+            for (LogLine kl : lines) {
+                kl.realTs = -1;
+                addLine(kl);
             }
         }
     }
@@ -72,6 +77,10 @@ public class KernelLogData implements LogData {
     protected void addLine(BugReportModule mod, String line, long realTs) {
         LogLine kl = new LogLine(mod, line, LogLine.FMT_KERNEL, null);
         kl.realTs = realTs;
+        addLine(kl);
+    }
+
+    private void addLine(LogLine kl) {
         if (kl.ok) {
             mParsedLog.add(kl);
         } else {
@@ -134,6 +143,21 @@ public class KernelLogData implements LogData {
         return mParsedLog.get(i);
     }
 
+    @Override
+    public LogColumns getColumns() {
+        return mParsedLog.getColumns();
+    }
+
+    @Override
+    public LogIndex getIndex() {
+        return mParsedLog.getIndex();
+    }
+
+    @Override
+    public LogTimeIndex getTimeIndex() {
+        return mParsedLog.getTimeIndex();
+    }
+
     public void generate(BugReportModule br) {
         if (!mLoaded || getLineCount() == 0) {
             return;
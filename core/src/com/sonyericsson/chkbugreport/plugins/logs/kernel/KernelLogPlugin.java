@@ -23,6 +23,7 @@ import com.sonyericsson.chkbugreport.BugReportModule;
 import com.sonyericsson.chkbugreport.Plugin;
 import com.sonyericsson.chkbugreport.Module;
 import com.sonyericsson.chkbugreport.Section;
+import com.sonyericsson.chkbugreport.plugins.logs.SystemLogPlugin;
 import com.sonyericsson.chkbugreport.plugins.logs.webapp.LogWebApp;
 import com.sonyericsson.chkbugreport.webserver.ChkBugReportWebServer;
 
@@ -43,6 +44,25 @@ public class KernelLogPlugin extends Plugin {
         return 31;
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[] {
+                Section.KERNEL_LOG,
+                Section.LAST_KMSG,
+                SystemLogPlugin.INFO_ID_SYSTEMLOG,
+        };
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[] {
+                Section.KERNEL_LOG_FROM_SYSTEM,
+                INFO_ID_KERNEL_LOG,
+                INFO_ID_KERNEL_LOG_FROM_SYSTEM,
+                INFO_ID_LAST_KMSG,
+        };
+    }
+
     @Override
     public void reset() {
         mLogs.clear();
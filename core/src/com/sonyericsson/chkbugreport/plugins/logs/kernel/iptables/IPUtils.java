@@ -22,11 +22,11 @@ public class IPUtils {
         { "240.0.0.0/4", "Reserved", },
     };
 
-    public static int sAddrs[];
-    public static int sMasks[];
+    // Compiled once when the class is loaded, so it can be safely shared between threads
+    private static final int sAddrs[];
+    private static final int sMasks[];
 
-    private static void compile() {
-        if (sAddrs != null && sMasks != null) return;
+    static {
         int len = RANGES.length;
         sAddrs = new int[len];
         sMasks = new int[len];
@@ -38,7 +38,6 @@ public class IPUtils {
     }
 
     public static String getIpRangeName(String ip) {
-        compile();
         int value = compileIp(ip);
         for (int i = 0; i < RANGES.length; i++) {
             if (sAddrs[i] == (value & sMasks[i])) {
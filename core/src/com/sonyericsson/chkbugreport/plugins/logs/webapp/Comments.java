@@ -29,6 +29,9 @@ import com.sonyericsson.chkbugreport.webserver.JSON;
 import com.sonyericsson.chkbugreport.webserver.engine.HTTPRequest;
 import com.sonyericsson.chkbugreport.webserver.engine.HTTPResponse;
 
+import java.util.HashMap;
+import java.util.Vector;
+
 public class Comments extends SavedData<Comment> {
 
     public Comments(SaveFile saveFile, String prefix) {
@@ -41,9 +44,27 @@ public class Comments extends SavedData<Comment> {
         return new Comment(0, null);
     }
 
-    public void collectLogs(LogLine ll, DocNode log) {
+    /**
+     * Returns the comments grouped by the id of the log line they belong to,
+     * so they can be looked up quickly with collectLogs().
+     */
+    public synchronized HashMap<Long, Vector<Comment>> getCommentsByLine() {
+        HashMap<Long, Vector<Comment>> ret = new HashMap<Long, Vector<Comment>>();
         for (Comment c : getData()) {
-            if (c.getLogLineId() == ll.id) {
+            Vector<Comment> list = ret.get(c.getLogLineId());
+            if (list == null) {
+                list = new Vector<Comment>();
+                ret.put(c.getLogLineId(), list);
+            }
+            list.add(c);
+        }
+        return ret;
+    }
+
+    public void collectLogs(LogLine ll, DocNode log, HashMap<Long, Vector<Comment>> comments) {
+        Vector<Comment> list = comments.get(ll.id);
+        if (list != null) {
+            for (Comment c : list) {
                 new Block(log).addStyle("log-comment").setId("l" + ll.id + "," + c.getId())
                     .add(c.getComment());
             }
@@ -18,11 +18,14 @@
  */
 package com.sonyericsson.chkbugreport.plugins.logs.webapp;
 
+import com.sonyericsson.chkbugreport.plugins.logs.LogData;
+import com.sonyericsson.chkbugreport.plugins.logs.LogIndex;
 import com.sonyericsson.chkbugreport.plugins.logs.LogLine;
 import com.sonyericsson.chkbugreport.util.SavedField;
 import com.sonyericsson.chkbugreport.util.SavedField.Type;
 import com.sonyericsson.chkbugreport.util.Util;
 
+import java.util.BitSet;
 import java.util.regex.Pattern;
 
 public class Filter {
@@ -50,6 +53,9 @@ public class Filter {
 
     private Pattern mPTag, mPMsg, mPLine;
 
+    /** Incremented each time the definition of the filter changes */
+    private volatile int mVersion;
+
     public Filter(String tag, String msg, String line, Action action, int actionArg) {
         mTag = tag;
         mMsg = msg;
@@ -77,6 +83,7 @@ public class Filter {
     public void setTag(String tag) {
         mTag = tag;
         mPTag = null;
+        mVersion++;
     }
 
     public String getMsg() {
@@ -86,6 +93,7 @@ public class Filter {
     public void setMsg(String msg) {
         mMsg = msg;
         mPMsg = null;
+        mVersion++;
     }
 
     public String getLine() {
@@ -95,6 +103,7 @@ public class Filter {
     public void setLine(String line) {
         mLine = line;
         mPLine = null;
+        mVersion++;
     }
 
     public Action getAction() {
@@ -103,38 +112,55 @@ public class Filter {
 
     public void setAction(Action action) {
         mAction = action;
+        mVersion++;
+    }
+
+    public int getVersion() {
+        return mVersion;
     }
 
     public int getActionArg() {
         return mActionArg;
     }
 
+    private Pattern getTagPattern() {
+        if (mPTag == null) {
+            mPTag = Pattern.compile(mTag);
+        }
+        return mPTag;
+    }
+
+    private Pattern getMsgPattern() {
+        if (mPMsg == null) {
+            mPMsg = Pattern.compile(mMsg);
+        }
+        return mPMsg;
+    }
+
+    private Pattern getLinePattern() {
+        if (mPLine == null) {
+            mPLine = Pattern.compile(mLine);
+        }
+        return mPLine;
+    }
+
     public int handle(LogLine sl) {
         int matches = 0, outOf = 0;
         if (!Util.isEmpty(mTag)) {
-            if (mPTag == null) {
-                mPTag = Pattern.compile(mTag);
-            }
             outOf++;
-            if (mPTag.matcher(sl.tag).find()) {
+            if (sl.tag != null && getTagPattern().matcher(sl.tag).find()) {
                 matches++;
             }
         }
         if (!Util.isEmpty(mMsg)) {
-            if (mPMsg == null) {
-                mPMsg = Pattern.compile(mMsg);
-            }
             outOf++;
-            if (mPMsg.matcher(sl.msg).find()) {
+            if (sl.msg != null && getMsgPattern().matcher(sl.msg).find()) {
                 matches++;
             }
         }
         if (!Util.isEmpty(mLine)) {
-            if (mPLine == null) {
-                mPLine = Pattern.compile(mLine);
-            }
             outOf++;
-            if (mPLine.matcher(sl.line).find()) {
+            if (getLinePattern().matcher(sl.line).find()) {
                 matches++;
             }
         }
@@ -146,4 +172,62 @@ public class Filter {
         return 0; // By default
     }
 
+    /**
+     * Returns the lines of the log matched by this filter. The index of the log is used
+     * to find the candidate lines, and only those are checked with handle().
+     */
+    public BitSet findMatches(LogData log) {
+        return findMatches(log, log.getIndex());
+    }
+
+    /**
+     * Returns the lines matched by this filter, using the given index of the log. Only the
+     * lines covered by the index are checked.
+     */
+    public BitSet findMatches(LogData log, LogIndex index) {
+        BitSet ret = new BitSet();
+        BitSet candidates = null;
+        if (!Util.isEmpty(mTag)) {
+            candidates = index.findTag(getTagPattern());
+        }
+        if (!Util.isEmpty(mMsg)) {
+            candidates = intersect(candidates, index.getCandidates(getMsgPattern()));
+        }
+        if (!Util.isEmpty(mLine)) {
+            candidates = intersect(candidates, index.getCandidates(getLinePattern()));
+        }
+        int cnt = index.size();
+        for (int i = 0; i < cnt; i++) {
+            if (candidates != null) {
+                i = candidates.nextSetBit(i);
+                if (i < 0) break;
+            }
+            if (handle(log.get(i)) != 0) {
+                ret.set(i);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Adds the lines between from (inclusive) and to (exclusive) matched by this filter to the
+     * result. The index is not used, so this is meant for a few lines (for example the lines
+     * appended to a followed log).
+     */
+    public void findMatches(LogData log, int from, int to, BitSet ret) {
+        for (int i = from; i < to; i++) {
+            if (handle(log.get(i)) != 0) {
+                ret.set(i);
+            }
+        }
+    }
+
+    private static BitSet intersect(BitSet a, BitSet b) {
+        if (a == null) return b;
+        if (b != null) {
+            a.and(b);
+        }
+        return a;
+    }
+
 }
@@ -18,12 +18,18 @@
  */
 package com.sonyericsson.chkbugreport.plugins.logs.webapp;
 
+import com.sonyericsson.chkbugreport.plugins.logs.LogColumns;
+import com.sonyericsson.chkbugreport.plugins.logs.LogData;
+import com.sonyericsson.chkbugreport.plugins.logs.LogIndex;
 import com.sonyericsson.chkbugreport.plugins.logs.LogLine;
 import com.sonyericsson.chkbugreport.util.SaveFile;
 import com.sonyericsson.chkbugreport.util.SavedData;
 import com.sonyericsson.chkbugreport.util.SavedField;
 import com.sonyericsson.chkbugreport.util.SavedField.Type;
 
+import java.util.BitSet;
+import java.util.HashMap;
+
 public class FilterGroup extends SavedData<Filter> {
 
     @SavedField(type = Type.ID)
@@ -31,6 +37,16 @@ public class FilterGroup extends SavedData<Filter> {
     @SavedField(type = Type.VARCHAR)
     private String mName;
 
+    /** Incremented each time a filter is added, updated or deleted */
+    private int mVersion;
+    /** The cached result of getVisibleLines() and the state of the log and filters it belongs to */
+    private BitSet mVisible;
+    private LogColumns mVisibleLog;
+    private int mVisibleSize;
+    private int mVisibleVersion;
+    /** The cached matches of each filter */
+    private HashMap<Filter, Matches> mMatches = new HashMap<Filter, Matches>();
+
     public FilterGroup(SaveFile saveFile, String prefix, String name) {
         super(saveFile, prefix + "_filters");
         mName = name;
@@ -45,9 +61,28 @@ public class FilterGroup extends SavedData<Filter> {
     }
 
     @Override
-    public void add(Filter item) {
+    public synchronized void add(Filter item) {
         item.setGroupId(mId);
         super.add(item);
+        mVersion++;
+    }
+
+    @Override
+    public synchronized void load(String field, String value) {
+        super.load(field, value);
+        mVersion++;
+    }
+
+    @Override
+    public synchronized void update(Filter item) {
+        super.update(item);
+        mVersion++;
+    }
+
+    @Override
+    public synchronized void delete(Filter item) {
+        super.delete(item);
+        mVersion++;
     }
 
     public Filter get(int idx) {
@@ -86,4 +121,70 @@ public class FilterGroup extends SavedData<Filter> {
         return ret;
     }
 
+    /**
+     * Returns the lines of the log which are visible using this filter group.
+     * The result is the same as calling handle() on each line.
+     *
+     * <p>The result is cached until the filters or the log change, and the matches of each
+     * filter are cached as well, so when a filter is edited only that one is executed again,
+     * and when lines are appended to the log only the new lines are checked.
+     * The returned bitset must not be modified.</p>
+     */
+    public synchronized BitSet getVisibleLines(LogData log) {
+        LogColumns cols = log.getColumns(); // Changes when the log changes
+        int cnt = cols.size(); // Grows when lines are appended
+        if (mVisible != null && mVisibleLog == cols && mVisibleSize == cnt && mVisibleVersion == mVersion) {
+            return mVisible;
+        }
+
+        int version = mVersion;
+        BitSet ret = new BitSet(cnt);
+        ret.set(0, cnt); // By default it's visible
+        HashMap<Filter, Matches> matchesMap = new HashMap<Filter, Matches>();
+        for (Filter f : getData()) {
+            Matches matches = mMatches.get(f);
+            if (matches == null || matches.log != cols || matches.version != f.getVersion()) {
+                // Note: read the version first, so a concurrent edit will invalidate the result
+                matches = new Matches();
+                matches.version = f.getVersion();
+                matches.log = cols;
+                LogIndex index = log.getIndex();
+                matches.lines = f.findMatches(log, index);
+                matches.size = index.size();
+            }
+            if (matches.size < cnt) {
+                f.findMatches(log, matches.size, cnt, matches.lines);
+                matches.size = cnt;
+            }
+            matchesMap.put(f, matches);
+            if (f.getAction() == Filter.Action.HIDE) {
+                ret.andNot(matches.lines);
+            } else {
+                ret.or(matches.lines);
+            }
+        }
+
+        if (ret.length() > cnt) {
+            // Some lines were appended meanwhile, they will be handled next time
+            ret.clear(cnt, ret.length());
+        }
+
+        mMatches = matchesMap; // This drops the deleted filters as well
+        mVisible = ret;
+        mVisibleLog = cols;
+        mVisibleSize = cnt;
+        mVisibleVersion = version;
+        return ret;
+    }
+
+    /**
+     * The lines matched by a filter, and the state of the log and filter it belongs to.
+     */
+    private static class Matches {
+        public int version;
+        public LogColumns log;
+        public int size;
+        public BitSet lines;
+    }
+
 }
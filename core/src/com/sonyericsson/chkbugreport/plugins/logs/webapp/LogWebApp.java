@@ -20,6 +20,7 @@ package com.sonyericsson.chkbugreport.plugins.logs.webapp;
 
 import com.sonyericsson.chkbugreport.Module;
 import com.sonyericsson.chkbugreport.doc.Block;
+import com.sonyericsson.chkbugreport.doc.Bug;
 import com.sonyericsson.chkbugreport.doc.Button;
 import com.sonyericsson.chkbugreport.doc.Chapter;
 import com.sonyericsson.chkbugreport.doc.DocNode;
@@ -29,13 +30,19 @@ import com.sonyericsson.chkbugreport.doc.Script;
 import com.sonyericsson.chkbugreport.doc.Span;
 import com.sonyericsson.chkbugreport.plugins.logs.LogData;
 import com.sonyericsson.chkbugreport.plugins.logs.LogLine;
+import com.sonyericsson.chkbugreport.plugins.logs.LogPlugin;
+import com.sonyericsson.chkbugreport.util.Util;
 import com.sonyericsson.chkbugreport.webserver.ChkBugReportWebServer;
+import com.sonyericsson.chkbugreport.webserver.JSON;
 import com.sonyericsson.chkbugreport.webserver.Web;
 import com.sonyericsson.chkbugreport.webserver.engine.HTTPRenderer;
 import com.sonyericsson.chkbugreport.webserver.engine.HTTPRequest;
 import com.sonyericsson.chkbugreport.webserver.engine.HTTPResponse;
 
 import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Vector;
 
 public class LogWebApp {
 
@@ -92,11 +99,17 @@ public class LogWebApp {
                 .add(new Block().addStyle("content"))
                 .add(new Block().addStyle("add-new")));
 
+        // Add placeholder for the bugs found in the new lines, if the log is followed
+        new Block(ch).setId("log-follow-bugs");
+
         // Add placeholder for the log
         new Block(ch).setId("log-placeholder");
 
         // Add custom javascript code
-        new Script(ch).println("var logid=\"" + mId + "\";");
+        boolean followed = (mLog instanceof LogPlugin) && ((LogPlugin) mLog).isFollowed();
+        Script script = new Script(ch);
+        script.println("var logid=\"" + mId + "\";");
+        script.println("var logFollow=" + followed + ";");
         new Script(ch, "lib_log.js");
 
         try {
@@ -113,22 +126,38 @@ public class LogWebApp {
     public void logOnly(Module mod, HTTPRequest req, HTTPResponse resp) {
         String filterName = req.getArg("filter");
         FilterGroup fg = mFilters.find(filterName);
-        DocNode log = new Block().addStyle("log").addStyle("log-dynamic");
+        int from = Util.parseInt(req.getArg("from"), 0);
+        int count = Util.parseInt(req.getArg("count"), Integer.MAX_VALUE);
+        Block log = new Block();
+        log.addStyle("log").addStyle("log-dynamic");
         int cnt = mLog.size();
-        boolean prevSkipped = false;
-        for (int i = 0; i < cnt; i++) {
-            LogLine sl = mLog.get(i);
-            if (fg != null && !fg.handle(sl)) {
+        BitSet visible = (fg == null) ? null : fg.getVisibleLines(mLog);
+        HashMap<Long, Vector<Comment>> comments = mComments.getCommentsByLine();
+        boolean prevSkipped = false, more = false;
+        int added = 0, last = from - 1;
+        for (int i = Math.max(0, from); i < cnt; i++) {
+            if (visible != null && !visible.get(i)) {
                 prevSkipped = true;
                 continue;
             }
-            LogLine llCopy = sl.copy();
-            if (prevSkipped) {
-                llCopy.addStyle("log-skipped-lines-before");
+            if (added == count) {
+                // There are more lines, tell the client where the next page starts
+                // (right after the last line, so the skipped lines are marked correctly)
+                log.setAttr("data-next", Integer.toString(last + 1));
+                more = true;
+                break;
             }
-            log.add(llCopy);
-            mComments.collectLogs(llCopy, log);
+            // Render the line without copying it, the same way as the copy would be rendered
+            LogLine sl = mLog.get(i);
+            log.add(sl.view(prevSkipped ? "log-skipped-lines-before" : null));
+            mComments.collectLogs(sl, log, comments);
             prevSkipped = false;
+            last = i;
+            added++;
+        }
+        if (req.getArg("from") != null && !more) {
+            // This was the last page, tell the client where to continue if the log grows
+            log.setAttr("data-end", Integer.toString(last + 1));
         }
         try {
             Renderer r = new HTTPRenderer(resp, mId + "$log", null);
@@ -140,6 +169,34 @@ public class LogWebApp {
         }
     }
 
+    /**
+     * Returns the current number of lines in the log and the bugs found in the lines
+     * appended since the log was loaded (see LogFollower). The "bugs" argument specifies
+     * how many of the appended bugs the client already knows about.
+     */
+    @Web
+    public void followStatus(Module mod, HTTPRequest req, HTTPResponse resp) {
+        JSON json = new JSON();
+        json.add("lines", mLog.size());
+        JSON bugs = json.addArray("bugs");
+        if (mLog instanceof LogPlugin) {
+            Vector<Bug> appended = ((LogPlugin) mLog).getAppendedBugs();
+            int cnt = appended.size();
+            for (int i = Math.max(0, Util.parseInt(req.getArg("bugs"), 0)); i < cnt; i++) {
+                Bug bug = appended.get(i);
+                JSON item = bugs.add();
+                item.add("name", bug.getName());
+                item.add("ts", bug.getTimeStamp());
+                Object line = bug.getAttr(Bug.ATTR_FIRST_LINE);
+                if (line instanceof Integer) {
+                    item.add("line", (Integer) line);
+                }
+            }
+            json.add("bugCount", cnt);
+        }
+        json.writeTo(resp);
+    }
+
     @Web
     public void listFilterGroups(Module mod, HTTPRequest req, HTTPResponse resp) {
         mFilters.listFilterGroups(mod, req, resp);
@@ -31,7 +31,6 @@ import com.sonyericsson.chkbugreport.doc.List;
 import com.sonyericsson.chkbugreport.doc.Para;
 import com.sonyericsson.chkbugreport.doc.ProcessLink;
 
-import java.util.HashMap;
 import java.util.Vector;
 
 /* package */ final class Analyzer {
@@ -46,10 +45,26 @@ import java.util.Vector;
         "android.database.sqlite.SQLiteDatabase.",
     };
 
+    private int mLooperLoop;
+    private int mNativePollOnce;
+    private int mMessageQueueNext;
+    private int mBinderExecTransact;
+    private int mNativeExecuteCommand;
+    private int mNativeStartRun;
+
     public Analyzer(StackTracePlugin stackTracePlugin) {
     }
 
     public void analyze(BugReportModule br, Processes processes) {
+        // Resolve the methods once, so they can be looked up by id
+        StackFrames frames = processes.getFrames();
+        mLooperLoop = frames.findMethodId("android.os.Looper.loop");
+        mNativePollOnce = frames.findMethodId("android.os.MessageQueue.nativePollOnce");
+        mMessageQueueNext = frames.findMethodId("android.os.MessageQueue.next");
+        mBinderExecTransact = frames.findMethodId("android.os.Binder.execTransact");
+        mNativeExecuteCommand = frames.findMethodId("android::IPCThreadState::executeCommand(int)");
+        mNativeStartRun = frames.findMethodId("dalvik.system.NativeStart.run");
+
         for (Process p : processes) {
             int cnt = p.getCount();
             for (int i = 0; i < cnt; i++) {
@@ -83,10 +98,10 @@ import java.util.Vector;
             return;
 
         // Check android looper based threads
-        int loopIdx = stack.findMethod("android.os.Looper.loop");
+        int loopIdx = stack.findMethod(mLooperLoop);
         if (loopIdx >= 0) {
-            int waitIdx1 = stack.findMethod("android.os.MessageQueue.nativePollOnce");
-            int waitIdx2 = stack.findMethod("android.os.MessageQueue.next");
+            int waitIdx1 = stack.findMethod(mNativePollOnce);
+            int waitIdx2 = stack.findMethod(mMessageQueueNext);
             if (waitIdx1 < 0 && waitIdx2 < 0) {
                 // This looper based thread seems to be doing something
                 stack.setStyle(0, loopIdx, StackTraceItem.STYLE_BUSY);
@@ -95,21 +110,21 @@ import java.util.Vector;
         }
 
         // Check java binder transactions
-        int binderIdx = stack.findMethod("android.os.Binder.execTransact");
+        int binderIdx = stack.findMethod(mBinderExecTransact);
         if (binderIdx >= 0) {
             stack.setStyle(0, binderIdx, StackTraceItem.STYLE_BUSY);
             p.addBusyThreadStack(stack);
         }
 
         // Check native binder transactions
-        binderIdx = stack.findMethod("android::IPCThreadState::executeCommand(int)");
+        binderIdx = stack.findMethod(mNativeExecuteCommand);
         if (binderIdx >= 0) {
             stack.setStyle(0, binderIdx, StackTraceItem.STYLE_BUSY);
             p.addBusyThreadStack(stack);
         }
 
         // Check NativeStart.run based threads
-        int nativeStartRunIdx = stack.findMethod("dalvik.system.NativeStart.run");
+        int nativeStartRunIdx = stack.findMethod(mNativeStartRun);
         if (!stack.isFirstJavaItem(nativeStartRunIdx)) {
             // Thread is not currently in NativeStart.run, it seems to be doing
             // something
@@ -170,106 +185,16 @@ import java.util.Vector;
     }
 
     private void checkDeadLock(Processes processes, BugReportModule br) {
-        // This hash table contains all the stack traces which are involved in
-        // deadlocks
-        // The key is the thread, the value is the list of threads which
-        // represent the actual deadlock
-        // Thus the key might not be in the actual deadlock, but have a
-        // direct/indirect dependency
-        // towards it
-        HashMap<StackTrace, Vector<StackTrace>> used = new HashMap<StackTrace, Vector<StackTrace>>();
-
-        // Loop all process
-        for (Process proc : processes) {
-            // Loop all threads
-            for (StackTrace stack : proc) {
-
-                if (used.containsKey(stack)) {
-                    // Already found this to be part of a deadlock, or depend on
-                    // it
-                    // Just skip it
-                    continue;
-                }
-
-                // Now we simply follow the dependencies and check if we arrive
-                // back
-                Vector<StackTrace> deps = new Vector<StackTrace>();
-                deps.add(stack);
-                while (true) {
-                    stack = stack.getDependency();
-
-                    if (stack == null) {
-                        // Dead end => no deadlock
-                        // Or item already detected in a deadlock, avoid
-                        // reporting twice
-                        deps.clear();
-                        break;
-                    }
-
-                    Vector<StackTrace> deadlock = used.get(stack);
-                    if (deadlock != null) {
-                        // This means the the previous thread(s) all depend on
-                        // an already
-                        // detected deadlock, so we need to update the
-                        // information
-                        for (StackTrace item : deps) {
-                            used.put(item, deadlock);
-                        }
-                        // also abort current search
-                        deps.clear();
-                        break;
-                    }
-
-                    int idx = deps.indexOf(stack);
-                    if (idx >= 0) {
-                        // dDadlock found, keep track of found items
-                        for (StackTrace item : deps) {
-                            used.put(item, deps);
-                        }
-                        // cycle starts at idx, so we need to get rid of items
-                        // before idx
-                        for (int i = idx - 1; i >= 0; i--) {
-                            deps.remove(i);
-                        }
-                        break;
-                    }
-
-                    deps.add(stack);
-                }
-            }
-        }
-
-        // Now we have all the detected deadlocks in the "used" hashmap, but we
-        // still need to
-        // extract it in a nice way
-        Object[] keys = used.keySet().toArray();
-        int len = keys.length;
-        for (int i = 0; i < len; i++) {
-            StackTrace key = (StackTrace) keys[i];
-            if (key == null)
-                continue; // already processed
-            Vector<StackTrace> deadlock = used.get(key);
-            Vector<StackTrace> blocked = new Vector<StackTrace>();
-            Vector<Process> procList = new Vector<Process>();
-            for (int j = i; j < len; j++) {
-                StackTrace item = (StackTrace) keys[j];
-                if (item != null && deadlock == used.get(item)) {
-                    // This thread is involved in this deadlock
-                    if (!deadlock.contains(item)) {
-                        // If it's not part of the deadlock, then it just
-                        // depends on it
-                        blocked.add(item);
-                    }
-                    // collect process names
-                    if (!procList.contains(item.getProcess())) {
-                        procList.add(item.getProcess());
-                    }
-                    // avoid further processing of this thread
-                    keys[j] = null;
-                }
-            }
+        // Find all the cycles in the graph of the monitor waits and binder transactions
+        WaitGraph graph = new WaitGraph(processes);
+        for (WaitGraph.Deadlock dl : graph.getDeadlocks()) {
+            Vector<StackTrace> deadlock = dl.getThreads();
+            Vector<StackTrace> blocked = dl.getBlocked();
 
             // Collect process names
+            Vector<Process> procList = new Vector<Process>();
+            collectProcesses(procList, deadlock);
+            collectProcesses(procList, blocked);
             StringBuffer procNames = new StringBuffer();
             for (int j = 0; j < procList.size(); j++) {
                 if (j > 0) {
@@ -286,17 +211,25 @@ import java.util.Vector;
                 .add(new Bold(procNames.toString()))
                 .add(" has/have a deadlock involving the following threads (from \"")
                 .add(procList.get(0).getGroup().getName() + "\"):");
-            listThreads(br, msg, deadlock, deadlock);
+            listThreads(br, msg, graph, dl, deadlock);
             if (blocked.size() > 0) {
                 new Para(msg).add("Additionally the following threads are blocked due to this deadlock:");
-                listThreads(br, msg, blocked, deadlock);
+                listThreads(br, msg, graph, dl, blocked);
             }
             br.addBug(bug);
         }
 
     }
 
-    private void listThreads(BugReportModule br, DocNode msg, Vector<StackTrace> list, Vector<StackTrace> referenceList) {
+    private void collectProcesses(Vector<Process> procList, Vector<StackTrace> list) {
+        for (StackTrace stack : list) {
+            if (!procList.contains(stack.getProcess())) {
+                procList.add(stack.getProcess());
+            }
+        }
+    }
+
+    private void listThreads(BugReportModule br, DocNode msg, WaitGraph graph, WaitGraph.Deadlock dl, Vector<StackTrace> list) {
         List l = new List(List.TYPE_UNORDERED, msg);
         for (StackTrace stack : list) {
             Process p = stack.getProcess();
@@ -304,27 +237,33 @@ import java.util.Vector;
             li.add(new ProcessLink(br, p.getPid()));
             li.add(" / ");
             li.add(new Link(stack.getAnchor(), stack.getName()));
-            br.addNodeToThreadsDependencyGraph(stack.getName());
-            StackTrace.WaitInfo stackWaitOn = stack.getWaitOn();
-            if (stackWaitOn != null && referenceList != null) {
-                for (StackTrace s : referenceList) {
-                    if (s.getTid() == stackWaitOn.getThreadId()) {
-                        li.add("  waiting: ");
-                        li.add(new Link(s.getAnchor(), s.getName()));
-                        br.addNodeToThreadsDependencyGraph(s.getName());
-                        br.addEdgeToThreadsDependencyGraph(
-                                stack.getName(),
-                                s.getName(),
-                                stackWaitOn.getLockType());
-                        if (s.getWaitOn().getLockId() != null && s.getWaitOn().getLockType() != null) {
-                            li.add(" for " + stackWaitOn.getLockType());
-                        }
-                        break;
-                    }
+            br.addNodeToThreadsDependencyGraph(getNodeName(stack));
+            // Show which threads of the deadlock this thread is waiting on
+            int cnt = graph.getEdgeCount(stack);
+            for (int i = 0; i < cnt; i++) {
+                StackTrace s = graph.getEdgeTarget(stack, i);
+                if (!graph.isInDeadlock(s, dl)) continue;
+                String lockType = graph.getEdgeLabel(stack, i);
+                li.add("  waiting: ");
+                li.add(new Link(s.getAnchor(), s.getName()));
+                br.addNodeToThreadsDependencyGraph(getNodeName(s));
+                br.addEdgeToThreadsDependencyGraph(getNodeName(stack), getNodeName(s), lockType);
+                if (lockType == WaitGraph.BINDER) {
+                    li.add(" in binder transaction");
+                } else if (lockType != null && stack.getWaitOn().getLockId() != null) {
+                    li.add(" for " + lockType);
                 }
             }
         }
     }
 
+    /**
+     * Returns the name of the thread in the dependency graph. The thread names are not
+     * unique (not even inside a process), so the pid and tid are added as well.
+     */
+    private String getNodeName(StackTrace stack) {
+        return stack.getName() + " (" + stack.getProcess().getPid() + ":" + stack.getTid() + ")";
+    }
+
 }
 
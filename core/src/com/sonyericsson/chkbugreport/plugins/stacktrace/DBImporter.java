@@ -23,28 +23,111 @@ import com.sonyericsson.chkbugreport.BugReportModule;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.HashMap;
 
-/* package */ final class DBImporter {
+/**
+ * Imports the stack traces into the database.
+ *
+ * <p>The rows are sent to the database in batches of a limited size, and each batch is
+ * committed in its own transaction, so the memory usage doesn't grow with the size of
+ * the stack traces. The indexes are created after all the data is loaded.</p>
+ */
+public final class DBImporter {
+
+    /** The default number of rows sent and committed together */
+    public static final int DEF_BATCH_SIZE = 10000;
+
+    /** The pragmas used during the import (the database is a newly created file) */
+    private static final String BULK_LOAD_PRAGMAS[] = {
+        "PRAGMA synchronous = OFF",
+        "PRAGMA temp_store = MEMORY",
+        "PRAGMA cache_size = -16384",
+    };
+
+    private static final String INDEXES[] = {
+        "CREATE INDEX stacktrace_items_thread_id ON stacktrace_items(thread_id)",
+        "CREATE INDEX stacktrace_items_method ON stacktrace_items(method)",
+        "CREATE INDEX stacktrace_threads_process_id ON stacktrace_threads(process_id)",
+    };
 
     private Connection mConn;
+    private int mBatchSize;
+    private int mPending;
+    private PreparedStatement mInsProc;
+    private PreparedStatement mInsThread;
+    private PreparedStatement mInsItem;
 
     public DBImporter(StackTracePlugin stackTracePlugin) {
+        this(stackTracePlugin, DEF_BATCH_SIZE);
+    }
+
+    /**
+     * Creates an importer which sends and commits the rows in batches of the given size.
+     */
+    public DBImporter(StackTracePlugin stackTracePlugin, int batchSize) {
+        mBatchSize = batchSize;
     }
 
     public void importIntoDB(BugReportModule br, HashMap<Integer, Processes> allProcesses) {
-        mConn = br.getSQLConnection();
-        if (mConn != null) {
+        Connection conn = br.getSQLConnection();
+        if (conn != null) {
             try {
-                importIntoDBUnsafe(allProcesses);
+                importIntoDB(conn, allProcesses);
             } catch (SQLException e) {
                 e.printStackTrace();
             }
         }
     }
 
+    /**
+     * Imports the stack traces using the given connection (which must not be in auto-commit mode).
+     */
+    public void importIntoDB(Connection conn, HashMap<Integer, Processes> allProcesses) throws SQLException {
+        mConn = conn;
+        String oldSync = queryPragma("synchronous");
+        setPragmas(BULK_LOAD_PRAGMAS);
+        try {
+            importIntoDBUnsafe(allProcesses);
+        } finally {
+            if (oldSync != null) {
+                setPragmas(new String[] { "PRAGMA synchronous = " + oldSync });
+            }
+        }
+    }
+
+    private String queryPragma(String name) throws SQLException {
+        Statement stat = mConn.createStatement();
+        try {
+            ResultSet rs = stat.executeQuery("PRAGMA " + name);
+            return rs.next() ? rs.getString(1) : null;
+        } finally {
+            stat.close();
+        }
+    }
+
+    /**
+     * Executes the pragmas. The safety level cannot be changed inside a transaction, so this
+     * is done in auto-commit mode (which commits the pending changes of the connection).
+     */
+    private void setPragmas(String pragmas[]) throws SQLException {
+        mConn.setAutoCommit(true);
+        try {
+            Statement stat = mConn.createStatement();
+            try {
+                for (String pragma : pragmas) {
+                    stat.execute(pragma);
+                }
+            } finally {
+                stat.close();
+            }
+        } finally {
+            mConn.setAutoCommit(false);
+        }
+    }
+
     private void importIntoDBUnsafe(HashMap<Integer,Processes> allProcesses) throws SQLException {
         int nextProcessId = 0;
         int nextThreadId = 0;
@@ -60,55 +143,80 @@ import java.util.HashMap;
         stat.execute("CREATE TABLE stacktrace_threads (id int, tid int, name varchar, process_id int)");
         stat.execute("CREATE TABLE stacktrace_items (id int, idx id, method varchar, file varchar, line int, thread_id int)");
         stat.close();
-        PreparedStatement insProc = mConn.prepareStatement("INSERT INTO stacktrace_processes(id,pid,name,group_id) VALUES (?,?,?,?)");
-        PreparedStatement insThread = mConn.prepareStatement("INSERT INTO stacktrace_threads(id,tid,name,process_id) VALUES (?,?,?,?)");
-        PreparedStatement insItem = mConn.prepareStatement("INSERT INTO stacktrace_items(id,idx,method,file,line,thread_id) VALUES (?,?,?,?,?,?)");
-
-        // Handle each process group
-        for (Processes processes : allProcesses.values()) {
-            for (Process process : processes) {
-                int processId = ++nextProcessId;
-                insProc.setInt(1, processId);
-                insProc.setInt(2, process.getPid());
-                insProc.setString(3, process.getName());
-                insProc.setInt(4, processes.getId());
-                insProc.addBatch();
-
-                int threadCnt = process.getCount();
-                for (int i = 0; i < threadCnt; i++) {
-                    int threadId = ++nextThreadId;
-                    StackTrace stack = process.get(i);
-                    insThread.setInt(1, threadId);
-                    insThread.setInt(2, stack.getTid());
-                    insThread.setString(3, stack.getName());
-                    insThread.setInt(4, processId);
-                    insThread.addBatch();
-
-                    int stackSize = stack.getCount();
-                    for (int j = 0; j < stackSize; j++) {
-                        int itemId = ++nextItemId;
-                        StackTraceItem item = stack.get(j);
-                        insItem.setInt(1, itemId);
-                        insItem.setInt(2, j);
-                        insItem.setString(3, item.getMethod());
-                        insItem.setString(4, item.getFileName());
-                        insItem.setInt(5, item.getLine());
-                        insItem.setInt(6, threadId);
-                        insItem.addBatch();
+        mInsProc = mConn.prepareStatement("INSERT INTO stacktrace_processes(id,pid,name,group_id) VALUES (?,?,?,?)");
+        mInsThread = mConn.prepareStatement("INSERT INTO stacktrace_threads(id,tid,name,process_id) VALUES (?,?,?,?)");
+        mInsItem = mConn.prepareStatement("INSERT INTO stacktrace_items(id,idx,method,file,line,thread_id) VALUES (?,?,?,?,?,?)");
+        mPending = 0;
+
+        try {
+            // Handle each process group
+            for (Processes processes : allProcesses.values()) {
+                for (Process process : processes) {
+                    int processId = ++nextProcessId;
+                    mInsProc.setInt(1, processId);
+                    mInsProc.setInt(2, process.getPid());
+                    mInsProc.setString(3, process.getName());
+                    mInsProc.setInt(4, processes.getId());
+                    addBatch(mInsProc);
+
+                    int threadCnt = process.getCount();
+                    for (int i = 0; i < threadCnt; i++) {
+                        int threadId = ++nextThreadId;
+                        StackTrace stack = process.get(i);
+                        mInsThread.setInt(1, threadId);
+                        mInsThread.setInt(2, stack.getTid());
+                        mInsThread.setString(3, stack.getName());
+                        mInsThread.setInt(4, processId);
+                        addBatch(mInsThread);
+
+                        int stackSize = stack.getCount();
+                        for (int j = 0; j < stackSize; j++) {
+                            int itemId = ++nextItemId;
+                            StackTraceItem item = stack.get(j);
+                            mInsItem.setInt(1, itemId);
+                            mInsItem.setInt(2, j);
+                            mInsItem.setString(3, item.getMethod());
+                            mInsItem.setString(4, item.getFileName());
+                            mInsItem.setInt(5, item.getLine());
+                            mInsItem.setInt(6, threadId);
+                            addBatch(mInsItem);
+                        }
                     }
                 }
             }
+            flush();
+        } finally {
+            // Cleanup
+            mInsItem.close();
+            mInsThread.close();
+            mInsProc.close();
         }
 
-        // Cleanup
-        insItem.executeBatch();
-        insItem.close();
-        insThread.executeBatch();
-        insThread.close();
-        insProc.executeBatch();
-        insProc.close();
+        // Create the indexes once the data is loaded, it's faster than updating them on each insert
+        stat = mConn.createStatement();
+        for (String index : INDEXES) {
+            stat.execute(index);
+        }
+        stat.close();
         mConn.commit();
     }
 
+    private void addBatch(PreparedStatement stat) throws SQLException {
+        stat.addBatch();
+        if (++mPending >= mBatchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends the queued rows to the database and commits them.
+     */
+    private void flush() throws SQLException {
+        mInsProc.executeBatch();
+        mInsThread.executeBatch();
+        mInsItem.executeBatch();
+        mConn.commit();
+        mPending = 0;
+    }
 
 }
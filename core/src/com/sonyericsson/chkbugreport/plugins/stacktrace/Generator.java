@@ -25,6 +25,7 @@ import com.sonyericsson.chkbugreport.Module;
 import com.sonyericsson.chkbugreport.ProcessRecord;
 import com.sonyericsson.chkbugreport.doc.Anchor;
 import com.sonyericsson.chkbugreport.doc.Block;
+import com.sonyericsson.chkbugreport.doc.Bug;
 import com.sonyericsson.chkbugreport.doc.Chapter;
 import com.sonyericsson.chkbugreport.doc.DocNode;
 import com.sonyericsson.chkbugreport.doc.Hint;
@@ -35,6 +36,7 @@ import com.sonyericsson.chkbugreport.doc.List;
 import com.sonyericsson.chkbugreport.doc.Para;
 import com.sonyericsson.chkbugreport.doc.ProcessLink;
 import com.sonyericsson.chkbugreport.doc.Span;
+import com.sonyericsson.chkbugreport.doc.Table;
 import com.sonyericsson.chkbugreport.ps.PSRecord;
 import com.sonyericsson.chkbugreport.util.Util;
 
@@ -58,6 +60,90 @@ import java.util.regex.Pattern;
         genChapter(br, id, processes, chapterName);
     }
 
+    /**
+     * Generates the chapter listing the stuck and the churning threads of the slow
+     * stack traces, and reports the stuck threads as a bug.
+     */
+    public void generateSnapshotDiff(BugReportModule br, SnapshotDiff diff, Chapter parent) {
+        int cnt = diff.getSnapshotCount();
+        Vector<SnapshotDiff.ThreadHistory> stuck = diff.getStuckThreads();
+        Vector<SnapshotDiff.ThreadHistory> churning = diff.getChurningThreads();
+
+        Chapter ch = new Chapter(br.getContext(), "Stuck threads");
+        parent.addChapter(ch);
+        new Para(ch)
+            .add("Compared the threads (by pid and tid) in the " + cnt + " stack traces from \""
+                + diff.getSnapshot(0).getName() + "\" to \"" + diff.getSnapshot(cnt - 1).getName() + "\".");
+        new Hint(ch)
+            .add("A thread is stuck if its stack didn't change in at least " + SnapshotDiff.MIN_STUCK_SNAPSHOTS
+                + " consecutive stack traces (threads waiting for work, for example in a message queue, are ignored)."
+                + " A thread is churning if its stack changed between every two consecutive stack traces.");
+        if (stuck.isEmpty() && churning.isEmpty()) {
+            new Para(ch).add("No stuck or churning threads found.");
+            return;
+        }
+
+        Table t = new Table(Table.FLAG_SORT, ch);
+        t.setCSVOutput(br, "stacktrace_slow_threads");
+        t.setTableName(br, "stacktrace_slow_threads");
+        t.addColumn("Verdict", Table.FLAG_NONE, "verdict varchar");
+        t.addColumn("Process", Table.FLAG_NONE, "process varchar");
+        t.addColumn("Pid", Table.FLAG_ALIGN_RIGHT, "pid int");
+        t.addColumn("Thread", Table.FLAG_NONE, "thread varchar");
+        t.addColumn("Tid", Table.FLAG_ALIGN_RIGHT, "tid int");
+        t.addColumn("Seen in", "The number of stack traces containing the thread", Table.FLAG_ALIGN_RIGHT, "seen int");
+        t.addColumn("Changes", "The number of times the stack changed between two consecutive stack traces", Table.FLAG_ALIGN_RIGHT, "changes int");
+        t.addColumn("Unchanged in", "The longest run of consecutive stack traces with the same stack", Table.FLAG_ALIGN_RIGHT, "unchanged int");
+        t.addColumn("Since", "The first stack trace of the longest unchanged run", Table.FLAG_NONE, "since varchar");
+        t.addColumn("Top method", Table.FLAG_NONE, "method varchar");
+        t.begin();
+        for (SnapshotDiff.ThreadHistory th : stuck) {
+            addSnapshotDiffRow(br, t, diff, th, "stuck");
+        }
+        for (SnapshotDiff.ThreadHistory th : churning) {
+            addSnapshotDiffRow(br, t, diff, th, "churning");
+        }
+        t.end();
+
+        if (!stuck.isEmpty()) {
+            Bug bug = new Bug(Bug.Type.PHONE_WARN, Bug.PRIO_STUCK_THREADS, 0, "Stuck threads in the slow stack traces");
+            DocNode msg = new Block(bug).addStyle("bug");
+            new Para(msg).add("The stack of the following threads didn't change in consecutive \"VM traces when slow\":");
+            List list = new List(List.TYPE_UNORDERED, msg);
+            for (SnapshotDiff.ThreadHistory th : stuck) {
+                StackTrace stack = th.getMaxRunStack();
+                new DocNode(list)
+                    .add(new ProcessLink(br, th.getPid()))
+                    .add(" / ")
+                    .add(new Link(stack.getAnchor(), stack.getName()))
+                    .add(" (unchanged in " + th.getMaxRun() + " of " + cnt + " stack traces)");
+            }
+            new Block(msg).add(new Link(ch.getAnchor(), "(more details in chapter \"" + ch.getName() + "\")"));
+            br.addBug(bug);
+        }
+    }
+
+    private void addSnapshotDiffRow(BugReportModule br, Table t, SnapshotDiff diff, SnapshotDiff.ThreadHistory th, String verdict) {
+        StackTrace stack = th.getMaxRunStack();
+        t.addData(verdict);
+        t.addData(stack.getProcess().getName());
+        t.addData(th.getPid());
+        t.addData(new Link(stack.getAnchor(), null).add(stack.getName()));
+        t.addData(th.getTid());
+        t.addData(th.getSeen());
+        t.addData(th.getChanges());
+        t.addData(th.getMaxRun());
+        t.addData(diff.getSnapshot(th.getMaxRunFrom()).getName());
+        String method = null;
+        for (StackTraceItem item : stack) {
+            if (item.getMethod() != null) {
+                method = item.getMethod();
+                break;
+            }
+        }
+        t.addData(method == null ? "" : method);
+    }
+
     private void genChapter(BugReportModule br, int id, Processes processes, String chapterName) {
         Chapter main = processes.getChapter();
         Calendar tsBr = br.getTimestamp();
@@ -133,7 +219,7 @@ import java.util.regex.Pattern;
                     if(item.getRaw() != null && item.getType() == StackTraceItem.Type.JAVA) {
                         stItem.addStyle("stacktrace-item-java");
                         new Span(stItem)
-                            .addStyle(item.getStyle())
+                            .addStyle(stack.getStyle(j))
                             .setTitle("Raw unparsed stacktrace line")
                             .add(item.getRaw());
                         continue;
@@ -142,7 +228,7 @@ import java.util.regex.Pattern;
                         stItem.addStyle("stacktrace-item-java");
                         new Span(stItem)
                             .addStyle("stacktrace-item-method")
-                            .addStyle(item.getStyle())
+                            .addStyle(stack.getStyle(j))
                             .add(item.getMethod());
                     } else {
                         stItem.addStyle("stacktrace-item-native");
@@ -155,7 +241,7 @@ import java.util.regex.Pattern;
                         }
                         new Span(stItem)
                             .addStyle("stacktrace-item-method")
-                            .addStyle(item.getStyle())
+                            .addStyle(stack.getStyle(j))
                             .add(method);
                     }
                     if (item.getFileName() != null) {
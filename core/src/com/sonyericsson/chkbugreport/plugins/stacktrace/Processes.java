@@ -32,8 +32,14 @@ public final class Processes extends Vector<Process> {
     private String mSectionName;
     private Vector<StackTrace> mBusy = new Vector<StackTrace>();
     private Chapter mCh;
+    private StackFrames mFrames;
 
     public Processes(Module report, int id, String name, String sectionName) {
+        this(report, id, name, sectionName, new StackFrames());
+    }
+
+    public Processes(Module report, int id, String name, String sectionName, StackFrames frames) {
+        mFrames = frames;
         mId = id;
         mName = name;
         mSectionName = sectionName;
@@ -56,6 +62,13 @@ public final class Processes extends Vector<Process> {
         return mCh;
     }
 
+    /**
+     * Returns the dictionary of the stack frames used by the stack traces.
+     */
+    public StackFrames getFrames() {
+        return mFrames;
+    }
+
     private static final long serialVersionUID = 1L;
 
     public void addBusyThreadStack(StackTrace stack) {
@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.plugins.stacktrace;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Vector;
+
+/**
+ * Compares consecutive stack trace snapshots (for example the "VM TRACES WHEN SLOW"
+ * sections) to find the threads which are stuck (their stack didn't change between the
+ * snapshots) and the ones which are churning (their stack changed every time).
+ *
+ * <p>The threads are aligned by (pid, tid), and the stacks are compared by their
+ * fingerprint, so each snapshot is processed in linear time.</p>
+ */
+public final class SnapshotDiff {
+
+    /** The number of consecutive identical snapshots needed to consider a thread stuck */
+    public static final int MIN_STUCK_SNAPSHOTS = 2;
+
+    /** The number of stack changes needed to consider a thread churning */
+    public static final int MIN_CHURN_CHANGES = 2;
+
+    /** Threads waiting in these methods are idle, even if their stack doesn't change */
+    private static final String IDLE_METHODS[] = {
+        "android.os.MessageQueue.nativePollOnce",
+        "java.lang.Object.wait",
+        "java.lang.Thread.sleep",
+        "sun.misc.Unsafe.park",
+        "jdk.internal.misc.Unsafe.park",
+        "java.lang.Thread.parkFor$",
+        "dalvik.system.NativeStart.run",
+    };
+
+    private Vector<Processes> mSnapshots = new Vector<Processes>();
+    private HashMap<Long, ThreadHistory> mThreads = new HashMap<Long, ThreadHistory>();
+    private Vector<ThreadHistory> mOrder = new Vector<ThreadHistory>();
+
+    /**
+     * The history of one thread across the snapshots.
+     */
+    public static final class ThreadHistory {
+
+        private int mPid;
+        private int mTid;
+        private StackTrace mLast;
+        private int mLastSnapshot = -1;
+        private int mSeen;
+        private int mTransitions;
+        private int mChanges;
+        private int mRun;
+        private int mRunFrom;
+        private StackTrace mRunStack;
+        private int mMaxRun;
+        private int mMaxRunFrom;
+        private StackTrace mMaxRunStack;
+
+        /* package */ ThreadHistory(int pid, int tid) {
+            mPid = pid;
+            mTid = tid;
+        }
+
+        public int getPid() {
+            return mPid;
+        }
+
+        public int getTid() {
+            return mTid;
+        }
+
+        /** Returns the thread in the last snapshot it was seen in */
+        public StackTrace getLast() {
+            return mLast;
+        }
+
+        /** Returns the number of snapshots the thread was seen in */
+        public int getSeen() {
+            return mSeen;
+        }
+
+        /** Returns the number of times the thread was seen in two consecutive snapshots */
+        public int getTransitions() {
+            return mTransitions;
+        }
+
+        /** Returns how many times the stack changed between two consecutive snapshots */
+        public int getChanges() {
+            return mChanges;
+        }
+
+        /** Returns the length of the longest run of consecutive snapshots with the same stack */
+        public int getMaxRun() {
+            return mMaxRun;
+        }
+
+        /** Returns the index of the first snapshot of the longest run */
+        public int getMaxRunFrom() {
+            return mMaxRunFrom;
+        }
+
+        /** Returns the thread (in the first snapshot) of the longest run */
+        public StackTrace getMaxRunStack() {
+            return mMaxRunStack;
+        }
+
+    }
+
+    /**
+     * Adds the next snapshot. The snapshots must be added in chronological order.
+     */
+    public void add(Processes snapshot) {
+        int idx = mSnapshots.size();
+        mSnapshots.add(snapshot);
+        for (Process proc : snapshot) {
+            for (StackTrace stack : proc) {
+                Long key = ((long) proc.getPid() << 32) | (stack.getTid() & 0xffffffffL);
+                ThreadHistory th = mThreads.get(key);
+                if (th == null) {
+                    th = new ThreadHistory(proc.getPid(), stack.getTid());
+                    mThreads.put(key, th);
+                    mOrder.add(th);
+                } else if (th.mLastSnapshot == idx) {
+                    continue; // Same tid twice in the same process, use the first one
+                }
+                update(th, idx, stack);
+            }
+        }
+    }
+
+    private void update(ThreadHistory th, int idx, StackTrace stack) {
+        if (th.mLastSnapshot == idx - 1 && th.mLast != null) {
+            th.mTransitions++;
+            if (th.mLast.getFingerprint() == stack.getFingerprint()) {
+                th.mRun++;
+            } else {
+                th.mChanges++;
+                startRun(th, idx, stack);
+            }
+        } else {
+            // First time seen, or it was missing from the previous snapshot
+            startRun(th, idx, stack);
+        }
+        if (th.mRun > th.mMaxRun) {
+            th.mMaxRun = th.mRun;
+            th.mMaxRunFrom = th.mRunFrom;
+            th.mMaxRunStack = th.mRunStack;
+        }
+        th.mSeen++;
+        th.mLast = stack;
+        th.mLastSnapshot = idx;
+    }
+
+    private void startRun(ThreadHistory th, int idx, StackTrace stack) {
+        th.mRun = 1;
+        th.mRunFrom = idx;
+        th.mRunStack = stack;
+    }
+
+    /**
+     * Returns the number of snapshots added so far.
+     */
+    public int getSnapshotCount() {
+        return mSnapshots.size();
+    }
+
+    public Processes getSnapshot(int idx) {
+        return mSnapshots.get(idx);
+    }
+
+    /**
+     * Returns the threads which had the same (not idle) stack in at least
+     * MIN_STUCK_SNAPSHOTS consecutive snapshots, the longest runs first.
+     */
+    public Vector<ThreadHistory> getStuckThreads() {
+        Vector<ThreadHistory> ret = new Vector<ThreadHistory>();
+        for (ThreadHistory th : mOrder) {
+            if (th.mMaxRun >= MIN_STUCK_SNAPSHOTS && !isIdle(th.mMaxRunStack)) {
+                ret.add(th);
+            }
+        }
+        Collections.sort(ret, new Comparator<ThreadHistory>() {
+            @Override
+            public int compare(ThreadHistory o1, ThreadHistory o2) {
+                return o2.mMaxRun - o1.mMaxRun;
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Returns the threads whose stack changed between every pair of consecutive snapshots
+     * (at least MIN_CHURN_CHANGES times), the most changes first.
+     */
+    public Vector<ThreadHistory> getChurningThreads() {
+        Vector<ThreadHistory> ret = new Vector<ThreadHistory>();
+        for (ThreadHistory th : mOrder) {
+            if (th.mChanges >= MIN_CHURN_CHANGES && th.mChanges == th.mTransitions) {
+                ret.add(th);
+            }
+        }
+        Collections.sort(ret, new Comparator<ThreadHistory>() {
+            @Override
+            public int compare(ThreadHistory o1, ThreadHistory o2) {
+                return o2.mChanges - o1.mChanges;
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Returns true if the thread is idle: its first java frame is waiting for work
+     * (or it has no java frames at all, like the native binder threads).
+     */
+    public static boolean isIdle(StackTrace stack) {
+        int cnt = stack.getCount();
+        for (int i = 0; i < cnt; i++) {
+            StackTraceItem item = stack.get(i);
+            if (item.getType() != StackTraceItem.Type.JAVA) continue;
+            String method = item.getMethod();
+            if (method == null && item.getRaw() != null) {
+                // Frames without line numbers, like "nativePollOnce(Native method)", are not parsed
+                int idx = item.getRaw().indexOf('(');
+                method = (idx < 0) ? item.getRaw() : item.getRaw().substring(0, idx);
+            }
+            for (String idle : IDLE_METHODS) {
+                if (idle.equals(method)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+}
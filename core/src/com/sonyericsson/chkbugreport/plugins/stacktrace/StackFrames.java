@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.plugins.stacktrace;
+
+import java.util.HashMap;
+import java.util.Vector;
+
+/**
+ * The dictionary of the stack frames of a bugreport.
+ *
+ * <p>The same frames (for example Looper.loop or the binder frames) appear in many
+ * threads and in every stack trace section, so each distinct frame is stored only once
+ * and the stack traces refer to it by id. The method names get an id as well, so looking
+ * for a method in a stack trace is an integer comparison.</p>
+ *
+ * <p>Frames can be added from several threads at the same time. The lookups are meant to
+ * be used once the stack traces are parsed.</p>
+ */
+public final class StackFrames {
+
+    /** The id returned for unknown methods, it never matches any frame */
+    public static final int NO_METHOD = -1;
+
+    private Vector<StackTraceItem> mFrames = new Vector<StackTraceItem>();
+    private HashMap<StackTraceItem, Integer> mFrameIds = new HashMap<StackTraceItem, Integer>();
+    private HashMap<String, Integer> mMethodIds = new HashMap<String, Integer>();
+    private int mFrameMethods[] = new int[256];
+
+    /**
+     * Adds the frame to the dictionary, unless an equal frame is already there.
+     * @param item The frame
+     * @return The id of the frame
+     */
+    public synchronized int add(StackTraceItem item) {
+        Integer id = mFrameIds.get(item);
+        if (id != null) {
+            return id;
+        }
+        int ret = mFrames.size();
+        mFrames.add(item);
+        mFrameIds.put(item, ret);
+        if (ret == mFrameMethods.length) {
+            int tmp[] = new int[ret * 2];
+            System.arraycopy(mFrameMethods, 0, tmp, 0, ret);
+            mFrameMethods = tmp;
+        }
+        mFrameMethods[ret] = addMethod(item.getMethod());
+        return ret;
+    }
+
+    private int addMethod(String method) {
+        if (method == null) {
+            return NO_METHOD;
+        }
+        Integer id = mMethodIds.get(method);
+        if (id == null) {
+            id = mMethodIds.size();
+            mMethodIds.put(method, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the frame with the given id.
+     */
+    public StackTraceItem get(int id) {
+        return mFrames.get(id);
+    }
+
+    /**
+     * Returns the id of the method of the frame with the given id, or NO_METHOD
+     * if the method is not known.
+     */
+    public int getMethodId(int id) {
+        return mFrameMethods[id];
+    }
+
+    /**
+     * Returns the id of the method name, or NO_METHOD if no frame has this method.
+     */
+    public synchronized int findMethodId(String method) {
+        Integer id = mMethodIds.get(method);
+        return (id == null) ? NO_METHOD : id;
+    }
+
+    /**
+     * Returns the number of distinct frames.
+     */
+    public int getCount() {
+        return mFrames.size();
+    }
+
+}
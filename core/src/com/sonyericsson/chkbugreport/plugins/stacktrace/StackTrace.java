@@ -23,13 +23,23 @@ import com.sonyericsson.chkbugreport.doc.Anchor;
 
 import java.lang.ref.WeakReference;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Vector;
 
 /* package */
 public final class StackTrace implements Iterable<StackTraceItem> {
 
+    private static final int EMPTY[] = new int[0];
+
     private String mName;
-    private Vector<StackTraceItem> mStack = new Vector<StackTraceItem>();
+    private StackFrames mFrames;
+    /** The ids of the frames in the StackFrames dictionary */
+    private int mStack[] = EMPTY;
+    private int mCount;
+    /** The css styles of the items, if they differ from the default one */
+    private String mStyles[];
+    /** The hash of the frame ids, 0 if not calculated yet */
+    private long mFingerprint;
     private int mTid;
     private int mPrio;
     private String mState;
@@ -66,6 +76,7 @@ public final class StackTrace implements Iterable<StackTraceItem> {
 
     public StackTrace(Process process, String name, int tid, int prio, String threadState) {
         mProc = new WeakReference<Process>(process);
+        mFrames = process.getGroup().getFrames();
         mName = name;
         mTid = tid;
         mPrio = prio;
@@ -112,15 +123,37 @@ public final class StackTrace implements Iterable<StackTraceItem> {
     public void setStyle(int from, int to, String style) {
         from = Math.max(0, from);
         to = Math.min(getCount(), to);
+        if (from >= to) {
+            return;
+        }
+        if (mStyles == null) {
+            mStyles = new String[mCount];
+        }
         for (int i = from; i < to; i++) {
-            get(i).setStyle(style);
+            mStyles[i] = style;
         }
     }
 
+    public String getStyle(int idx) {
+        String ret = (mStyles == null || idx >= mStyles.length) ? null : mStyles[idx];
+        return (ret == null) ? get(idx).getStyle() : ret;
+    }
+
     public int findMethod(String methodName) {
-        int cnt = getCount();
-        for (int i = 0; i < cnt; i++) {
-            if (methodName.equals(get(i).getMethod())) {
+        return findMethod(mFrames.findMethodId(methodName));
+    }
+
+    /**
+     * Finds the first item calling the method.
+     * @param methodId The id of the method, as returned by StackFrames.findMethodId()
+     * @return The index of the item or -1 if not found
+     */
+    public int findMethod(int methodId) {
+        if (methodId == StackFrames.NO_METHOD) {
+            return -1;
+        }
+        for (int i = 0; i < mCount; i++) {
+            if (mFrames.getMethodId(mStack[i]) == methodId) {
                 return i;
             }
         }
@@ -170,15 +203,50 @@ public final class StackTrace implements Iterable<StackTraceItem> {
     }
 
     public void addStackTraceItem(StackTraceItem item) {
-        mStack.add(item);
+        if (mCount == mStack.length) {
+            int tmp[] = new int[Math.max(8, mCount * 2)];
+            System.arraycopy(mStack, 0, tmp, 0, mCount);
+            mStack = tmp;
+        }
+        mStack[mCount++] = mFrames.add(item);
+        mFingerprint = 0;
     }
 
     public int getCount() {
-        return mStack.size();
+        return mCount;
     }
 
     public StackTraceItem get(int idx) {
-        return mStack.get(idx);
+        if (idx >= mCount) {
+            throw new ArrayIndexOutOfBoundsException(idx + " >= " + mCount);
+        }
+        return mFrames.get(mStack[idx]);
+    }
+
+    /**
+     * Returns the id of the item in the StackFrames dictionary.
+     */
+    public int getFrameId(int idx) {
+        if (idx >= mCount) {
+            throw new ArrayIndexOutOfBoundsException(idx + " >= " + mCount);
+        }
+        return mStack[idx];
+    }
+
+    /**
+     * Returns a 64 bit hash of the stack. Since the frames are shared in the bugreport,
+     * the same stack has the same fingerprint in every stack trace section.
+     */
+    public long getFingerprint() {
+        if (mFingerprint == 0) {
+            long h = 0xcbf29ce484222325L ^ mCount;
+            for (int i = 0; i < mCount; i++) {
+                h = (h ^ mStack[i]) * 0x100000001b3L;
+                h ^= h >>> 29;
+            }
+            mFingerprint = (h == 0) ? 1 : h;
+        }
+        return mFingerprint;
     }
 
     public void setAidlDependency(StackTrace dstThread) {
@@ -198,7 +266,27 @@ public final class StackTrace implements Iterable<StackTraceItem> {
 
     @Override
     public Iterator<StackTraceItem> iterator() {
-        return mStack.iterator();
+        return new Iterator<StackTraceItem>() {
+            private int mIdx;
+
+            @Override
+            public boolean hasNext() {
+                return mIdx < mCount;
+            }
+
+            @Override
+            public StackTraceItem next() {
+                if (mIdx >= mCount) {
+                    throw new NoSuchElementException();
+                }
+                return get(mIdx++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
     }
 
     public Anchor getAnchor() {
@@ -19,6 +19,10 @@
  */
 package com.sonyericsson.chkbugreport.plugins.stacktrace;
 
+/**
+ * One frame of a stack trace. The frames are shared between the stack traces (see
+ * StackFrames), so they cannot be modified.
+ */
 /* package */
 public final class StackTraceItem {
 
@@ -46,7 +50,7 @@ public final class StackTraceItem {
     private int mLine;
     /** For native stack traces, the pc address */
     private long mPC; // long, because soon we could have 64bit addresses
-    /** The css style to use for the item */
+    /** The default css style to use for the item */
     private String mStyle = "";
 
 
@@ -121,14 +125,14 @@ public final class StackTraceItem {
         return mType;
     }
 
+    /**
+     * Returns the default css style of the item. Use StackTrace.getStyle() to get the
+     * style of the item in a given stack trace.
+     */
     public String getStyle() {
         return mStyle;
     }
 
-    public void setStyle(String style) {
-        mStyle = style;
-    }
-
     public String getMethod() {
         return mMethod;
     }
@@ -155,4 +159,40 @@ public final class StackTraceItem {
     public String getRaw() {
         return mRaw;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StackTraceItem)) {
+            return false;
+        }
+        StackTraceItem other = (StackTraceItem) o;
+        return mType == other.mType
+                && mLine == other.mLine
+                && mMethodOffset == other.mMethodOffset
+                && mOffset == other.mOffset
+                && mPC == other.mPC
+                && equals(mMethod, other.mMethod)
+                && equals(mFileName, other.mFileName)
+                && equals(mRaw, other.mRaw);
+    }
+
+    private static boolean equals(String a, String b) {
+        return (a == null) ? b == null : a.equals(b);
+    }
+
+    @Override
+    public int hashCode() {
+        int ret = mType.hashCode();
+        ret = 31 * ret + (mMethod == null ? 0 : mMethod.hashCode());
+        ret = 31 * ret + (mFileName == null ? 0 : mFileName.hashCode());
+        ret = 31 * ret + (mRaw == null ? 0 : mRaw.hashCode());
+        ret = 31 * ret + mLine;
+        ret = 31 * ret + mMethodOffset;
+        ret = 31 * ret + (int) (mOffset ^ (mOffset >>> 32));
+        ret = 31 * ret + (int) (mPC ^ (mPC >>> 32));
+        return ret;
+    }
 }
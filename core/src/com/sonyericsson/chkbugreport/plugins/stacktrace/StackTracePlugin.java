@@ -30,6 +30,8 @@ import com.sonyericsson.chkbugreport.ps.PSRecord;
 import com.sonyericsson.chkbugreport.util.LineReader;
 import com.sonyericsson.chkbugreport.util.Util;
 
+import java.util.Calendar;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Vector;
@@ -64,6 +66,8 @@ public final class StackTracePlugin extends Plugin {
 
     private HashMap<Integer, Processes> mProcesses = new HashMap<Integer, Processes>();
 
+    private StackFrames mFrames = new StackFrames();
+
     private Chapter mSlowChapters;
 
     @Override
@@ -71,10 +75,27 @@ public final class StackTracePlugin extends Plugin {
         return 10;
     }
 
+    @Override
+    public String[] getConsumedData() {
+        return new String[] {
+                Section.VM_TRACES_JUST_NOW,
+                Section.VM_TRACES_AT_LAST_ANR,
+                "VM TRACES",
+                "VM TRACES WHEN SLOW",
+                Section.BINDER_STATE,
+        };
+    }
+
+    @Override
+    public String[] getProducedData() {
+        return new String[0];
+    }
+
     @Override
     public void reset() {
         // Reset state
         mProcesses.clear();
+        mFrames = new StackFrames();
         mSlowChapters = null;
     }
 
@@ -192,6 +213,41 @@ public final class StackTracePlugin extends Plugin {
                     return o1.getName().compareTo(o2.getName());
                 }
             });
+
+            // Compare the consecutive slow snapshots, in the order they were taken
+            // (the sections are not necessarily in that order in the bugreport)
+            final HashMap<Processes, Long> times = new HashMap<Processes, Long>();
+            Vector<Processes> slow = new Vector<Processes>();
+            for (int id = ID_SLOW; mProcesses.containsKey(id); id++) {
+                Processes processes = mProcesses.get(id);
+                Calendar cal = Util.parseTimestamp(br, processes.getSectionName());
+                if (cal != null) {
+                    times.put(processes, cal.getTimeInMillis() / 1000); // Only the seconds are set
+                }
+                slow.add(processes);
+            }
+            Collections.sort(slow, new Comparator<Processes>() {
+                @Override
+                public int compare(Processes o1, Processes o2) {
+                    Long t1 = times.get(o1);
+                    Long t2 = times.get(o2);
+                    if (t1 == null || t2 == null) {
+                        if (t1 != t2) {
+                            return (t1 == null) ? 1 : -1; // The ones without timestamp go last
+                        }
+                    } else if (!t1.equals(t2)) {
+                        return t1.compareTo(t2);
+                    }
+                    return o1.getName().compareTo(o2.getName());
+                }
+            });
+            SnapshotDiff diff = new SnapshotDiff();
+            for (Processes processes : slow) {
+                diff.add(processes);
+            }
+            if (diff.getSnapshotCount() > 1) {
+                new Generator(this).generateSnapshotDiff(br, diff, mSlowChapters);
+            }
         }
 
         // Import data into DB as well
@@ -207,6 +263,13 @@ public final class StackTracePlugin extends Plugin {
         mSlowChapters.addChapter(main);
     }
 
+    /**
+     * Returns the dictionary of the stack frames, shared by all the stack trace sections.
+     */
+    public StackFrames getFrames() {
+        return mFrames;
+    }
+
     @Override
     public void autodetect(Module module, byte[] buff, int offs, int len, GuessedValue<String> type) {
         String patterns[] = {
@@ -25,11 +25,22 @@ import com.sonyericsson.chkbugreport.Section;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * This class is responsible to scan the stack trace output and collect the data
+ *
+ * <p>The section is scanned in two steps: first the process blocks ("----- pid" until
+ * "----- end") are found, running the same state machine as the parser, but only checking
+ * the beginning of the lines. Then the blocks are parsed, in parallel if multiple threads
+ * are enabled (see Context.getThreadCount()). The processes are added and the messages
+ * printed while parsing are printed in the original order, and the first block which cannot
+ * be parsed stops the scanning, so the result is the same as if the section was parsed
+ * sequentially.</p>
  */
 /* package */
 
@@ -38,181 +49,441 @@ public final class StackTraceScanner {
         INIT, PROC, STACK
     }
 
+    private static final Pattern NATIVE_FRAME = Pattern.compile("\\s+#\\d+\\s+pc\\s+([\\da-f]+)\\s+([^() ]+)\\s+(?:\\((.*)\\+(\\d+)\\))?\\s?+(?:\\(BuildId:\\s(.*)\\))?\\s?+(?:\\(offset ([\\da-f]+)\\)\\s+\\(\\?\\?\\?\\))?");
+    private static final Pattern NATIVE_FRAME_ALT = Pattern.compile("\\s+#\\d+\\s+pc\\s+([\\da-f]+)\\s+<(.*)>");
+
+    private static final String[] WAITING_NEEDLES = {
+        "held by threadid=",
+        "held by tid=",
+        "held by thread ",
+    };
+
+    /** The minimum number of lines worth parsing in parallel */
+    private static final int MIN_PARALLEL_LINES = 2000;
+
+    private StackFrames mFrames;
+
     public StackTraceScanner(StackTracePlugin stackTracePlugin) {
+        // Share the frames between all the stack trace sections of the bugreport
+        mFrames = (stackTracePlugin == null) ? null : stackTracePlugin.getFrames();
+        if (mFrames == null) {
+            mFrames = new StackFrames();
+        }
     }
 
     public Processes scan(BugReportModule br, int id, Section sec, String chapterName) {
-        Pattern pNat = Pattern.compile("\\s+#\\d+\\s+pc\\s+([\\da-f]+)\\s+([^() ]+)\\s+(?:\\((.*)\\+(\\d+)\\))?\\s?+(?:\\(BuildId:\\s(.*)\\))?\\s?+(?:\\(offset ([\\da-f]+)\\)\\s+\\(\\?\\?\\?\\))?");
-        Pattern pNatAlt = Pattern.compile("\\s+#\\d+\\s+pc\\s+([\\da-f]+)\\s+<(.*)>");
+        Processes processes = new Processes(br, id, chapterName, sec.getName(), mFrames);
+        Vector<Block> blocks = findBlocks(br, sec, processes);
+
+        // Parse the content of the processes
+        int lines = 0;
+        for (Block block : blocks) {
+            lines += block.mTo - block.mFrom;
+        }
+        int threads = br.getContext().getThreadCount();
+        boolean parallel = threads > 1 && blocks.size() > 1 && lines >= MIN_PARALLEL_LINES;
+        if (parallel) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.invoke(new ParseTask(blocks, 0, blocks.size()));
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        // Add the processes and print the messages in the same order as when parsing sequentially,
+        // and stop at the first block which couldn't be parsed (the rest of it is dropped)
+        for (Block block : blocks) {
+            if (!parallel) {
+                block.parse();
+            }
+            block.flushMessages();
+            if (block.mProc != null) {
+                processes.add(block.mProc);
+            }
+            if (block.mError != null) {
+                throw block.mError;
+            }
+        }
+        return processes;
+    }
+
+    /**
+     * Finds the processes in the section (in the same order as they appear).
+     */
+    private Vector<Block> findBlocks(BugReportModule br, Section sec, Processes processes) {
+        Vector<Block> blocks = new Vector<Block>();
         int cnt = sec.getLineCount();
         State state = State.INIT;
-        Processes processes = new Processes(br, id, chapterName, sec.getName());
-        Process curProc = null;
-        StackTrace curStackTrace = null;
+        Block block = null;
         for (int i = 0; i < cnt; i++) {
             String buff = sec.getLine(i);
             switch (state) {
                 case INIT:
                     if (buff.startsWith("----- pid ")) {
                         state = State.PROC;
-                        String fields[] = buff.split(" ");
-                        int pid = Integer.parseInt(fields[2]);
-                        curProc = new Process(br, processes, pid, fields[4], fields[5]);
-                        processes.add(curProc);
+                        block = new Block(br, sec, processes, i + 1);
+                        blocks.add(block);
                     }
                     break;
                 case PROC:
                     if (buff.startsWith("----- end ")) {
-                        curProc = null;
+                        block.mTo = i;
+                        block = null;
                         state = State.INIT;
-                    } else if (buff.startsWith("Cmd line: ")) {
-                        curProc.setName(buff.substring(10));
                     } else if (buff.startsWith("\"")) {
                         state = State.STACK;
-                        int idx = buff.indexOf('"', 1);
-                        String name = buff.substring(1, idx);
-                        String fields[] = buff.substring(idx + 2).split(" ");
-                        String threadState = "?";
-                        int prio = -1, tid = -1;
-                        String sysTid = null;
-                        int fieldCount = fields.length;
-
-                        // Check for native only threads
-                        if (fieldCount == 1 && fields[0].startsWith("sysTid=")) {
-                            threadState = "NATIVE_THREAD";
-                            sysTid = fields[0];
-                        }
-
-                        for (int fi = 0; fi < fieldCount; fi++) {
-                            String f = fields[fi];
-                            idx = f.indexOf('=');
-                            if (idx < 0) {
-                                // Keyword
-                                if (fi == fieldCount-1) {
-                                    threadState = f;
-                                }
-                            } else {
-                                // key=value
-                                String key = f.substring(0, idx);
-                                String value = f.substring(idx + 1);
-                                if (key.equals("prio")) {
-                                    prio = Integer.parseInt(value);
-                                } else if (key.equals("tid")) {
-                                    tid = Integer.parseInt(value);
-                                }
-                            }
-                        }
-                        curStackTrace = new StackTrace(curProc, name, tid, prio, threadState);
-                        curProc.addStackTrace(curStackTrace);
-                        if (sysTid != null) {
-                            curStackTrace.parseProperties(sysTid);
-                        }
                     }
                     break;
                 case STACK:
                     if (!buff.startsWith("  ")) {
                         state = State.PROC;
-                        curStackTrace = null;
-                    } else if (buff.startsWith("  | ")) {
-                        // Parse the extra properties
-                        curStackTrace.parseProperties(buff.substring(4));
-                    } else if (buff.startsWith("  - ")) {
-                        buff = buff.substring(4);
-                        StackTraceItem item = new StackTraceItem("", buff, 0);
-                        curStackTrace.addStackTraceItem(item);
-                        if (buff.startsWith("waiting ")) {
-                            processWaitingToLockLine(curStackTrace, buff);
-                        }
-                    } else if (buff.startsWith("  at ")) {
-                        int idx0 = buff.indexOf('(');
-                        int idx1 = buff.indexOf(':');
-                        int idx2 = buff.indexOf(')');
-                        if (idx0 >= 0 && idx2 >= 0 && idx2 > idx0) {
-                            String method = buff.substring(5, idx0);
-                            String fileName = null;
-                            int line = -1;
-                            if (idx1 >= 0 && idx1 > idx0 && idx2 > idx1) {
-                                fileName = buff.substring(idx0 + 1, idx1);
-                                String lineS = buff.substring(idx1 + 1, idx2);
-                                if (lineS.startsWith("~")) {
-                                    lineS = lineS.substring(1);
-                                } else if (lineS.lastIndexOf(':') > 0) {
-                                    int position = lineS.lastIndexOf(':');
-                                    lineS = lineS.substring(position+1);
-                                }
-                                try {
-                                    line = Integer.parseInt(lineS);
-                                } catch(NumberFormatException e) {
-                                    br.printOut(4, "Inserting raw line for unparsable: " + buff);
-                                }
-                            }
-                            StackTraceItem item = (fileName != null && line != -1)
-                                ? new StackTraceItem(method, fileName, line)
-                                : new StackTraceItem(buff.substring(buff.indexOf("at ") + 3), StackTraceItem.Type.JAVA);
+                    }
+                    break;
+            }
+        }
+        if (block != null) {
+            block.mTo = cnt;
+        }
+        return blocks;
+    }
 
-                            curStackTrace.addStackTraceItem(item);
-                        }
-                    } else if (buff.trim().startsWith("#") || buff.trim().startsWith("native: #")) {
-                        //Trim off Native:
-                        if(buff.trim().startsWith("native")) {
-                            buff = buff.substring(buff.indexOf(" #"));
+    /**
+     * Returns the given field of a line, the same way as line.split(" ")[idx].
+     */
+    private static String getField(String line, int idx) {
+        int len = line.length();
+        // Trailing empty fields are not counted
+        while (len > 0 && line.charAt(len - 1) == ' ') {
+            len--;
+        }
+        int start = 0;
+        for (int i = 0; i < idx; i++) {
+            start = line.indexOf(' ', start) + 1;
+            if (start <= 0 || start > len) {
+                throw new ArrayIndexOutOfBoundsException(idx);
+            }
+        }
+        int end = line.indexOf(' ', start);
+        if (end < 0 || end > len) {
+            end = len;
+        }
+        return line.substring(start, end);
+    }
+
+    /**
+     * Parses the given int, the same way as Integer.parseInt(s.substring(from, to)).
+     */
+    private static int parseInt(String s, int from, int to) {
+        boolean neg = false;
+        int i = from;
+        if (i < to && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            neg = s.charAt(i) == '-';
+            i++;
+        }
+        if (i >= to) {
+            throw new NumberFormatException("For input string: \"" + s.substring(from, to) + "\"");
+        }
+        long ret = 0;
+        for (; i < to; i++) {
+            int d = Character.digit(s.charAt(i), 10);
+            if (d < 0) {
+                throw new NumberFormatException("For input string: \"" + s.substring(from, to) + "\"");
+            }
+            ret = ret * 10 + d;
+            if (ret > (neg ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE)) {
+                throw new NumberFormatException("For input string: \"" + s.substring(from, to) + "\"");
+            }
+        }
+        return (int) (neg ? -ret : ret);
+    }
+
+    /**
+     * Parses blocks in parallel.
+     */
+    @SuppressWarnings("serial")
+    private static class ParseTask extends RecursiveAction {
+
+        private Vector<Block> mBlocks;
+        private int mFrom;
+        private int mTo;
+
+        public ParseTask(Vector<Block> blocks, int from, int to) {
+            mBlocks = blocks;
+            mFrom = from;
+            mTo = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (mTo - mFrom == 1) {
+                mBlocks.get(mFrom).parse();
+            } else {
+                int mid = (mFrom + mTo) >>> 1;
+                invokeAll(new ParseTask(mBlocks, mFrom, mid), new ParseTask(mBlocks, mid, mTo));
+            }
+        }
+
+    }
+
+    /**
+     * The lines of one process (after the "----- pid" line, until the "----- end" line).
+     */
+    private static class Block {
+
+        private BugReportModule mBr;
+        private Section mSec;
+        private Processes mProcesses;
+        private int mFrom;
+        private int mTo;
+        /** The process, created from the "----- pid" line when parsing the block */
+        private Process mProc;
+        /** The error which stopped the parsing of the block, if any */
+        private RuntimeException mError;
+        /** The messages printed while parsing: the level (negative for errors) and the text */
+        private List<Object> mMessages;
+
+        public Block(BugReportModule br, Section sec, Processes processes, int from) {
+            mBr = br;
+            mSec = sec;
+            mProcesses = processes;
+            mFrom = from;
+        }
+
+        private void printOut(int level, String s) {
+            addMessage(level, s);
+        }
+
+        private void printErr(int level, String s) {
+            addMessage(-level, s);
+        }
+
+        private void addMessage(int level, String s) {
+            if (mMessages == null) {
+                mMessages = new ArrayList<Object>();
+            }
+            mMessages.add(level);
+            mMessages.add(s);
+        }
+
+        public void flushMessages() {
+            if (mMessages == null) {
+                return;
+            }
+            for (int i = 0; i < mMessages.size(); i += 2) {
+                int level = (Integer) mMessages.get(i);
+                String s = (String) mMessages.get(i + 1);
+                if (level < 0) {
+                    mBr.printErr(-level, s);
+                } else {
+                    mBr.printOut(level, s);
+                }
+            }
+            mMessages = null;
+        }
+
+        public void parse() {
+            try {
+                String header = mSec.getLine(mFrom - 1);
+                int pid = Integer.parseInt(getField(header, 2));
+                mProc = new Process(mBr, mProcesses, pid, getField(header, 4), getField(header, 5));
+                parseLines();
+            } catch (RuntimeException e) {
+                mError = e;
+            }
+        }
+
+        private void parseLines() {
+            Process curProc = mProc;
+            State state = State.PROC;
+            StackTrace curStackTrace = null;
+            for (int i = mFrom; i < mTo; i++) {
+                String buff = mSec.getLine(i);
+                switch (state) {
+                    case INIT:
+                        break; // Not reached: the block ends before the process ends
+                    case PROC:
+                        if (buff.startsWith("Cmd line: ")) {
+                            curProc.setName(buff.substring(10));
+                        } else if (buff.startsWith("\"")) {
+                            state = State.STACK;
+                            curStackTrace = parseThreadHeader(curProc, buff);
+                            curProc.addStackTrace(curStackTrace);
                         }
-                        Matcher m = pNat.matcher(buff);
-                        if (!m.matches()) {
-                            m = pNatAlt.matcher(buff);
+                        break;
+                    case STACK:
+                        if (!buff.startsWith("  ")) {
+                            state = State.PROC;
+                            curStackTrace = null;
+                        } else if (buff.startsWith("  | ")) {
+                            // Parse the extra properties
+                            curStackTrace.parseProperties(buff.substring(4));
+                        } else if (buff.startsWith("  - ")) {
+                            buff = buff.substring(4);
+                            StackTraceItem item = new StackTraceItem("", buff, 0);
+                            curStackTrace.addStackTraceItem(item);
+                            if (buff.startsWith("waiting ")) {
+                                processWaitingToLockLine(curStackTrace, buff);
+                            }
+                        } else if (buff.startsWith("  at ")) {
+                            parseJavaFrame(curStackTrace, buff);
+                        } else {
+                            parseNativeFrame(curStackTrace, buff);
                         }
-                        if (!m.matches()) {
-                            br.printErr(4, "Cannot parse line: " + buff);
-                            continue;
+                }
+            }
+        }
+
+        private StackTrace parseThreadHeader(Process curProc, String buff) {
+            int idx = buff.indexOf('"', 1);
+            String name = buff.substring(1, idx);
+            String threadState = "?";
+            int prio = -1, tid = -1;
+            String sysTid = null;
+
+            // The fields are separated by single spaces (the same way as split(" ")),
+            // the trailing empty fields are ignored
+            int start = idx + 2;
+            int end = buff.length();
+            if (start > end) {
+                throw new StringIndexOutOfBoundsException(start);
+            }
+            if (start < end) {
+                while (end > start && buff.charAt(end - 1) == ' ') {
+                    end--;
+                }
+                if (end == start) {
+                    start = end + 1; // Only empty fields, there is nothing to parse
+                }
+            }
+
+            // Check for native only threads
+            int space = buff.indexOf(' ', start);
+            if (start < end && (space < 0 || space >= end) && buff.startsWith("sysTid=", start)) {
+                threadState = "NATIVE_THREAD";
+                sysTid = buff.substring(start, end);
+            }
+
+            while (start <= end) {
+                int fieldEnd = buff.indexOf(' ', start);
+                if (fieldEnd < 0 || fieldEnd > end) {
+                    fieldEnd = end;
+                }
+                int eq = buff.indexOf('=', start);
+                if (eq < 0 || eq >= fieldEnd) {
+                    // Keyword
+                    if (fieldEnd == end) {
+                        threadState = buff.substring(start, fieldEnd);
+                    }
+                } else {
+                    // key=value
+                    if (eq - start == 4 && buff.startsWith("prio", start)) {
+                        prio = parseInt(buff, eq + 1, fieldEnd);
+                    } else if (eq - start == 3 && buff.startsWith("tid", start)) {
+                        tid = parseInt(buff, eq + 1, fieldEnd);
+                    }
+                }
+                start = fieldEnd + 1;
+            }
+
+            StackTrace ret = new StackTrace(curProc, name, tid, prio, threadState);
+            if (sysTid != null) {
+                ret.parseProperties(sysTid);
+            }
+            return ret;
+        }
+
+        private void parseJavaFrame(StackTrace curStackTrace, String buff) {
+            int idx0 = buff.indexOf('(');
+            int idx1 = buff.indexOf(':');
+            int idx2 = buff.indexOf(')');
+            if (idx0 >= 0 && idx2 >= 0 && idx2 > idx0) {
+                String method = buff.substring(5, idx0);
+                String fileName = null;
+                int line = -1;
+                if (idx1 >= 0 && idx1 > idx0 && idx2 > idx1) {
+                    fileName = buff.substring(idx0 + 1, idx1);
+                    int lineS = idx1 + 1;
+                    if (lineS < idx2 && buff.charAt(lineS) == '~') {
+                        lineS++;
+                    } else {
+                        int position = buff.lastIndexOf(':', idx2 - 1);
+                        if (position > lineS) {
+                            lineS = position + 1;
                         }
-                        long pc = Long.parseLong(m.group(1), 16);
-                        String fileName = m.group(2);
-                        String method = (m.groupCount() >= 3) ? m.group(3) : null;
-                        int methodOffset =  (method == null) ? -1 : Integer.parseInt(m.group(4));
-                        long offset = (m.groupCount() >= 6 && m.group(6) != null) ? Long.parseLong(m.group(6), 16) : -1;
-
-                        StackTraceItem item = (offset != -1) ? new StackTraceItem(pc, fileName, offset) : new StackTraceItem(pc, fileName, method, methodOffset);
-                        curStackTrace.addStackTraceItem(item);
                     }
+                    try {
+                        line = parseInt(buff, lineS, idx2);
+                    } catch(NumberFormatException e) {
+                        printOut(4, "Inserting raw line for unparsable: " + buff);
+                    }
+                }
+                StackTraceItem item = (fileName != null && line != -1)
+                    ? new StackTraceItem(method, fileName, line)
+                    : new StackTraceItem(buff.substring(buff.indexOf("at ") + 3), StackTraceItem.Type.JAVA);
+
+                curStackTrace.addStackTraceItem(item);
             }
+        }
 
+        private void parseNativeFrame(StackTrace curStackTrace, String buff) {
+            // Check the beginning of the trimmed line
+            int start = 0;
+            int len = buff.length();
+            while (start < len && buff.charAt(start) <= ' ') {
+                start++;
+            }
+            if (buff.startsWith("native: #", start)) {
+                //Trim off Native:
+                buff = buff.substring(buff.indexOf(" #"));
+            } else if (!buff.startsWith("#", start)) {
+                return;
+            }
+            Matcher m = NATIVE_FRAME.matcher(buff);
+            if (!m.matches()) {
+                m = NATIVE_FRAME_ALT.matcher(buff);
+            }
+            if (!m.matches()) {
+                printErr(4, "Cannot parse line: " + buff);
+                return;
+            }
+            long pc = Long.parseLong(m.group(1), 16);
+            String fileName = m.group(2);
+            String method = (m.groupCount() >= 3) ? m.group(3) : null;
+            int methodOffset =  (method == null) ? -1 : Integer.parseInt(m.group(4));
+            long offset = (m.groupCount() >= 6 && m.group(6) != null) ? Long.parseLong(m.group(6), 16) : -1;
+
+            StackTraceItem item = (offset != -1) ? new StackTraceItem(pc, fileName, offset) : new StackTraceItem(pc, fileName, method, methodOffset);
+            curStackTrace.addStackTraceItem(item);
         }
-        return processes;
-    }
 
-    private void processWaitingToLockLine(StackTrace curStackTrace, String buff) {
-        int idx = -1;
-        String needle = "";
-        for (String possibleNeedle : getPossibleWaitingNeedles()) {
-            idx = buff.indexOf(possibleNeedle);
+        private void processWaitingToLockLine(StackTrace curStackTrace, String buff) {
+            int idx = -1;
+            String needle = "";
+            for (String possibleNeedle : WAITING_NEEDLES) {
+                idx = buff.indexOf(possibleNeedle);
+                if (idx > 0) {
+                    needle = possibleNeedle;
+                    break;
+                }
+            }
             if (idx > 0) {
-                needle = possibleNeedle;
-                break;
-            }
-        }
-        if (idx > 0) {
-            idx += needle.length();
-            int idx2 = buff.indexOf(' ', idx);
-            if (idx2 < 0) {
-                idx2 = buff.length();
-            }
-            if (idx2 > 0) {
-                int tid = Integer.parseInt(buff.substring(idx, idx2));
-                if (tid != curStackTrace.getTid()) {
-                    String lockId = buff.substring(buff.indexOf("<") + 1, buff.indexOf(">"));
-                    String lockType = buff.substring(buff.indexOf("(") + 1, buff.indexOf(")"));
-                    curStackTrace.setWaitOn(new StackTrace.WaitInfo(tid, lockId, lockType));
+                idx += needle.length();
+                int idx2 = buff.indexOf(' ', idx);
+                if (idx2 < 0) {
+                    idx2 = buff.length();
+                }
+                if (idx2 > 0) {
+                    int tid = parseInt(buff, idx, idx2);
+                    if (tid != curStackTrace.getTid()) {
+                        String lockId = buff.substring(buff.indexOf("<") + 1, buff.indexOf(">"));
+                        String lockType = buff.substring(buff.indexOf("(") + 1, buff.indexOf(")"));
+                        curStackTrace.setWaitOn(new StackTrace.WaitInfo(tid, lockId, lockType));
+                    }
                 }
             }
         }
-    }
 
-    private Iterable<String> getPossibleWaitingNeedles() {
-        List<String> list = new ArrayList<String>();
-        list.add("held by threadid=");
-        list.add("held by tid=");
-        list.add("held by thread ");
-        return list;
     }
 
 }
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.plugins.stacktrace;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Vector;
+
+/**
+ * The wait-for graph of the threads of one stack trace section.
+ *
+ * <p>The nodes are the threads, identified by (pid, tid). There is an edge from a thread
+ * to the thread holding the monitor it's waiting for, and to the thread executing its
+ * outgoing binder transaction (see BinderAnalyzer). A thread can have both.</p>
+ *
+ * <p>The deadlocks are the strongly connected components of the graph having more than
+ * one thread (or a thread waiting on itself). They are found with Tarjan's algorithm, so
+ * all of them are found in linear time. The threads which are not part of a deadlock, but
+ * wait (directly or indirectly) on one, are reported as blocked by it.</p>
+ */
+public final class WaitGraph {
+
+    /** The label of binder transaction edges */
+    public static final String BINDER = "binder";
+
+    private Vector<StackTrace> mThreads = new Vector<StackTrace>();
+    private HashMap<Long, Integer> mIds = new HashMap<Long, Integer>();
+    /** The edges of node n are mEdgeTo[mFirstEdge[n]] .. mEdgeTo[mFirstEdge[n + 1] - 1] */
+    private int mFirstEdge[];
+    private int mEdgeTo[];
+    private String mEdgeLabel[];
+    /** The index of the deadlock the thread is part of, or -1 */
+    private int mCycleOf[];
+    /** The index of the deadlock the thread is part of or is blocked by, or -1 */
+    private int mDeadlockOf[];
+    private Vector<Deadlock> mDeadlocks = new Vector<Deadlock>();
+
+    /**
+     * A deadlock: the threads in the cycle(s), and the threads waiting on them.
+     */
+    public static final class Deadlock {
+
+        private Vector<StackTrace> mThreads = new Vector<StackTrace>();
+        private Vector<StackTrace> mBlocked = new Vector<StackTrace>();
+        /** The index of the first thread, used for sorting */
+        private int mFirst = Integer.MAX_VALUE;
+        /** The index of the deadlock in the order it was found */
+        private int mIndex;
+
+        /** The threads which are part of the deadlock */
+        public Vector<StackTrace> getThreads() {
+            return mThreads;
+        }
+
+        /** The threads which are not part of the deadlock, but depend on it */
+        public Vector<StackTrace> getBlocked() {
+            return mBlocked;
+        }
+
+    }
+
+    public WaitGraph(Processes processes) {
+        for (Process proc : processes) {
+            for (StackTrace stack : proc) {
+                Long key = getKey(proc.getPid(), stack.getTid());
+                if (!mIds.containsKey(key)) {
+                    mIds.put(key, mThreads.size());
+                }
+                mThreads.add(stack);
+            }
+        }
+        buildEdges();
+        findDeadlocks();
+    }
+
+    private static Long getKey(int pid, int tid) {
+        return ((long) pid << 32) | (tid & 0xffffffffL);
+    }
+
+    private int findNode(StackTrace stack) {
+        Process proc = stack.getProcess();
+        if (proc == null) {
+            return -1;
+        }
+        Integer id = mIds.get(getKey(proc.getPid(), stack.getTid()));
+        return (id == null) ? -1 : id;
+    }
+
+    private void buildEdges() {
+        int cnt = mThreads.size();
+        mFirstEdge = new int[cnt + 1];
+        mEdgeTo = new int[cnt];
+        mEdgeLabel = new String[cnt];
+        int edges = 0;
+        for (int v = 0; v < cnt; v++) {
+            mFirstEdge[v] = edges;
+            StackTrace stack = mThreads.get(v);
+            StackTrace.WaitInfo waitInfo = stack.getWaitOn();
+            if (waitInfo != null) {
+                Integer w = mIds.get(getKey(stack.getProcess().getPid(), waitInfo.getThreadId()));
+                if (w != null) {
+                    edges = addEdge(edges, w, waitInfo.getLockType());
+                }
+            }
+            StackTrace aidl = stack.getAidlDependency();
+            if (aidl != null) {
+                int w = findNode(aidl);
+                if (w >= 0) {
+                    edges = addEdge(edges, w, BINDER);
+                }
+            }
+        }
+        mFirstEdge[cnt] = edges;
+    }
+
+    private int addEdge(int edges, int to, String label) {
+        if (edges == mEdgeTo.length) {
+            int tmpTo[] = new int[edges * 2 + 1];
+            System.arraycopy(mEdgeTo, 0, tmpTo, 0, edges);
+            mEdgeTo = tmpTo;
+            String tmpLabel[] = new String[edges * 2 + 1];
+            System.arraycopy(mEdgeLabel, 0, tmpLabel, 0, edges);
+            mEdgeLabel = tmpLabel;
+        }
+        mEdgeTo[edges] = to;
+        mEdgeLabel[edges] = label;
+        return edges + 1;
+    }
+
+    /**
+     * Runs Tarjan's algorithm. It's iterative, since the wait chains can be longer than
+     * what the java stack can handle recursively.
+     */
+    private void findDeadlocks() {
+        int cnt = mThreads.size();
+        int index[] = new int[cnt];
+        int low[] = new int[cnt];
+        boolean onStack[] = new boolean[cnt];
+        int stack[] = new int[cnt];
+        int sp = 0;
+        int callNode[] = new int[cnt];
+        int callEdge[] = new int[cnt];
+        int csp = 0;
+        int nextIndex = 1; // 0 means not visited yet
+        mCycleOf = new int[cnt];
+        mDeadlockOf = new int[cnt];
+
+        for (int root = 0; root < cnt; root++) {
+            if (index[root] != 0) continue;
+            index[root] = low[root] = nextIndex++;
+            stack[sp++] = root;
+            onStack[root] = true;
+            callNode[csp] = root;
+            callEdge[csp++] = mFirstEdge[root];
+            while (csp > 0) {
+                int v = callNode[csp - 1];
+                int e = callEdge[csp - 1];
+                if (e < mFirstEdge[v + 1]) {
+                    callEdge[csp - 1] = e + 1;
+                    int w = mEdgeTo[e];
+                    if (index[w] == 0) {
+                        index[w] = low[w] = nextIndex++;
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        callNode[csp] = w;
+                        callEdge[csp++] = mFirstEdge[w];
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                // All the edges of v are processed
+                csp--;
+                if (csp > 0) {
+                    int u = callNode[csp - 1];
+                    low[u] = Math.min(low[u], low[v]);
+                }
+                if (low[v] == index[v]) {
+                    // v is the root of a strongly connected component
+                    int from = sp;
+                    do {
+                        onStack[stack[--from]] = false;
+                    } while (stack[from] != v);
+                    addComponent(stack, from, sp);
+                    sp = from;
+                }
+            }
+        }
+
+        // Report the deadlocks in the order of the threads
+        Collections.sort(mDeadlocks, new Comparator<Deadlock>() {
+            @Override
+            public int compare(Deadlock o1, Deadlock o2) {
+                return o1.mFirst - o2.mFirst;
+            }
+        });
+        int map[] = new int[mDeadlocks.size()];
+        for (int i = 0; i < map.length; i++) {
+            map[mDeadlocks.get(i).mIndex] = i;
+        }
+        for (int v = 0; v < cnt; v++) {
+            if (mCycleOf[v] >= 0) {
+                mCycleOf[v] = map[mCycleOf[v]];
+            }
+            if (mDeadlockOf[v] >= 0) {
+                mDeadlockOf[v] = map[mDeadlockOf[v]];
+                Deadlock dl = mDeadlocks.get(mDeadlockOf[v]);
+                if (mCycleOf[v] >= 0) {
+                    dl.mThreads.add(mThreads.get(v));
+                } else {
+                    dl.mBlocked.add(mThreads.get(v));
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles a strongly connected component. The components are found in reverse
+     * topological order, so the components reachable from this one are already handled.
+     */
+    private void addComponent(int stack[], int from, int to) {
+        int v = stack[from];
+        boolean cycle = to - from > 1;
+        if (!cycle) {
+            for (int e = mFirstEdge[v]; e < mFirstEdge[v + 1]; e++) {
+                if (mEdgeTo[e] == v) {
+                    cycle = true;
+                    break;
+                }
+            }
+        }
+        if (cycle) {
+            int idx = mDeadlocks.size();
+            Deadlock dl = new Deadlock();
+            dl.mIndex = idx;
+            for (int i = from; i < to; i++) {
+                mCycleOf[stack[i]] = idx;
+                mDeadlockOf[stack[i]] = idx;
+                dl.mFirst = Math.min(dl.mFirst, stack[i]);
+            }
+            mDeadlocks.add(dl);
+        } else {
+            mCycleOf[v] = -1;
+            mDeadlockOf[v] = -1;
+            for (int e = mFirstEdge[v]; e < mFirstEdge[v + 1]; e++) {
+                int dl = mDeadlockOf[mEdgeTo[e]];
+                if (dl >= 0) {
+                    mDeadlockOf[v] = dl;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns all the deadlocks, ordered by their first thread.
+     */
+    public Vector<Deadlock> getDeadlocks() {
+        return mDeadlocks;
+    }
+
+    /**
+     * Returns the number of edges going out from the thread.
+     */
+    public int getEdgeCount(StackTrace stack) {
+        int v = findNode(stack);
+        return (v < 0) ? 0 : mFirstEdge[v + 1] - mFirstEdge[v];
+    }
+
+    /**
+     * Returns the thread which the given thread waits on through its idx-th edge.
+     */
+    public StackTrace getEdgeTarget(StackTrace stack, int idx) {
+        return mThreads.get(mEdgeTo[mFirstEdge[findNode(stack)] + idx]);
+    }
+
+    /**
+     * Returns the label of the idx-th edge of the thread: the lock type for monitors
+     * (which might be null), or BINDER for binder transactions.
+     */
+    public String getEdgeLabel(StackTrace stack, int idx) {
+        return mEdgeLabel[mFirstEdge[findNode(stack)] + idx];
+    }
+
+    /**
+     * Returns true if the thread is part of the given deadlock (and not just blocked by it).
+     */
+    public boolean isInDeadlock(StackTrace stack, Deadlock dl) {
+        int v = findNode(stack);
+        return v >= 0 && mCycleOf[v] >= 0 && mDeadlocks.get(mCycleOf[v]) == dl;
+    }
+
+}
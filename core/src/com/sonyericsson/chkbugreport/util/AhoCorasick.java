@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Vector;
+
+/**
+ * Finds all occurrences of a set of keywords in a text in a single pass
+ * (Aho-Corasick automaton).
+ *
+ * <p>Add the keywords with add(), then the automaton is built on the first search.
+ * The searches are thread safe once the automaton is built.</p>
+ */
+public class AhoCorasick {
+
+    /** Receives the keywords found in the text */
+    public interface Listener {
+        /**
+         * Called for each occurrence of a keyword.
+         * @param keyword The id of the keyword (as returned by add())
+         * @param end The index after the end of the occurrence
+         */
+        public void onMatch(int keyword, int end);
+    }
+
+    private static final int[] EMPTY = new int[0];
+
+    private Vector<String> mKeywords = new Vector<String>();
+    private volatile boolean mBuilt = false;
+
+    // The states, stored in arrays. The transitions of each state are sorted by character.
+    private char mLabels[][];
+    private int mTargets[][];
+    private int mFail[];
+    private int mOutput[][];
+
+    /**
+     * Adds a keyword, and returns its id.
+     */
+    public synchronized int add(String keyword) {
+        if (mBuilt) {
+            throw new IllegalStateException("The automaton is already built");
+        }
+        if (keyword.length() == 0) {
+            throw new IllegalArgumentException("Empty keyword");
+        }
+        mKeywords.add(keyword);
+        return mKeywords.size() - 1;
+    }
+
+    public int size() {
+        return mKeywords.size();
+    }
+
+    public String get(int keyword) {
+        return mKeywords.get(keyword);
+    }
+
+    /**
+     * Finds all the occurrences of the keywords in the given text.
+     */
+    public void search(CharSequence text, Listener listener) {
+        if (!mBuilt) build();
+        int state = 0;
+        int len = text.length();
+        for (int i = 0; i < len; i++) {
+            state = next(state, text.charAt(i));
+            for (int kw : mOutput[state]) {
+                listener.onMatch(kw, i + 1);
+            }
+        }
+    }
+
+    /**
+     * Returns true if at least one keyword occurs in the given text.
+     */
+    public boolean containsAny(CharSequence text) {
+        if (!mBuilt) build();
+        int state = 0;
+        int len = text.length();
+        for (int i = 0; i < len; i++) {
+            state = next(state, text.charAt(i));
+            if (mOutput[state].length > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int next(int state, char c) {
+        while (true) {
+            int idx = Arrays.binarySearch(mLabels[state], c);
+            if (idx >= 0) {
+                return mTargets[state][idx];
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = mFail[state];
+        }
+    }
+
+    private synchronized void build() {
+        if (mBuilt) return;
+
+        // Build the trie
+        Vector<StringBuilder> labels = new Vector<StringBuilder>();
+        Vector<Vector<Integer>> targets = new Vector<Vector<Integer>>();
+        Vector<Vector<Integer>> outputs = new Vector<Vector<Integer>>();
+        labels.add(new StringBuilder());
+        targets.add(new Vector<Integer>());
+        outputs.add(new Vector<Integer>());
+        for (int kw = 0; kw < mKeywords.size(); kw++) {
+            String s = mKeywords.get(kw);
+            int state = 0;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                int idx = labels.get(state).indexOf(String.valueOf(c));
+                if (idx >= 0) {
+                    state = targets.get(state).get(idx);
+                } else {
+                    int newState = labels.size();
+                    labels.add(new StringBuilder());
+                    targets.add(new Vector<Integer>());
+                    outputs.add(new Vector<Integer>());
+                    labels.get(state).append(c);
+                    targets.get(state).add(newState);
+                    state = newState;
+                }
+            }
+            outputs.get(state).add(kw);
+        }
+
+        // Convert it to sorted arrays
+        int cnt = labels.size();
+        mLabels = new char[cnt][];
+        mTargets = new int[cnt][];
+        mFail = new int[cnt];
+        mOutput = new int[cnt][];
+        for (int state = 0; state < cnt; state++) {
+            String l = labels.get(state).toString();
+            Vector<Integer> t = targets.get(state);
+            Integer order[] = new Integer[l.length()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            final String fl = l;
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return fl.charAt(a) - fl.charAt(b);
+                }
+            });
+            mLabels[state] = new char[order.length];
+            mTargets[state] = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                mLabels[state][i] = l.charAt(order[i]);
+                mTargets[state][i] = t.get(order[i]);
+            }
+        }
+
+        // Compute the failure links and merge the outputs (breadth first)
+        int queue[] = new int[cnt];
+        int head = 0, tail = 0;
+        for (int child : mTargets[0]) {
+            mFail[child] = 0;
+            queue[tail++] = child;
+        }
+        mOutput[0] = toArray(outputs.get(0), EMPTY);
+        while (head < tail) {
+            int state = queue[head++];
+            mOutput[state] = toArray(outputs.get(state), mOutput[mFail[state]]);
+            for (int i = 0; i < mLabels[state].length; i++) {
+                char c = mLabels[state][i];
+                int child = mTargets[state][i];
+                int f = mFail[state];
+                while (true) {
+                    int idx = Arrays.binarySearch(mLabels[f], c);
+                    if (idx >= 0) {
+                        mFail[child] = mTargets[f][idx];
+                        break;
+                    }
+                    if (f == 0) {
+                        mFail[child] = 0;
+                        break;
+                    }
+                    f = mFail[f];
+                }
+                queue[tail++] = child;
+            }
+        }
+        mBuilt = true;
+    }
+
+    private static int[] toArray(Vector<Integer> own, int inherited[]) {
+        int ret[] = new int[own.size() + inherited.length];
+        for (int i = 0; i < own.size(); i++) {
+            ret[i] = own.get(i);
+        }
+        System.arraycopy(inherited, 0, ret, own.size(), inherited.length);
+        return ret;
+    }
+
+}
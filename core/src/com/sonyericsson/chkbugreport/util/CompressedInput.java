@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Detects and decompresses compressed input (gzip, xz, zstd and bzip2), as a stream.
+ *
+ * <p>gzip is supported by the JDK. For the other formats the decoder classes of the
+ * common Java libraries (xz, zstd-jni, commons-compress) are used if they are on the
+ * classpath, otherwise the data is piped through the command line tool (xz, zstd, bzip2).</p>
+ */
+public final class CompressedInput {
+
+    public static final String GZIP = "gzip";
+    public static final String XZ = "xz";
+    public static final String ZSTD = "zstd";
+    public static final String BZIP2 = "bzip2";
+
+    /** The number of bytes needed to detect the format */
+    public static final int MAGIC_LEN = 6;
+
+    private CompressedInput() {
+        // Only static methods
+    }
+
+    /**
+     * Detects the compression format from the first bytes of the data.
+     * @return One of the format constants, or null if the data is not compressed
+     *   (or the format is not known)
+     */
+    public static String detect(byte[] buff, int offs, int len) {
+        if (matches(buff, offs, len, 0x1f, 0x8b)) {
+            return GZIP;
+        }
+        if (matches(buff, offs, len, 0xfd, '7', 'z', 'X', 'Z', 0x00)) {
+            return XZ;
+        }
+        if (matches(buff, offs, len, 0x28, 0xb5, 0x2f, 0xfd)) {
+            return ZSTD;
+        }
+        if (matches(buff, offs, len, 'B', 'Z', 'h') && len > 3 && buff[offs + 3] >= '1' && buff[offs + 3] <= '9') {
+            return BZIP2; // The 4th byte is the block size
+        }
+        return null;
+    }
+
+    private static boolean matches(byte[] buff, int offs, int len, int... magic) {
+        if (len < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((buff[offs + i] & 0xff) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Detects the compression format of the stream (which must support mark/reset), and
+     * returns a stream which decompresses it, or the stream itself if it's not compressed.
+     * If the decoder cannot be created, only the header of the data is consumed, so the
+     * caller can reset the stream to read the data as it is.
+     */
+    public static InputStream wrap(InputStream is) throws IOException {
+        byte magic[] = new byte[MAGIC_LEN];
+        is.mark(MAGIC_LEN);
+        int len = 0;
+        while (len < MAGIC_LEN) {
+            int read = is.read(magic, len, MAGIC_LEN - len);
+            if (read <= 0) {
+                break;
+            }
+            len += read;
+        }
+        is.reset();
+        String format = detect(magic, 0, len);
+        return (format == null) ? is : open(is, format);
+    }
+
+    /**
+     * Returns a stream which decompresses the given stream.
+     * @param is The compressed data
+     * @param format The compression format, as returned by detect()
+     */
+    public static InputStream open(InputStream is, String format) throws IOException {
+        if (GZIP.equals(format)) {
+            return new GZIPInputStream(is);
+        }
+        String classes[], tool;
+        if (XZ.equals(format)) {
+            classes = new String[] { "org.tukaani.xz.XZInputStream",
+                    "org.apache.commons.compress.compressors.xz.XZCompressorInputStream" };
+            tool = "xz";
+        } else if (ZSTD.equals(format)) {
+            classes = new String[] { "com.github.luben.zstd.ZstdInputStream",
+                    "org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream" };
+            tool = "zstd";
+        } else if (BZIP2.equals(format)) {
+            classes = new String[] { "org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream" };
+            tool = "bzip2";
+        } else {
+            throw new IOException("Unknown compression format: " + format);
+        }
+        for (String className : classes) {
+            InputStream ret = openWithClass(is, className);
+            if (ret != null) {
+                return ret;
+            }
+        }
+        return openWithTool(is, tool);
+    }
+
+    private static InputStream openWithClass(InputStream is, String className) throws IOException {
+        Constructor<?> ctor;
+        try {
+            ctor = Class.forName(className).getConstructor(InputStream.class);
+        } catch (Exception e) {
+            return null; // The library is not available
+        } catch (LinkageError e) {
+            return null; // The library is there, but cannot be used (for example missing native code)
+        }
+        try {
+            return (InputStream) ctor.newInstance(is);
+        } catch (Exception e) {
+            Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Cannot create " + className + ": " + cause);
+        }
+    }
+
+    /**
+     * Decompresses the data with an external tool, the data is fed to the tool from a
+     * separate thread.
+     */
+    private static InputStream openWithTool(final InputStream is, final String tool) throws IOException {
+        final Process process;
+        try {
+            process = new ProcessBuilder(tool, "-dc").redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        } catch (IOException e) {
+            throw new IOException("Cannot decompress " + tool + " data: add the decoder library to the classpath"
+                    + " or install the '" + tool + "' tool");
+        }
+        Thread feeder = new Thread("Feeding " + tool) {
+            @Override
+            public void run() {
+                OutputStream os = process.getOutputStream();
+                try {
+                    byte buff[] = new byte[0x10000];
+                    int read;
+                    while ((read = is.read(buff)) > 0) {
+                        os.write(buff, 0, read);
+                    }
+                } catch (IOException e) {
+                    // The tool stopped reading (for example the data is corrupt), it will report it
+                } finally {
+                    try {
+                        os.close();
+                    } catch (IOException e) { /* NOP */ }
+                }
+            }
+        };
+        feeder.setDaemon(true);
+        feeder.start();
+        return new FilterInputStream(process.getInputStream()) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                process.destroy();
+                is.close();
+            }
+        };
+    }
+
+}
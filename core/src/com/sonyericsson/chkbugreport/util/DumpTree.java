@@ -37,12 +37,12 @@ public class DumpTree implements Iterable<DumpTree.Node> {
         mRoot = new Node(null);
         Node cur = mRoot;
         for (int i = startAt; i < count; i++) {
-            String line = sec.getLine(i);
+            CharSequence line = sec.getLineView(i);
             if (isEmpty(line)) {
                 // Empty lines are ignored for now
                 continue;
             }
-            Node node = new Node(line);
+            Node node = new Node(line.toString());
 
             // Now we must find a correct place to add this node
             // The logic is simple:
@@ -64,7 +64,7 @@ public class DumpTree implements Iterable<DumpTree.Node> {
         }
     }
 
-    private boolean isEmpty(String line) {
+    private boolean isEmpty(CharSequence line) {
         int len = line.length();
         for (int i = 0; i < len; i++) {
             if (line.charAt(i) != ' ') {
@@ -19,12 +19,23 @@
  */
 package com.sonyericsson.chkbugreport.util;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 
+/**
+ * Reads lines from a stream or a byte buffer.
+ * The input is read in big blocks, and the blocks are scanned for line endings directly
+ * on byte level. Each line is decoded using the given charset (UTF-8 by default).
+ * Some broken line endings (like "0x0d 0x0d 0x0a") and the UTF-8 marker are handled as well.
+ */
 public class LineReader {
 
+    /** The default charset used to decode the lines */
+    public static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+
+    private static final int BUFF_SIZE = 0x10000;
+
     private static final int STATE_IDLE = 0;
     private static final int STATE_0D0D = 1;
     private static final int STATE_0A   = 2;
@@ -33,32 +44,73 @@ public class LineReader {
     private int mState = STATE_IDLE;
     private boolean mFirstLine = true;
     private InputStream mIs;
+    private Charset mCharset = DEFAULT_CHARSET;
     private byte[] mBuff;
-    private int mOffs;
-    private int mLen;
-    private StringBuilder mSB = new StringBuilder();
+    private int mPos;
+    private int mEnd;
+    private byte[] mLine = new byte[256];
+    private int mLineLen;
+
+    protected LineReader() {
+        // Used by subclasses providing their own input
+    }
 
     public LineReader(InputStream is) {
-        mIs = new BufferedInputStream(is);
+        this(is, DEFAULT_CHARSET);
+    }
+
+    public LineReader(InputStream is, Charset charset) {
+        mIs = is;
+        mCharset = charset;
+        mBuff = new byte[BUFF_SIZE];
     }
 
     public LineReader(byte[] buff, int offs, int len) {
+        this(buff, offs, len, DEFAULT_CHARSET);
+    }
+
+    public LineReader(byte[] buff, int offs, int len, Charset charset) {
         mBuff = buff;
-        mOffs = offs;
-        mLen = len;
+        mPos = offs;
+        mEnd = offs + len;
+        mCharset = charset;
     }
 
     public String readLine() {
-        mSB.setLength(0);
+        mLineLen = 0;
         boolean firstWarning = false;
         try {
             while (true) {
-                int b = read();
-                if (b < 0) {
-                    if (mSB.length() == 0) return null;
+                if (mPos >= mEnd && !fill()) {
+                    if (mLineLen == 0) return null;
                     mState = STATE_EOF;
                     break; // EOF
                 }
+
+                // Scan the buffer for the end of the line
+                int start = mPos;
+                int end = mEnd;
+                byte buff[] = mBuff;
+                int i = start;
+                while (i < end) {
+                    byte b = buff[i];
+                    if (b == 0xa || b == 0xd) break;
+                    i++;
+                }
+                mPos = i;
+                if (i == end) {
+                    // Need more data
+                    append(buff, start, i - start);
+                    continue;
+                }
+
+                byte b = buff[mPos++];
+                if (b == 0xa && mLineLen == 0 && i > start && !mFirstLine) {
+                    // Fast path: the whole line is in the buffer, decode it from there
+                    mState = STATE_0A;
+                    return new String(buff, start, i - start, mCharset);
+                }
+                append(buff, start, i - start);
                 if (b == 0xd) {
                     if (firstWarning) {
                         mState = STATE_0D0D;
@@ -67,40 +119,56 @@ public class LineReader {
                     firstWarning = true;
                     continue; // Skip ugly windows line ending
                 }
-                if (b == 0xa) {
-                    if (mSB.length() == 0 && mState == STATE_0D0D) {
-                        // Workaround for "0x0d 0x0d 0x0a" line endings
-                        continue;
-                    }
-                    mState = STATE_0A;
-                    break; // EOL
+                // b == 0xa
+                if (mLineLen == 0 && mState == STATE_0D0D) {
+                    // Workaround for "0x0d 0x0d 0x0a" line endings
+                    continue;
                 }
-                mSB.append((char)b);
+                mState = STATE_0A;
+                break; // EOL
             }
         } catch (IOException e) {
             // Ignore exception
             e.printStackTrace();
             return null;
         }
-        if (mFirstLine && mSB.length() > 3) {
-            if (mSB.charAt(0) == 239 && mSB.charAt(1) == 187 && mSB.charAt(2) == 191) {
+        int offs = 0;
+        if (mFirstLine && mLineLen > 3) {
+            if ((mLine[0] & 0xff) == 239 && (mLine[1] & 0xff) == 187 && (mLine[2] & 0xff) == 191) {
                 // Workaround for UTF8 marker
-                mSB.delete(0, 3);
+                offs = 3;
             }
         }
         mFirstLine = false;
-        return mSB.toString();
+        return new String(mLine, offs, mLineLen - offs, mCharset);
     }
 
-    private int read() throws IOException {
-        if (mIs != null) {
-            return mIs.read();
+    private void append(byte[] buff, int offs, int len) {
+        if (len == 0) return;
+        if (mLineLen + len > mLine.length) {
+            byte newLine[] = new byte[Math.max(mLine.length * 2, mLineLen + len)];
+            System.arraycopy(mLine, 0, newLine, 0, mLineLen);
+            mLine = newLine;
         }
-        if (mLen <= 0) {
-            return -1; // eof
+        System.arraycopy(buff, offs, mLine, mLineLen, len);
+        mLineLen += len;
+    }
+
+    private boolean fill() throws IOException {
+        if (mIs == null) {
+            return false; // eof
+        }
+        while (true) {
+            int read = mIs.read(mBuff, 0, mBuff.length);
+            if (read < 0) {
+                return false;
+            }
+            if (read > 0) {
+                mPos = 0;
+                mEnd = read;
+                return true;
+            }
         }
-        mLen--;
-        return mBuff[mOffs++];
     }
 
     public void close() {
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * A read-only, memory mapped file.
+ * Since a single mapping is limited to 2GB, bigger files are mapped in several chunks.
+ * The content is accessed using absolute (long) file offsets.
+ */
+public class MappedFile {
+
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+    private static final int CHUNK_MASK = (int)(CHUNK_SIZE - 1);
+
+    private MappedByteBuffer mChunks[];
+    private long mSize;
+    private Charset mCharset;
+    private File mSpillFile;
+
+    private MappedFile(File f, Charset charset) throws IOException {
+        mCharset = charset;
+        RandomAccessFile raf = new RandomAccessFile(f, "r");
+        try {
+            FileChannel ch = raf.getChannel();
+            mSize = ch.size();
+            int cnt = (int)((mSize + CHUNK_SIZE - 1) >> CHUNK_BITS);
+            mChunks = new MappedByteBuffer[cnt];
+            for (int i = 0; i < cnt; i++) {
+                long offs = (long)i << CHUNK_BITS;
+                mChunks[i] = ch.map(FileChannel.MapMode.READ_ONLY, offs, Math.min(CHUNK_SIZE, mSize - offs));
+            }
+        } finally {
+            // The mapping stays valid after the channel is closed
+            raf.close();
+        }
+    }
+
+    /**
+     * Map the whole file in memory.
+     * The lines will be decoded using UTF-8.
+     * @param f The file to map
+     * @return The mapped file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static MappedFile map(File f) throws IOException {
+        return new MappedFile(f, LineReader.DEFAULT_CHARSET);
+    }
+
+    /**
+     * Map the whole file in memory
+     * @param f The file to map
+     * @param charset The charset used to decode the lines
+     * @return The mapped file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static MappedFile map(File f, Charset charset) throws IOException {
+        return new MappedFile(f, charset);
+    }
+
+    /**
+     * Copy the content of the stream into a temporary file and map that file.
+     * This is used for compressed input (gzip, zip entries), where the uncompressed data is
+     * not available as a file.
+     * The temporary file is deleted when the mapped file is closed (or when the application exits,
+     * if it's not closed).
+     * @param is The input stream (it will be consumed but not closed)
+     * @return The mapped file
+     * @throws IOException if the data cannot be saved or mapped
+     */
+    public static MappedFile spillAndMap(InputStream is) throws IOException {
+        return spillAndMap(is, LineReader.DEFAULT_CHARSET);
+    }
+
+    /**
+     * Same as {@link #spillAndMap(InputStream)}, but using the given charset to decode the lines.
+     * @param is The input stream (it will be consumed but not closed)
+     * @param charset The charset used to decode the lines
+     * @return The mapped file
+     * @throws IOException if the data cannot be saved or mapped
+     */
+    public static MappedFile spillAndMap(InputStream is, Charset charset) throws IOException {
+        File f = File.createTempFile("chkbugreport", ".txt");
+        f.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(f);
+        try {
+            byte buff[] = new byte[0x10000];
+            while (true) {
+                int read = is.read(buff);
+                if (read < 0) break;
+                fos.write(buff, 0, read);
+            }
+        } finally {
+            fos.close();
+        }
+        MappedFile ret = new MappedFile(f, charset);
+        ret.mSpillFile = f;
+        return ret;
+    }
+
+    /**
+     * Release the mapping, and delete the temporary file in case of a spilled stream.
+     * The content cannot be accessed after this.
+     */
+    public void close() {
+        mChunks = null;
+        if (mSpillFile != null) {
+            // On some platforms the file cannot be deleted while it's still mapped, in that
+            // case it's left for deleteOnExit
+            mSpillFile.delete();
+            mSpillFile = null;
+        }
+    }
+
+    /**
+     * Returns the size of the file in bytes
+     * @return the size of the file in bytes
+     */
+    public long size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the byte at the given offset
+     * @param pos The offset in the file
+     * @return the byte at the given offset (0..255)
+     */
+    public int get(long pos) {
+        return mChunks[(int)(pos >> CHUNK_BITS)].get((int)pos & CHUNK_MASK) & 0xff;
+    }
+
+    /**
+     * Decode the bytes between the two offsets as a String, using the charset of the file.
+     * Carriage return characters are skipped, the same way as {@link LineReader} does.
+     * @param start The offset of the first byte
+     * @param end The offset after the last byte
+     * @return The decoded string
+     */
+    public String getString(long start, long end) {
+        int len = (int)(end - start);
+        byte buff[] = new byte[len];
+        int cnt = 0;
+        for (long pos = start; pos < end; pos++) {
+            int b = get(pos);
+            if (b != 0xd) {
+                buff[cnt++] = (byte)b;
+            }
+        }
+        return new String(buff, 0, cnt, mCharset);
+    }
+
+}
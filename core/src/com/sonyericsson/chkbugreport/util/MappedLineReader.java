@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2026 Sony Mobile Communications AB
+ *
+ * This file is part of ChkBugReport.
+ *
+ * ChkBugReport is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ChkBugReport is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ChkBugReport.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sonyericsson.chkbugreport.util;
+
+/**
+ * A LineReader reading from a memory mapped file.
+ * Besides returning the lines, it also remembers where the last line was located in the file,
+ * so the caller can store only the byte range instead of the decoded text.
+ * The same line ending workarounds are applied as in {@link LineReader}.
+ */
+public class MappedLineReader extends LineReader {
+
+    private MappedFile mFile;
+    private long mPos;
+    private long mLineStart;
+    private long mLineEnd;
+    private boolean m0D0D = false;
+    private boolean mFirstLine = true;
+
+    public MappedLineReader(MappedFile file) {
+        mFile = file;
+    }
+
+    public MappedFile getFile() {
+        return mFile;
+    }
+
+    /**
+     * Returns the file offset of the first byte of the last line read
+     * @return the file offset of the first byte of the last line read
+     */
+    public long getLineStart() {
+        return mLineStart;
+    }
+
+    /**
+     * Returns the file offset after the last byte of the last line read
+     * @return the file offset after the last byte of the last line read
+     */
+    public long getLineEnd() {
+        return mLineEnd;
+    }
+
+    @Override
+    public String readLine() {
+        long size = mFile.size();
+        long start = -1, end = -1;
+        boolean firstWarning = false;
+        while (true) {
+            if (mPos >= size) {
+                if (start < 0) return null;
+                break; // EOF
+            }
+            int b = mFile.get(mPos++);
+            if (b == 0xd) {
+                if (firstWarning) {
+                    m0D0D = true;
+                    break;
+                }
+                firstWarning = true;
+                continue; // Skip ugly windows line ending
+            }
+            if (b == 0xa) {
+                if (start < 0 && m0D0D) {
+                    // Workaround for "0x0d 0x0d 0x0a" line endings
+                    continue;
+                }
+                m0D0D = false;
+                break; // EOL
+            }
+            if (start < 0) {
+                start = mPos - 1;
+            }
+            end = mPos;
+        }
+        if (start < 0) {
+            // Empty line
+            start = end = mPos;
+        }
+        if (mFirstLine && end - start > 3) {
+            if (mFile.get(start) == 239 && mFile.get(start + 1) == 187 && mFile.get(start + 2) == 191) {
+                // Workaround for UTF8 marker
+                start += 3;
+            }
+        }
+        mFirstLine = false;
+        mLineStart = start;
+        mLineEnd = end;
+        return mFile.getString(start, end);
+    }
+
+    @Override
+    public void close() {
+        // NOP: the mapping is kept, since the sections still refer to it
+    }
+
+}
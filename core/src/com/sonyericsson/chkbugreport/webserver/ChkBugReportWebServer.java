@@ -20,17 +20,23 @@ package com.sonyericsson.chkbugreport.webserver;
 
 import com.sonyericsson.chkbugreport.Module;
 import com.sonyericsson.chkbugreport.PlatformUtil;
+import com.sonyericsson.chkbugreport.util.Util;
 import com.sonyericsson.chkbugreport.webserver.engine.HTTPRequest;
 import com.sonyericsson.chkbugreport.webserver.engine.HTTPResponse;
 import com.sonyericsson.chkbugreport.webserver.engine.WebApp;
 import com.sonyericsson.chkbugreport.webserver.engine.WebServer;
 import com.sonyericsson.chkbugreport.webserver.engine.WebServerSocket;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
 /**
  * This class integrates the simple and generic web server core into chkbugreport.
@@ -39,11 +45,18 @@ import java.util.HashMap;
  */
 public class ChkBugReportWebServer implements WebApp {
 
+    private static final String DATA_DIR = "data/";
+    private static final int DEFAULT_PAGE_CACHE_SIZE = 64 * Util.MB;
+
     private Module mMod;
     private WebServer mServer;
     private WebServerSocket mSocket;
     private HashMap<String, Object> mModules = new HashMap<String, Object>();
     private int mServerPort = 0;
+    // The pages rendered on demand, the least recently used is the first
+    private LinkedHashMap<String, byte[]> mPageCache = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+    private int mPageCacheSize = 0;
+    private int mPageCacheLimit = DEFAULT_PAGE_CACHE_SIZE;
 
     public ChkBugReportWebServer(Module mod) {
         mMod = mod;
@@ -63,6 +76,14 @@ public class ChkBugReportWebServer implements WebApp {
         mServerPort = serverPort;
     }
 
+    /**
+     * Set the maximum amount of memory used to cache the pages rendered on demand.
+     * @param size The maximum size in bytes
+     */
+    public void setPageCacheLimit(int size) {
+        mPageCacheLimit = size;
+    }
+
     public void start(boolean startBrowser) {
         mServer = new WebServer(this);
         mServer.setName("ChkBugReportServer");
@@ -84,6 +105,12 @@ public class ChkBugReportWebServer implements WebApp {
         if (uri.equals("favicon.ico")) {
             return getClass().getResourceAsStream(PlatformUtil.ASSETS_ROOT + uri);
         }
+        if (uri.startsWith(DATA_DIR)) {
+            byte page[] = getPage(uri.substring(DATA_DIR.length()));
+            if (page != null) {
+                return new ByteArrayInputStream(page);
+            }
+        }
         try {
             String root = mMod.getOutDir();
             return new FileInputStream(root + uri);
@@ -93,6 +120,54 @@ public class ChkBugReportWebServer implements WebApp {
         }
     }
 
+    /**
+     * Returns the content of a page which is rendered on demand.
+     * The recently used pages are cached.
+     * The pages are rendered (and the web apps are executed) while holding the read lock of
+     * the module, since the followed logs are appended to it from other threads.
+     * @param fileName The name of the page, relative to the data folder
+     * @return The content of the page, or null if it's not rendered on demand
+     */
+    private byte[] getPage(String fileName) {
+        byte page[] = getCachedPage(fileName);
+        if (page != null) {
+            return page;
+        }
+        Lock lock = mMod.getUpdateLock().readLock();
+        lock.lock();
+        try {
+            page = mMod.renderPage(fileName);
+        } catch (IOException e) {
+            System.out.println("Error rendering page: " + e);
+            return null;
+        } finally {
+            lock.unlock();
+        }
+        if (page == null) {
+            return null;
+        }
+        System.out.println("[REN] " + fileName + " (" + page.length + " bytes)");
+        cachePage(fileName, page);
+        return page;
+    }
+
+    private synchronized byte[] getCachedPage(String fileName) {
+        return mPageCache.get(fileName);
+    }
+
+    private synchronized void cachePage(String fileName, byte page[]) {
+        if (mPageCache.containsKey(fileName)) {
+            return; // Rendered meanwhile by another request
+        }
+        mPageCache.put(fileName, page);
+        mPageCacheSize += page.length;
+        Iterator<Map.Entry<String, byte[]>> it = mPageCache.entrySet().iterator();
+        while (mPageCacheSize > mPageCacheLimit && mPageCache.size() > 1) {
+            mPageCacheSize -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+
     @Override
     public void process(String clsRef, String metRef, HTTPRequest req, HTTPResponse resp) {
         System.out.println("[APP] " + clsRef + " / " + metRef);
@@ -121,7 +196,13 @@ public class ChkBugReportWebServer implements WebApp {
             if (null == m.getAnnotation(Web.class)) {
                 return false;
             }
-            m.invoke(obj, mMod, req, resp);
+            Lock lock = mMod.getUpdateLock().readLock();
+            lock.lock();
+            try {
+                m.invoke(obj, mMod, req, resp);
+            } finally {
+                lock.unlock();
+            }
             return true;
         } catch (Exception e) {
             e.printStackTrace();
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Encapsulates an HTTP request, extracting the header lines and request arguments.
@@ -30,11 +31,15 @@ public class HTTPRequest {
 
     private static final boolean DEBUG = false;
 
+    private static final int STATUS_OK = 0;
+    private static final int STATUS_ERROR = -1;
+    private static final int STATUS_EOF = 1;
+
     private String mMethod;
     private String mUri;
     private String mVersion;
     private String mUriBase;
-    private HashMap<String,String> mHeaders = new HashMap<String,String>();
+    private TreeMap<String,String> mHeaders = new TreeMap<String,String>(String.CASE_INSENSITIVE_ORDER);
     private HashMap<String,String> mArgs = new HashMap<String,String>();
     private InputStream mInput;
     private BufferedReader mBR;
@@ -49,7 +54,33 @@ public class HTTPRequest {
      * Returns true if the HTTP request was parsed successfully
      */
     public boolean isValid() {
-        return mStatus == 0;
+        return mStatus == STATUS_OK;
+    }
+
+    /**
+     * Returns true if the connection was closed (or timed out) before a new request arrived
+     */
+    public boolean isEndOfStream() {
+        return mStatus == STATUS_EOF;
+    }
+
+    /**
+     * Returns true if the client wants to reuse the connection for more requests
+     */
+    public boolean isKeepAlive() {
+        String conn = mHeaders.get("Connection");
+        if ("HTTP/1.1".equals(mVersion)) {
+            return !"close".equalsIgnoreCase(conn);
+        }
+        return "keep-alive".equalsIgnoreCase(conn);
+    }
+
+    /**
+     * Returns true if the client accepts gzip compressed responses
+     */
+    public boolean acceptsGzip() {
+        String enc = mHeaders.get("Accept-Encoding");
+        return enc != null && enc.toLowerCase().contains("gzip");
     }
 
     /**
@@ -81,7 +112,7 @@ public class HTTPRequest {
     }
 
     /**
-     * Return the value of a header key
+     * Return the value of a header key (the key is not case sensitive)
      * If the header is not found, null is returned
      */
     public String getHeader(String key) {
@@ -122,25 +153,31 @@ public class HTTPRequest {
     }
 
     private int parse() {
+        mBR = new BufferedReader(mInput);
+        String line;
         try {
-            mBR = new BufferedReader(mInput);
+            line = mBR.readLine();
+        } catch (IOException e) {
+            // Most likely the idle connection timed out
+            return STATUS_EOF;
+        }
+        if (line == null) {
+            // The client closed the connection
+            return STATUS_EOF;
+        }
 
+        try {
             // parse method uri and version
-            String line = mBR.readLine();
-            if (line == null) {
-                System.err.println("First line empty");
-                return -1;
-            }
 
             int idx0 = line.indexOf(' ');
             if (idx0 < 0) {
                 System.err.println("HTTP method not well formatted");
-                return -1;
+                return STATUS_ERROR;
             }
             int idx1 = line.indexOf(' ', idx0+1);
             if (idx1 < 0) {
                 System.err.println("HTTP method not well formatted");
-                return -1;
+                return STATUS_ERROR;
             }
 
             mMethod = line.substring(0, idx0);
@@ -155,7 +192,7 @@ public class HTTPRequest {
 
             if (!mMethod.equals("GET") && !mMethod.equals("HEAD") && !mMethod.equals("POST")) {
                 System.err.println("Only GET, HEAD and POST are (partially) supported!");
-                return -1;
+                return STATUS_ERROR;
             }
 
             // parse uri further
@@ -178,20 +215,23 @@ public class HTTPRequest {
             }
 
             // Check if we expect a body
-            if (mMethod.equals("POST")) {
-                if ("application/x-www-form-urlencoded".equals(mHeaders.get("Content-Type"))) {
-                    if (mHeaders.containsKey("Content-Length")) {
-                        int size = Integer.parseInt(mHeaders.get("Content-Length"));
-                        byte data[] = new byte[size];
-                        Util.readFully(mInput, data);
+            if (mHeaders.containsKey("Content-Length")) {
+                // The body must be read even if it's not used, so the next request on
+                // the same connection can be parsed
+                int size = Integer.parseInt(mHeaders.get("Content-Length").trim());
+                byte data[] = new byte[size];
+                Util.readFully(mInput, data);
+                if (mMethod.equals("POST")) {
+                    if ("application/x-www-form-urlencoded".equals(mHeaders.get("Content-Type"))) {
                         addArgs(new String(data));
                     }
                 }
             }
         } catch (IOException e) {
             e.printStackTrace();
+            return STATUS_ERROR;
         }
-        return 0;
+        return STATUS_OK;
     }
 
     private void addHeader(String line) {
@@ -26,6 +26,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.HashMap;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Encapsulates an HTTP response, with return code, headers and body.
@@ -36,19 +37,40 @@ public class HTTPResponse {
 
     private static final boolean DEBUG = false;
 
+    /** Smaller bodies are not worth compressing */
+    private static final int MIN_COMPRESS_SIZE = 1024;
+
     private int mReturnCode = 200;
     private ByteArrayOutputStream mBody = new ByteArrayOutputStream();
     private PrintStream mOut = new PrintStream(mBody);
     private byte mBodyData[];
     private PrintStream mPrintStream;
     private HashMap<String, String> mHeaders = new HashMap<String, String>();
+    private boolean mKeepAlive = false;
+    private boolean mCompress = false;
 
     public HTTPResponse(OutputStream os) {
         mPrintStream = new PrintStream(os);
-        mHeaders.put("Connection", "close"); // We don't support anything else
+        mHeaders.put("Connection", "close"); // Unless keep-alive is enabled
         mHeaders.put("Content-Type", "text/html; charset=UTF-8"); // Default type
     }
 
+    /**
+     * Keep the connection open after the response is sent, so the client can send more requests
+     */
+    public void setKeepAlive(boolean keepAlive) {
+        mKeepAlive = keepAlive;
+        mHeaders.put("Connection", keepAlive ? "keep-alive" : "close");
+    }
+
+    /**
+     * Allow compressing the body (with gzip) if it's text and big enough.
+     * This should be enabled only if the client accepts gzip encoding.
+     */
+    public void setCompression(boolean compress) {
+        mCompress = compress;
+    }
+
     /**
      * Set the HTTP response code, i.e. 200 if everything is ok, 404 if the resource is missing
      */
@@ -155,6 +177,13 @@ public class HTTPResponse {
      * Sends the response to the specified output stream.
      */
     public void flush() {
+        byte body[] = (mBody != null) ? mBody.toByteArray() : mBodyData;
+        if (mCompress && body.length >= MIN_COMPRESS_SIZE && isCompressible()) {
+            body = gzip(body);
+            addHeader("Content-Encoding", "gzip");
+            addHeader("Vary", "Accept-Encoding");
+        }
+
         // write respone line
         String status = null;
         if (mReturnCode == 200) {
@@ -166,7 +195,7 @@ public class HTTPResponse {
         if (DEBUG) System.out.println("> " + status);
 
         // update content length
-        addHeader("Content-Length", Integer.toString(getContentLength()));
+        addHeader("Content-Length", Integer.toString(body.length));
 
         // write header
         for (String key : mHeaders.keySet()) {
@@ -179,25 +208,42 @@ public class HTTPResponse {
         mPrintStream.println();
 
         // body
-        if (mBody !=  null) {
-            mPrintStream.print(mBody);
-        } else {
-            try {
-                if (DEBUG) System.out.println(">> [binary data of size " + mBodyData.length + "]");
-                mPrintStream.write(mBodyData);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+        try {
+            if (DEBUG) System.out.println(">> [data of size " + body.length + "]");
+            mPrintStream.write(body);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
 
-        mPrintStream.close();
+        if (mKeepAlive) {
+            mPrintStream.flush();
+        } else {
+            mPrintStream.close();
+        }
     }
 
-    private int getContentLength() {
-        if (mBody != null) {
-            return mBody.size();
-        } else {
-            return mBodyData.length;
+    private boolean isCompressible() {
+        if (mHeaders.containsKey("Content-Encoding")) {
+            return false;
+        }
+        String type = mHeaders.get("Content-Type");
+        if (type == null) {
+            return false;
+        }
+        return type.startsWith("text/") || type.contains("javascript")
+                || type.contains("json") || type.contains("xml");
+    }
+
+    private static byte[] gzip(byte data[]) {
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 4);
+            GZIPOutputStream gz = new GZIPOutputStream(bos);
+            gz.write(data);
+            gz.close();
+            return bos.toByteArray();
+        } catch (IOException e) {
+            // Cannot happen when writing to memory
+            throw new RuntimeException(e);
         }
     }
 
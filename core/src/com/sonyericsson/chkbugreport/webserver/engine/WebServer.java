@@ -43,14 +43,33 @@ public class WebServer {
     }
 
     public void process(InputStream is, OutputStream os) {
+        process(is, os, false);
+    }
+
+    /**
+     * Reads one request from the input stream, processes it and writes the response.
+     * @param is The input stream of the connection
+     * @param os The output stream of the connection
+     * @param allowKeepAlive If false, the connection is closed after the response
+     * @return true if the connection can be used for the next request
+     */
+    public boolean process(InputStream is, OutputStream os, boolean allowKeepAlive) {
         HTTPRequest req = new HTTPRequest(is);
+        if (req.isEndOfStream()) {
+            return false;
+        }
         HTTPResponse resp = new HTTPResponse(os);
+        boolean keepAlive = false;
         if (req.isValid()) {
+            keepAlive = allowKeepAlive && req.isKeepAlive();
+            resp.setKeepAlive(keepAlive);
+            resp.setCompression(req.acceptsGzip());
             process(req, resp);
         } else {
             resp.setResponseCode(500);
         }
         resp.flush();
+        return keepAlive;
     }
 
     public void process(HTTPRequest req, HTTPResponse resp) {
@@ -18,23 +18,50 @@
  */
 package com.sonyericsson.chkbugreport.webserver.engine;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class implements the socket part of the web server.
  * It listens on the specified socket and when a client connect, it hands the connection
  * over to the WebServer.
+ * The connections are handled by a thread pool (or by virtual threads, if the JVM supports
+ * them), and each connection is kept open for several requests (HTTP/1.1 keep-alive).
+ * Pipelined requests are processed in order.
+ * When the thread pool is used and all its threads are busy, the idle connections are closed
+ * instead of being kept open, so the waiting clients are not starved.
  */
 public class WebServerSocket implements Runnable {
 
     private static final boolean DEBUG = false;
 
+    /** Idle connections are closed after this time (in milliseconds) */
+    private static final int IDLE_TIMEOUT = 5000;
+    /** The maximum number of requests handled on the same connection */
+    private static final int MAX_REQUESTS = 1000;
+    /** How often an idle connection checks if other connections are waiting for a thread */
+    private static final int IDLE_POLL = 100;
+
     private WebServer mServer;
     private int mPort = 8080;
+    private int mThreadCount = 32;
     private Thread thread;
     private ServerSocket ss;
+    private ExecutorService mPool;
+    /** The thread pool, or null if virtual threads are used */
+    private ThreadPoolExecutor mThreadPool;
 
     public WebServerSocket(WebServer server) {
         mServer = server;
@@ -48,11 +75,41 @@ public class WebServerSocket implements Runnable {
         return mPort;
     }
 
+    /**
+     * Sets the number of threads handling the connections.
+     * This has no effect when virtual threads are used.
+     */
+    public void setThreadCount(int count) {
+        mThreadCount = count;
+    }
+
     public void start() {
+        mPool = createPool();
         thread = new Thread(this);
         thread.start();
     }
 
+    private ExecutorService createPool() {
+        try {
+            // Available since Java 21
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (Exception e) {
+            // Fall back to a bounded thread pool, where the threads are created only when needed
+        }
+        mThreadPool = new ThreadPoolExecutor(mThreadCount, mThreadCount, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        mThreadPool.allowCoreThreadTimeOut(true);
+        return mThreadPool;
+    }
+
+    /**
+     * Returns true if there are connections waiting for a free thread.
+     */
+    private boolean isSaturated() {
+        return mThreadPool != null && !mThreadPool.getQueue().isEmpty();
+    }
+
     @Override
     public void run() {
         try {
@@ -61,16 +118,18 @@ public class WebServerSocket implements Runnable {
                 if (DEBUG) System.out.println("Waiting for connection...");
                 Socket sock = ss.accept();
                 if (DEBUG) System.out.println("Client connected!");
-                ClientThread ct = new ClientThread(mServer, sock);
-                ct.start();
+                mPool.execute(new Connection(sock));
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            if (thread != null) {
+                e.printStackTrace();
+            }
         }
 
     }
 
     public void stop() {
+        thread = null;
         try {
             if (ss != null) {
                 ss.close();
@@ -78,36 +137,73 @@ public class WebServerSocket implements Runnable {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        if (mPool != null) {
+            mPool.shutdownNow();
+        }
     }
 
-    public static class ClientThread extends Thread {
-
-        private static final boolean ENABLE_THREADS = true;
+    /**
+     * Handles the requests received on one connection.
+     */
+    private class Connection implements Runnable {
 
         private Socket mSock;
-        private WebServer mServer;
 
-        public ClientThread(WebServer server, Socket sock) {
-            mServer = server;
+        public Connection(Socket sock) {
             mSock = sock;
         }
 
         @Override
-        public synchronized void start() {
-            if (ENABLE_THREADS) {
-                super.start();
-            } else {
-                run();
+        public void run() {
+            try {
+                mSock.setSoTimeout(IDLE_TIMEOUT);
+                mSock.setTcpNoDelay(true);
+                InputStream is = new BufferedInputStream(mSock.getInputStream());
+                OutputStream os = new BufferedOutputStream(mSock.getOutputStream());
+                for (int i = 1; i <= MAX_REQUESTS; i++) {
+                    if (i > 1 && !waitForRequest(is)) {
+                        break;
+                    }
+                    if (!mServer.process(is, os, i < MAX_REQUESTS && !isSaturated())) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                if (DEBUG) e.printStackTrace();
+            } finally {
+                try {
+                    mSock.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
             }
         }
 
-        @Override
-        public void run() {
+        /**
+         * Waits for the next request on the kept-alive connection.
+         * @return false if the connection should be closed: it was idle for too long, the client
+         *   closed it, or other connections are waiting for the thread
+         */
+        private boolean waitForRequest(InputStream is) throws IOException {
+            long deadline = System.currentTimeMillis() + IDLE_TIMEOUT;
+            mSock.setSoTimeout(IDLE_POLL);
             try {
-                mServer.process(mSock.getInputStream(), mSock.getOutputStream());
-                mSock.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+                while (true) {
+                    is.mark(1);
+                    try {
+                        if (is.read() < 0) {
+                            return false;
+                        }
+                        is.reset();
+                        return true;
+                    } catch (SocketTimeoutException e) {
+                        if (isSaturated() || System.currentTimeMillis() >= deadline) {
+                            return false;
+                        }
+                    }
+                }
+            } finally {
+                mSock.setSoTimeout(IDLE_TIMEOUT);
             }
         }
 
@@ -0,0 +1,56 @@
+import com.sonyericsson.chkbugreport.util.AhoCorasick;
+
+import org.junit.Test;
+
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AhoCorasickTest {
+
+    private Vector<String> search(AhoCorasick ac, String text) {
+        final Vector<String> ret = new Vector<String>();
+        final AhoCorasick fac = ac;
+        ac.search(text, new AhoCorasick.Listener() {
+            @Override
+            public void onMatch(int keyword, int end) {
+                ret.add(fac.get(keyword) + "@" + end);
+            }
+        });
+        return ret;
+    }
+
+    @Test
+    public void findsOverlappingKeywords() {
+        AhoCorasick ac = new AhoCorasick();
+        ac.add("he");
+        ac.add("she");
+        ac.add("his");
+        ac.add("hers");
+        assertEquals("[she@4, he@4, hers@6]", search(ac, "ushers").toString());
+        assertEquals("[his@3]", search(ac, "his").toString());
+        assertEquals("[]", search(ac, "xyz").toString());
+    }
+
+    @Test
+    public void findsTheSameKeywordTwice() {
+        AhoCorasick ac = new AhoCorasick();
+        int a = ac.add("aa");
+        int b = ac.add("aa");
+        assertEquals(0, a);
+        assertEquals(1, b);
+        assertEquals("[aa@2, aa@2, aa@3, aa@3]", search(ac, "aaa").toString());
+    }
+
+    @Test
+    public void checksIfAnyKeywordIsPresent() {
+        AhoCorasick ac = new AhoCorasick();
+        ac.add("ActivityManager");
+        ac.add("FATAL");
+        assertTrue(ac.containsAny("E/AndroidRuntime: FATAL EXCEPTION"));
+        assertFalse(ac.containsAny("I/WindowManager: rotation"));
+    }
+
+}
@@ -0,0 +1,212 @@
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Context;
+import com.sonyericsson.chkbugreport.Section;
+import com.sonyericsson.chkbugreport.plugins.logs.BinaryLogReader;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLine;
+import com.sonyericsson.chkbugreport.util.CompressedInput;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Vector;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryLogReaderTest {
+    BugReportModule bugReport;
+    ByteArrayOutputStream data;
+
+    /** 2026-01-08 15:30:13 UTC */
+    static final int SEC = 1767886213;
+
+    @Before
+    public void setup() {
+        bugReport = new BugReportModule(new Context());
+        data = new ByteArrayOutputStream();
+    }
+
+    private void writeShort(int v) {
+        data.write(v & 0xff);
+        data.write((v >> 8) & 0xff);
+    }
+
+    private void writeInt(int v) {
+        writeShort(v);
+        writeShort(v >> 16);
+    }
+
+    /** Writes a logger_entry_v4 record */
+    private void writeRecord(int lid, int pid, int tid, int ms, int uid, byte[] payload) {
+        writeShort(payload.length);
+        writeShort(28);
+        writeInt(pid);
+        writeInt(tid);
+        writeInt(SEC);
+        writeInt(ms * 1000000);
+        writeInt(lid);
+        writeInt(uid);
+        data.write(payload, 0, payload.length);
+    }
+
+    private void writeText(int lid, int pid, int tid, int ms, int prio, String tag, String msg) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        payload.write(prio);
+        byte tagBytes[] = tag.getBytes();
+        payload.write(tagBytes, 0, tagBytes.length);
+        payload.write(0);
+        byte msgBytes[] = msg.getBytes();
+        payload.write(msgBytes, 0, msgBytes.length);
+        payload.write(0);
+        writeRecord(lid, pid, tid, ms, 1000, payload.toByteArray());
+    }
+
+    private Vector<LogLine> readAll() throws IOException {
+        BinaryLogReader reader = new BinaryLogReader(bugReport, new ByteArrayInputStream(data.toByteArray()));
+        Vector<LogLine> ret = new Vector<LogLine>();
+        while (reader.read(ret)) {
+            // NOP
+        }
+        return ret;
+    }
+
+    @Test
+    public void detectsBinaryLogs() {
+        writeText(BinaryLogReader.LOG_ID_SYSTEM, 1497, 1500, 732, 4, "ActivityManager", "Start proc com.foo");
+        byte bin[] = data.toByteArray();
+        assertTrue(BinaryLogReader.isBinaryLog(bin, 0, bin.length));
+        byte text[] = "01-08 15:30:13.732  1000  1497  1500 I ActivityManager: Start proc com.foo\n".getBytes();
+        assertFalse(BinaryLogReader.isBinaryLog(text, 0, text.length));
+    }
+
+    @Test
+    public void createsTheSameLinesAsTheTextLog() throws IOException {
+        writeText(BinaryLogReader.LOG_ID_SYSTEM, 1497, 1500, 732, 4, "ActivityManager", "Start proc com.foo");
+        Vector<LogLine> lines = readAll();
+        assertEquals(1, lines.size());
+        LogLine sl = lines.get(0);
+        String text = "01-08 15:30:13.732  1000  1497  1500 I ActivityManager: Start proc com.foo";
+        LogLine expected = new LogLine(bugReport, text, LogLine.FMT_BRAT, null);
+        assertEquals(text, sl.line);
+        assertEquals(expected.ts, sl.ts);
+        assertEquals(expected.pid, sl.pid);
+        assertEquals(expected.level, sl.level);
+        assertEquals(expected.tag, sl.tag);
+        assertEquals(expected.msg, sl.msg);
+        assertEquals(LogLine.FMT_BRAT, sl.fmt);
+    }
+
+    @Test
+    public void splitsMultiLineMessages() throws IOException {
+        writeText(BinaryLogReader.LOG_ID_MAIN, 123, 124, 5, 6, "AndroidRuntime", "FATAL EXCEPTION: main\n\tat Foo.bar()\n");
+        Vector<LogLine> lines = readAll();
+        assertEquals(2, lines.size());
+        assertEquals("FATAL EXCEPTION: main", lines.get(0).msg);
+        assertEquals("\tat Foo.bar()", lines.get(1).msg);
+        assertEquals('E', lines.get(1).level);
+    }
+
+    private void writeEvent(int tag, int value) {
+        ByteArrayOutputStream saved = data;
+        data = new ByteArrayOutputStream();
+        writeInt(tag);
+        data.write(0); // int
+        writeInt(value);
+        byte payload[] = data.toByteArray();
+        data = saved;
+        writeRecord(BinaryLogReader.LOG_ID_EVENTS, 1497, 1500, 0, 1000, payload);
+    }
+
+    @Test
+    public void formatsEvents() throws IOException {
+        ByteArrayOutputStream saved = data;
+        data = new ByteArrayOutputStream();
+        writeInt(30014); // tag
+        data.write(3); // list
+        data.write(2);
+        data.write(0); // int
+        writeInt(42);
+        data.write(2); // string
+        writeInt(7);
+        byte str[] = "com.foo".getBytes();
+        data.write(str, 0, str.length);
+        byte payload[] = data.toByteArray();
+        data = saved;
+        writeRecord(BinaryLogReader.LOG_ID_EVENTS, 1497, 1500, 0, 1000, payload);
+
+        BinaryLogReader reader = new BinaryLogReader(bugReport, new ByteArrayInputStream(data.toByteArray()));
+        Vector<LogLine> lines = new Vector<LogLine>();
+        assertTrue(reader.read(lines));
+        assertEquals(Section.EVENT_LOG, BinaryLogReader.getSectionName(reader.getLogId()));
+        assertEquals("30014", lines.get(0).tag);
+        assertEquals("[42,com.foo]", lines.get(0).msg);
+        assertEquals(2, lines.get(0).fields.length);
+        assertEquals(1, reader.getUnresolvedCount());
+    }
+
+    @Test
+    public void resolvesEventTags() throws IOException {
+        File tags = File.createTempFile("event-log-tags", ".txt");
+        tags.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(tags);
+        fos.write(("# Comment\n"
+                + "option java_package com.android.server\n"
+                + "2722 battery_level (level|1|6),(voltage|1|1),(temperature|1|1)\n"
+                + "30008 am_anr (User|1|5),(pid|1|5),(Package Name|3),(Flags|1|5),(reason|3)\n").getBytes());
+        fos.close();
+        Context ctx = new Context();
+        ctx.setEventTagsFile(tags.getAbsolutePath());
+        bugReport = new BugReportModule(ctx);
+
+        writeEvent(2722, 95);
+        writeEvent(12345, 1);
+        BinaryLogReader reader = new BinaryLogReader(bugReport, new ByteArrayInputStream(data.toByteArray()));
+        Vector<LogLine> lines = new Vector<LogLine>();
+        while (reader.read(lines)) {
+            // NOP
+        }
+        assertEquals(2, lines.size());
+        assertEquals("battery_level", lines.get(0).tag);
+        assertEquals("95", lines.get(0).msg);
+        assertEquals("12345", lines.get(1).tag);
+        assertEquals(1, reader.getUnresolvedCount());
+    }
+
+    @Test
+    public void decompressesGzip() throws IOException {
+        ByteArrayOutputStream gz = new ByteArrayOutputStream();
+        GZIPOutputStream os = new GZIPOutputStream(gz);
+        os.write("hello\n".getBytes());
+        os.close();
+        byte buff[] = gz.toByteArray();
+        assertEquals(CompressedInput.GZIP, CompressedInput.detect(buff, 0, buff.length));
+
+        InputStream is = CompressedInput.wrap(new BufferedInputStream(new ByteArrayInputStream(buff)));
+        byte out[] = new byte[16];
+        int len = is.read(out);
+        assertEquals("hello\n", new String(out, 0, len));
+
+        byte plain[] = "hello\n".getBytes();
+        assertEquals(null, CompressedInput.detect(plain, 0, plain.length));
+    }
+
+    @Test
+    public void detectsBzip2OnlyWithBlockSize() {
+        byte bz[] = "BZh91AY&SY".getBytes();
+        assertEquals(CompressedInput.BZIP2, CompressedInput.detect(bz, 0, bz.length));
+
+        byte text[] = "BZh: some log line\n".getBytes();
+        assertEquals(null, CompressedInput.detect(text, 0, text.length));
+        assertEquals(null, CompressedInput.detect(bz, 0, 3));
+    }
+
+}
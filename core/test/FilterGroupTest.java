@@ -0,0 +1,165 @@
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Context;
+import com.sonyericsson.chkbugreport.Section;
+import com.sonyericsson.chkbugreport.plugins.logs.SystemLogPlugin;
+import com.sonyericsson.chkbugreport.plugins.logs.webapp.Filter;
+import com.sonyericsson.chkbugreport.plugins.logs.webapp.FilterGroup;
+import com.sonyericsson.chkbugreport.util.SaveFile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class FilterGroupTest {
+
+    private static final String TAGS[] = { "ActivityManager", "dalvikvm", "WindowManager", "Audio" };
+
+    private BugReportModule mMod;
+    private SystemLogPlugin mLog;
+    private FilterGroup mGroup;
+    private int mNextLine;
+
+    @Before
+    public void setup() throws IOException {
+        File file = File.createTempFile("filters", ".zip");
+        file.delete();
+        file.deleteOnExit();
+        mGroup = new FilterGroup(new SaveFile(file.getAbsolutePath()), "test", "Test");
+
+        mMod = new BugReportModule(new Context());
+        Section sec = new Section(mMod, Section.SYSTEM_LOG);
+        for (String line : createLines(300)) {
+            sec.addLine(line);
+        }
+        mMod.addSection(sec);
+        mLog = new SystemLogPlugin();
+        mLog.reset();
+        mLog.load(mMod);
+    }
+
+    private Vector<String> createLines(int cnt) {
+        Vector<String> ret = new Vector<String>();
+        for (int i = 0; i < cnt; i++) {
+            int idx = mNextLine++;
+            ret.add(String.format("01-01 10:%02d:%02d.000  1000  %4d  %4d I %s: message %d value %d",
+                    idx / 60 % 60, idx % 60, 100 + idx % 7, 100 + idx % 7,
+                    TAGS[idx % TAGS.length], idx, idx % 10));
+        }
+        return ret;
+    }
+
+    /**
+     * Checks the cached result against calling handle() on each line.
+     */
+    private void check() {
+        int cnt = mLog.size();
+        BitSet expected = new BitSet(cnt);
+        for (int i = 0; i < cnt; i++) {
+            if (mGroup.handle(mLog.get(i))) {
+                expected.set(i);
+            }
+        }
+        BitSet visible = mGroup.getVisibleLines(mLog);
+        assertEquals(expected, visible);
+        assertSame(visible, mGroup.getVisibleLines(mLog));
+    }
+
+    @Test
+    public void followsFilterChanges() {
+        check();
+
+        // Add filters
+        Filter hideDalvik = new Filter("dalvik", "", "", Filter.Action.HIDE, 0);
+        Filter showValue = new Filter("", "value [37]", "", Filter.Action.SHOW, 0);
+        Filter hideAm = new Filter("Activity", "message 1", "", Filter.Action.HIDE, 0);
+        mGroup.add(hideDalvik);
+        check();
+        mGroup.add(showValue);
+        check();
+        mGroup.add(hideAm);
+        check();
+
+        // Edit a filter
+        hideDalvik.setTag("Window");
+        mGroup.update(hideDalvik);
+        check();
+        showValue.setAction(Filter.Action.COLOR);
+        mGroup.update(showValue);
+        check();
+
+        // Reorder: move the first filter to the end
+        mGroup.delete(hideDalvik);
+        mGroup.add(hideDalvik);
+        check();
+
+        // Delete filters
+        mGroup.delete(showValue);
+        check();
+        mGroup.delete(hideAm);
+        mGroup.delete(hideDalvik);
+        check();
+        assertEquals(0, mGroup.getCount());
+    }
+
+    @Test
+    public void followsAppendedLines() {
+        Filter hide = new Filter("", "value [0-4]$", "", Filter.Action.HIDE, 0);
+        Filter show = new Filter("Audio", "", "", Filter.Action.SHOW, 0);
+        mGroup.add(hide);
+        mGroup.add(show);
+        check();
+
+        assertEquals(20, mLog.append(mMod, createLines(20)));
+        check();
+
+        // Edit a filter, then append more lines
+        hide.setMsg("value [5-9]$");
+        mGroup.update(hide);
+        assertEquals(1, mLog.append(mMod, createLines(1)));
+        check();
+
+        // Append lines, then reorder the filters
+        assertEquals(5, mLog.append(mMod, createLines(5)));
+        mGroup.delete(hide);
+        mGroup.add(hide);
+        check();
+    }
+
+    @Test
+    public void matchesFullEvaluationAfterRandomChanges() {
+        Random rnd = new Random(42);
+        String msgs[] = { "", "value 1", "message [0-9]*5 ", "value [2-6]" };
+        Filter.Action actions[] = Filter.Action.values();
+        for (int step = 0; step < 200; step++) {
+            int op = rnd.nextInt(5);
+            if (op == 0 || mGroup.getCount() == 0) {
+                String tag = rnd.nextBoolean() ? TAGS[rnd.nextInt(TAGS.length)] : "";
+                String msg = tag.isEmpty() ? msgs[1 + rnd.nextInt(msgs.length - 1)] : msgs[rnd.nextInt(msgs.length)];
+                mGroup.add(new Filter(tag, msg, "", actions[rnd.nextInt(actions.length)], 0));
+            } else if (op == 1) {
+                Filter f = mGroup.get(rnd.nextInt(mGroup.getCount()));
+                f.setMsg(msgs[1 + rnd.nextInt(msgs.length - 1)]);
+                f.setAction(actions[rnd.nextInt(actions.length)]);
+                mGroup.update(f);
+            } else if (op == 2) {
+                mGroup.delete(mGroup.get(rnd.nextInt(mGroup.getCount())));
+            } else if (op == 3) {
+                Filter f = mGroup.get(rnd.nextInt(mGroup.getCount()));
+                mGroup.delete(f);
+                mGroup.add(f);
+            } else {
+                mLog.append(mMod, createLines(1 + rnd.nextInt(10)));
+            }
+            check();
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+import com.sonyericsson.chkbugreport.util.LineReader;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LineReaderTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static LineReader reader(String s) {
+        byte buff[] = s.getBytes(UTF8);
+        return new LineReader(new ByteArrayInputStream(buff));
+    }
+
+    @Test
+    public void readsLines() {
+        LineReader sut = reader("first\nsecond\n\nlast");
+        assertEquals("first", sut.readLine());
+        assertEquals("second", sut.readLine());
+        assertEquals("", sut.readLine());
+        assertEquals("last", sut.readLine());
+        assertNull(sut.readLine());
+    }
+
+    @Test
+    public void handlesWindowsLineEndings() {
+        LineReader sut = reader("first\r\nsecond\r\n");
+        assertEquals("first", sut.readLine());
+        assertEquals("second", sut.readLine());
+        assertNull(sut.readLine());
+    }
+
+    @Test
+    public void handlesDoubleCarriageReturn() {
+        LineReader sut = reader("first\r\r\nsecond\r\r\n\r\r\nthird");
+        assertEquals("first", sut.readLine());
+        assertEquals("second", sut.readLine());
+        assertEquals("", sut.readLine());
+        assertEquals("third", sut.readLine());
+        assertNull(sut.readLine());
+    }
+
+    @Test
+    public void skipsUtf8Marker() {
+        LineReader sut = reader("﻿first\nsecond");
+        assertEquals("first", sut.readLine());
+        assertEquals("second", sut.readLine());
+    }
+
+    @Test
+    public void decodesUtf8() {
+        LineReader sut = reader("I/Tag( 123): héllö 日本\n");
+        assertEquals("I/Tag( 123): héllö 日本", sut.readLine());
+        assertNull(sut.readLine());
+    }
+
+    @Test
+    public void decodesWithGivenCharset() {
+        Charset latin1 = Charset.forName("ISO-8859-1");
+        byte buff[] = "héllo\n".getBytes(latin1);
+        LineReader sut = new LineReader(new ByteArrayInputStream(buff), latin1);
+        assertEquals("héllo", sut.readLine());
+    }
+
+    @Test
+    public void readsLinesLongerThanBuffer() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            sb.append((char)('a' + i % 26));
+        }
+        String line = sb.toString();
+        LineReader sut = reader(line + "\r\n" + line);
+        assertEquals(line, sut.readLine());
+        assertEquals(line, sut.readLine());
+        assertNull(sut.readLine());
+    }
+
+    @Test
+    public void readsLinesSplitBetweenReads() {
+        // Return the data one byte at a time to test lines spanning several blocks
+        final byte data[] = "ab\r\r\ncd\néf\n".getBytes(UTF8);
+        InputStream is = new InputStream() {
+            private int mPos = 0;
+
+            @Override
+            public int read() {
+                return mPos < data.length ? (data[mPos++] & 0xff) : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                int c = read();
+                if (c < 0) return -1;
+                b[off] = (byte)c;
+                return 1;
+            }
+        };
+        LineReader sut = new LineReader(is);
+        assertEquals("ab", sut.readLine());
+        assertEquals("cd", sut.readLine());
+        assertEquals("éf", sut.readLine());
+        assertNull(sut.readLine());
+    }
+
+    @Test
+    public void readsFromByteArray() {
+        byte buff[] = "xxété\nfoo\nyy".getBytes(UTF8);
+        // Skip the leading "xx" and the trailing "yy"
+        LineReader sut = new LineReader(buff, 2, buff.length - 4);
+        assertEquals("été", sut.readLine());
+        assertEquals("foo", sut.readLine());
+        assertNull(sut.readLine());
+    }
+
+}
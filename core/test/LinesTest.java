@@ -0,0 +1,135 @@
+import com.sonyericsson.chkbugreport.Lines;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LinesTest {
+    Lines sut;
+
+    @Before
+    public void setup() {
+        sut = new Lines("test");
+    }
+
+    @Test
+    public void storesLines() {
+        sut.addLine("first");
+        sut.addLine("");
+        sut.addLine("héllo wörld");
+        sut.addLine("日本語 text");
+        assertEquals(4, sut.getLineCount());
+        assertEquals("first", sut.getLine(0));
+        assertEquals("", sut.getLine(1));
+        assertEquals("héllo wörld", sut.getLine(2));
+        assertEquals("日本語 text", sut.getLine(3));
+    }
+
+    @Test
+    public void insertsAndRemovesLines() {
+        sut.addLine("a");
+        sut.addLine("c");
+        sut.addLine("b", 1);
+        sut.addLine("start", 0);
+        assertEquals(4, sut.getLineCount());
+        assertEquals("start", sut.getLine(0));
+        assertEquals("a", sut.getLine(1));
+        assertEquals("b", sut.getLine(2));
+        assertEquals("c", sut.getLine(3));
+        sut.removeLine(0);
+        sut.removeLine(1);
+        assertEquals(2, sut.getLineCount());
+        assertEquals("a", sut.getLine(0));
+        assertEquals("c", sut.getLine(1));
+    }
+
+    @Test
+    public void storesManyLines() {
+        for (int i = 0; i < 100000; i++) {
+            sut.addLine("line " + i);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 3000000; i++) {
+            sb.append('x');
+        }
+        sut.addLine(sb.toString());
+        assertEquals(100001, sut.getLineCount());
+        assertEquals("line 0", sut.getLine(0));
+        assertEquals("line 99999", sut.getLine(99999));
+        assertEquals(sb.toString(), sut.getLine(100000));
+    }
+
+    @Test
+    public void returnsLineViews() {
+        sut.addLine("I/Tag: hello");
+        sut.addLine("I/Tag: 日本");
+        CharSequence view = sut.getLineView(0);
+        assertEquals(12, view.length());
+        assertEquals('T', view.charAt(2));
+        assertEquals("hello", view.subSequence(7, 12).toString());
+        view = sut.getLineView(1);
+        assertEquals(9, view.length());
+        assertEquals('日', view.charAt(7));
+        assertEquals("日本", view.subSequence(7, 9).toString());
+        assertEquals("I/Tag: 日本", view.toString());
+    }
+
+    @Test
+    public void keepsViewsAfterModification() {
+        sut.addLine("first");
+        CharSequence view = sut.getLineView(0);
+        sut.removeLine(0);
+        for (int i = 0; i < 1000; i++) {
+            sut.addLine("some other line " + i);
+        }
+        assertEquals("first", view.toString());
+    }
+
+    @Test
+    public void clears() {
+        sut.addLine("first");
+        sut.clear();
+        assertEquals(0, sut.getLineCount());
+        sut.addLine("second");
+        assertEquals("second", sut.getLine(0));
+    }
+
+    @Test
+    public void readsWhileAppending() throws InterruptedException {
+        final int count = 200000;
+        final AtomicReference<String> error = new AtomicReference<String>();
+        Thread readers[] = new Thread[4];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread() {
+                @Override
+                public void run() {
+                    int checked = 0;
+                    while (checked < count && error.get() == null) {
+                        int cnt = sut.getLineCount();
+                        for (; checked < cnt; checked++) {
+                            String expected = (checked % 3 == 0) ? "wide \u65e5 " + checked : "line " + checked;
+                            if (!expected.equals(sut.getLine(checked))
+                                    || !expected.equals(sut.getLineView(checked).toString())) {
+                                error.set("Line " + checked + ": " + sut.getLine(checked));
+                                return;
+                            }
+                        }
+                    }
+                }
+            };
+            readers[t].start();
+        }
+        for (int i = 0; i < count; i++) {
+            sut.addLine((i % 3 == 0) ? "wide \u65e5 " + i : "line " + i);
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(error.get());
+    }
+
+}
@@ -0,0 +1,92 @@
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Context;
+import com.sonyericsson.chkbugreport.Section;
+import com.sonyericsson.chkbugreport.plugins.logs.LogAnalyzers;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLine;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLines;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Vector;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+
+public class LogAnalyzersTest {
+    BugReportModule bugReport;
+    LogLines lines;
+    LogAnalyzers analyzers;
+    Vector<String> calls;
+
+    @Before
+    public void setup() {
+        bugReport = new BugReportModule(new Context());
+        lines = new LogLines();
+        analyzers = new LogAnalyzers();
+        calls = new Vector<String>();
+        add("01-08 15:30:13.732  1000  1497  1497 I ActivityManager: Start proc com.foo");
+        add("01-08 15:30:13.733  1000  1497  1497 E ActivityManager: ANR in com.foo");
+        add("01-08 15:30:13.734  1000   123   124 E AndroidRuntime: FATAL EXCEPTION: main");
+        add("01-08 15:30:13.735  1000   123   124 D am_proc_start: [1,2]");
+    }
+
+    private void add(String line) {
+        lines.add(new LogLine(bugReport, line, LogLine.FMT_BRAT, null));
+    }
+
+    private LogAnalyzers.Analyzer record(final String name) {
+        return new LogAnalyzers.Analyzer() {
+            @Override
+            public void analyze(LogLine sl, int i, BugReportModule br, Section s) {
+                calls.add(name + ":" + i);
+            }
+        };
+    }
+
+    private void analyzeAll() {
+        analyzers.prepare(lines.getColumns());
+        for (int i = 0; i < lines.size(); i++) {
+            analyzers.analyze(lines.get(i), i, bugReport, null);
+        }
+    }
+
+    @Test
+    public void dispatchesByTagLevelAndPrefix() {
+        analyzers.add("ActivityManager", 'I', "Start proc ", record("start"));
+        analyzers.add("ActivityManager", 'E', null, record("amError"));
+        analyzers.add("ActivityManager", 'I', "ANR in ", record("never"));
+        analyzers.add("WindowManager", LogAnalyzers.ANY_LEVEL, null, record("never"));
+        analyzeAll();
+        assertEquals("[start:0, amError:1]", calls.toString());
+    }
+
+    @Test
+    public void keepsTheRegistrationOrder() {
+        analyzers.add((String) null, 'E', null, record("anyError"));
+        analyzers.add("AndroidRuntime", 'E', "FATAL EXCEPTION:", record("fatal"));
+        analyzers.add((String) null, LogAnalyzers.ANY_LEVEL, null, record("all"));
+        analyzeAll();
+        assertEquals("[all:0, anyError:1, all:1, anyError:2, fatal:2, all:2, all:3]", calls.toString());
+    }
+
+    @Test
+    public void matchesTagPatterns() {
+        analyzers.add(Pattern.compile("am_.*"), LogAnalyzers.ANY_LEVEL, null, record("am"));
+        analyzers.add(Pattern.compile("Activity.*"), 'E', null, record("activity"));
+        analyzeAll();
+        assertEquals("[activity:1, am:3]", calls.toString());
+    }
+
+    @Test
+    public void resolvesNewTags() {
+        analyzers.add("WindowManager", 'I', null, record("wm"));
+        analyzeAll();
+        assertEquals(0, calls.size());
+        add("01-08 15:30:14.000  1000  1497  1497 I WindowManager: Setting rotation to 1");
+        analyzers.prepare(lines.getColumns());
+        analyzers.analyze(lines.get(4), 4, bugReport, null);
+        assertEquals("[wm:4]", calls.toString());
+    }
+
+}
@@ -0,0 +1,103 @@
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Context;
+import com.sonyericsson.chkbugreport.plugins.logs.LogColumns;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLine;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLines;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LogColumnsTest {
+    BugReportModule bugReport;
+    LogLines lines;
+
+    @Before
+    public void setup() {
+        bugReport = new BugReportModule(new Context());
+        lines = new LogLines();
+        lines.add(parse("01-08 15:30:13.732  1000  1497  1497 D ActivityManager: Start proc com.foo"));
+        lines.add(parse("--------- beginning of main"));
+        lines.add(parse("01-08 15:30:14.001  1000   123   124 E ActivityManager: ANR in com.foo"));
+        lines.add(parse("01-08 15:30:14.002  1000   123   124 E AndroidRuntime: "));
+    }
+
+    private LogLine parse(String line) {
+        return new LogLine(bugReport, line, LogLine.FMT_BRAT, null);
+    }
+
+    @Test
+    public void storesTheColumns() {
+        LogColumns cols = lines.getColumns();
+        assertEquals(4, cols.size());
+        assertTrue(cols.isOk(0));
+        assertEquals(lines.get(0).ts, cols.getTs(0));
+        assertEquals(1497, cols.getPid(0));
+        assertEquals('D', cols.getLevel(0));
+        assertEquals("ActivityManager", cols.getTag(0));
+        assertEquals(123, cols.getPid(2));
+        assertEquals('E', cols.getLevel(2));
+        assertSame(lines.get(2), cols.getLogLine(2));
+    }
+
+    @Test
+    public void internsTheTags() {
+        LogColumns cols = lines.getColumns();
+        assertEquals(2, cols.getTagCount());
+        assertEquals(cols.getTagId(0), cols.getTagId(2));
+        assertEquals(cols.findTag("ActivityManager"), cols.getTagId(0));
+        assertEquals(-1, cols.findTag("WindowManager"));
+        assertSame(lines.get(0).tag, lines.get(2).tag);
+    }
+
+    @Test
+    public void handlesUnparsedLines() {
+        LogColumns cols = lines.getColumns();
+        assertFalse(cols.isOk(1));
+        assertEquals(-1, cols.getTagId(1));
+        assertNull(cols.getTag(1));
+        assertFalse(cols.msgStartsWith(1, "beginning"));
+    }
+
+    @Test
+    public void checksTheMessages() {
+        LogColumns cols = lines.getColumns();
+        assertTrue(cols.msgStartsWith(0, "Start proc "));
+        assertFalse(cols.msgStartsWith(0, "ANR in "));
+        assertTrue(cols.msgEquals(2, "ANR in com.foo"));
+        assertFalse(cols.msgEquals(2, "ANR in com"));
+        assertTrue(cols.msgContains(2, "com.foo"));
+        assertFalse(cols.msgContains(2, "ActivityManager"));
+        assertTrue(cols.msgEquals(3, ""));
+    }
+
+    @Test
+    public void rebuildsAfterModification() {
+        LogColumns cols = lines.getColumns();
+        assertSame(cols, lines.getColumns());
+        lines.remove(1);
+        cols = lines.getColumns();
+        assertEquals(3, cols.size());
+        assertTrue(cols.isOk(1));
+    }
+
+    @Test
+    public void appendsNewLinesInPlace() {
+        LogColumns cols = lines.getColumns();
+        lines.add(parse("01-08 15:30:15.000  1000   123   124 W WindowManager: new line"));
+        assertSame(cols, lines.getColumns());
+        assertEquals(5, cols.size());
+        assertEquals("WindowManager", cols.getTag(4));
+        assertEquals(3, cols.getTagCount());
+        assertSame(lines.get(4), cols.getLogLine(4));
+        assertEquals(5, lines.getIndex().size());
+        assertEquals(4, lines.getTimeIndex().size());
+        assertEquals(4, lines.getTimeIndex().getLine(3));
+    }
+
+}
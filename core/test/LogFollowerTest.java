@@ -0,0 +1,120 @@
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Context;
+import com.sonyericsson.chkbugreport.Section;
+import com.sonyericsson.chkbugreport.plugins.logs.LogFollower;
+import com.sonyericsson.chkbugreport.plugins.logs.SystemLogPlugin;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LogFollowerTest {
+
+    private File mFile;
+    private BugReportModule mMod;
+    private SystemLogPlugin mPlugin;
+
+    @Before
+    public void setup() throws IOException {
+        mFile = File.createTempFile("follow", ".txt");
+        mFile.deleteOnExit();
+        mMod = new BugReportModule(new Context());
+        mPlugin = new SystemLogPlugin();
+    }
+
+    /**
+     * Writes the initial content of the log, and loads it like it was read from the file.
+     */
+    private void load(String content) throws IOException {
+        write(content, false);
+        Section sec = new Section(mMod, Section.SYSTEM_LOG);
+        String lines[] = content.split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            if (i < lines.length - 1 || content.endsWith("\n")) {
+                sec.addLine(lines[i]);
+            }
+        }
+        sec.setSource(mFile.getAbsolutePath(), mFile.length());
+        mMod.addSection(sec);
+        mPlugin.reset();
+        mPlugin.load(mMod);
+        assertTrue(LogFollower.canFollow(mPlugin));
+    }
+
+    private void write(String content, boolean append) throws IOException {
+        FileOutputStream fos = new FileOutputStream(mFile, append);
+        fos.write(content.getBytes("UTF-8"));
+        fos.close();
+    }
+
+    private static String line(int sec, char level, String msg) {
+        return String.format("01-01 10:00:%02d.000  1000  1000  1000 %c Test: %s\n", sec, level, msg);
+    }
+
+    @Test
+    public void waitsForPartialLines() throws IOException {
+        // The last line is not complete when the log is loaded
+        load(line(0, 'I', "first") + line(1, 'I', "second") + "01-01 10:00:02.000  1000  1000  1000 I Te");
+        assertEquals(2, mPlugin.getParsedLineCount());
+        LogFollower follower = new LogFollower(mMod, mPlugin, 1000);
+
+        // The rest of the partial line is skipped
+        write("st: third\n" + line(3, 'I', "fourth"), true);
+        assertEquals(1, follower.poll());
+        assertEquals(3, mPlugin.getParsedLineCount());
+        assertEquals("fourth", mPlugin.getParsedLine(2).msg);
+
+        // A new partial line is kept until it's complete
+        write("01-01 10:00:04.000  1000  1000  1000 I Test: fi", true);
+        assertEquals(0, follower.poll());
+        write("fth\n", true);
+        assertEquals(1, follower.poll());
+        assertEquals("fifth", mPlugin.getParsedLine(3).msg);
+        assertEquals(0, follower.poll());
+    }
+
+    @Test
+    public void rereadsTruncatedFile() throws IOException {
+        load(line(0, 'I', "first") + line(1, 'I', "second") + line(2, 'I', "third"));
+        LogFollower follower = new LogFollower(mMod, mPlugin, 1000);
+
+        write(line(5, 'I', "new first"), false);
+        assertEquals(1, follower.poll());
+        assertEquals(4, mPlugin.getParsedLineCount());
+        assertEquals("new first", mPlugin.getParsedLine(3).msg);
+
+        write(line(6, 'I', "new second"), true);
+        assertEquals(1, follower.poll());
+        assertEquals("new second", mPlugin.getParsedLine(4).msg);
+    }
+
+    @Test
+    public void analyzesOnlySettledLines() throws IOException {
+        load(line(0, 'I', "first"));
+        LogFollower follower = new LogFollower(mMod, mPlugin, 1000);
+
+        // The fatal line is too recent to be analyzed
+        write(line(10, 'F', "fatal") + line(11, 'I', "after"), true);
+        assertEquals(2, follower.poll());
+        assertEquals(0, mPlugin.getAppendedBugs().size());
+
+        // The log moved on, so the fatal line is analyzed now
+        write(line(15, 'I', "later"), true);
+        assertEquals(1, follower.poll());
+        assertEquals(1, mPlugin.getAppendedBugs().size());
+
+        // The new fatal line is held back, until a poll finds nothing new
+        write(line(16, 'F', "fatal 2"), true);
+        assertEquals(1, follower.poll());
+        assertEquals(1, mPlugin.getAppendedBugs().size());
+        assertEquals(0, follower.poll());
+        assertEquals(2, mPlugin.getAppendedBugs().size());
+    }
+
+}
@@ -0,0 +1,107 @@
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Context;
+import com.sonyericsson.chkbugreport.plugins.logs.LogIndex;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLine;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLines;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LogIndexTest {
+    LogLines lines;
+    LogIndex index;
+
+    @Before
+    public void setup() {
+        BugReportModule bugReport = new BugReportModule(new Context());
+        String tags[] = { "ActivityManager", "WindowManager", "dalvikvm", "AndroidRuntime" };
+        lines = new LogLines();
+        for (int i = 0; i < 5000; i++) {
+            String line = String.format("01-08 15:%02d:%02d.%03d %5d %5d %5d %c %s: message %d from %s",
+                    (i / 60000) % 60, (i / 1000) % 60, i % 1000, 1000, 100 + i % 7, 200 + i % 13,
+                    "DIWE".charAt(i % 4), tags[i % 3], i, (i % 1000 == 7) ? "rare_source" : "common");
+            lines.add(new LogLine(bugReport, line, LogLine.FMT_BRAT, null));
+            if (i % 1000 == 0) {
+                lines.add(new LogLine(bugReport, "--------- beginning of main", LogLine.FMT_BRAT, null));
+            }
+        }
+        index = lines.getIndex();
+    }
+
+    private BitSet scan(Pattern p) {
+        BitSet ret = new BitSet();
+        for (int i = 0; i < lines.size(); i++) {
+            if (p.matcher(lines.get(i).line).find()) {
+                ret.set(i);
+            }
+        }
+        return ret;
+    }
+
+    private void assertSuperset(BitSet expected, BitSet actual) {
+        if (actual == null) return;
+        BitSet missing = (BitSet) expected.clone();
+        missing.andNot(actual);
+        assertTrue(missing.isEmpty());
+    }
+
+    @Test
+    public void indexesTagsPidsAndLevels() {
+        int tag = lines.getColumns().findTag("WindowManager");
+        int tagLines[] = index.getLinesOfTag(tag);
+        assertEquals(5000 / 3 + 1, tagLines.length);
+        for (int i : tagLines) {
+            assertEquals("WindowManager", lines.get(i).tag);
+        }
+        for (int i : index.getLinesOfPid(103)) {
+            assertEquals(103, lines.get(i).pid);
+        }
+        BitSet errors = index.getLinesOfLevel('E');
+        assertEquals(1250, errors.cardinality());
+        assertEquals(0, index.getLinesOfPid(12345).length);
+    }
+
+    @Test
+    public void findsTagsExactly() {
+        BitSet found = index.findTag(Pattern.compile("Manager$"));
+        BitSet expected = new BitSet();
+        for (int i = 0; i < lines.size(); i++) {
+            LogLine ll = lines.get(i);
+            if (ll.ok && ll.tag.endsWith("Manager")) {
+                expected.set(i);
+            }
+        }
+        assertEquals(expected, found);
+    }
+
+    @Test
+    public void narrowsDownTheCandidates() {
+        String patterns[] = { "rare_source", "message 42 ", "rare_s.urce", "messag?e 1\\d+ from rare", "beginning",
+                "[a-z]+_source", "(foo)?rare_source", "xyzzy" };
+        for (String s : patterns) {
+            Pattern p = Pattern.compile(s);
+            BitSet candidates = index.getCandidates(p);
+            assertSuperset(scan(p), candidates);
+        }
+        BitSet rare = index.getCandidates(Pattern.compile("rare_source"));
+        assertTrue(rare.cardinality() < lines.size() / 2);
+        assertTrue(index.getCandidates(Pattern.compile("xyzzy")).isEmpty());
+    }
+
+    @Test
+    public void givesUpOnComplexPatterns() {
+        assertNull(index.getCandidates(Pattern.compile("rare_source|common")));
+        assertNull(index.getCandidates(Pattern.compile("rare_source", Pattern.CASE_INSENSITIVE)));
+        assertNull(index.getCandidates(Pattern.compile("(?i)rare_source")));
+        assertNull(index.getCandidates(Pattern.compile("r.r")));
+        assertNull(index.getCandidates(Pattern.compile("\\x41BC")));
+    }
+
+}
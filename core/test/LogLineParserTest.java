@@ -0,0 +1,60 @@
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Context;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLine;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLineParser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LogLineParserTest {
+    Context context;
+    BugReportModule bugReport;
+    TestSection section;
+
+    @Before
+    public void setup() {
+        context = new Context();
+        bugReport = new BugReportModule(context);
+        section = new TestSection(bugReport, "SYSTEM LOG");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sb.append(String.format("01-08 15:%02d:%02d.%03d %5d %5d %5d I Tag%d: message %d\n",
+                    (i / 60000) % 60, (i / 1000) % 60, i % 1000, 1000, 100 + i % 7, 200 + i % 13, i % 5, i));
+            if (i % 1000 == 0) {
+                sb.append("--------- beginning of main\n");
+            }
+        }
+        section.setTestLines(sb.toString());
+    }
+
+    @Test
+    public void parsesInParallelLikeSequentially() {
+        int cnt = section.getLineCount();
+        context.setThreadCount(1);
+        LogLine expected[] = LogLineParser.parse(bugReport, section, 0, cnt, LogLine.FMT_BRAT);
+        context.setThreadCount(4);
+        LogLine actual[] = LogLineParser.parse(bugReport, section, 0, cnt, LogLine.FMT_BRAT);
+        assertEquals(cnt, actual.length);
+        for (int i = 0; i < cnt; i++) {
+            assertEquals(expected[i].line, actual[i].line);
+            assertEquals(expected[i].ok, actual[i].ok);
+            assertEquals(expected[i].ts, actual[i].ts);
+            assertEquals(expected[i].pid, actual[i].pid);
+            assertEquals(expected[i].tag, actual[i].tag);
+            assertEquals(expected[i].msg, actual[i].msg);
+        }
+    }
+
+    @Test
+    public void parsesRange() {
+        context.setThreadCount(4);
+        LogLine lines[] = LogLineParser.parse(bugReport, section, 2, 5, LogLine.FMT_BRAT);
+        assertEquals(3, lines.length);
+        assertEquals(section.getLine(2), lines[0].line);
+        assertEquals("message 1", lines[0].msg);
+        assertEquals(true, lines[0].ok);
+    }
+
+}
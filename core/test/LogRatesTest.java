@@ -0,0 +1,65 @@
+import com.sonyericsson.chkbugreport.plugins.logs.LogRates;
+
+import org.junit.Test;
+
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+
+public class LogRatesTest {
+
+    @Test
+    public void countsPerBucket() {
+        LogRates rates = new LogRates();
+        rates.add(10500, 1, 100);
+        rates.add(10900, 2, 100);
+        rates.add(12000, 1, 200);
+        assertEquals(3, rates.getLineCount());
+        assertEquals(3, rates.getBucketCount());
+        assertEquals(10000, rates.getBucketTs(0));
+        assertEquals(2, rates.getTotal(0));
+        assertEquals(0, rates.getTotal(1));
+        assertEquals(1, rates.getTotal(2));
+        assertEquals(120, rates.toRate(2));
+    }
+
+    @Test
+    public void mergesBucketsWhenTheLogGetsLonger() {
+        LogRates rates = new LogRates();
+        for (int i = 0; i < LogRates.MAX_BUCKETS; i++) {
+            rates.add(i * 1000, 1, 100);
+        }
+        assertEquals(1000, rates.getBucketSize());
+        rates.add(LogRates.MAX_BUCKETS * 1000, 1, 100);
+        assertEquals(2000, rates.getBucketSize());
+        assertEquals(LogRates.MAX_BUCKETS / 2 + 1, rates.getBucketCount());
+        assertEquals(2, rates.getTotal(0));
+        assertEquals(1, rates.getTotal(LogRates.MAX_BUCKETS / 2));
+        assertEquals(2, rates.getTags().getTop().get(0).getBucket(1));
+    }
+
+    @Test
+    public void keepsTheTopKeys() {
+        LogRates rates = new LogRates(2);
+        for (int i = 0; i < 10; i++) {
+            rates.add(1000, 1, 100);
+        }
+        for (int i = 0; i < 5; i++) {
+            rates.add(1000, 2, 100);
+        }
+        // Many rare tags, they keep replacing each other in the last slot
+        for (int i = 0; i < 3; i++) {
+            rates.add(1000, 10 + i, 100);
+        }
+        Vector<LogRates.Counter> top = rates.getTags().getTop();
+        assertEquals(2, top.size());
+        assertEquals(1, top.get(0).getKey());
+        assertEquals(10, top.get(0).getCount());
+        assertEquals(0, top.get(0).getError());
+        assertEquals(12, top.get(1).getKey());
+        assertEquals(8, top.get(1).getCount());
+        assertEquals(7, top.get(1).getError());
+        assertEquals(18, rates.getPids().getTop().get(0).getCount());
+    }
+
+}
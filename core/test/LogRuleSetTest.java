@@ -0,0 +1,88 @@
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Context;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLine;
+import com.sonyericsson.chkbugreport.plugins.logs.LogMatcher;
+import com.sonyericsson.chkbugreport.plugins.logs.LogRuleSet;
+import com.sonyericsson.chkbugreport.util.XMLNode;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+
+public class LogRuleSetTest {
+    BugReportModule bugReport;
+    Vector<LogLine> lines;
+
+    @Before
+    public void setup() {
+        bugReport = new BugReportModule(new Context());
+        String tags[] = { "ActivityManager", "WindowManager", "dalvikvm", "AndroidRuntime" };
+        lines = new Vector<LogLine>();
+        for (int i = 0; i < 2000; i++) {
+            String line = String.format("01-08 15:%02d:%02d.%03d %5d %5d %5d %c %s: message %d from %s",
+                    (i / 60000) % 60, (i / 1000) % 60, i % 1000, 1000, 100 + i % 7, 200 + i % 13,
+                    "DIWE".charAt(i % 4), tags[i % 4], i, (i % 50 == 0) ? "Start proc" : "somewhere");
+            lines.add(new LogLine(bugReport, line, LogLine.FMT_BRAT, null));
+            if (i % 500 == 0) {
+                lines.add(new LogLine(bugReport, "--------- beginning of main", LogLine.FMT_BRAT, null));
+            }
+        }
+    }
+
+    private LogMatcher rule(String... attrs) {
+        XMLNode node = new XMLNode("filter");
+        for (int i = 0; i < attrs.length; i += 2) {
+            node.addAttr(attrs[i], attrs[i + 1]);
+        }
+        return new LogMatcher(bugReport, node);
+    }
+
+    @Test
+    public void matchesLikeTheMatchers() {
+        Vector<LogMatcher> rules = new Vector<LogMatcher>();
+        rules.add(rule("matchTag", "Manager$"));
+        rules.add(rule("matchMsg", "^Start proc"));
+        rules.add(rule("matchMsg", "Start proc", "matchTag", "Activity"));
+        rules.add(rule("matchLine", "message 1\\d\\d "));
+        rules.add(rule("matchLine", "beginning|Start"));
+        rules.add(rule("matchMsg", "from somewhere$", "matchTag", "dalvik"));
+        rules.add(rule("matchMsg", "nothing like this"));
+        rules.add(rule("matchLine", " E "));
+        LogRuleSet rs = new LogRuleSet(rules);
+        BitSet actual[] = rs.matchAll(lines);
+        for (int r = 0; r < rules.size(); r++) {
+            BitSet expected = new BitSet();
+            for (int i = 0; i < lines.size(); i++) {
+                if (rules.get(r).matches(lines.get(i))) {
+                    expected.set(i);
+                }
+            }
+            assertEquals(expected, actual[r]);
+        }
+        assertEquals(0, actual[6].cardinality());
+        assertEquals(40 + 4, actual[4].cardinality());
+    }
+
+    @Test
+    public void returnsTheRulesInOrder() {
+        Vector<LogMatcher> rules = new Vector<LogMatcher>();
+        rules.add(rule("matchLine", "message"));
+        rules.add(rule("matchTag", "ActivityManager"));
+        rules.add(rule("matchMsg", "Start proc"));
+        LogRuleSet.Session session = new LogRuleSet(rules).newSession();
+        int found[] = session.match(lines.get(0));
+        assertEquals(3, found.length);
+        assertEquals(0, found[0]);
+        assertEquals(1, found[1]);
+        assertEquals(2, found[2]);
+        found = session.match(lines.get(2));
+        assertEquals(1, found.length);
+        assertEquals(0, found[0]);
+        assertEquals(0, session.match(lines.get(1)).length);
+    }
+
+}
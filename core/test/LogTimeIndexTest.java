@@ -0,0 +1,120 @@
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Context;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLine;
+import com.sonyericsson.chkbugreport.plugins.logs.LogLines;
+import com.sonyericsson.chkbugreport.plugins.logs.LogTimeIndex;
+import com.sonyericsson.chkbugreport.plugins.logs.MergedLogIterator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogTimeIndexTest {
+    BugReportModule bugReport;
+
+    @Before
+    public void setup() {
+        bugReport = new BugReportModule(new Context());
+    }
+
+    private LogLine line(int sec, int ms, String msg) {
+        String line = String.format("01-08 15:00:%02d.%03d  1000  1000  1000 I Tag: %s", sec, ms, msg);
+        return new LogLine(bugReport, line, LogLine.FMT_BRAT, null);
+    }
+
+    private void assertRange(LogLines lines, LogTimeIndex index, long from, long to) {
+        // Brute force: the lines in range, stable sorted by timestamp
+        Vector<Integer> expected = new Vector<Integer>();
+        for (long ts = from; ts <= to; ts++) {
+            for (int i = 0; i < lines.size(); i++) {
+                LogLine ll = lines.get(i);
+                if (ll.ok && ll.ts == ts) {
+                    expected.add(i);
+                }
+            }
+        }
+        int actual[] = index.getLines(from, to);
+        assertEquals(expected.size(), actual.length);
+        for (int i = 0; i < actual.length; i++) {
+            assertEquals((int) expected.get(i), actual[i]);
+        }
+    }
+
+    @Test
+    public void findsLinesInOrderedLog() {
+        LogLines lines = new LogLines();
+        lines.add(new LogLine(bugReport, "--------- beginning of main", LogLine.FMT_BRAT, null));
+        for (int i = 0; i < 100; i++) {
+            lines.add(line(i / 10, (i / 2) * 10, "line " + i));
+        }
+        LogTimeIndex index = lines.getTimeIndex();
+        assertTrue(index.isInOrder());
+        assertEquals(100, index.size());
+        long base = lines.get(1).ts;
+        assertEquals(1, index.findFirst(base - 1000));
+        assertEquals(1, index.findFirst(base));
+        assertEquals(3, index.findFirst(base + 1));
+        assertEquals(-1, index.findFirst(base + 100000));
+        assertRange(lines, index, base + 5, base + 2000);
+        assertRange(lines, index, base, base);
+        assertEquals(0, index.getLines(base + 10, base).length);
+    }
+
+    @Test
+    public void sortsOutOfOrderRuns() {
+        LogLines lines = new LogLines();
+        Random rnd = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            // Mostly increasing, with some jumps back in time
+            int t = (i % 37 == 0) ? rnd.nextInt(i + 1) : i;
+            lines.add(line(t / 100, (t % 100) * 10, "line " + i));
+        }
+        LogTimeIndex index = lines.getTimeIndex();
+        assertFalse(index.isInOrder());
+        assertTrue(index.getRunCount() > 1);
+        for (int pos = 1; pos < index.size(); pos++) {
+            assertTrue(index.getTs(pos - 1) <= index.getTs(pos));
+        }
+        long base = lines.get(0).ts;
+        assertRange(lines, index, base, base + 5000);
+        assertRange(lines, index, base + 1230, base + 2570);
+    }
+
+    @Test
+    public void mergesLogsByTimestamp() {
+        LogLines a = new LogLines();
+        LogLines b = new LogLines();
+        for (int i = 0; i < 20; i++) {
+            a.add(line(i, 0, "a" + i));
+            b.add(line(i, (i % 2 == 0) ? 0 : 500, "b" + i));
+        }
+        Vector<MergedLogIterator.Source> sources = new Vector<MergedLogIterator.Source>();
+        sources.add(new MergedLogIterator.TimeIndexSource(a.getTimeIndex()));
+        sources.add(new MergedLogIterator.TimeIndexSource(b.getTimeIndex()));
+        MergedLogIterator it = new MergedLogIterator(sources);
+        LogLine prev = null;
+        int count = 0;
+        while (it.hasNext()) {
+            LogLine ll = it.next();
+            if (prev != null) {
+                assertTrue(prev.ts <= ll.ts);
+                if (prev.ts == ll.ts) {
+                    // On equal timestamps the first source wins
+                    assertTrue(prev.msg.startsWith("a"));
+                    assertTrue(ll.msg.startsWith("b"));
+                }
+            }
+            assertEquals(ll.msg.startsWith("a") ? 0 : 1, it.getLastSourceIndex());
+            prev = ll;
+            count++;
+        }
+        assertEquals(40, count);
+    }
+
+}
@@ -0,0 +1,193 @@
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Context;
+import com.sonyericsson.chkbugreport.Module;
+import com.sonyericsson.chkbugreport.Plugin;
+import com.sonyericsson.chkbugreport.PluginScheduler;
+import com.sonyericsson.chkbugreport.ProcessRecord;
+import com.sonyericsson.chkbugreport.doc.Block;
+import com.sonyericsson.chkbugreport.doc.SimpleText;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PluginSchedulerTest {
+
+    private BugReportModule mMod;
+    private Vector<String> mLoaded;
+
+    @Before
+    public void setup() {
+        mMod = new BugReportModule(new Context());
+        mLoaded = new Vector<String>();
+    }
+
+    @Test
+    public void buildsEdgesFromDeclaredData() {
+        Vector<Plugin> plugins = new Vector<Plugin>();
+        plugins.add(new TestPlugin("barrier1", null, null));
+        plugins.add(new TestPlugin("a2b", new String[] { "a" }, new String[] { "b" }));
+        plugins.add(new TestPlugin("b2c", new String[] { "b" }, new String[] { "c" }));
+        plugins.add(new TestPlugin("x", new String[] { "x" }, new String[0]));
+        plugins.add(new TestPlugin("writesA", new String[0], new String[] { "a" }));
+        plugins.add(new TestPlugin("alsoC", new String[0], new String[] { "c" }));
+        plugins.add(new TestPlugin("barrier2", null, null));
+        plugins.add(new TestPlugin("y", new String[] { "y" }, new String[0]));
+
+        PluginScheduler sched = new PluginScheduler(mMod, 4);
+        sched.run(plugins);
+
+        // The barrier is waited for by everything after it
+        assertEquals(set(1, 2, 3, 4, 5, 6, 7), set(sched.getSuccessors(0)));
+        // b2c reads what a2b wrote, a2b must read "a" before writesA overwrites it
+        assertEquals(set(2, 4, 6), set(sched.getSuccessors(1)));
+        // alsoC writes the same output as b2c
+        assertEquals(set(5, 6), set(sched.getSuccessors(2)));
+        // Independent plugins wait only for the barriers
+        assertEquals(set(6), set(sched.getSuccessors(3)));
+        assertEquals(set(6), set(sched.getSuccessors(4)));
+        assertEquals(set(6), set(sched.getSuccessors(5)));
+        assertEquals(set(7), set(sched.getSuccessors(6)));
+        assertEquals(set(), set(sched.getSuccessors(7)));
+
+        // Every plugin was loaded after its predecessors
+        assertEquals(plugins.size(), mLoaded.size());
+        for (int i = 0; i < plugins.size(); i++) {
+            for (int next : sched.getSuccessors(i)) {
+                String name = ((TestPlugin) plugins.get(i)).mName;
+                String nextName = ((TestPlugin) plugins.get(next)).mName;
+                assertTrue(name + " before " + nextName,
+                        mLoaded.indexOf(name) < mLoaded.indexOf(nextName));
+            }
+        }
+    }
+
+    @Test
+    public void isolatesCrashedPlugins() {
+        Vector<Plugin> plugins = new Vector<Plugin>();
+        TestPlugin crashing = new TestPlugin("crashing", new String[0], new String[] { "a" }) {
+            @Override
+            public void load(Module mod) {
+                super.load(mod);
+                throw new RuntimeException("Test crash");
+            }
+        };
+        TestPlugin reader = new TestPlugin("reader", new String[] { "a" }, new String[0]);
+        TestPlugin other = new TestPlugin("other", new String[0], new String[0]);
+        plugins.add(crashing);
+        plugins.add(reader);
+        plugins.add(other);
+
+        new PluginScheduler(mMod, 3).run(plugins);
+
+        assertTrue(mMod.isPluginCrashed(crashing));
+        assertFalse(mMod.isPluginCrashed(reader));
+        assertFalse(mMod.isPluginCrashed(other));
+        assertEquals(3, mLoaded.size());
+        assertTrue(mLoaded.indexOf("crashing") < mLoaded.indexOf("reader"));
+    }
+
+    @Test
+    public void appliesProcessRecordChangesInPriorityOrder() {
+        final CountDownLatch secondDone = new CountDownLatch(1);
+        Vector<Plugin> plugins = new Vector<Plugin>();
+        plugins.add(new TestPlugin("first", new String[0], new String[0]) {
+            @Override
+            public void load(Module mod) {
+                // Wait until the second plugin made its changes
+                try {
+                    secondDone.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                ProcessRecord pr = ((BugReportModule) mod).getProcessRecord(42, true, true);
+                pr.suggestName("first", 10);
+                new Block(pr).add("from first");
+                super.load(mod);
+            }
+        });
+        plugins.add(new TestPlugin("second", new String[0], new String[0]) {
+            @Override
+            public void load(Module mod) {
+                ProcessRecord pr = ((BugReportModule) mod).getProcessRecord(42, true, true);
+                pr.suggestName("second", 10);
+                new Block(pr).add("from second");
+                super.load(mod);
+                secondDone.countDown();
+            }
+        });
+
+        new PluginScheduler(mMod, 2).run(plugins);
+
+        assertEquals(Arrays.asList("second", "first"), mLoaded);
+        ProcessRecord pr = mMod.getProcessRecord(42, false, false);
+        assertEquals("first", pr.getProcName());
+        Vector<String> texts = new Vector<String>();
+        for (int i = 0; i < pr.getChildCount(); i++) {
+            if (pr.getChild(i) instanceof Block) {
+                texts.add(((SimpleText) pr.getChild(i).getChild(0)).getText());
+            }
+        }
+        assertEquals(Arrays.asList("from first", "from second"), texts);
+    }
+
+    private static HashSet<Integer> set(Integer... items) {
+        return new HashSet<Integer>(Arrays.asList(items));
+    }
+
+    private static HashSet<Integer> set(Vector<Integer> items) {
+        return new HashSet<Integer>(items);
+    }
+
+    private class TestPlugin extends Plugin {
+
+        private String mName;
+        private String mConsumed[];
+        private String mProduced[];
+
+        public TestPlugin(String name, String consumed[], String produced[]) {
+            mName = name;
+            mConsumed = consumed;
+            mProduced = produced;
+        }
+
+        @Override
+        public int getPrio() {
+            return 1;
+        }
+
+        @Override
+        public String[] getConsumedData() {
+            return mConsumed;
+        }
+
+        @Override
+        public String[] getProducedData() {
+            return mProduced;
+        }
+
+        @Override
+        public void reset() {
+        }
+
+        @Override
+        public void load(Module mod) {
+            mLoaded.add(mName);
+        }
+
+        @Override
+        public void generate(Module mod) {
+        }
+
+    }
+
+}
@@ -0,0 +1,98 @@
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Context;
+import com.sonyericsson.chkbugreport.Section;
+import com.sonyericsson.chkbugreport.plugins.stacktrace.Processes;
+import com.sonyericsson.chkbugreport.plugins.stacktrace.SnapshotDiff;
+import com.sonyericsson.chkbugreport.plugins.stacktrace.StackTracePlugin;
+import com.sonyericsson.chkbugreport.plugins.stacktrace.StackTraceScanner;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+
+public class SnapshotDiffTest {
+    BugReportModule bugReport;
+    StackTracePlugin plugin;
+    SnapshotDiff diff;
+
+    @Before
+    public void setup() {
+        bugReport = new BugReportModule(new Context());
+        plugin = new StackTracePlugin();
+        diff = new SnapshotDiff();
+    }
+
+    private void addThread(StringBuilder data, String name, int tid, String... frames) {
+        data.append("\"").append(name).append("\" prio=5 tid=").append(tid).append(" Runnable\n");
+        data.append("  | sysTid=").append(1000 + tid).append("\n");
+        for (String frame : frames) {
+            data.append("  at ").append(frame).append("\n");
+        }
+        data.append("\n");
+    }
+
+    private void addSnapshot(String threads) {
+        String data = "----- pid 10 at 2020-01-16 14:18:55 -----\n" +
+                "Cmd line: system_server\n\n" +
+                threads +
+                "----- end 10 -----\n";
+        TestSection section = new TestSection(bugReport, "VM TRACES WHEN SLOW");
+        section.setTestLines(data);
+        int id = StackTracePlugin.ID_SLOW + diff.getSnapshotCount();
+        Processes processes = new StackTraceScanner(plugin).scan(bugReport, id, section, "slow");
+        diff.add(processes);
+    }
+
+    @Test
+    public void findsStuckAndChurningThreads() {
+        for (int i = 0; i < 4; i++) {
+            StringBuilder data = new StringBuilder();
+            addThread(data, "main", 1, "com.android.server.Foo.bar(Foo.java:10)", "android.os.Looper.loop(Looper.java:193)");
+            addThread(data, "worker", 2, "com.foo.Work.step(Work.java:" + i + ")");
+            addThread(data, "idle", 3, "android.os.MessageQueue.nativePollOnce(Native method)", "android.os.Looper.loop(Looper.java:193)");
+            if (i != 1) {
+                // This thread is missing from one snapshot, so it has two shorter runs
+                addThread(data, "gap", 4, "com.foo.Gap.run(Gap.java:1)");
+            }
+            addSnapshot(data.toString());
+        }
+
+        Vector<SnapshotDiff.ThreadHistory> stuck = diff.getStuckThreads();
+        assertEquals(2, stuck.size());
+        assertEquals(1, stuck.get(0).getTid());
+        assertEquals(4, stuck.get(0).getMaxRun());
+        assertEquals(0, stuck.get(0).getChanges());
+        assertEquals(4, stuck.get(1).getTid());
+        assertEquals(3, stuck.get(1).getSeen());
+        assertEquals(2, stuck.get(1).getMaxRun());
+        assertEquals(2, stuck.get(1).getMaxRunFrom());
+
+        Vector<SnapshotDiff.ThreadHistory> churning = diff.getChurningThreads();
+        assertEquals(1, churning.size());
+        assertEquals(2, churning.get(0).getTid());
+        assertEquals(3, churning.get(0).getChanges());
+        assertEquals(1, churning.get(0).getMaxRun());
+    }
+
+    @Test
+    public void scalesToManySnapshots() {
+        int snapshots = 30, threads = 2000;
+        for (int i = 0; i < snapshots; i++) {
+            StringBuilder data = new StringBuilder();
+            for (int tid = 1; tid <= threads; tid++) {
+                // Every 10th thread changes its stack in every snapshot
+                int line = (tid % 10 == 0) ? i : 0;
+                addThread(data, "t" + tid, tid, "com.foo.Bar.run" + tid + "(Bar.java:" + line + ")",
+                        "java.lang.Thread.run(Thread.java:764)");
+            }
+            addSnapshot(data.toString());
+        }
+        assertEquals(threads - threads / 10, diff.getStuckThreads().size());
+        assertEquals(snapshots, diff.getStuckThreads().get(0).getMaxRun());
+        assertEquals(threads / 10, diff.getChurningThreads().size());
+    }
+
+}
@@ -9,6 +9,7 @@ import org.junit.Test;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.mock;
@@ -259,4 +260,88 @@ public class StackTraceScannerTest {
         assertEquals(-1, trace.get(9).getOffset());
         assertEquals(null, trace.get(9).getFileName());
     }
+
+    @Test
+    public void parsesProcessesInParallel() {
+        StringBuilder data = new StringBuilder();
+        for (int pid = 1; pid <= 100; pid++) {
+            data.append("----- pid ").append(pid).append(" at 2020-01-16 14:18:55 -----\n");
+            data.append("Cmd line: proc").append(pid).append("\n\n");
+            for (int tid = 1; tid <= 5; tid++) {
+                data.append("\"Thread-").append(tid).append("\" prio=5 tid=").append(tid).append(" Blocked\n");
+                data.append("  | sysTid=").append(pid * 100 + tid).append("\n");
+                data.append("  at com.foo.Bar.run(Bar.java:").append(tid).append(")\n");
+                data.append("  - waiting to lock <0x1234> (a java.lang.Object) held by thread 1\n");
+                data.append("  native: #00 pc 00000000000d1404  /system/lib64/libc.so (__ioctl+4)\n\n");
+            }
+            data.append("----- end ").append(pid).append(" -----\n");
+        }
+        Context context = new Context();
+        context.setThreadCount(4);
+        BugReportModule bugReport = new BugReportModule(context);
+        TestSection section = new TestSection(bugReport, Section.VM_TRACES_JUST_NOW);
+        section.setTestLines(data.toString());
+
+        Processes result = new StackTraceScanner(null).scan(bugReport, 0, section, "test");
+
+        assertEquals(100, result.size());
+        for (int pid = 1; pid <= 100; pid++) {
+            Process process = result.get(pid - 1);
+            assertEquals(pid, process.getPid());
+            assertEquals("proc" + pid, process.getName());
+            assertEquals(5, process.getCount());
+            StackTrace trace = process.findTid(3);
+            assertEquals("Thread-3", trace.getName());
+            assertEquals("Blocked", trace.getState());
+            assertEquals(pid * 100 + 3, trace.getPid());
+            assertEquals(3, trace.getCount());
+            assertEquals(3, trace.get(0).getLine());
+            assertEquals("__ioctl", trace.get(2).getMethod());
+            assertNotNull(trace.getWaitOn());
+            assertEquals(null, process.findTid(1).getWaitOn()); // Waiting on itself
+        }
+    }
+
+    @Test
+    public void sharesFramesBetweenSections() {
+        String data = "----- pid 10 at 2020-01-16 14:18:55 -----\n" +
+                "Cmd line: system_server\n\n" +
+                "\"main\" prio=5 tid=1 Native\n" +
+                "  | sysTid=10\n" +
+                "  at android.os.MessageQueue.nativePollOnce(Native method)\n" +
+                "  at android.os.Looper.loop(Looper.java:193)\n\n" +
+                "\"worker\" prio=5 tid=2 Native\n" +
+                "  | sysTid=11\n" +
+                "  at com.foo.Bar.run(Bar.java:12)\n" +
+                "  at android.os.Looper.loop(Looper.java:193)\n\n" +
+                "----- end 10 -----\n";
+        BugReportModule bugReport = new BugReportModule(new Context());
+        StackTracePlugin plugin = new StackTracePlugin();
+        TestSection now = new TestSection(bugReport, Section.VM_TRACES_JUST_NOW);
+        now.setTestLines(data);
+        TestSection anr = new TestSection(bugReport, Section.VM_TRACES_AT_LAST_ANR);
+        anr.setTestLines(data);
+
+        Processes first = new StackTraceScanner(plugin).scan(bugReport, StackTracePlugin.ID_NOW, now, "now");
+        Processes second = new StackTraceScanner(plugin).scan(bugReport, StackTracePlugin.ID_ANR, anr, "anr");
+
+        StackFrames frames = plugin.getFrames();
+        assertSame(frames, first.getFrames());
+        assertEquals(3, frames.getCount());
+        StackTrace main = first.get(0).findTid(1);
+        StackTrace worker = first.get(0).findTid(2);
+        assertSame(main.get(1), worker.get(1));
+        assertSame(main.get(1), second.get(0).findTid(1).get(1));
+        assertEquals(main.getFrameId(1), worker.getFrameId(1));
+
+        int loop = frames.findMethodId("android.os.Looper.loop");
+        assertEquals(1, main.findMethod(loop));
+        assertEquals(1, worker.findMethod("android.os.Looper.loop"));
+        assertEquals(-1, worker.findMethod(frames.findMethodId("android.os.Binder.execTransact")));
+
+        // The style belongs to the stack trace, not to the shared frame
+        worker.setStyle(0, 2, StackTraceItem.STYLE_BUSY);
+        assertEquals(StackTraceItem.STYLE_BUSY, worker.getStyle(1));
+        assertEquals("", main.getStyle(1));
+    }
 }
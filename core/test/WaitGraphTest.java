@@ -0,0 +1,121 @@
+import com.sonyericsson.chkbugreport.BugReportModule;
+import com.sonyericsson.chkbugreport.Context;
+import com.sonyericsson.chkbugreport.Section;
+import com.sonyericsson.chkbugreport.plugins.stacktrace.Process;
+import com.sonyericsson.chkbugreport.plugins.stacktrace.Processes;
+import com.sonyericsson.chkbugreport.plugins.stacktrace.StackTrace;
+import com.sonyericsson.chkbugreport.plugins.stacktrace.StackTraceScanner;
+import com.sonyericsson.chkbugreport.plugins.stacktrace.WaitGraph;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class WaitGraphTest {
+    BugReportModule bugReport;
+    StringBuilder data;
+    int lastPid;
+
+    @Before
+    public void setup() {
+        bugReport = new BugReportModule(new Context());
+        data = new StringBuilder();
+    }
+
+    private void addProcess(int pid) {
+        endProcess();
+        lastPid = pid;
+        data.append("----- pid ").append(pid).append(" at 2020-01-16 14:18:55 -----\n");
+        data.append("Cmd line: proc").append(pid).append("\n\n");
+    }
+
+    private void addThread(String name, int tid, int sysTid, int waitOn) {
+        data.append("\"").append(name).append("\" prio=5 tid=").append(tid).append(" Blocked\n");
+        data.append("  | sysTid=").append(sysTid).append("\n");
+        data.append("  at com.foo.Bar.run(Bar.java:12)\n");
+        if (waitOn > 0) {
+            data.append("  - waiting to lock <0x1234> (a java.lang.Object) held by thread ").append(waitOn).append("\n");
+        }
+        data.append("\n");
+    }
+
+    private void endProcess() {
+        if (lastPid > 0) {
+            data.append("----- end ").append(lastPid).append(" -----\n");
+        }
+    }
+
+    private Processes scan() {
+        endProcess();
+        TestSection section = new TestSection(bugReport, Section.VM_TRACES_JUST_NOW);
+        section.setTestLines(data.toString());
+        return new StackTraceScanner(null).scan(bugReport, 0, section, "test");
+    }
+
+    @Test
+    public void findsMonitorAndBinderCycles() {
+        addProcess(10);
+        addThread("main", 1, 10, 2);
+        addThread("Binder_1", 2, 12, 0);
+        addProcess(20);
+        addThread("main", 1, 20, 0);
+        addThread("Binder_1", 2, 21, 3);
+        addThread("worker", 3, 22, 0);
+        addProcess(30);
+        addThread("a", 1, 30, 2);
+        addThread("b", 2, 31, 1);
+        Processes processes = scan();
+        Process p10 = processes.findPid(10);
+        Process p20 = processes.findPid(20);
+        Process p30 = processes.findPid(30);
+        // Binder calls: 10/Binder_1 -> 20/Binder_1 and 20/worker -> 10/Binder_1
+        p10.findTid(2).setAidlDependency(p20.findTid(2));
+        p20.findTid(3).setAidlDependency(p10.findTid(2));
+
+        WaitGraph graph = new WaitGraph(processes);
+        Vector<WaitGraph.Deadlock> deadlocks = graph.getDeadlocks();
+        assertEquals(2, deadlocks.size());
+
+        WaitGraph.Deadlock dl = deadlocks.get(0);
+        assertEquals(3, dl.getThreads().size());
+        assertSame(p10.findTid(2), dl.getThreads().get(0));
+        assertSame(p20.findTid(2), dl.getThreads().get(1));
+        assertSame(p20.findTid(3), dl.getThreads().get(2));
+        assertEquals(1, dl.getBlocked().size());
+        assertSame(p10.findTid(1), dl.getBlocked().get(0));
+        assertTrue(graph.isInDeadlock(p20.findTid(3), dl));
+        assertFalse(graph.isInDeadlock(p10.findTid(1), dl));
+        assertFalse(graph.isInDeadlock(p20.findTid(1), dl));
+
+        assertEquals(1, graph.getEdgeCount(p10.findTid(2)));
+        assertSame(p20.findTid(2), graph.getEdgeTarget(p10.findTid(2), 0));
+        assertEquals(WaitGraph.BINDER, graph.getEdgeLabel(p10.findTid(2), 0));
+
+        dl = deadlocks.get(1);
+        assertEquals(2, dl.getThreads().size());
+        assertSame(p30.findTid(1), dl.getThreads().get(0));
+        assertEquals(0, dl.getBlocked().size());
+    }
+
+    @Test
+    public void handlesLongWaitChains() {
+        addProcess(10);
+        int cnt = 20000;
+        for (int tid = 1; tid <= cnt; tid++) {
+            // Every thread waits on the next one, the last two on each other
+            addThread("t" + tid, tid, 1000 + tid, tid == cnt ? cnt - 1 : tid + 1);
+        }
+        WaitGraph graph = new WaitGraph(scan());
+        assertEquals(1, graph.getDeadlocks().size());
+        WaitGraph.Deadlock dl = graph.getDeadlocks().get(0);
+        assertEquals(2, dl.getThreads().size());
+        assertEquals(cnt - 2, dl.getBlocked().size());
+    }
+
+}